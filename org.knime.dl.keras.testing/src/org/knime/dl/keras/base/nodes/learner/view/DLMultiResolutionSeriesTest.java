@@ -0,0 +1,164 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ *
+ */
+package org.knime.dl.keras.base.nodes.learner.view;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+import org.junit.Test;
+
+import gnu.trove.TFloatArrayList;
+import gnu.trove.TIntArrayList;
+
+@SuppressWarnings("javadoc")
+public class DLMultiResolutionSeriesTest {
+
+	@Test
+	public void testCollectRawPoints() throws Exception {
+		final DLMultiResolutionSeries series = new DLMultiResolutionSeries(100, 4, 2, 10, 1);
+		for (int i = 0; i < 50; i++) {
+			series.add(i, i * 0.5f);
+		}
+		final TIntArrayList xs = new TIntArrayList();
+		final TFloatArrayList ys = new TFloatArrayList();
+		series.collectPoints(10, 19, xs, ys);
+		assertEquals(10, xs.size());
+		for (int i = 0; i < xs.size(); i++) {
+			assertEquals(10 + i, xs.get(i));
+			assertEquals((10 + i) * 0.5f, ys.get(i), 0f);
+		}
+	}
+
+	@Test
+	public void testSizeIsBounded() throws Exception {
+		// raw: 8 points, level 1: 10 blocks of 4 points, level 2: 10 blocks of 16 points
+		final DLMultiResolutionSeries series = new DLMultiResolutionSeries(8, 4, 2, 10, 1);
+		for (int i = 0; i < 1000; i++) {
+			series.add(i, i % 7);
+		}
+		assertEquals(1000, series.size());
+		assertEquals(8, series.getNumRawPoints());
+		final TIntArrayList xs = new TIntArrayList();
+		final TFloatArrayList ys = new TFloatArrayList();
+		series.collectPoints(Integer.MIN_VALUE, Integer.MAX_VALUE, xs, ys);
+		// at most two points (min and max) per block plus the raw points
+		assertTrue(xs.size() <= 2 * 10 + 2 * 10 + 8);
+		for (int i = 1; i < xs.size(); i++) {
+			assertTrue("X-values must be strictly increasing.", xs.get(i) > xs.get(i - 1));
+		}
+		assertEquals(999, xs.get(xs.size() - 1));
+	}
+
+	@Test
+	public void testAggregatesKeepExtrema() throws Exception {
+		final DLMultiResolutionSeries series = new DLMultiResolutionSeries(4, 8, 1, 100, 1);
+		for (int i = 0; i < 64; i++) {
+			series.add(i, i == 20 ? 100f : i == 21 ? -100f : 0f);
+		}
+		final TIntArrayList xs = new TIntArrayList();
+		final TFloatArrayList ys = new TFloatArrayList();
+		series.collectPoints(16, 23, xs, ys);
+		assertEquals(2, xs.size());
+		assertEquals(20, xs.get(0));
+		assertEquals(100f, ys.get(0), 0f);
+		assertEquals(21, xs.get(1));
+		assertEquals(-100f, ys.get(1), 0f);
+	}
+
+	@Test
+	public void testSerialization() throws Exception {
+		final DLMultiResolutionSeries series = new DLMultiResolutionSeries(16, 4, 2, 8, 1);
+		for (int i = 0; i < 300; i++) {
+			series.add(i * 2, (float) Math.sin(i));
+		}
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ObjectOutputStream objOut = new ObjectOutputStream(bytes)) {
+			series.writeExternal(objOut);
+		}
+		final DLMultiResolutionSeries deserialized = new DLMultiResolutionSeries();
+		try (ObjectInputStream objIn = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+			deserialized.readExternal(objIn);
+		}
+		// continue adding to both to check that the ring buffers were restored properly
+		for (int i = 300; i < 400; i++) {
+			series.add(i * 2, (float) Math.sin(i));
+			deserialized.add(i * 2, (float) Math.sin(i));
+		}
+		assertEquals(series.size(), deserialized.size());
+		final TIntArrayList xs = new TIntArrayList();
+		final TFloatArrayList ys = new TFloatArrayList();
+		series.collectPoints(Integer.MIN_VALUE, Integer.MAX_VALUE, xs, ys);
+		final TIntArrayList deserializedXs = new TIntArrayList();
+		final TFloatArrayList deserializedYs = new TFloatArrayList();
+		deserialized.collectPoints(Integer.MIN_VALUE, Integer.MAX_VALUE, deserializedXs, deserializedYs);
+		assertEquals(xs, deserializedXs);
+		assertEquals(ys, deserializedYs);
+	}
+
+	@Test
+	public void testLargestTriangleThreeBuckets() throws Exception {
+		final TIntArrayList xs = new TIntArrayList();
+		final TFloatArrayList ys = new TFloatArrayList();
+		for (int i = 0; i < 1000; i++) {
+			xs.add(i);
+			ys.add(i == 500 ? 10f : 0f);
+		}
+		final TIntArrayList outXs = new TIntArrayList();
+		final TFloatArrayList outYs = new TFloatArrayList();
+		DLLinePlotDownsampling.largestTriangleThreeBuckets(xs, ys, 50, outXs, outYs);
+		assertEquals(50, outXs.size());
+		assertEquals(0, outXs.get(0));
+		assertEquals(999, outXs.get(49));
+		// the peak is visually important and must be kept
+		assertTrue(outXs.contains(500));
+	}
+}
@@ -0,0 +1,541 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ *
+ */
+package org.knime.dl.keras.core.execution.jvm;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Compares the layers of the Java execution back end against naive reference implementations of the respective Keras
+ * layers. Models are built in the binary format that is written by <code>DLKerasJvmModelExporter.py</code>.
+ */
+public final class DLKerasJvmModelTest {
+
+	private static final float EPSILON = 1e-4f;
+
+	private final Random m_random = new Random(42);
+
+	private DLKerasJvmKernels m_kernels;
+
+	@Before
+	public void setUp() {
+		m_kernels = new DLKerasJvmKernels(4);
+	}
+
+	@After
+	public void tearDown() {
+		m_kernels.close();
+	}
+
+	@Test
+	public void testMatmul() {
+		// large enough to be split into several ranges and blocks
+		final int m = 67;
+		final int k = 301;
+		final int n = 259;
+		final float[] a = random(m * k);
+		final float[] b = random(k * n);
+		final float[] bias = random(n);
+		final float[] c = new float[m * n];
+		m_kernels.matmul(a, 0, b, bias, DLKerasJvmActivation.LINEAR, c, 0, m, k, n);
+		final float[] expected = new float[m * n];
+		for (int i = 0; i < m; i++) {
+			for (int j = 0; j < n; j++) {
+				double sum = bias[j];
+				for (int p = 0; p < k; p++) {
+					sum += a[i * k + p] * b[p * n + j];
+				}
+				expected[i * n + j] = (float)sum;
+			}
+		}
+		assertArrayEquals(expected, c, 1e-3f);
+	}
+
+	@Test
+	public void testDense() throws Exception {
+		final float[] kernel1 = random(5 * 8);
+		final float[] bias1 = random(8);
+		final float[] kernel2 = random(8 * 3);
+		final float[] bias2 = random(3);
+		final DLKerasJvmModel model = new ModelBuilder() //
+			.layer("input_1", "InputLayer", Collections.emptyList(), config()) //
+			.layer("dense_1", "Dense", Arrays.asList("input_1"), config("units", "8", "activation", "relu"),
+				weight(kernel1, 5, 8), weight(bias1, 8)) //
+			.layer("dense_2", "Dense", Arrays.asList("dense_1"), config("units", "3", "activation", "softmax"),
+				weight(kernel2, 8, 3), weight(bias2, 3)) //
+			.build("input_1", "dense_2");
+		final int batchSize = 7;
+		final float[] input = random(batchSize * 5);
+		final float[] output = execute(model, "input_1", input, new int[]{5}, batchSize, "dense_2");
+		final float[] expected = new float[batchSize * 3];
+		for (int i = 0; i < batchSize; i++) {
+			final float[] hidden = dense(input, i * 5, kernel1, bias1, 5, 8);
+			for (int j = 0; j < 8; j++) {
+				hidden[j] = Math.max(hidden[j], 0f);
+			}
+			final float[] logits = dense(hidden, 0, kernel2, bias2, 8, 3);
+			double sum = 0;
+			for (int j = 0; j < 3; j++) {
+				sum += Math.exp(logits[j]);
+			}
+			for (int j = 0; j < 3; j++) {
+				expected[i * 3 + j] = (float)(Math.exp(logits[j]) / sum);
+			}
+		}
+		assertArrayEquals(expected, output, EPSILON);
+	}
+
+	@Test
+	public void testConv2DSamePadding() throws Exception {
+		final int h = 9;
+		final int w = 8;
+		final int channels = 3;
+		final int filters = 4;
+		final int k = 3;
+		final int stride = 2;
+		final float[] kernel = random(k * k * channels * filters);
+		final float[] bias = random(filters);
+		final DLKerasJvmModel model = new ModelBuilder() //
+			.layer("input_1", "InputLayer", Collections.emptyList(), config()) //
+			.layer("conv2d_1", "Conv2D", Arrays.asList("input_1"),
+				config("filters", "4", "kernel_size", "3,3", "strides", "2,2", "padding", "same", "activation",
+					"linear", "data_format", "channels_last"),
+				weight(kernel, k, k, channels, filters), weight(bias, filters)) //
+			.build("input_1", "conv2d_1");
+		final int batchSize = 2;
+		final float[] input = random(batchSize * h * w * channels);
+		final float[] output = execute(model, "input_1", input, new int[]{h, w, channels}, batchSize, "conv2d_1");
+		// TensorFlow's "same" padding puts the extra padding at the bottom and right
+		final int outH = (h + stride - 1) / stride;
+		final int outW = (w + stride - 1) / stride;
+		final int padTop = Math.max((outH - 1) * stride + k - h, 0) / 2;
+		final int padLeft = Math.max((outW - 1) * stride + k - w, 0) / 2;
+		final float[] expected = new float[batchSize * outH * outW * filters];
+		for (int b = 0; b < batchSize; b++) {
+			for (int oy = 0; oy < outH; oy++) {
+				for (int ox = 0; ox < outW; ox++) {
+					for (int f = 0; f < filters; f++) {
+						double sum = bias[f];
+						for (int ky = 0; ky < k; ky++) {
+							for (int kx = 0; kx < k; kx++) {
+								final int y = oy * stride + ky - padTop;
+								final int x = ox * stride + kx - padLeft;
+								if (y < 0 || y >= h || x < 0 || x >= w) {
+									continue;
+								}
+								for (int c = 0; c < channels; c++) {
+									sum += input[((b * h + y) * w + x) * channels + c]
+										* kernel[((ky * k + kx) * channels + c) * filters + f];
+								}
+							}
+						}
+						expected[((b * outH + oy) * outW + ox) * filters + f] = (float)sum;
+					}
+				}
+			}
+		}
+		assertArrayEquals(expected, output, EPSILON);
+	}
+
+	@Test
+	public void testPooling2D() throws Exception {
+		final int h = 6;
+		final int w = 5;
+		final int channels = 2;
+		final DLKerasJvmModel model = new ModelBuilder() //
+			.layer("input_1", "InputLayer", Collections.emptyList(), config()) //
+			.layer("max_pooling2d_1", "MaxPooling2D", Arrays.asList("input_1"),
+				config("pool_size", "2,2", "padding", "valid")) //
+			.layer("average_pooling2d_1", "AveragePooling2D", Arrays.asList("input_1"),
+				config("pool_size", "2,2", "padding", "valid")) //
+			.layer("global_average_pooling2d_1", "GlobalAveragePooling2D", Arrays.asList("input_1"), config()) //
+			.build("input_1", "max_pooling2d_1");
+		final int batchSize = 3;
+		final float[] input = random(batchSize * h * w * channels);
+		final Map<String, float[]> outputs = execute(model, "input_1", input, new int[]{h, w, channels}, batchSize,
+			Arrays.asList("max_pooling2d_1", "average_pooling2d_1", "global_average_pooling2d_1"));
+		final int outH = h / 2;
+		final int outW = w / 2;
+		final float[] expectedMax = new float[batchSize * outH * outW * channels];
+		final float[] expectedAverage = new float[expectedMax.length];
+		final float[] expectedGlobal = new float[batchSize * channels];
+		for (int b = 0; b < batchSize; b++) {
+			for (int c = 0; c < channels; c++) {
+				for (int oy = 0; oy < outH; oy++) {
+					for (int ox = 0; ox < outW; ox++) {
+						float max = Float.NEGATIVE_INFINITY;
+						float sum = 0f;
+						for (int y = 2 * oy; y < 2 * oy + 2; y++) {
+							for (int x = 2 * ox; x < 2 * ox + 2; x++) {
+								final float value = input[((b * h + y) * w + x) * channels + c];
+								max = Math.max(max, value);
+								sum += value;
+							}
+						}
+						expectedMax[((b * outH + oy) * outW + ox) * channels + c] = max;
+						expectedAverage[((b * outH + oy) * outW + ox) * channels + c] = sum / 4;
+					}
+				}
+				float sum = 0f;
+				for (int i = 0; i < h * w; i++) {
+					sum += input[(b * h * w + i) * channels + c];
+				}
+				expectedGlobal[b * channels + c] = sum / (h * w);
+			}
+		}
+		assertArrayEquals(expectedMax, outputs.get("max_pooling2d_1"), EPSILON);
+		assertArrayEquals(expectedAverage, outputs.get("average_pooling2d_1"), EPSILON);
+		assertArrayEquals(expectedGlobal, outputs.get("global_average_pooling2d_1"), EPSILON);
+	}
+
+	@Test
+	public void testBatchNormalization() throws Exception {
+		final int features = 4;
+		final float[] gamma = random(features);
+		final float[] beta = random(features);
+		final float[] mean = random(features);
+		final float[] variance = new float[features];
+		for (int i = 0; i < features; i++) {
+			variance[i] = 0.5f + m_random.nextFloat();
+		}
+		final DLKerasJvmModel model = new ModelBuilder() //
+			.layer("input_1", "InputLayer", Collections.emptyList(), config()) //
+			.layer("batch_normalization_1", "BatchNormalization", Arrays.asList("input_1"),
+				config("axis", "-1", "epsilon", "0.001"), weight(gamma, features), weight(beta, features),
+				weight(mean, features), weight(variance, features)) //
+			.build("input_1", "batch_normalization_1");
+		final int batchSize = 5;
+		final float[] input = random(batchSize * 3 * features);
+		final float[] output =
+			execute(model, "input_1", input, new int[]{3, features}, batchSize, "batch_normalization_1");
+		final float[] expected = new float[input.length];
+		for (int i = 0; i < input.length; i++) {
+			final int f = i % features;
+			expected[i] = (float)(gamma[f] * (input[i] - mean[f]) / Math.sqrt(variance[f] + 0.001) + beta[f]);
+		}
+		assertArrayEquals(expected, output, EPSILON);
+	}
+
+	@Test
+	public void testEmbeddingAndLSTM() throws Exception {
+		final int vocabulary = 10;
+		final int embeddingDim = 3;
+		final int units = 4;
+		final int steps = 5;
+		final float[] embeddings = random(vocabulary * embeddingDim);
+		final float[] kernel = random(embeddingDim * 4 * units);
+		final float[] recurrentKernel = random(units * 4 * units);
+		final float[] bias = random(4 * units);
+		final DLKerasJvmModel model = new ModelBuilder() //
+			.layer("input_1", "InputLayer", Collections.emptyList(), config()) //
+			.layer("embedding_1", "Embedding", Arrays.asList("input_1"), config("mask_zero", "false"),
+				weight(embeddings, vocabulary, embeddingDim)) //
+			.layer("lstm_1", "LSTM", Arrays.asList("embedding_1"),
+				config("units", "4", "activation", "tanh", "recurrent_activation", "sigmoid"),
+				weight(kernel, embeddingDim, 4 * units), weight(recurrentKernel, units, 4 * units),
+				weight(bias, 4 * units)) //
+			.build("input_1", "lstm_1");
+		final int batchSize = 3;
+		final float[] input = new float[batchSize * steps];
+		for (int i = 0; i < input.length; i++) {
+			input[i] = m_random.nextInt(vocabulary);
+		}
+		final float[] output = execute(model, "input_1", input, new int[]{steps}, batchSize, "lstm_1");
+		final float[] expected = new float[batchSize * units];
+		for (int b = 0; b < batchSize; b++) {
+			final float[] h = new float[units];
+			final float[] c = new float[units];
+			for (int t = 0; t < steps; t++) {
+				final float[] x = Arrays.copyOfRange(embeddings, (int)input[b * steps + t] * embeddingDim,
+					((int)input[b * steps + t] + 1) * embeddingDim);
+				final float[] z = dense(x, 0, kernel, bias, embeddingDim, 4 * units);
+				final float[] r = dense(h, 0, recurrentKernel, new float[4 * units], units, 4 * units);
+				for (int j = 0; j < units; j++) {
+					final double i = sigmoid(z[j] + r[j]);
+					final double f = sigmoid(z[units + j] + r[units + j]);
+					final double candidate = Math.tanh(z[2 * units + j] + r[2 * units + j]);
+					final double o = sigmoid(z[3 * units + j] + r[3 * units + j]);
+					c[j] = (float)(f * c[j] + i * candidate);
+					h[j] = (float)(o * Math.tanh(c[j]));
+				}
+			}
+			System.arraycopy(h, 0, expected, b * units, units);
+		}
+		assertArrayEquals(expected, output, EPSILON);
+	}
+
+	@Test
+	public void testGRU() throws Exception {
+		testGRU(false);
+	}
+
+	@Test
+	public void testGRUResetAfter() throws Exception {
+		testGRU(true);
+	}
+
+	private void testGRU(final boolean resetAfter) throws Exception {
+		final int features = 3;
+		final int units = 4;
+		final int steps = 5;
+		final float[] kernel = random(features * 3 * units);
+		final float[] recurrentKernel = random(units * 3 * units);
+		// reset_after GRUs have separate input and recurrent biases
+		final float[] bias = random((resetAfter ? 2 : 1) * 3 * units);
+		final DLKerasJvmModel model = new ModelBuilder() //
+			.layer("input_1", "InputLayer", Collections.emptyList(), config()) //
+			.layer("gru_1", "GRU", Arrays.asList("input_1"),
+				config("units", "4", "activation", "tanh", "recurrent_activation", "sigmoid", "reset_after",
+					Boolean.toString(resetAfter)),
+				weight(kernel, features, 3 * units), weight(recurrentKernel, units, 3 * units),
+				resetAfter ? weight(bias, 2, 3 * units) : weight(bias, 3 * units)) //
+			.build("input_1", "gru_1");
+		final int batchSize = 3;
+		final float[] input = random(batchSize * steps * features);
+		final float[] output = execute(model, "input_1", input, new int[]{steps, features}, batchSize, "gru_1");
+		final float[] inputBias = Arrays.copyOf(bias, 3 * units);
+		final float[] recurrentBias = resetAfter ? Arrays.copyOfRange(bias, 3 * units, 6 * units) : new float[3 * units];
+		final float[] expected = new float[batchSize * units];
+		for (int b = 0; b < batchSize; b++) {
+			final float[] h = new float[units];
+			for (int t = 0; t < steps; t++) {
+				final float[] x = dense(input, (b * steps + t) * features, kernel, inputBias, features, 3 * units);
+				final float[] r = dense(h, 0, recurrentKernel, recurrentBias, units, 3 * units);
+				final double[] update = new double[units];
+				final double[] reset = new double[units];
+				for (int j = 0; j < units; j++) {
+					update[j] = sigmoid(x[j] + r[j]);
+					reset[j] = sigmoid(x[units + j] + r[units + j]);
+				}
+				final double[] candidate = new double[units];
+				for (int j = 0; j < units; j++) {
+					if (resetAfter) {
+						candidate[j] = Math.tanh(x[2 * units + j] + reset[j] * r[2 * units + j]);
+					} else {
+						// the reset gate is applied before the recurrent multiplication
+						double sum = x[2 * units + j];
+						for (int p = 0; p < units; p++) {
+							sum += reset[p] * h[p] * recurrentKernel[p * 3 * units + 2 * units + j];
+						}
+						candidate[j] = Math.tanh(sum);
+					}
+				}
+				for (int j = 0; j < units; j++) {
+					h[j] = (float)(update[j] * h[j] + (1 - update[j]) * candidate[j]);
+				}
+			}
+			System.arraycopy(h, 0, expected, b * units, units);
+		}
+		assertArrayEquals(expected, output, EPSILON);
+	}
+
+	@Test
+	public void testOnlyNeededLayersAreInferred() throws Exception {
+		final DLKerasJvmModel model = new ModelBuilder() //
+			.layer("input_1", "InputLayer", Collections.emptyList(), config()) //
+			.layer("flatten_1", "Flatten", Arrays.asList("input_1"), config()) //
+			.layer("reshape_1", "Reshape", Arrays.asList("input_1"), config("target_shape", "3,2")) //
+			.build("input_1", "flatten_1");
+		final Map<String, int[]> shapes = model.inferShapes(
+			Collections.singletonMap("input_1", new int[]{2, 3}), Collections.singletonList("flatten_1"));
+		assertEquals(Arrays.asList("input_1", "flatten_1"), new ArrayList<>(shapes.keySet()));
+		assertArrayEquals(new int[]{6}, shapes.get("flatten_1"));
+	}
+
+	@Test(expected = DLKerasJvmUnsupportedModelException.class)
+	public void testUnsupportedLayer() throws Exception {
+		new ModelBuilder() //
+			.layer("input_1", "InputLayer", Collections.emptyList(), config()) //
+			.layer("lambda_1", "Lambda", Arrays.asList("input_1"), config()) //
+			.build("input_1", "lambda_1");
+	}
+
+	@Test(expected = DLKerasJvmUnsupportedModelException.class)
+	public void testSharedLayer() throws Exception {
+		new ModelBuilder() //
+			.layer("input_1", "InputLayer", Collections.emptyList(), config()) //
+			.layer("flatten_1", "Flatten", Arrays.asList("input_1"), 2, config()) //
+			.build("input_1", "flatten_1");
+	}
+
+	private float[] execute(final DLKerasJvmModel model, final String inputLayer, final float[] input,
+		final int[] inputShape, final int batchSize, final String outputLayer)
+		throws DLKerasJvmUnsupportedModelException {
+		return execute(model, inputLayer, input, inputShape, batchSize, Collections.singletonList(outputLayer))
+			.get(outputLayer);
+	}
+
+	private Map<String, float[]> execute(final DLKerasJvmModel model, final String inputLayer, final float[] input,
+		final int[] inputShape, final int batchSize, final List<String> outputLayers)
+		throws DLKerasJvmUnsupportedModelException {
+		final Map<String, int[]> shapes =
+			model.inferShapes(Collections.singletonMap(inputLayer, inputShape), outputLayers);
+		final Map<String, float[]> outputs = model.execute(m_kernels, Collections.singletonMap(inputLayer, input),
+			shapes, batchSize, outputLayers);
+		final Map<String, float[]> trimmed = new HashMap<>();
+		for (final String outputLayer : outputLayers) {
+			trimmed.put(outputLayer, Arrays.copyOf(outputs.get(outputLayer),
+				batchSize * DLKerasJvmLayer.size(shapes.get(outputLayer))));
+		}
+		return trimmed;
+	}
+
+	private float[] random(final int size) {
+		final float[] values = new float[size];
+		for (int i = 0; i < size; i++) {
+			values[i] = m_random.nextFloat() * 2 - 1;
+		}
+		return values;
+	}
+
+	private static float[] dense(final float[] input, final int offset, final float[] kernel, final float[] bias,
+		final int inputDim, final int units) {
+		final float[] output = new float[units];
+		for (int j = 0; j < units; j++) {
+			double sum = bias[j];
+			for (int p = 0; p < inputDim; p++) {
+				sum += input[offset + p] * kernel[p * units + j];
+			}
+			output[j] = (float)sum;
+		}
+		return output;
+	}
+
+	private static double sigmoid(final double x) {
+		return 1 / (1 + Math.exp(-x));
+	}
+
+	private static String[] config(final String... keysAndValues) {
+		return keysAndValues;
+	}
+
+	private static Object[] weight(final float[] values, final int... shape) {
+		return new Object[]{shape, values};
+	}
+
+	/**
+	 * Writes models in the exchange format, see {@link DLKerasJvmModel}.
+	 */
+	private static final class ModelBuilder {
+
+		private final ByteArrayOutputStream m_layers = new ByteArrayOutputStream();
+
+		private int m_numLayers = 0;
+
+		private ModelBuilder layer(final String name, final String className, final List<String> inbound,
+			final String[] config, final Object[]... weights) {
+			return layer(name, className, inbound, 1, config, weights);
+		}
+
+		private ModelBuilder layer(final String name, final String className, final List<String> inbound,
+			final int numNodes, final String[] config, final Object[]... weights) {
+			writeString(name);
+			writeString(className);
+			writeInt(inbound.size());
+			inbound.forEach(this::writeString);
+			writeInt(numNodes);
+			writeInt(config.length / 2);
+			for (final String entry : config) {
+				writeString(entry);
+			}
+			writeInt(weights.length);
+			for (final Object[] weight : weights) {
+				final int[] shape = (int[])weight[0];
+				writeInt(shape.length);
+				for (final int dimension : shape) {
+					writeInt(dimension);
+				}
+				for (final float value : (float[])weight[1]) {
+					writeInt(Float.floatToIntBits(value));
+				}
+			}
+			m_numLayers++;
+			return this;
+		}
+
+		private DLKerasJvmModel build(final String inputLayer, final String outputLayer) throws Exception {
+			final byte[] layers = m_layers.toByteArray();
+			m_layers.reset();
+			m_layers.write("KDLJ".getBytes(StandardCharsets.US_ASCII));
+			writeInt(1);
+			writeInt(m_numLayers);
+			m_layers.write(layers);
+			writeInt(1);
+			writeString(inputLayer);
+			writeInt(1);
+			writeString(outputLayer);
+			return DLKerasJvmModel.read(ByteBuffer.wrap(m_layers.toByteArray()).order(ByteOrder.LITTLE_ENDIAN));
+		}
+
+		private void writeInt(final int value) {
+			final byte[] bytes = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN).putInt(value).array();
+			m_layers.write(bytes, 0, 4);
+		}
+
+		private void writeString(final String value) {
+			final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+			writeInt(bytes.length);
+			m_layers.write(bytes, 0, bytes.length);
+		}
+	}
+}
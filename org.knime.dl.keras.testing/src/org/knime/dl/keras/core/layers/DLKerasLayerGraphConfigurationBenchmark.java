@@ -0,0 +1,111 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ *
+ */
+package org.knime.dl.keras.core.layers;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectOutputStream;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.knime.dl.keras.core.DLKerasNetworkSpec;
+import org.knime.dl.keras.core.layers.impl.core.DLKerasDefaultInputLayer;
+import org.knime.dl.keras.core.layers.impl.core.DLKerasDenseLayer;
+import org.knime.dl.testing.DLMicroBenchmark;
+
+/**
+ * Measures the configuration of a synthetic chain of 500 layer nodes. Each node appends its layer to the chain and
+ * infers and serializes the spec of the resulting graph, just like the port object specs of the layer nodes do.
+ *
+ * @see DLMicroBenchmark#assumeEnabled()
+ */
+public final class DLKerasLayerGraphConfigurationBenchmark {
+
+    private static final int NUM_LAYERS = 500;
+
+    @BeforeClass
+    public static void checkEnabled() {
+        DLMicroBenchmark.assumeEnabled();
+    }
+
+    @Test
+    public void benchmark() throws Exception {
+        // warm up
+        configureChain(NUM_LAYERS / 10);
+        final long start = System.nanoTime();
+        final DLKerasNetworkSpec spec = configureChain(NUM_LAYERS);
+        final double seconds = (System.nanoTime() - start) / 1e9;
+        DLMicroBenchmark.log(String.format("%d layers: %.2f s, %.2f ms per layer node", NUM_LAYERS, seconds,
+            seconds * 1e3 / NUM_LAYERS));
+        assertEquals(1, spec.getInputSpecs().length);
+        assertEquals(1, spec.getOutputSpecs().length);
+        // the input layer is also a hidden layer
+        assertEquals(NUM_LAYERS, spec.getHiddenOutputSpecs().length);
+    }
+
+    private static DLKerasNetworkSpec configureChain(final int numLayers) throws Exception {
+        final DLKerasDefaultInputLayer input = new DLKerasDefaultInputLayer();
+        input.setRuntimeId("input");
+        DLKerasLayer previous = input;
+        DLKerasNetworkSpec spec = null;
+        for (int i = 0; i < numLayers; i++) {
+            final DLKerasDenseLayer layer = new DLKerasDenseLayer();
+            layer.setRuntimeId("dense" + i);
+            layer.setParent(0, previous);
+            final List<DLKerasLayer> outputLayers = Collections.singletonList(layer);
+            spec = new DLKerasNetworkSpecInferrer(outputLayers).inferNetworkSpec();
+            try (final ObjectOutputStream objOut = new ObjectOutputStream(new ByteArrayOutputStream())) {
+                DLKerasNetworkGraphSerializer.writeGraphTo(outputLayers, objOut);
+            }
+            previous = layer;
+        }
+        return spec;
+    }
+}
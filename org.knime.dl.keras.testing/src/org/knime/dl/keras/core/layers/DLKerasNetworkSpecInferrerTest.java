@@ -46,6 +46,9 @@
  */
 package org.knime.dl.keras.core.layers;
 
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 import static org.knime.dl.keras.core.layers.DLKerasLayerTestSetups.testOnMultiInputModelSetup;
 import static org.knime.dl.keras.core.layers.DLKerasLayerTestSetups.testOnMultiInputMultiOutputForkJoinModelSetup;
 import static org.knime.dl.keras.core.layers.DLKerasLayerTestSetups.testOnMultiInputMultiOutputModelAppendedBinaryLayerSetup;
@@ -59,6 +62,8 @@
 import static org.knime.dl.keras.core.layers.DLKerasLayerTestSetups.testOnTwoMultiInputMultiOutputModelsAppendedBinaryLayerSetup;
 
 import java.io.IOException;
+import java.lang.reflect.Field;
+import java.util.Arrays;
 import java.util.List;
 import java.util.function.Function;
 
@@ -66,7 +71,11 @@
 import org.knime.dl.core.DLCanceledExecutionException;
 import org.knime.dl.core.DLInvalidEnvironmentException;
 import org.knime.dl.core.DLInvalidSourceException;
+import org.knime.dl.core.DLTensorSpec;
 import org.knime.dl.keras.core.DLKerasNetworkSpec;
+import org.knime.dl.keras.core.layers.impl.core.DLKerasDefaultInputLayer;
+import org.knime.dl.keras.core.layers.impl.core.DLKerasDenseLayer;
+import org.knime.dl.util.DLUtils;
 
 /**
  * @author Marcel Wiedenmann, KNIME GmbH, Konstanz, Germany
@@ -134,6 +143,33 @@ public void testAppendBinaryLayerToTwoMultiInputMultiOutputModels()
         testOnTwoMultiInputMultiOutputModelsAppendedBinaryLayerSetup(this::inferSpecs, Function.identity());
     }
 
+    @Test
+    public void testMemoizedOutputSpecsFollowParameterChanges() throws Exception {
+        final DLKerasDefaultInputLayer in0 = new DLKerasDefaultInputLayer();
+        final DLKerasDenseLayer hidden0 = new DLKerasDenseLayer();
+        hidden0.setRuntimeId("hidden0");
+        hidden0.setParent(0, in0);
+        final DLKerasDenseLayer out0 = new DLKerasDenseLayer();
+        out0.setRuntimeId("out0");
+        out0.setParent(0, hidden0);
+
+        final List<DLTensorSpec> outputSpecs = out0.getOutputSpecs();
+        // unchanged layers re-use their memoized specs
+        assertSame(outputSpecs, out0.getOutputSpecs());
+        assertArrayEquals(new Long[]{1L},
+            DLUtils.Shapes.shapeToLongArray(hidden0.getOutputSpecs().get(0).getShape()));
+
+        // layer parameters are set reflectively by the layer nodes
+        final Field units = DLKerasDenseLayer.class.getDeclaredField("m_units");
+        units.setAccessible(true);
+        units.setLong(hidden0, 10);
+        assertArrayEquals(new Long[]{10L},
+            DLUtils.Shapes.shapeToLongArray(hidden0.getOutputSpecs().get(0).getShape()));
+        final DLKerasNetworkSpec networkSpec = inferSpecs(Arrays.asList(out0));
+        assertTrue(Arrays.stream(networkSpec.getHiddenOutputSpecs())
+            .anyMatch(s -> Arrays.equals(new Long[]{10L}, DLUtils.Shapes.shapeToLongArray(s.getShape()))));
+    }
+
     private DLKerasNetworkSpec inferSpecs(final List<DLKerasLayer> outputLayers) {
         return new DLKerasNetworkSpecInferrer(outputLayers).inferNetworkSpec();
     }
@@ -48,6 +48,9 @@
  */
 package org.knime.dl.keras.tensorflow.testing;
 
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
 import java.io.IOException;
 import java.net.URL;
 import java.util.Collections;
@@ -71,11 +74,13 @@
 import org.knime.dl.core.data.DLWritableBuffer;
 import org.knime.dl.core.data.DLWritableFloatBuffer;
 import org.knime.dl.core.execution.DLNetworkOutputConsumer;
+import org.knime.dl.keras.tensorflow.core.DLKerasTensorFlowCommands;
 import org.knime.dl.keras.tensorflow.core.DLKerasTensorFlowNetwork;
 import org.knime.dl.keras.tensorflow.core.DLKerasTensorFlowNetworkLoader;
 import org.knime.dl.keras.tensorflow.core.execution.DLKerasTensorFlowDefaultExecutionContext;
 import org.knime.dl.keras.tensorflow.core.execution.DLKerasTensorFlowNetworkExecutionSession;
 import org.knime.dl.python.core.DLPythonDefaultNetworkReader;
+import org.knime.dl.python.core.DLPythonNetworkHandle;
 import org.knime.dl.testing.DLTestExecutionMonitor;
 import org.knime.dl.util.DLUtils;
 
@@ -146,6 +151,111 @@ public void close() throws Exception {
 		}
 	}
 
+	/**
+	 * A pipelined session keeps its tensors between runs. Running it a second time must reuse them instead of waiting
+	 * for free output tensors forever.
+	 */
+	@Test(timeout = 120000)
+	public void testPipelinedSessionRunTwice() throws Exception {
+		final URL source = FileUtil
+				.toURL(DLUtils.Files.getFileFromBundle(BUNDLE_ID, "data/my_2d_input_model.h5").getAbsolutePath());
+		final DLKerasTensorFlowDefaultExecutionContext ctx = new DLKerasTensorFlowDefaultExecutionContext();
+		final DLKerasTensorFlowNetwork network = new DLPythonDefaultNetworkReader<>(
+				new DLKerasTensorFlowNetworkLoader())
+						.read(new DLNetworkReferenceLocation(source.toURI()), false, DLNotCancelable.INSTANCE);
+		final DLNetworkSpec networkSpec = network.getSpec();
+		final DLTensorSpec inputSpec = networkSpec.getInputSpecs()[0];
+		final Set<DLTensorSpec> executionInputSpecs = Collections.singleton(ctx.getTensorFactory()
+				.createExecutionTensorSpec(inputSpec, 3, DLUtils.Shapes.getFixedShape(inputSpec.getShape()).get()));
+		final Set<DLTensorId> requestedOutputs = Collections.singleton(networkSpec.getOutputSpecs()[0].getIdentifier());
+		final int numBatches = 5;
+		final int[] preparedBatches = new int[1];
+		final int[] consumedBatches = new int[1];
+		try (final DLKerasTensorFlowNetworkExecutionSession session = ctx.createExecutionSession(network,
+				executionInputSpecs, requestedOutputs, new DLNetworkInputPreparer() {
+
+					@Override
+					public boolean hasNext() {
+						return preparedBatches[0] < numBatches;
+					}
+
+					@Override
+					public void prepareNext(final Map<DLTensorId, DLTensor<? extends DLWritableBuffer>> input)
+							throws DLCanceledExecutionException, DLInvalidNetworkInputException {
+						for (final Entry<DLTensorId, DLTensor<? extends DLWritableBuffer>> entry : input.entrySet()) {
+							populate(entry.getValue());
+						}
+						preparedBatches[0]++;
+					}
+
+					@Override
+					public void close() throws Exception {
+						// no op
+					}
+
+				}, new DLNetworkOutputConsumer() {
+
+					@Override
+					public void accept(final Map<DLTensorId, DLTensor<? extends DLReadableBuffer>> output)
+							throws DLCanceledExecutionException, DLInvalidNetworkOutputException {
+						consumedBatches[0]++;
+					}
+
+					@Override
+					public void close() throws Exception {
+						// no op
+					}
+				})) {
+			session.setPipelined(true);
+			for (int run = 1; run <= 2; run++) {
+				preparedBatches[0] = 0;
+				session.run(new DLTestExecutionMonitor());
+				assertEquals(run * numBatches, consumedBatches[0]);
+			}
+		}
+	}
+
+	/**
+	 * The Keras model that computes the requested outputs must only be built for the first batch. Later batches that
+	 * request the same outputs reuse it.
+	 */
+	@Test
+	public void testIntermediateModelIsBuiltOnce() throws Exception {
+		final File source = DLUtils.Files.getFileFromBundle(BUNDLE_ID, "data/my_2d_input_model.h5");
+		final DLKerasTensorFlowDefaultExecutionContext ctx = new DLKerasTensorFlowDefaultExecutionContext();
+		final DLKerasTensorFlowNetwork network = new DLPythonDefaultNetworkReader<>(
+				new DLKerasTensorFlowNetworkLoader())
+						.read(new DLNetworkReferenceLocation(source.toURI()), false, DLNotCancelable.INSTANCE);
+		final DLNetworkSpec networkSpec = network.getSpec();
+		final DLTensorSpec inputSpec = networkSpec.getInputSpecs()[0];
+		final int batchSize = 3;
+		final DLTensor<? extends DLWritableBuffer> input = ctx.getTensorFactory()
+				.createWritableTensor(ctx.getTensorFactory().createExecutionTensorSpec(inputSpec, batchSize,
+						DLUtils.Shapes.getFixedShape(inputSpec.getShape()).get()));
+		final Map<DLTensorId, DLTensor<? extends DLWritableBuffer>> inputs =
+			Collections.singletonMap(inputSpec.getIdentifier(), input);
+		final Set<DLTensorId> requestedOutputs = Collections.singleton(networkSpec.getOutputSpecs()[0].getIdentifier());
+		try (final DLKerasTensorFlowCommands commands = new DLKerasTensorFlowCommands()) {
+			final DLPythonNetworkHandle handle =
+				commands.loadNetwork(source.getAbsolutePath(), false, DLNotCancelable.INSTANCE);
+			for (int i = 0; i < 5; i++) {
+				populate(input);
+				commands.setNetworkInputs(handle, inputs, DLNotCancelable.INSTANCE);
+				input.getBuffer().reset();
+				commands.executeNetwork(handle, requestedOutputs, batchSize, DLNotCancelable.INSTANCE);
+			}
+			final String[] output = commands.getContext(DLNotCancelable.INSTANCE).executeInKernel(
+					"import DLPythonNetwork\n" //
+							+ "print(DLPythonNetwork.get_network('" + handle.getIdentifier()
+							+ "').intermediate_model_build_count)",
+					DLNotCancelable.INSTANCE);
+			assertEquals("", output[1]);
+			assertEquals("1", output[0].trim());
+		} finally {
+			input.close();
+		}
+	}
+
 	private static void populate(final DLTensor<?> data) {
 		if (data.getBuffer() instanceof DLWritableFloatBuffer) {
 			final DLWritableFloatBuffer buffer = (DLWritableFloatBuffer) data.getBuffer();
@@ -0,0 +1,232 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ *
+ */
+package org.knime.dl.keras.tensorflow.testing;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.knime.core.data.DataCell;
+import org.knime.core.data.DataColumnSpec;
+import org.knime.core.data.DataColumnSpecCreator;
+import org.knime.core.data.DataRow;
+import org.knime.core.data.DataTableSpec;
+import org.knime.core.data.RowKey;
+import org.knime.core.data.def.DefaultRow;
+import org.knime.core.data.def.DoubleCell;
+import org.knime.dl.core.DLNetworkReferenceLocation;
+import org.knime.dl.core.DLNetworkSpec;
+import org.knime.dl.core.DLNotCancelable;
+import org.knime.dl.core.DLTensor;
+import org.knime.dl.core.DLTensorId;
+import org.knime.dl.core.DLTensorSpec;
+import org.knime.dl.core.data.DLReadableBuffer;
+import org.knime.dl.core.data.convert.DLDataValueToTensorConverterFactory;
+import org.knime.dl.core.data.convert.DLDoubleValueToFloatTensorConverterFactory;
+import org.knime.dl.core.execution.DLNetworkExecutionSession;
+import org.knime.dl.core.execution.DLNetworkOutputConsumer;
+import org.knime.dl.core.execution.DLParallelNetworkExecution;
+import org.knime.dl.keras.tensorflow.core.DLKerasTensorFlowNetwork;
+import org.knime.dl.keras.tensorflow.core.DLKerasTensorFlowNetworkLoader;
+import org.knime.dl.keras.tensorflow.core.execution.DLKerasTensorFlowDefaultExecutionContext;
+import org.knime.dl.python.core.DLPythonContext;
+import org.knime.dl.python.core.DLPythonDefaultContext;
+import org.knime.dl.python.core.DLPythonDefaultNetworkReader;
+import org.knime.dl.testing.DLMicroBenchmark;
+import org.knime.dl.testing.DLTestExecutionMonitor;
+import org.knime.dl.testing.DLTestListRowIterator;
+
+/**
+ * Compares the throughput of parallel execution using 1, 2 and 4 workers on a synthetic dense network. The number of
+ * threads per worker is chosen such that all workers together use all available processors.
+ *
+ * @see DLMicroBenchmark#assumeEnabled()
+ */
+public class DLKerasTensorFlowParallelExecutionBenchmark {
+
+	private static final int NUM_FEATURES = 256;
+
+	private static final int NUM_ROWS = 20000;
+
+	private static final int BATCH_SIZE = 100;
+
+	private static final int[] NUM_WORKERS = { 1, 2, 4 };
+
+	@BeforeClass
+	public static void checkEnabled() {
+		DLMicroBenchmark.assumeEnabled();
+	}
+
+	@Test
+	public void benchmark() throws Exception {
+		final File modelFile = File.createTempFile("dl-parallel-execution-benchmark", ".h5");
+		modelFile.deleteOnExit();
+		createDenseNetwork(modelFile);
+		final DLKerasTensorFlowDefaultExecutionContext ctx = new DLKerasTensorFlowDefaultExecutionContext();
+		final DLKerasTensorFlowNetwork network = new DLPythonDefaultNetworkReader<>(
+				new DLKerasTensorFlowNetworkLoader())
+						.read(new DLNetworkReferenceLocation(modelFile.toURI()), false, DLNotCancelable.INSTANCE);
+		final DLNetworkSpec networkSpec = network.getSpec();
+		final DLTensorSpec inputSpec = networkSpec.getInputSpecs()[0];
+		final Set<DLTensorSpec> executionInputSpecs = Collections.singleton(ctx.getTensorFactory()
+				.createExecutionTensorSpec(inputSpec, BATCH_SIZE, new long[] { NUM_FEATURES }));
+		final Set<DLTensorId> requestedOutputs = Collections.singleton(networkSpec.getOutputSpecs()[0].getIdentifier());
+		final int[] columns = new int[NUM_FEATURES];
+		for (int i = 0; i < NUM_FEATURES; i++) {
+			columns[i] = i;
+		}
+		final Map<DLTensorId, int[]> columnsForTensorId = Collections.singletonMap(inputSpec.getIdentifier(), columns);
+		final LinkedHashMap<DLTensorId, DLDataValueToTensorConverterFactory<?, ?>> converters = new LinkedHashMap<>();
+		converters.put(inputSpec.getIdentifier(), new DLDoubleValueToFloatTensorConverterFactory());
+		final List<DataRow> rows = createRows(new Random(42));
+		// warm up, e.g. kernel startup
+		run(ctx, network, executionInputSpecs, requestedOutputs, columnsForTensorId, converters, rows, 1);
+		for (final int numWorkers : NUM_WORKERS) {
+			final long start = System.nanoTime();
+			run(ctx, network, executionInputSpecs, requestedOutputs, columnsForTensorId, converters, rows,
+					numWorkers);
+			final double seconds = (System.nanoTime() - start) / 1e9;
+			DLMicroBenchmark.log(String.format("%d worker(s): %.2f s, %.0f rows/s", numWorkers, seconds,
+					NUM_ROWS / seconds));
+		}
+	}
+
+	private static void run(final DLKerasTensorFlowDefaultExecutionContext ctx,
+			final DLKerasTensorFlowNetwork network, final Set<DLTensorSpec> executionInputSpecs,
+			final Set<DLTensorId> requestedOutputs, final Map<DLTensorId, int[]> columnsForTensorId,
+			final LinkedHashMap<DLTensorId, DLDataValueToTensorConverterFactory<?, ?>> converters,
+			final List<DataRow> rows, final int numWorkers) throws Exception {
+		final DataTableSpec tableSpec = createTableSpec();
+		final DLParallelNetworkExecution parallelExecution = new DLParallelNetworkExecution(
+				new DLTestListRowIterator(tableSpec, rows, columnsForTensorId), tableSpec, columnsForTensorId,
+				BATCH_SIZE, false, converters, numWorkers);
+		final Iterator<DataRow> expectedRows = rows.iterator();
+		final DLNetworkOutputConsumer outputConsumer = new DLNetworkOutputConsumer() {
+
+			@Override
+			public void accept(final Map<DLTensorId, DLTensor<? extends DLReadableBuffer>> output) {
+				final DLTensor<? extends DLReadableBuffer> tensor = output.values().iterator().next();
+				final long batchSize = tensor.getBuffer().size() / tensor.getExampleSize();
+				for (long i = 0; i < batchSize; i++) {
+					// output must retain the order of the input rows
+					assertEquals(expectedRows.next().getKey(), parallelExecution.getBaseRows().remove().getKey());
+				}
+			}
+
+			@Override
+			public void close() throws Exception {
+				// no op
+			}
+		};
+		final int numThreads = Math.max(1, Runtime.getRuntime().availableProcessors() / numWorkers);
+		final List<DLNetworkExecutionSession> sessions = new ArrayList<>(numWorkers);
+		try {
+			for (final DLParallelNetworkExecution.Worker worker : parallelExecution.getWorkers()) {
+				final DLNetworkExecutionSession session = ctx.createExecutionSession(network, executionInputSpecs,
+						requestedOutputs, worker.getInputPreparer(), worker.getOutputConsumer());
+				session.setNumThreads(numThreads);
+				sessions.add(session);
+			}
+			parallelExecution.run(sessions, outputConsumer, new DLTestExecutionMonitor());
+		} finally {
+			for (final DLNetworkExecutionSession session : sessions) {
+				session.close();
+			}
+		}
+		assertTrue(!expectedRows.hasNext());
+		assertTrue(parallelExecution.getBaseRows().isEmpty());
+	}
+
+	private static void createDenseNetwork(final File file) throws Exception {
+		try (final DLPythonContext context = new DLPythonDefaultContext()) {
+			final String code = "import os\n" //
+					+ "os.environ['KERAS_BACKEND'] = 'tensorflow'\n" //
+					+ "from keras.models import Sequential\n" //
+					+ "from keras.layers import Dense\n" //
+					+ "model = Sequential()\n" //
+					+ "model.add(Dense(1024, activation='relu', input_shape=(" + NUM_FEATURES + ",)))\n" //
+					+ "model.add(Dense(1024, activation='relu'))\n" //
+					+ "model.add(Dense(10, activation='softmax'))\n" //
+					+ "model.save(r'" + file.getAbsolutePath() + "')\n";
+			final String error = context.executeInKernel(code, DLNotCancelable.INSTANCE)[1];
+			if (!error.isEmpty()) {
+				throw new IllegalStateException("Failed to create benchmark network: " + error);
+			}
+		}
+	}
+
+	private static DataTableSpec createTableSpec() {
+		final DataColumnSpec[] columnSpecs = new DataColumnSpec[NUM_FEATURES];
+		for (int i = 0; i < NUM_FEATURES; i++) {
+			columnSpecs[i] = new DataColumnSpecCreator("f" + i, DoubleCell.TYPE).createSpec();
+		}
+		return new DataTableSpec(columnSpecs);
+	}
+
+	private static List<DataRow> createRows(final Random random) {
+		final List<DataRow> rows = new ArrayList<>(NUM_ROWS);
+		for (int r = 0; r < NUM_ROWS; r++) {
+			final DataCell[] cells = new DataCell[NUM_FEATURES];
+			for (int c = 0; c < NUM_FEATURES; c++) {
+				cells[c] = new DoubleCell(random.nextDouble());
+			}
+			rows.add(new DefaultRow(RowKey.createRowKey((long) r), cells));
+		}
+		return rows;
+	}
+}
@@ -0,0 +1,136 @@
+# -*- coding: utf-8 -*-
+
+# ------------------------------------------------------------------------
+#  Copyright by KNIME AG, Zurich, Switzerland
+#  Website: http://www.knime.com; Email: contact@knime.com
+#
+#  This program is free software; you can redistribute it and/or modify
+#  it under the terms of the GNU General Public License, Version 3, as
+#  published by the Free Software Foundation.
+#
+#  This program is distributed in the hope that it will be useful, but
+#  WITHOUT ANY WARRANTY; without even the implied warranty of
+#  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+#  GNU General Public License for more details.
+#
+#  You should have received a copy of the GNU General Public License
+#  along with this program; if not, see <http://www.gnu.org/licenses>.
+#
+#  Additional permission under GNU GPL version 3 section 7:
+#
+#  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+#  Hence, KNIME and ECLIPSE are both independent programs and are not
+#  derived from each other. Should, however, the interpretation of the
+#  GNU GPL Version 3 ("License") under any applicable laws result in
+#  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+#  you the additional permission to use and propagate KNIME together with
+#  ECLIPSE with only the license terms in place for ECLIPSE applying to
+#  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+#  license terms of ECLIPSE themselves allow for the respective use and
+#  propagation of ECLIPSE together with KNIME.
+#
+#  Additional permission relating to nodes for KNIME that extend the Node
+#  Extension (and in particular that are based on subclasses of NodeModel,
+#  NodeDialog, and NodeView) and that only interoperate with KNIME through
+#  standard APIs ("Nodes"):
+#  Nodes are deemed to be separate and independent programs and to not be
+#  covered works.  Notwithstanding anything to the contrary in the
+#  License, the License does not apply to Nodes, you are not required to
+#  license Nodes under the License, and you are granted a license to
+#  prepare and propagate Nodes, in each case even if such Nodes are
+#  propagated with or for interoperation with KNIME.  The owner of a Node
+#  may freely choose the license terms applicable to such Node, including
+#  when such Node is propagated with or for interoperation with KNIME.
+# ------------------------------------------------------------------------
+
+
+'''
+Exports the architecture and weights of a Keras model into the binary format that is read by the Java execution back
+end (see org.knime.dl.keras.core.execution.jvm.DLKerasJvmModel). All numbers are little endian, strings are UTF-8
+encoded and prefixed by their length in bytes.
+'''
+
+import struct
+
+import numpy as np
+
+_MAGIC = b'KDLJ'
+_VERSION = 1
+
+
+def export_model(model, path):
+    input_layers = [tensor._keras_history[0] for tensor in model.inputs]
+    output_layers = [tensor._keras_history[0] for tensor in model.outputs]
+    # Input layers are not part of model.layers for sequential models since Keras 2.2.0. model.layers is in
+    # topological order.
+    layers = list(input_layers)
+    for layer in model.layers:
+        if not any(layer is l for l in layers):
+            layers.append(layer)
+    with open(path, 'wb') as f:
+        f.write(_MAGIC)
+        _write_int(f, _VERSION)
+        _write_int(f, len(layers))
+        for layer in layers:
+            _write_layer(f, layer)
+        _write_strings(f, [layer.name for layer in input_layers])
+        _write_strings(f, [layer.name for layer in output_layers])
+
+
+def _write_layer(f, layer):
+    _write_string(f, layer.name)
+    _write_string(f, type(layer).__name__)
+    # "inbound_nodes" became private API with Keras 2.1.3
+    inbound_nodes = layer.inbound_nodes if hasattr(layer, 'inbound_nodes') else layer._inbound_nodes
+    inbound_layers = inbound_nodes[0].inbound_layers if len(inbound_nodes) > 0 else []
+    if not isinstance(inbound_layers, (list, tuple)):
+        inbound_layers = [inbound_layers]
+    _write_strings(f, [inbound_layer.name for inbound_layer in inbound_layers])
+    # Shared layers (more than one node) are rejected on Java side.
+    _write_int(f, len(inbound_nodes))
+    config = {}
+    for key, value in layer.get_config().items():
+        value = _format_config_value(value)
+        if value is not None:
+            config[key] = value
+    _write_int(f, len(config))
+    for key in sorted(config):
+        _write_string(f, key)
+        _write_string(f, config[key])
+    weights = layer.get_weights()
+    _write_int(f, len(weights))
+    for weight in weights:
+        weight = np.ascontiguousarray(weight, dtype='<f4')
+        _write_int(f, weight.ndim)
+        for dim in weight.shape:
+            _write_int(f, dim)
+        f.write(weight.tobytes())
+
+
+def _format_config_value(value):
+    # Only scalars and flat sequences of scalars are exported. Nested configurations (e.g. initializers) are not needed
+    # for inference, unknown entries make the Java side fall back to Python.
+    if isinstance(value, (bool, np.bool_)):
+        return 'true' if value else 'false'
+    if isinstance(value, (int, float, str, np.integer, np.floating)):
+        return str(value)
+    if isinstance(value, (list, tuple)) and all(
+            isinstance(v, (int, float, np.integer, np.floating)) and not isinstance(v, bool) for v in value):
+        return ','.join(str(v) for v in value)
+    return None
+
+
+def _write_int(f, value):
+    f.write(struct.pack('<i', int(value)))
+
+
+def _write_string(f, value):
+    encoded = value.encode('utf-8')
+    _write_int(f, len(encoded))
+    f.write(encoded)
+
+
+def _write_strings(f, values):
+    _write_int(f, len(values))
+    for value in values:
+        _write_string(f, value)
@@ -139,6 +139,8 @@ class DLKerasNetwork(DLPythonNetwork):
     def __init__(self, model, compatibility_mode=False):
         super().__init__(DLKerasNetwork._convert_sequential_to_model(model, compatibility_mode))
         self._training_monitor = None
+        self._intermediate_models = {}
+        self._intermediate_model_build_count = 0
 
     @abc.abstractmethod
     def _extract_model_spec(self):
@@ -151,9 +153,32 @@ class DLKerasNetwork(DLPythonNetwork):
         return self._spec
 
     def execute(self, in_data, batch_size, output_identifiers):
-        model = self._model
         X = self._format_input(in_data, batch_size)
+        intermediate_model = self._get_intermediate_model(output_identifiers)
+        Y = intermediate_model.predict(X, batch_size=batch_size, verbose=0)
+        return self._format_output(Y, output_identifiers)
 
+    @property
+    def intermediate_model_build_count(self):
+        """
+        The number of times a model for a set of requested outputs had to be built (see _get_intermediate_model).
+        """
+        return self._intermediate_model_build_count
+
+    def _get_intermediate_model(self, output_identifiers):
+        # Building the model (and, on TensorFlow, its predict function and graph) is expensive compared to executing a
+        # small batch. The model shares its layers and weights with the network's model, so it can be reused as long
+        # as the same outputs are requested.
+        key = tuple(output_identifiers)
+        intermediate_model = self._intermediate_models.get(key)
+        if intermediate_model is None:
+            intermediate_model = self._build_intermediate_model(output_identifiers)
+            self._intermediate_models[key] = intermediate_model
+            self._intermediate_model_build_count += 1
+        return intermediate_model
+
+    def _build_intermediate_model(self, output_identifiers):
+        model = self._model
         # Get the requested output tensors
         outputs = []
         for id in output_identifiers:
@@ -170,8 +195,10 @@ class DLKerasNetwork(DLPythonNetwork):
 
         # Build the model with the requested outputs
         intermediate_model = Model(inputs=model.inputs, outputs=outputs)
-        Y = intermediate_model.predict(X, batch_size=batch_size, verbose=0)
-        return self._format_output(Y, output_identifiers)
+        if hasattr(intermediate_model, '_make_predict_function'):
+            # Compile the predict function once instead of lazily on the first call of predict.
+            intermediate_model._make_predict_function()
+        return intermediate_model
 
     def train(self, training_data_supplier, validation_data_supplier=None, send_to_java=None):
         assert training_data_supplier is not None
@@ -194,7 +221,8 @@ class DLKerasNetwork(DLPythonNetwork):
         self._model.compile(loss=loss, optimizer=config.optimizer, metrics=metrics)
 
         if not any(isinstance(c, DLKerasTrainingMonitor) for c in config.callbacks):
-            training_monitor = DLKerasTrainingMonitor(self)
+            training_monitor = DLKerasTrainingMonitor(self, config.metrics_flush_batches,
+                                                      config.metrics_flush_interval)
             config.callbacks.append(training_monitor)
             self._training_monitor = training_monitor
 
@@ -208,6 +236,8 @@ class DLKerasNetwork(DLPythonNetwork):
             validation_data_generator = None
             validation_steps = None
 
+        # Keras runs the generators in background threads that fetch the next batches from Java while the network is
+        # trained on the current one. The queue size bounds the number of batches fetched in advance.
         kw_max_queue = 'max_queue_size' if compare_versions(keras.__version__, "2.0.5") > 0 else 'max_q_size'
         history = self._model.fit_generator(training_data_supplier.get_generator(),
                                             training_data_supplier.steps,
@@ -216,7 +246,7 @@ class DLKerasNetwork(DLPythonNetwork):
                                             callbacks=config.callbacks,
                                             validation_data=validation_data_generator,
                                             validation_steps=validation_steps,
-                                            **{kw_max_queue: 1})
+                                            **{kw_max_queue: max(config.prefetch_batches, 1)})
         return history.history
 
     def stop_early(self):
@@ -312,3 +342,14 @@ class DLKerasTrainingConfig(DLPythonTrainingConfig):
         self.loss = {}
         self.metrics = ['acc']
         self.callbacks = []
+        # metrics of training batches are sent to Java in chunks of at most this many batches
+        self.metrics_flush_batches = 1
+        # in ms, metrics of training batches are held back for at most this long
+        self.metrics_flush_interval = 0
+        # number of batches the data generators may fetch from Java ahead of the batch that is currently processed
+        self.prefetch_batches = 1
+        # in bytes, training and validation data are cached in the kernel after the first epoch if their estimated size
+        # does not exceed this limit, 0 disables caching
+        self.data_cache_limit = 0
+        # seed of the permutation that shuffles the cached training data before each epoch, None disables shuffling
+        self.data_cache_shuffle_seed = None
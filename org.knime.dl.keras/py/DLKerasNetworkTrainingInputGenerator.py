@@ -48,6 +48,10 @@
 @author Christian Dietz, KNIME GmbH, Konstanz, Germany
 '''
 
+import warnings
+
+import numpy as np
+
 from DLPythonKernelGateway import global_workspace
 from DLPythonNetworkTrainingInputGenerator import DLPythonNetworkTrainingInputGenerator
 
@@ -62,6 +66,13 @@ class DLKerasNetworkTrainingInputGenerator(DLPythonNetworkTrainingInputGenerator
         self._message_category = message_category
         self._request_from_java = None
         self._is_validation_data = is_validation_data
+        config = network.spec.training_config
+        if config is not None and config.data_cache_limit > 0:
+            # validation phases must be comparable, so validation data is never shuffled
+            seed = None if is_validation_data else config.data_cache_shuffle_seed
+            self._cache = _DLKerasTrainingDataCache(steps, batch_size, config.data_cache_limit, seed)
+        else:
+            self._cache = None
 
     @property
     def request_from_java(self):
@@ -72,6 +83,19 @@ class DLKerasNetworkTrainingInputGenerator(DLPythonNetworkTrainingInputGenerator
         self._request_from_java = request_from_java
 
     def _get_batch(self, batch_index):
+        if self._cache is not None:
+            if self._cache.is_complete:
+                return self._cache.get_batch(batch_index)
+            batch = self._fetch_batch(batch_index)
+            if not self._cache.add_batch(batch):
+                warnings.warn("The " + ("validation" if self._is_validation_data else "training") +
+                              " data exceeds the data cache limit of " + str(self._cache.limit) +
+                              " bytes. It will be transferred to Python again in each epoch.")
+                self._cache = None
+            return batch
+        return self._fetch_batch(batch_index)
+
+    def _fetch_batch(self, batch_index):
         self._request_from_java(self._message_category, batch_index)
         # TODO: pre-allocate dictionaries
         training_data = {}
@@ -85,3 +109,58 @@ class DLKerasNetworkTrainingInputGenerator(DLPythonNetworkTrainingInputGenerator
         # TODO: move formatting logic from network to generator, remove dependency on network
         return (self._network._format_input(training_data, self._batch_size),
                 self._network._format_target(target_data, self._batch_size))
+
+
+class _DLKerasTrainingDataCache(object):
+    """
+    Holds the batches of the first epoch in contiguous arrays and serves all subsequent epochs from them. If a seed is
+    given, the cached rows are shuffled before each subsequent epoch, otherwise the batches of the first epoch are
+    repeated in their original order.
+    """
+
+    def __init__(self, steps, batch_size, limit, seed=None):
+        self._steps = steps
+        self._batch_size = batch_size
+        self._limit = limit
+        self._random = np.random.RandomState(seed & 0xFFFFFFFF) if seed is not None else None
+        self._permutation = None
+        self._batches = []
+        self._inputs = None
+        self._targets = None
+
+    @property
+    def limit(self):
+        return self._limit
+
+    @property
+    def is_complete(self):
+        return self._inputs is not None
+
+    def add_batch(self, batch):
+        """
+        Adds the next batch of the first epoch. Returns False if the estimated size of the cache exceeds its limit in
+        which case the cache must not be used any further.
+        """
+        if not self._batches:
+            inputs, targets = batch
+            batch_bytes = sum(a.nbytes for a in inputs) + sum(a.nbytes for a in targets)
+            if batch_bytes * self._steps > self._limit:
+                return False
+        self._batches.append(batch)
+        if len(self._batches) == self._steps:
+            num_inputs = len(self._batches[0][0])
+            num_targets = len(self._batches[0][1])
+            self._inputs = [np.concatenate([b[0][i] for b in self._batches]) for i in range(num_inputs)]
+            self._targets = [np.concatenate([b[1][i] for b in self._batches]) for i in range(num_targets)]
+            self._batches = None
+        return True
+
+    def get_batch(self, batch_index):
+        if batch_index == 0 and self._random is not None:
+            self._permutation = self._random.permutation(self._steps * self._batch_size)
+        start = batch_index * self._batch_size
+        end = start + self._batch_size
+        if self._permutation is not None:
+            indices = self._permutation[start:end]
+            return [a[indices] for a in self._inputs], [a[indices] for a in self._targets]
+        return [a[start:end] for a in self._inputs], [a[start:end] for a in self._targets]
@@ -49,6 +49,8 @@
 '''
 
 import abc
+import os
+import sys
 
 from DLPythonNetworkType import DLPythonNetworkType 
 
@@ -63,6 +65,10 @@ class DLKerasNetworkType(DLPythonNetworkType):
     @property
     def keras_backend_name(self):
         return self._keras_backend_name
+
+    @property
+    def installation_test_libraries(self):
+        return ['keras', self._keras_backend_name]
     
     def supports_model(self, model):
         model_type = str(type(model))
@@ -71,5 +77,15 @@ class DLKerasNetworkType(DLPythonNetworkType):
             return K.backend() == self._keras_backend_name 
         return False
 
+    def clear_session(self):
+        # do not import Keras into kernels that never used it
+        if 'keras' in sys.modules:
+            from keras import backend as K
+            K.clear_session()
+
     def _test_installation(self, tester):
+        # Keras picks its back end once on import. If several network types are tested in the same process, only the
+        # first one gets to choose it.
+        if 'keras' not in sys.modules:
+            os.environ['KERAS_BACKEND'] = self._keras_backend_name
         tester.check_lib('keras')
@@ -48,6 +48,8 @@
 @author Christian Dietz, KNIME GmbH, Konstanz, Germany
 '''
 
+import sys
+
 from DLKerasNetworkType import DLKerasNetworkType
 
 import DLPythonNetworkType
@@ -57,6 +59,7 @@ class DLKerasTensorFlowNetworkType(DLKerasNetworkType):
 
     def __init__(self):
         super().__init__('org.knime.dl.keras.tensorflow.core.DLKerasTensorFlowNetwork', 'tensorflow')
+        self._num_threads = 0
 
     @property
     def reader(self):
@@ -67,6 +70,30 @@ class DLKerasTensorFlowNetworkType(DLKerasNetworkType):
         from DLKerasTensorFlowNetwork import DLKerasTensorFlowNetwork
         return DLKerasTensorFlowNetwork(model)
 
+    def set_num_threads(self, num_threads):
+        if num_threads == self._num_threads:
+            return False
+        # models that were loaded into the previous session's graph are invalid from now on
+        self._reset_session(num_threads)
+        self._num_threads = num_threads
+        return True
+
+    def clear_session(self):
+        if 'keras' in sys.modules:
+            # keeps the configured number of threads
+            self._reset_session(self._num_threads)
+
+    def _reset_session(self, num_threads):
+        import tensorflow as tf
+        from keras import backend as K
+        # mirrors Keras' default session config
+        config = tf.ConfigProto(allow_soft_placement=True)
+        if num_threads > 0:
+            config.intra_op_parallelism_threads = num_threads
+            config.inter_op_parallelism_threads = num_threads
+        K.clear_session()
+        K.set_session(tf.Session(config=config))
+
     def _test_installation(self, tester):
         tester.check_lib('tensorflow')
         super()._test_installation(tester)
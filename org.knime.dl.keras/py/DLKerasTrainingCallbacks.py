@@ -49,7 +49,9 @@
 '''
 
 import abc
+import struct
 import sys
+import time
 
 from keras.callbacks import Callback
 from keras.callbacks import EarlyStopping
@@ -107,10 +109,20 @@ class DLKerasTerminateOnNaN(TerminateOnNaN, DLKerasAbstractTrainingCallback):
 
 
 class DLKerasTrainingMonitor(Callback, DLKerasAbstractTrainingCallback):
-    def __init__(self, network):
+    def __init__(self, network, flush_batches=1, flush_interval=0):
+        """
+        :param flush_batches: if greater than 1, the metrics of consecutive batches are buffered and sent to Java in a
+            single binary message once this many batches are buffered, the flush interval elapsed or the epoch ended.
+            Otherwise, two messages are sent per batch.
+        :param flush_interval: the maximum time in milliseconds for which batch metrics are buffered
+        """
         super().__init__()
         self._network = network
         self._stop_training = False
+        self._flush_batches = flush_batches
+        self._flush_interval = flush_interval / 1000.0
+        self._pending_batch_metrics = []
+        self._last_flush = time.time()
 
     def stop_early(self):
         self._stop_training = True
@@ -122,6 +134,7 @@ class DLKerasTrainingMonitor(Callback, DLKerasAbstractTrainingCallback):
         self._stop_training = False
 
     def on_train_end(self, logs=None):
+        self._flush_batch_metrics()
         if self._stop_training:
             # flush pending Keras logs before printing our own status message
             sys.stdout.flush()
@@ -131,6 +144,7 @@ class DLKerasTrainingMonitor(Callback, DLKerasAbstractTrainingCallback):
         self.send_to_java('epoch_begin')
 
     def on_epoch_end(self, epoch, logs=None):
+        self._flush_batch_metrics()
         if logs:
             loss = logs.get('val_loss')
             acc = logs.get('val_acc')
@@ -146,17 +160,44 @@ class DLKerasTrainingMonitor(Callback, DLKerasAbstractTrainingCallback):
             self.send_to_java('epoch_end', str(acc) + ';' + str(loss))
 
     def on_batch_begin(self, batch, logs=None):
-        self.send_to_java('batch_begin')
+        if not self._is_coalescing:
+            self.send_to_java('batch_begin')
 
     def on_batch_end(self, batch, logs=None):
-        if logs:
-            loss = logs.get('loss')
-            acc = logs.get('acc')
-            if acc is None:
-                # Multi-output networks only have an accuracy metric per output. Average over them and use the result as
-                # accuracy for the entire network. TODO: Note that this is a temporary workaround. Per-output metric
-                # reporting is pending.
-                accs = [v for k, v in logs.items() if k.endswith('_acc')]
-                acc = sum(accs) / len(accs)
-
+        if self._is_coalescing:
+            acc, loss = self._get_batch_metrics(logs) if logs else (None, None)
+            # NaN marks an invalid value on Java side
+            self._pending_batch_metrics.append(float('nan') if acc is None else acc)
+            self._pending_batch_metrics.append(float('nan') if loss is None else loss)
+            # the last batch of an epoch must reach Java before validation starts
+            if len(self._pending_batch_metrics) >= 2 * self._flush_batches \
+                    or time.time() - self._last_flush >= self._flush_interval \
+                    or batch == (self.params.get('steps') or 0) - 1:
+                self._flush_batch_metrics()
+        elif logs:
+            acc, loss = self._get_batch_metrics(logs)
             self.send_to_java('batch_end', str(acc) + ';' + str(loss))
+
+    @property
+    def _is_coalescing(self):
+        return self._flush_batches > 1
+
+    def _flush_batch_metrics(self):
+        if self._pending_batch_metrics:
+            # big-endian float32 (accuracy, loss) pairs, one per batch
+            payload = struct.pack('>%df' % len(self._pending_batch_metrics), *self._pending_batch_metrics)
+            self._pending_batch_metrics = []
+            self.send_to_java('batches_end', payload)
+        self._last_flush = time.time()
+
+    @staticmethod
+    def _get_batch_metrics(logs):
+        loss = logs.get('loss')
+        acc = logs.get('acc')
+        if acc is None:
+            # Multi-output networks only have an accuracy metric per output. Average over them and use the result as
+            # accuracy for the entire network. TODO: Note that this is a temporary workaround. Per-output metric
+            # reporting is pending.
+            accs = [v for k, v in logs.items() if k.endswith('_acc')]
+            acc = sum(accs) / len(accs)
+        return acc, loss
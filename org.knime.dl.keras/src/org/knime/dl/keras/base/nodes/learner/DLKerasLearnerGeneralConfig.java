@@ -103,6 +103,18 @@ final class DLKerasLearnerGeneralConfig extends AbstractConfig implements DLGene
 
 	static final String CFG_KEY_RANDOM_SEED = "random_seed";
 
+	static final String CFG_KEY_PREFETCH_BATCHES = "prefetch_batches";
+
+	static final String CFG_KEY_CACHE_DATA = "cache_data";
+
+	static final String CFG_KEY_BUCKET_BOUNDARIES = "length_bucket_boundaries";
+
+	static final String CFG_KEY_METRICS_FLOW_VARIABLES = "timing_flow_variables";
+
+	static final String CFG_KEY_COALESCE_BATCH_METRICS = "coalesce_batch_metrics";
+
+	private static final String DEFAULT_BUCKET_BOUNDARIES = "16, 32, 64, 128, 256";
+
 	static Collection<DLKerasTrainingContext<?>> getAvailableTrainingContexts(
 			final Class<? extends DLNetwork> networkType) {
 		return DLTrainingContextRegistry.getInstance().getTrainingContextsForNetworkType((networkType)) //
@@ -216,6 +228,53 @@ protected boolean handleFailureToLoadConfigEntry(final NodeSettingsRO settings,
 			}
 		};
 		put(randomSeed);
+		put(new DefaultConfigEntry<Integer>(CFG_KEY_PREFETCH_BATCHES, Integer.class, 4) {
+
+			@Override
+			protected boolean handleFailureToLoadConfigEntry(final NodeSettingsRO settings, final Exception cause) {
+				// backward compatibility (3.7): only a single batch was fetched ahead of training
+				m_value = 1;
+				return true;
+			}
+		});
+		put(new DefaultConfigEntry<Boolean>(CFG_KEY_CACHE_DATA, Boolean.class, true) {
+
+			@Override
+			protected boolean handleFailureToLoadConfigEntry(final NodeSettingsRO settings, final Exception cause) {
+				// backward compatibility (3.7): data was transferred to the back end in each epoch
+				m_value = false;
+				return true;
+			}
+		});
+		put(new DefaultConfigEntry<String>(CFG_KEY_BUCKET_BOUNDARIES, String.class, DEFAULT_BUCKET_BOUNDARIES,
+				false) {
+
+			@Override
+			protected boolean handleFailureToLoadConfigEntry(final NodeSettingsRO settings, final Exception cause) {
+				// backward compatibility (3.7): disabled as we previously did not bucket rows
+				m_value = DEFAULT_BUCKET_BOUNDARIES;
+				m_enabled = false;
+				return true;
+			}
+		});
+		put(new DefaultConfigEntry<Boolean>(CFG_KEY_METRICS_FLOW_VARIABLES, Boolean.class, false) {
+
+			@Override
+			protected boolean handleFailureToLoadConfigEntry(final NodeSettingsRO settings, final Exception cause) {
+				// backward compatibility (3.7): no flow variables were previously created
+				m_value = false;
+				return true;
+			}
+		});
+		put(new DefaultConfigEntry<Boolean>(CFG_KEY_COALESCE_BATCH_METRICS, Boolean.class, false) {
+
+			@Override
+			protected boolean handleFailureToLoadConfigEntry(final NodeSettingsRO settings, final Exception cause) {
+				// backward compatibility (3.7): the metrics of each batch were sent separately
+				m_value = false;
+				return true;
+			}
+		});
 	}
 
 	@Override
@@ -276,6 +335,26 @@ ConfigEntry<Long> getRandomSeed() {
 		return get(CFG_KEY_RANDOM_SEED, Long.class);
 	}
 
+	ConfigEntry<Integer> getPrefetchBatchesEntry() {
+		return get(CFG_KEY_PREFETCH_BATCHES, Integer.class);
+	}
+
+	ConfigEntry<Boolean> getCacheDataEntry() {
+		return get(CFG_KEY_CACHE_DATA, Boolean.class);
+	}
+
+	ConfigEntry<String> getBucketBoundariesEntry() {
+		return get(CFG_KEY_BUCKET_BOUNDARIES, String.class);
+	}
+
+	ConfigEntry<Boolean> getMetricsFlowVariablesEntry() {
+		return get(CFG_KEY_METRICS_FLOW_VARIABLES, Boolean.class);
+	}
+
+	ConfigEntry<Boolean> getCoalesceBatchMetricsEntry() {
+		return get(CFG_KEY_COALESCE_BATCH_METRICS, Boolean.class);
+	}
+
 	void copyClipSettingsToOptimizer() {
 		final DLKerasOptimizer optimizer = getOptimizerEntry().getValue();
 		if (optimizer != null) {
@@ -102,6 +102,22 @@ class DLKerasLearnerGeneralPanel extends AbstractGridBagDialogComponentGroup {
 		addNumberSpinnerRowComponent(
 				ConfigUtil.toSettingsModelIntegerBounded(m_cfg.getValidationBatchSizeEntry(), 1, Integer.MAX_VALUE),
 				"Validation batch size", 1);
+
+		addNumberSpinnerRowComponent(
+				ConfigUtil.toSettingsModelIntegerBounded(m_cfg.getPrefetchBatchesEntry(), 1, 64),
+				"Number of prefetched batches", 1);
+
+		addCheckboxRow(ConfigUtil.toSettingsModelBoolean(m_cfg.getCacheDataEntry()),
+				"Keep data in back end memory after the first epoch", true);
+
+		addToggleStringEditRowComponent(m_cfg.getBucketBoundariesEntry(), "Group rows into length buckets",
+				ConfigUtil.toSettingsModelString(m_cfg.getBucketBoundariesEntry()));
+
+		addCheckboxRow(ConfigUtil.toSettingsModelBoolean(m_cfg.getMetricsFlowVariablesEntry()),
+				"Output timing metrics as flow variables", true);
+
+		addCheckboxRow(ConfigUtil.toSettingsModelBoolean(m_cfg.getCoalesceBatchMetricsEntry()),
+				"Send batch metrics to the view in groups", true);
 		
 		ConfigEntry<Boolean> shuffleEntry = m_cfg.getShuffleTrainingData();
 		addCheckboxRow(ConfigUtil.toSettingsModelBoolean(shuffleEntry),
@@ -93,15 +93,20 @@
 import org.knime.dl.core.DLDefaultTensorId;
 import org.knime.dl.core.DLExecutionSpecCreator;
 import org.knime.dl.core.DLInstallationTestTimeoutException;
+import org.knime.dl.core.DLLengthBucketing;
+import org.knime.dl.core.DLMissingExtensionException;
 import org.knime.dl.core.DLMissingDependencyException;
 import org.knime.dl.core.DLNetwork;
 import org.knime.dl.core.DLNetworkSpec;
 import org.knime.dl.core.DLNotCancelable;
 import org.knime.dl.core.DLRowIterator;
+import org.knime.dl.core.DLSessionMetrics;
 import org.knime.dl.core.DLShuffleDataTableRowIterator;
 import org.knime.dl.core.DLTensorId;
 import org.knime.dl.core.DLTensorSpec;
 import org.knime.dl.core.data.convert.DLDataValueToTensorConverterFactory;
+import org.knime.dl.core.training.DLAbstractKnimeNetworkFixedSizeInputPreparer;
+import org.knime.dl.core.training.DLKnimeNetworkBucketedInputPreparer;
 import org.knime.dl.core.training.DLKnimeNetworkTrainingInputPreparer;
 import org.knime.dl.core.training.DLKnimeNetworkValidationInputPreparer;
 import org.knime.dl.core.training.DLKnimeTrainingMonitor;
@@ -157,6 +162,13 @@ final class DLKerasLearnerNodeModel extends NodeModel implements DLInteractiveLe
 
 	private static final NodeLogger LOGGER = NodeLogger.getLogger(DLKerasLearnerNodeModel.class);
 
+	/**
+	 * If batch metrics are {@link DLKerasTrainingConfig#isBatchMetricsCoalescingEnabled() coalesced}, views are
+	 * notified at most once per this interval about the end of a training batch. The end of an epoch or of the training
+	 * is always notified.
+	 */
+	private static final long BATCH_VIEW_NOTIFICATION_INTERVAL = 250; // in ms
+
 	static DLKerasLearnerGeneralConfig createGeneralModelConfig() {
 		return new DLKerasLearnerGeneralConfig();
 	}
@@ -209,6 +221,11 @@ static DLKerasLearnerTargetConfig createOutputTensorModelConfig(final DLTensorId
      */
     private DLKerasNetworkTrainingSession m_session;
 
+    /**
+     * Time of the last batch-triggered view notification, see {@link #BATCH_VIEW_NOTIFICATION_INTERVAL}.
+     */
+    private long m_lastBatchViewNotification;
+
 	DLKerasLearnerNodeModel() {
 		super(new PortType[] { DLKerasNetworkPortObjectBase.TYPE, BufferedDataTable.TYPE, BufferedDataTable.TYPE_OPTIONAL },
 				new PortType[] { DLKerasNetworkPortObjectBase.TYPE });
@@ -440,6 +457,13 @@ private boolean areNetworkSpecsCompatible(final DLNetworkSpec newSpec, final DLN
 	private void configureGeneral(final Class<? extends DLNetwork> inNetworkType) throws Exception {
 		final DLKerasTrainingContext<?> backend = configureBackend(inNetworkType);
 		configureOptimizer(backend);
+		if (m_generalCfg.getBucketBoundariesEntry().getEnabled()) {
+			try {
+				DLLengthBucketing.parseBoundaries(m_generalCfg.getBucketBoundariesEntry().getValue());
+			} catch (final IllegalArgumentException e) {
+				throw new InvalidSettingsException("Invalid length bucket boundaries: " + e.getMessage(), e);
+			}
+		}
 	}
 
     private void configureOptimizer(final DLKerasTrainingContext<?> backend) throws DLMissingDependencyException {
@@ -633,22 +657,36 @@ private <N extends DLKerasNetwork> PortObject executeInternal(final PortObject i
                 + "' is not available anymore. " + "Please check your local installation.\nDetails: " + e.getMessage());
         }
 
-		// training configuration
-		final DLKerasTrainingConfig trainingConfig = createTrainingConfig(inNetworkSpec);
-
 		final Map<DLTensorId, int[]> columnsForTensorId = new HashMap<>(
 				inNetworkSpec.getInputSpecs().length + inNetworkSpec.getOutputSpecs().length);
 		final LinkedHashMap<DLTensorId, DLDataValueToTensorConverterFactory<?, ?>> converterForTensorId = new LinkedHashMap<>(
 				columnsForTensorId.size());
 		fillInputAndTargetSpecificMaps(inTableSpec, columnsForTensorId, converterForTensorId);
 
+		// length bucketing, the rows are assigned to their buckets up front to know the number of batches
+		final DLLengthBucketing trainingBucketing = createLengthBucketing(inTable, columnsForTensorId);
+		final DLLengthBucketing validationBucketing = trainingBucketing != null && doValidation
+				? createLengthBucketing(inValidationTable, columnsForTensorId)
+				: null;
+
+		// training configuration
+		final DLKerasTrainingConfig trainingConfig = createTrainingConfig(inNetworkSpec, trainingBucketing != null);
+
 		// TODO: only valid if we don't crop the last batch. This has to be considered if we want to add 'crop' as an
 		// alternative strategy for handling incomplete batches.
-		final int numTrainingBatchesPerEpoch = (int) Math.ceil(inTable.size() / (double) trainingConfig.getBatchSize());
+		final int numTrainingBatchesPerEpoch = trainingBucketing != null
+				? (int) trainingBucketing.getNumBatches(trainingConfig.getBatchSize())
+				: (int) Math.ceil(inTable.size() / (double) trainingConfig.getBatchSize());
 		final int totalNumTrainingBatches = trainingConfig.getEpochs() * numTrainingBatchesPerEpoch;
-		final int numBatchesPerValidation = doValidation
-				? (int) Math.ceil(inValidationTable.size() / (double) trainingConfig.getValidationBatchSize())
-				: 0;
+		final int numBatchesPerValidation;
+		if (!doValidation) {
+			numBatchesPerValidation = 0;
+		} else if (validationBucketing != null) {
+			numBatchesPerValidation = (int) validationBucketing.getNumBatches(trainingConfig.getValidationBatchSize());
+		} else {
+			numBatchesPerValidation = (int) Math
+					.ceil(inValidationTable.size() / (double) trainingConfig.getValidationBatchSize());
+		}
 		final int totalNumValidationBatches = trainingConfig.getEpochs() * numBatchesPerValidation;
 
 		prepareView(doValidation, totalNumTrainingBatches, totalNumValidationBatches);
@@ -657,22 +695,32 @@ private <N extends DLKerasNetwork> PortObject executeInternal(final PortObject i
 
 		m_status = new DLKerasDefaultTrainingStatus(trainingConfig.getEpochs(), numTrainingBatchesPerEpoch);
 		try (final DLRowIterator rowIterator = createRowIterator(inTable, columnsForTensorId, random, exec);
-				final DLKnimeNetworkTrainingInputPreparer inputPreparer = new DLKnimeNetworkTrainingInputPreparer(
-						rowIterator, (int)trainingConfig.getBatchSize(), converterForTensorId);
-				final DLKnimeNetworkValidationInputPreparer validationPreparer = doValidation
-						? new DLKnimeNetworkValidationInputPreparer(
-								new DLDataTableRowIterator(inValidationTable, columnsForTensorId), (int)trainingConfig.getValidationBatchSize(),
-								converterForTensorId)
+				final DLAbstractKnimeNetworkFixedSizeInputPreparer inputPreparer = trainingBucketing != null
+						? new DLKnimeNetworkBucketedInputPreparer(rowIterator, (int) trainingConfig.getBatchSize(),
+								converterForTensorId, trainingBucketing, ctx.getTensorFactory(), columnsForTensorId)
+						: new DLKnimeNetworkTrainingInputPreparer(rowIterator, (int) trainingConfig.getBatchSize(),
+								converterForTensorId);
+				final DLAbstractKnimeNetworkFixedSizeInputPreparer validationPreparer = doValidation
+						? createValidationInputPreparer(inValidationTable, trainingConfig, columnsForTensorId,
+								converterForTensorId, validationBucketing, ctx)
 						: null;
                 DLKerasNetworkTrainingSession session = ctx.createTrainingSession(inNetwork, trainingConfig,
-						DLExecutionSpecCreator.createExecutionSpecs(rowIterator.peek(), ctx.getTensorFactory(),
-								trainingConfig.getBatchSize(), columnsForTensorId, m_converters),
+						trainingBucketing != null
+								? ((DLKnimeNetworkBucketedInputPreparer) inputPreparer).getAnyExecutionSpecs()
+								: DLExecutionSpecCreator.createExecutionSpecs(rowIterator.peek(),
+										ctx.getTensorFactory(), trainingConfig.getBatchSize(), columnsForTensorId,
+										m_converters),
 						inputPreparer, validationPreparer);) {
             m_session = session; // Needed for early stopping.
 			final DLKnimeTrainingMonitor<DLKerasTrainingStatus> monitor = new DLKnimeTrainingMonitor<>(exec, m_status);
 			setupTrainingStatus(doValidation, trainingConfig, numTrainingBatchesPerEpoch, totalNumTrainingBatches,
                 monitor);
+			inputPreparer.setMetrics(m_status.getMetrics());
+			if (validationPreparer != null) {
+				validationPreparer.setMetrics(m_status.getMetrics());
+			}
             session.run(monitor);
+			reportMetrics(m_status.getMetrics());
 			exec.setMessage("Saving trained Keras deep learning network...");
             return session.getTrainedNetwork(exec);
 		} catch (final CanceledExecutionException | DLCanceledExecutionException e) {
@@ -685,6 +733,21 @@ private <N extends DLKerasNetwork> PortObject executeInternal(final PortObject i
 		}
 	}
 
+	/**
+	 * Outputs the metrics of the training as flow variables if enabled and logs them if requested via
+	 * {@link DLSessionMetrics#LOG_VM_OPT}.
+	 */
+	private void reportMetrics(final DLSessionMetrics metrics) {
+		if (m_generalCfg.getMetricsFlowVariablesEntry().getValue()) {
+			for (final Entry<String, Double> entry : metrics.getSummary().entrySet()) {
+				pushFlowVariableDouble(entry.getKey(), entry.getValue());
+			}
+		}
+		if (DLSessionMetrics.isLoggingEnabled()) {
+			LOGGER.info("Training metrics: " + metrics.toJson());
+		}
+	}
+
     private RuntimeException handleGeneralException(final Exception e) throws CanceledExecutionException {
         final Throwable cause = e.getCause();
         if (cause != null) {
@@ -710,6 +773,7 @@ private void setupTrainingStatus(final boolean doValidation, final DLKerasTraini
         final int numTrainingBatchesPerEpoch, final int totalNumTrainingBatches,
         final DLKnimeTrainingMonitor<DLKerasTrainingStatus> monitor) {
         final NodeContext nodeContext = NodeContext.getContext();
+        m_lastBatchViewNotification = 0;
         m_status.setViewSpecs(m_viewSpecs);
         m_status.setViewData(m_viewData);
         m_status.trainingEnded().addListener((src, v) -> {
@@ -729,7 +793,15 @@ private void setupTrainingStatus(final boolean doValidation, final DLKerasTraini
         	}
         });
         m_status.epochEnded().addListener((src, metrics) -> {
-        	if (doValidation) {
+        	if (!doValidation) {
+        		// show the last batches of the epoch, their notification might have been skipped
+                try {
+                    notifyViewsWithNodeContext(nodeContext, m_status);
+                } catch (final Exception e) {
+        			LOGGER.warn("An error occurred while updating the learner's view. "
+        					+ "The actual learning process remains unaffected.", e);
+        		}
+        	} else {
         		final int currentBatch = m_status.getCurrentEpoch() * numTrainingBatchesPerEpoch
         				+ m_status.getCurrentBatchInEpoch();
         		// update view
@@ -758,8 +830,17 @@ private void setupTrainingStatus(final boolean doValidation, final DLKerasTraini
         });
         m_status.batchEnded().addListener((src, metrics) -> {
         	// update view
-        	((DLDenseLinePlotViewData) m_viewData[0].get(0)).getDataY().add(metrics.get("accuracy").getValue());
-        	((DLDenseLinePlotViewData) m_viewData[1].get(0)).getDataY().add(metrics.get("loss").getValue());
+        	((DLDenseLinePlotViewData) m_viewData[0].get(0)).add(metrics.get("accuracy").getValue());
+        	((DLDenseLinePlotViewData) m_viewData[1].get(0)).add(metrics.get("loss").getValue());
+            // Coalesced batches end in quick succession since their metrics are received in bulk. Limit the refresh
+            // rate.
+            if (trainingConfig.isBatchMetricsCoalescingEnabled()) {
+                final long now = System.currentTimeMillis();
+                if (now - m_lastBatchViewNotification < BATCH_VIEW_NOTIFICATION_INTERVAL) {
+                    return;
+                }
+                m_lastBatchViewNotification = now;
+            }
             try {
                 notifyViewsWithNodeContext(nodeContext, m_status);
             } catch (final Exception e) {
@@ -849,15 +930,60 @@ private void fillInputAndTargetSpecificMaps(final DataTableSpec inTableSpec, fin
 		}
     }
 
-    private DLKerasTrainingConfig createTrainingConfig(final DLKerasNetworkSpec inNetworkSpec) {
+	private DLAbstractKnimeNetworkFixedSizeInputPreparer createValidationInputPreparer(
+			final BufferedDataTable inValidationTable, final DLKerasTrainingConfig trainingConfig,
+			final Map<DLTensorId, int[]> columnsForTensorId,
+			final Map<DLTensorId, DLDataValueToTensorConverterFactory<?, ?>> converterForTensorId,
+			final DLLengthBucketing validationBucketing, final DLKerasTrainingContext<?> ctx)
+			throws DLMissingExtensionException {
+		final DLRowIterator rowIterator = new DLDataTableRowIterator(inValidationTable, columnsForTensorId);
+		if (validationBucketing != null) {
+			return new DLKnimeNetworkBucketedInputPreparer(rowIterator, (int) trainingConfig.getValidationBatchSize(),
+					converterForTensorId, validationBucketing, ctx.getTensorFactory(), columnsForTensorId);
+		}
+		return new DLKnimeNetworkValidationInputPreparer(rowIterator, (int) trainingConfig.getValidationBatchSize(),
+				converterForTensorId);
+	}
+
+	/**
+	 * @return the length bucketing to which all rows of the given table are assigned if bucketing is enabled,
+	 *         <code>null</code> otherwise or if the network has no variable-length inputs or targets
+	 */
+	private DLLengthBucketing createLengthBucketing(final BufferedDataTable table,
+			final Map<DLTensorId, int[]> columnsForTensorId) throws Exception {
+		if (!m_generalCfg.getBucketBoundariesEntry().getEnabled()) {
+			return null;
+		}
+		final DLLengthBucketing bucketing = new DLLengthBucketing(
+				DLLengthBucketing.parseBoundaries(m_generalCfg.getBucketBoundariesEntry().getValue()), m_converters);
+		if (!bucketing.hasVariableLengthTensors()) {
+			setWarningMessage("Length bucketing is enabled but the network has no inputs or targets of variable "
+					+ "length. Rows are trained without bucketing.");
+			return null;
+		}
+		try (final DLRowIterator rowIterator = new DLDataTableRowIterator(table, columnsForTensorId)) {
+			bucketing.assignAll(rowIterator);
+		}
+		return bucketing;
+	}
+
+    private DLKerasTrainingConfig createTrainingConfig(final DLKerasNetworkSpec inNetworkSpec,
+        final boolean bucketed) {
         final int trainingBatchSize = m_generalCfg.getBatchSizeEntry().getValue();
 		final int numEpochs = m_generalCfg.getEpochsEntry().getValue();
 		final int validationBatchSize = m_generalCfg.getValidationBatchSizeEntry().getValue();
 		final DLKerasOptimizer optimizer = m_generalCfg.getOptimizerEntry().getValue();
         final Map<DLTensorId, DLKerasLossFunction> lossFunctions = createLossFunctionMap(inNetworkSpec);
 		final ArrayList<DLKerasCallback> callbacks = createCallbackList();
-		return new DLKerasDefaultTrainingConfig(numEpochs, trainingBatchSize,
-				validationBatchSize, optimizer, lossFunctions, callbacks);
+		final int prefetchBatches = m_generalCfg.getPrefetchBatchesEntry().getValue();
+		// bucketed batches are assembled on the KNIME side in each epoch and cannot be served from the cache
+		final boolean cacheData = m_generalCfg.getCacheDataEntry().getValue() && !bucketed;
+		// cached data is shuffled by the back end, see DLKerasTrainingConfig#getCacheShuffleSeed()
+		final Long cacheShuffleSeed = m_generalCfg.getShuffleTrainingData().getValue() ? createRandom().nextLong()
+				: null;
+		final boolean coalesceBatchMetrics = m_generalCfg.getCoalesceBatchMetricsEntry().getValue();
+		return new DLKerasDefaultTrainingConfig(numEpochs, trainingBatchSize, validationBatchSize, optimizer,
+				lossFunctions, callbacks, prefetchBatches, cacheData, cacheShuffleSeed, coalesceBatchMetrics);
     }
 
     private ArrayList<DLKerasCallback> createCallbackList() {
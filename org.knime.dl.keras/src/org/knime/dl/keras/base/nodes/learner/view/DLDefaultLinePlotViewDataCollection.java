@@ -64,6 +64,13 @@
 public final class DLDefaultLinePlotViewDataCollection<S extends DLLinePlotViewSpec>
     implements DLLinePlotViewDataCollection {
 
+    /* Type markers of the serialized view data, the first two equal the formerly written booleans. */
+    private static final byte TYPE_SPARSE = 0;
+
+    private static final byte TYPE_DENSE_LEGACY = 1;
+
+    private static final byte TYPE_DENSE = 2;
+
     private final S m_spec;
 
     private DLLinePlotViewData[] m_viewData;
@@ -107,7 +114,7 @@ public Iterator<DLLinePlotViewData> iterator() {
     public void writeExternal(final ObjectOutput objOut) throws IOException {
         objOut.writeInt(m_viewData.length);
         for (int i = 0; i < m_viewData.length; i++) {
-            objOut.writeBoolean(m_viewData[i].getClass() == DLDenseLinePlotViewData.class);
+            objOut.writeByte(m_viewData[i].getClass() == DLDenseLinePlotViewData.class ? TYPE_DENSE : TYPE_SPARSE);
             m_viewData[i].writeExternal(objOut);
         }
     }
@@ -116,9 +123,17 @@ public void writeExternal(final ObjectOutput objOut) throws IOException {
     public void readExternal(final ObjectInput objIn) throws IOException, ClassNotFoundException {
         m_viewData = new DLLinePlotViewData[objIn.readInt()];
         for (int i = 0; i < m_viewData.length; i++) {
-            final DLLinePlotViewData viewData =
-                objIn.readBoolean() ? new DLDenseLinePlotViewData() : new DLSparseLinePlotViewData();
-            viewData.readExternal(objIn);
+            final byte type = objIn.readByte();
+            final DLLinePlotViewData viewData;
+            if (type == TYPE_DENSE_LEGACY) {
+                // backward compatibility (3.7): dense data used to be a plain list of values
+                final DLDenseLinePlotViewData denseViewData = new DLDenseLinePlotViewData();
+                denseViewData.readLegacyExternal(objIn);
+                viewData = denseViewData;
+            } else {
+                viewData = type == TYPE_DENSE ? new DLDenseLinePlotViewData() : new DLSparseLinePlotViewData();
+                viewData.readExternal(objIn);
+            }
             m_viewData[i] = viewData;
         }
     }
@@ -53,17 +53,24 @@
 import java.util.NoSuchElementException;
 
 import gnu.trove.TFloatArrayList;
+import gnu.trove.TIntArrayList;
 
 /**
+ * Line plot data whose x-values are the indices of the y-values. The data is kept in a
+ * {@link DLMultiResolutionSeries}, i.e. its size is bounded and older values are only available in aggregated form.
+ *
  * @author Marcel Wiedenmann, KNIME GmbH, Konstanz, Germany
  * @author Christian Dietz, KNIME GmbH, Konstanz, Germany
  */
 public final class DLDenseLinePlotViewData implements DLLinePlotViewData {
 
-	private TFloatArrayList m_dataY;
+	private DLMultiResolutionSeries m_data;
 
+	/**
+	 * @param capacity the expected number of values, only used to size the initial buffers
+	 */
 	public DLDenseLinePlotViewData(final int capacity) {
-		m_dataY = new TFloatArrayList(capacity);
+		m_data = new DLMultiResolutionSeries(capacity);
 	}
 
 	/**
@@ -72,53 +79,94 @@ public DLDenseLinePlotViewData(final int capacity) {
 	public DLDenseLinePlotViewData() {
 	}
 
-	public TFloatArrayList getDataY() {
-		return m_dataY;
+	/**
+	 * Appends a value. Its x-value is its index.
+	 *
+	 * @param y the value
+	 */
+	public void add(final float y) {
+		m_data.add((int) m_data.size(), y);
 	}
 
+	/**
+	 * The returned iterator first provides all points available at that time (older points in aggregated form, see
+	 * {@link DLMultiResolutionSeries#collectPoints(int, int, TIntArrayList, TFloatArrayList)}) and then keeps
+	 * providing the points that were added in the meantime.
+	 */
 	@Override
 	public Iterator<DLLinePlotViewDataEntry> iterator() {
-		return new DLDenseLinePlotViewDataIterator(m_dataY);
+		return new DLDenseLinePlotViewDataIterator(m_data);
 	}
 
 	@Override
 	public void writeExternal(final ObjectOutput objOut) throws IOException {
-		m_dataY.writeExternal(objOut);
+		m_data.writeExternal(objOut);
 	}
 
 	@Override
 	public void readExternal(final ObjectInput objIn) throws IOException, ClassNotFoundException {
-		m_dataY = new TFloatArrayList(0);
-		m_dataY.readExternal(objIn);
+		m_data = new DLMultiResolutionSeries();
+		m_data.readExternal(objIn);
+	}
+
+	/**
+	 * Reads data that was written by versions prior to 3.7 which kept all values in a list.
+	 *
+	 * @param objIn the input to read from
+	 * @throws IOException if reading failed
+	 */
+	void readLegacyExternal(final ObjectInput objIn) throws IOException {
+		final TFloatArrayList dataY = new TFloatArrayList(0);
+		dataY.readExternal(objIn);
+		m_data = new DLMultiResolutionSeries(dataY.size());
+		for (int i = 0; i < dataY.size(); i++) {
+			m_data.add(i, dataY.get(i));
+		}
 	}
 
 	private static class DLDenseLinePlotViewDataIterator implements Iterator<DLLinePlotViewDataEntry> {
 
-		private final TFloatArrayList m_dataY;
+		private final DLMultiResolutionSeries m_data;
 
 		private final DLMutableLinePlotViewDataEntry m_proxy;
 
-		private int m_idx = -1;
+		private final TIntArrayList m_bufferX = new TIntArrayList();
+
+		private final TFloatArrayList m_bufferY = new TFloatArrayList();
 
-		public DLDenseLinePlotViewDataIterator(final TFloatArrayList dataY) {
-			m_dataY = dataY;
+		private int m_bufferIdx = 0;
+
+		private int m_nextX = 0;
+
+		public DLDenseLinePlotViewDataIterator(final DLMultiResolutionSeries data) {
+			m_data = data;
 			m_proxy = new DLMutableLinePlotViewDataEntry();
 		}
 
 		@Override
 		public boolean hasNext() {
-			return m_idx < m_dataY.size() - 1;
+			if (m_bufferIdx < m_bufferX.size()) {
+				return true;
+			}
+			m_bufferX.clear();
+			m_bufferY.clear();
+			m_bufferIdx = 0;
+			m_data.collectPoints(m_nextX, Integer.MAX_VALUE, m_bufferX, m_bufferY);
+			if (m_bufferX.isEmpty()) {
+				return false;
+			}
+			m_nextX = m_bufferX.get(m_bufferX.size() - 1) + 1;
+			return true;
 		}
 
 		@Override
 		public DLLinePlotViewDataEntry next() throws NoSuchElementException {
-			m_idx++;
-			m_proxy.setX(m_idx);
-			try {
-				m_proxy.setY(m_dataY.get(m_idx));
-			} catch (final ArrayIndexOutOfBoundsException e) {
+			if (!hasNext()) {
 				throw new NoSuchElementException();
 			}
+			m_proxy.setX(m_bufferX.get(m_bufferIdx));
+			m_proxy.setY(m_bufferY.get(m_bufferIdx));
+			m_bufferIdx++;
 			return m_proxy;
 		}
 	}
@@ -0,0 +1,121 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ *
+ */
+package org.knime.dl.keras.base.nodes.learner.view;
+
+import gnu.trove.TFloatArrayList;
+import gnu.trove.TIntArrayList;
+
+/**
+ * Reduces the number of points of a line while preserving its visual shape.
+ */
+public final class DLLinePlotDownsampling {
+
+	private DLLinePlotDownsampling() {
+	}
+
+	/**
+	 * Downsamples a line using the <i>Largest-Triangle-Three-Buckets</i> algorithm (Steinarsson, 2013). The first and
+	 * the last point are always kept. The remaining points are split into buckets of equal size and from each bucket,
+	 * the point is kept that forms the largest triangle with the previously kept point and the average of the next
+	 * bucket.
+	 *
+	 * @param xs the x-values of the line, in ascending order
+	 * @param ys the y-values of the line
+	 * @param numPoints the maximum number of points to keep, e.g. the width of the plot in pixels. Lines with at most
+	 *            this many points and values smaller than three keep all points.
+	 * @param outXs the list to which the x-values of the kept points are appended
+	 * @param outYs the list to which the y-values of the kept points are appended
+	 */
+	public static void largestTriangleThreeBuckets(final TIntArrayList xs, final TFloatArrayList ys,
+			final int numPoints, final TIntArrayList outXs, final TFloatArrayList outYs) {
+		final int size = xs.size();
+		if (numPoints >= size || numPoints < 3) {
+			for (int i = 0; i < size; i++) {
+				outXs.add(xs.get(i));
+				outYs.add(ys.get(i));
+			}
+			return;
+		}
+		final double bucketSize = (size - 2) / (double) (numPoints - 2);
+		int a = 0;
+		outXs.add(xs.get(a));
+		outYs.add(ys.get(a));
+		for (int bucket = 0; bucket < numPoints - 2; bucket++) {
+			// average of the next bucket (the last point for the last bucket)
+			final int nextStart = (int) ((bucket + 1) * bucketSize) + 1;
+			final int nextEnd = Math.min((int) ((bucket + 2) * bucketSize) + 1, size);
+			double avgX = 0;
+			double avgY = 0;
+			for (int i = nextStart; i < nextEnd; i++) {
+				avgX += xs.get(i);
+				avgY += ys.get(i);
+			}
+			final int nextLength = nextEnd - nextStart;
+			avgX /= nextLength;
+			avgY /= nextLength;
+			// point of the current bucket that forms the largest triangle
+			final int start = (int) (bucket * bucketSize) + 1;
+			final int end = nextStart;
+			final double ax = xs.get(a);
+			final double ay = ys.get(a);
+			double maxArea = -1;
+			int maxIndex = start;
+			for (int i = start; i < end; i++) {
+				final double area = Math.abs((ax - avgX) * (ys.get(i) - ay) - (ax - xs.get(i)) * (avgY - ay));
+				if (area > maxArea) {
+					maxArea = area;
+					maxIndex = i;
+				}
+			}
+			outXs.add(xs.get(maxIndex));
+			outYs.add(ys.get(maxIndex));
+			a = maxIndex;
+		}
+		outXs.add(xs.get(size - 1));
+		outYs.add(ys.get(size - 1));
+	}
+}
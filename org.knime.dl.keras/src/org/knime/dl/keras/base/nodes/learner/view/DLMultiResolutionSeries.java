@@ -0,0 +1,501 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ *
+ */
+package org.knime.dl.keras.base.nodes.learner.view;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.util.Arrays;
+
+import gnu.trove.TFloatArrayList;
+import gnu.trove.TIntArrayList;
+
+/**
+ * A line series of bounded size. The most recent points are kept as they are in a ring buffer of fixed capacity. In
+ * addition, the series is summarized at several coarser levels: level <code>i</code> (starting at <code>1</code>)
+ * aggregates blocks of <code>factor^i</code> consecutive points into their minimum, maximum and mean. Each level is a
+ * ring buffer of fixed capacity as well. Thus, recent points are available in full resolution while older points are
+ * only available in the resolution of the finest level that still covers them.
+ * <P>
+ * The x-values of the points must be strictly increasing. Instances are thread-safe.
+ */
+public final class DLMultiResolutionSeries implements Externalizable {
+
+	private static final int DEFAULT_RAW_CAPACITY = 8192;
+
+	private static final int DEFAULT_AGGREGATION_FACTOR = 16;
+
+	private static final int DEFAULT_NUM_LEVELS = 4;
+
+	private static final int DEFAULT_LEVEL_CAPACITY = 4096;
+
+	private static final int INITIAL_CAPACITY = 64;
+
+	private int m_rawCapacity;
+
+	private int m_aggregationFactor;
+
+	private int m_levelCapacity;
+
+	private int[] m_rawX;
+
+	private float[] m_rawY;
+
+	private int m_rawStart;
+
+	private int m_rawSize;
+
+	private DLAggregationLevel[] m_levels;
+
+	private long m_size;
+
+	/**
+	 * Creates a series with default capacities that keeps the 8192 most recent points in full
+	 * resolution. Also used for deserialization.
+	 */
+	public DLMultiResolutionSeries() {
+		this(INITIAL_CAPACITY);
+	}
+
+	/**
+	 * Creates a series with default capacities that keeps the 8192 most recent points in full
+	 * resolution.
+	 *
+	 * @param initialCapacity the number of points for which memory is allocated up front, the buffers grow on demand
+	 *            until they reach their capacity
+	 */
+	public DLMultiResolutionSeries(final int initialCapacity) {
+		this(DEFAULT_RAW_CAPACITY, DEFAULT_AGGREGATION_FACTOR, DEFAULT_NUM_LEVELS, DEFAULT_LEVEL_CAPACITY,
+				initialCapacity);
+	}
+
+	/**
+	 * @param rawCapacity the number of most recent points that are kept in full resolution
+	 * @param aggregationFactor the factor by which the block size grows from level to level
+	 * @param numLevels the number of aggregation levels
+	 * @param levelCapacity the number of blocks that are kept per level
+	 * @param initialCapacity the number of points for which memory is allocated up front, the buffers grow on demand
+	 *            until they reach their capacity
+	 */
+	public DLMultiResolutionSeries(final int rawCapacity, final int aggregationFactor, final int numLevels,
+			final int levelCapacity, final int initialCapacity) {
+		checkArgument(rawCapacity > 0, "Raw capacity must be positive.");
+		checkArgument(aggregationFactor > 1, "Aggregation factor must be greater than one.");
+		checkArgument(numLevels >= 0, "Number of levels must not be negative.");
+		checkArgument(levelCapacity > 0, "Level capacity must be positive.");
+		m_rawCapacity = rawCapacity;
+		m_aggregationFactor = aggregationFactor;
+		m_levelCapacity = levelCapacity;
+		final int rawInitialCapacity = Math.max(1, Math.min(initialCapacity, rawCapacity));
+		m_rawX = new int[rawInitialCapacity];
+		m_rawY = new float[rawInitialCapacity];
+		m_levels = new DLAggregationLevel[numLevels];
+		long blockSize = 1;
+		for (int i = 0; i < numLevels; i++) {
+			blockSize = Math.min(blockSize * aggregationFactor, Integer.MAX_VALUE);
+			m_levels[i] = new DLAggregationLevel((int) blockSize, levelCapacity);
+		}
+	}
+
+	/**
+	 * Appends a point to the series.
+	 *
+	 * @param x the x-value, must be greater than the x-value of the previously added point
+	 * @param y the y-value
+	 */
+	public synchronized void add(final int x, final float y) {
+		checkArgument(m_rawSize == 0 || x > getRawX(m_rawSize - 1), "X-values must be strictly increasing.");
+		if (m_rawSize < m_rawCapacity) {
+			if (m_rawSize == m_rawX.length) {
+				final int newLength = (int) Math.min((long) m_rawX.length * 2, m_rawCapacity);
+				m_rawX = Arrays.copyOf(m_rawX, newLength);
+				m_rawY = Arrays.copyOf(m_rawY, newLength);
+			}
+			m_rawX[m_rawSize] = x;
+			m_rawY[m_rawSize] = y;
+			m_rawSize++;
+		} else {
+			// ring buffer is full, overwrite the oldest point
+			m_rawX[m_rawStart] = x;
+			m_rawY[m_rawStart] = y;
+			m_rawStart = (m_rawStart + 1) % m_rawCapacity;
+		}
+		for (final DLAggregationLevel level : m_levels) {
+			level.add(x, y);
+		}
+		m_size++;
+	}
+
+	/**
+	 * @return the total number of points that were added to this series, including the ones that are only available in
+	 *         aggregated form
+	 */
+	public synchronized long size() {
+		return m_size;
+	}
+
+	/**
+	 * Collects the points of the given x-range in the finest resolution that is available for each part of the range.
+	 * Recent points are collected as they are, older points are represented by the minimum and maximum of their block
+	 * (in the order of their occurrence). The collected points are appended to the given lists in the order of their
+	 * x-values.
+	 *
+	 * @param fromX the lower bound of the range (inclusive)
+	 * @param toX the upper bound of the range (inclusive)
+	 * @param xs the list to which the x-values are appended
+	 * @param ys the list to which the y-values are appended
+	 */
+	public synchronized void collectPoints(final int fromX, final int toX, final TIntArrayList xs,
+			final TFloatArrayList ys) {
+		if (m_rawSize == 0) {
+			return;
+		}
+		// Determine which blocks of which level are needed from finest to coarsest level. Each level only contributes
+		// the blocks that are older than the points covered by the finer levels.
+		final int[] firstBlocks = new int[m_levels.length];
+		final int[] endBlocks = new int[m_levels.length];
+		int coveredFromX = getRawX(0);
+		for (int i = 0; i < m_levels.length; i++) {
+			final DLAggregationLevel level = m_levels[i];
+			firstBlocks[i] = level.firstBlockEndingAtOrAfter(fromX);
+			endBlocks[i] = level.firstBlockEndingAtOrAfter(coveredFromX);
+			if (level.m_size > 0) {
+				coveredFromX = Math.min(coveredFromX, level.getFirstX(0));
+			}
+		}
+		// collect from coarsest to finest level
+		for (int i = m_levels.length - 1; i >= 0; i--) {
+			final DLAggregationLevel level = m_levels[i];
+			for (int b = firstBlocks[i]; b < endBlocks[i] && level.getFirstX(b) <= toX; b++) {
+				level.collectBlock(b, fromX, toX, xs, ys);
+			}
+		}
+		for (int i = firstRawIndexAtOrAfter(fromX); i < m_rawSize; i++) {
+			final int x = getRawX(i);
+			if (x > toX) {
+				break;
+			}
+			xs.add(x);
+			ys.add(getRawY(i));
+		}
+	}
+
+	/**
+	 * @return the number of most recent points that are currently available in full resolution
+	 */
+	public synchronized int getNumRawPoints() {
+		return m_rawSize;
+	}
+
+	private int getRawX(final int index) {
+		return m_rawX[(m_rawStart + index) % m_rawX.length];
+	}
+
+	private float getRawY(final int index) {
+		return m_rawY[(m_rawStart + index) % m_rawY.length];
+	}
+
+	private int firstRawIndexAtOrAfter(final int x) {
+		int low = 0;
+		int high = m_rawSize;
+		while (low < high) {
+			final int mid = (low + high) >>> 1;
+			if (getRawX(mid) < x) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+
+	@Override
+	public synchronized void writeExternal(final ObjectOutput objOut) throws IOException {
+		objOut.writeInt(m_rawCapacity);
+		objOut.writeInt(m_aggregationFactor);
+		objOut.writeInt(m_levels.length);
+		objOut.writeInt(m_levelCapacity);
+		objOut.writeLong(m_size);
+		objOut.writeInt(m_rawSize);
+		for (int i = 0; i < m_rawSize; i++) {
+			objOut.writeInt(getRawX(i));
+			objOut.writeFloat(getRawY(i));
+		}
+		for (final DLAggregationLevel level : m_levels) {
+			level.writeExternal(objOut);
+		}
+	}
+
+	@Override
+	public synchronized void readExternal(final ObjectInput objIn) throws IOException, ClassNotFoundException {
+		m_rawCapacity = objIn.readInt();
+		m_aggregationFactor = objIn.readInt();
+		final int numLevels = objIn.readInt();
+		m_levelCapacity = objIn.readInt();
+		m_size = objIn.readLong();
+		m_rawSize = objIn.readInt();
+		m_rawStart = 0;
+		m_rawX = new int[Math.max(1, m_rawSize)];
+		m_rawY = new float[m_rawX.length];
+		for (int i = 0; i < m_rawSize; i++) {
+			m_rawX[i] = objIn.readInt();
+			m_rawY[i] = objIn.readFloat();
+		}
+		m_levels = new DLAggregationLevel[numLevels];
+		long blockSize = 1;
+		for (int i = 0; i < numLevels; i++) {
+			blockSize = Math.min(blockSize * m_aggregationFactor, Integer.MAX_VALUE);
+			m_levels[i] = new DLAggregationLevel((int) blockSize, m_levelCapacity);
+			m_levels[i].readExternal(objIn);
+		}
+	}
+
+	/**
+	 * A ring buffer of aggregated blocks of a fixed number of consecutive points plus the block that is currently
+	 * being filled.
+	 */
+	private static final class DLAggregationLevel {
+
+		private final int m_blockSize;
+
+		private final int m_capacity;
+
+		private int[] m_firstX = new int[0];
+
+		private int[] m_lastX = new int[0];
+
+		private int[] m_minX = new int[0];
+
+		private int[] m_maxX = new int[0];
+
+		private float[] m_min = new float[0];
+
+		private float[] m_max = new float[0];
+
+		private float[] m_mean = new float[0];
+
+		private int m_start;
+
+		private int m_size;
+
+		private int m_pendingCount;
+
+		private int m_pendingFirstX;
+
+		private int m_pendingMinX;
+
+		private int m_pendingMaxX;
+
+		private float m_pendingMin;
+
+		private float m_pendingMax;
+
+		private double m_pendingSum;
+
+		private DLAggregationLevel(final int blockSize, final int capacity) {
+			m_blockSize = blockSize;
+			m_capacity = capacity;
+		}
+
+		private void add(final int x, final float y) {
+			if (m_pendingCount == 0) {
+				m_pendingFirstX = x;
+				m_pendingMinX = x;
+				m_pendingMaxX = x;
+				m_pendingMin = y;
+				m_pendingMax = y;
+				m_pendingSum = 0;
+			} else if (y < m_pendingMin) {
+				m_pendingMinX = x;
+				m_pendingMin = y;
+			} else if (y > m_pendingMax) {
+				m_pendingMaxX = x;
+				m_pendingMax = y;
+			}
+			m_pendingSum += y;
+			m_pendingCount++;
+			if (m_pendingCount == m_blockSize) {
+				final int index = nextIndex();
+				m_firstX[index] = m_pendingFirstX;
+				m_lastX[index] = x;
+				m_minX[index] = m_pendingMinX;
+				m_maxX[index] = m_pendingMaxX;
+				m_min[index] = m_pendingMin;
+				m_max[index] = m_pendingMax;
+				m_mean[index] = (float) (m_pendingSum / m_blockSize);
+				m_pendingCount = 0;
+			}
+		}
+
+		/**
+		 * Reserves the slot of the next block, grows the buffers or overwrites the oldest block if necessary.
+		 */
+		private int nextIndex() {
+			if (m_size < m_capacity) {
+				if (m_size == m_firstX.length) {
+					final int newLength = (int) Math.min(Math.max(INITIAL_CAPACITY, (long) m_size * 2), m_capacity);
+					m_firstX = Arrays.copyOf(m_firstX, newLength);
+					m_lastX = Arrays.copyOf(m_lastX, newLength);
+					m_minX = Arrays.copyOf(m_minX, newLength);
+					m_maxX = Arrays.copyOf(m_maxX, newLength);
+					m_min = Arrays.copyOf(m_min, newLength);
+					m_max = Arrays.copyOf(m_max, newLength);
+					m_mean = Arrays.copyOf(m_mean, newLength);
+				}
+				return m_size++;
+			}
+			final int index = m_start;
+			m_start = (m_start + 1) % m_capacity;
+			return index;
+		}
+
+		private int index(final int block) {
+			return (m_start + block) % m_firstX.length;
+		}
+
+		private int getFirstX(final int block) {
+			return m_firstX[index(block)];
+		}
+
+		/**
+		 * @return the index of the first block whose last x-value is greater than or equal to the given one
+		 */
+		private int firstBlockEndingAtOrAfter(final int x) {
+			int low = 0;
+			int high = m_size;
+			while (low < high) {
+				final int mid = (low + high) >>> 1;
+				if (m_lastX[index(mid)] < x) {
+					low = mid + 1;
+				} else {
+					high = mid;
+				}
+			}
+			return low;
+		}
+
+		/**
+		 * Collects the minimum and the maximum of the block in the order of their occurrence, or the mean if both
+		 * coincide. Points outside of the given range are omitted.
+		 */
+		private void collectBlock(final int block, final int fromX, final int toX, final TIntArrayList xs,
+				final TFloatArrayList ys) {
+			final int index = index(block);
+			final int minX = m_minX[index];
+			final int maxX = m_maxX[index];
+			if (minX == maxX) {
+				collectPoint(minX, m_mean[index], fromX, toX, xs, ys);
+			} else if (minX < maxX) {
+				collectPoint(minX, m_min[index], fromX, toX, xs, ys);
+				collectPoint(maxX, m_max[index], fromX, toX, xs, ys);
+			} else {
+				collectPoint(maxX, m_max[index], fromX, toX, xs, ys);
+				collectPoint(minX, m_min[index], fromX, toX, xs, ys);
+			}
+		}
+
+		private static void collectPoint(final int x, final float y, final int fromX, final int toX,
+				final TIntArrayList xs, final TFloatArrayList ys) {
+			if (x >= fromX && x <= toX) {
+				xs.add(x);
+				ys.add(y);
+			}
+		}
+
+		private void writeExternal(final ObjectOutput objOut) throws IOException {
+			objOut.writeInt(m_size);
+			for (int b = 0; b < m_size; b++) {
+				final int index = index(b);
+				objOut.writeInt(m_firstX[index]);
+				objOut.writeInt(m_lastX[index]);
+				objOut.writeInt(m_minX[index]);
+				objOut.writeInt(m_maxX[index]);
+				objOut.writeFloat(m_min[index]);
+				objOut.writeFloat(m_max[index]);
+				objOut.writeFloat(m_mean[index]);
+			}
+			objOut.writeInt(m_pendingCount);
+			objOut.writeInt(m_pendingFirstX);
+			objOut.writeInt(m_pendingMinX);
+			objOut.writeInt(m_pendingMaxX);
+			objOut.writeFloat(m_pendingMin);
+			objOut.writeFloat(m_pendingMax);
+			objOut.writeDouble(m_pendingSum);
+		}
+
+		private void readExternal(final ObjectInput objIn) throws IOException {
+			m_size = objIn.readInt();
+			m_start = 0;
+			m_firstX = new int[m_size];
+			m_lastX = new int[m_size];
+			m_minX = new int[m_size];
+			m_maxX = new int[m_size];
+			m_min = new float[m_size];
+			m_max = new float[m_size];
+			m_mean = new float[m_size];
+			for (int b = 0; b < m_size; b++) {
+				m_firstX[b] = objIn.readInt();
+				m_lastX[b] = objIn.readInt();
+				m_minX[b] = objIn.readInt();
+				m_maxX[b] = objIn.readInt();
+				m_min[b] = objIn.readFloat();
+				m_max[b] = objIn.readFloat();
+				m_mean[b] = objIn.readFloat();
+			}
+			m_pendingCount = objIn.readInt();
+			m_pendingFirstX = objIn.readInt();
+			m_pendingMinX = objIn.readInt();
+			m_pendingMaxX = objIn.readInt();
+			m_pendingMin = objIn.readFloat();
+			m_pendingMax = objIn.readFloat();
+			m_pendingSum = objIn.readDouble();
+		}
+	}
+}
@@ -60,6 +60,8 @@
 import java.awt.event.MouseMotionAdapter;
 import java.text.DecimalFormat;
 import java.text.NumberFormat;
+import java.util.ArrayDeque;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
@@ -79,6 +81,7 @@
 import javax.swing.SpinnerNumberModel;
 import javax.swing.Timer;
 import javax.swing.event.DocumentListener;
+import javax.swing.text.BadLocationException;
 import javax.swing.text.DefaultCaret;
 
 import org.jfree.chart.axis.NumberAxis;
@@ -103,6 +106,9 @@ public class DLJFreeChartLinePlotWithHistoryView implements DLLinePlotView<DLJFr
 
     final static Dimension RESET_BUTON_DIMENSION = new Dimension(10, 10);
 
+    /* Maximum number of values shown in the history area of each line */
+    private static final int HISTORY_WINDOW_SIZE = 1000;
+
     private final JFreeChartLinePlotPanel m_linePlot;
 
     private final Map<String, JTextArea> m_historyAreas = new HashMap<>();
@@ -413,16 +419,46 @@ public Component getComponent() {
 
     @Override
     public void update(final String lineLabel, final Iterator<DLLinePlotViewDataEntry> iterator) {
+        if (!iterator.hasNext()) {
+            return;
+        }
+        final ArrayDeque<String> history = new ArrayDeque<>();
         while (iterator.hasNext()) {
             final DLLinePlotViewDataEntry dataEntry = iterator.next();
 
             m_linePlot.plotNext(lineLabel, dataEntry.getX() + 1, dataEntry.getY()); // x-values are 0-based
-            m_historyAreas.get(lineLabel).append(dataEntry.getY() + "\n");
+            if (history.size() == HISTORY_WINDOW_SIZE) {
+                history.removeFirst();
+            }
+            history.addLast(Float.toString(dataEntry.getY()));
             m_currentValues.put(lineLabel, dataEntry.getY());
 
             m_sliderPlotSync.updateMaxXValue(dataEntry.getX() + 1);
             m_sliderPlotSync.updateYBounds(dataEntry.getY());
-            m_sliderPlotSync.updateOnData();
+        }
+        appendHistory(m_historyAreas.get(lineLabel), history);
+        m_sliderPlotSync.updateOnData();
+    }
+
+    /**
+     * Appends the given values to the history area and removes the oldest values if it contains more than
+     * {@link #HISTORY_WINDOW_SIZE} values. The full learning curve is shown by the plot.
+     */
+    private static void appendHistory(final JTextArea historyArea, final Collection<String> values) {
+        final StringBuilder text = new StringBuilder();
+        for (final String value : values) {
+            text.append(value).append('\n');
+        }
+        historyArea.append(text.toString());
+        // the text ends with a line break, i.e. the last line is empty
+        final int numExcessLines = historyArea.getLineCount() - 1 - HISTORY_WINDOW_SIZE;
+        if (numExcessLines > 0) {
+            try {
+                historyArea.replaceRange(null, 0, historyArea.getLineStartOffset(numExcessLines));
+            } catch (final BadLocationException e) {
+                // cannot happen, the line exists
+                historyArea.setText(text.toString());
+            }
         }
     }
 
@@ -79,6 +79,11 @@
 import org.jfree.data.xy.XYDataItem;
 import org.jfree.data.xy.XYSeries;
 import org.jfree.data.xy.XYSeriesCollection;
+import org.knime.dl.keras.base.nodes.learner.view.DLLinePlotDownsampling;
+import org.knime.dl.keras.base.nodes.learner.view.DLMultiResolutionSeries;
+
+import gnu.trove.TFloatArrayList;
+import gnu.trove.TIntArrayList;
 
 /**
  * @author David Kolb, KNIME GmbH, Konstanz, Germany
@@ -103,6 +108,9 @@ public class JFreeChartLinePlotPanel extends JPanel {
     /* Global line width of all plots */
     private static final int LINE_STROKE = 1;
 
+    /* Number of points that are rendered per line if the chart has not been laid out yet */
+    private static final int DEFAULT_NUM_RENDERED_POINTS = 1000;
+
     private final DLJFreeChartLinePlotViewSpec m_spec;
 
     private ChartPanel m_chartPanel;
@@ -119,6 +127,16 @@ public class JFreeChartLinePlotPanel extends JPanel {
 
     private final Map<String, AtomicBoolean> m_smoothedLineOutdated = new HashMap<>();
 
+    /*
+     * The plotted data of each line. The series of the dataset only contain a downsampled version of it that fits the
+     * width of the chart.
+     */
+    private final Map<String, DLMultiResolutionSeries> m_lineData = new HashMap<>();
+
+    private final AtomicBoolean m_renderScheduled = new AtomicBoolean();
+
+    private Range m_renderedRange;
+
     private Map<String, ExponentialSmoothingIterator> m_smoothingIters;
 
     private XYPlot m_plot;
@@ -159,6 +177,7 @@ private XYSeriesCollection createDataset() {
             final String lineLabel = m_spec.getLineLabel(i);
             final XYSeries line = new XYSeries(lineLabel);
             lines.addSeries(line);
+            m_lineData.put(lineLabel, new DLMultiResolutionSeries());
             m_lineIndexToLineLabel.put(lineCounter, lineLabel);
             m_lineLabelToLineIndex.put(lineLabel, lineCounter);
             lineCounter++;
@@ -256,6 +275,13 @@ public ChartPanel getChartPanel() {
             final LogFormat logFormat = new LogFormat(10, "", "", true);
             m_logAxis.setNumberFormatOverride(logFormat);
 
+            // zooming into the plot requires rendering the visible range in more detail
+            getHorizontalAxis().addChangeListener(e -> {
+                final NumberAxis axis = getHorizontalAxis();
+                if (!axis.isAutoRange() && !axis.getRange().equals(m_renderedRange)) {
+                    scheduleRender();
+                }
+            });
         }
         return m_chartPanel;
     }
@@ -282,13 +308,66 @@ public void enableLogAxis() {
      * @param valueY the y-value to plot
      */
     public void plotNext(final String lineLabel, final int valueX, final float valueY) {
-        // All updates of the lines need to happen in the EDT
-        SwingUtilities.invokeLater(() -> {
+        // TODO: we need to differentiate between line plots and scatter plots somewhere
+        m_lineData.get(lineLabel).add(valueX, valueY);
+        scheduleRender();
+    }
+
+    /**
+     * Schedules an update of the lines. Subsequent calls are coalesced until the update was performed.
+     */
+    private void scheduleRender() {
+        if (m_renderScheduled.compareAndSet(false, true)) {
+            // All updates of the lines need to happen in the EDT
+            SwingUtilities.invokeLater(this::render);
+        }
+    }
+
+    /**
+     * Replaces the points of each line by a downsampled version of its data that contains about one point per pixel.
+     * If the horizontal axis is zoomed, only the visible range (plus a margin for panning) is rendered.
+     */
+    private void render() {
+        m_renderScheduled.set(false);
+        final NumberAxis axis = getHorizontalAxis();
+        int fromX = Integer.MIN_VALUE;
+        int toX = Integer.MAX_VALUE;
+        int numPoints = m_chartPanel.getWidth() > 0 ? m_chartPanel.getWidth() : DEFAULT_NUM_RENDERED_POINTS;
+        if (axis.isAutoRange()) {
+            m_renderedRange = null;
+        } else {
+            m_renderedRange = axis.getRange();
+            final double margin = m_renderedRange.getLength() / 2;
+            fromX = (int) Math.max(Integer.MIN_VALUE, Math.floor(m_renderedRange.getLowerBound() - margin));
+            toX = (int) Math.min(Integer.MAX_VALUE, Math.ceil(m_renderedRange.getUpperBound() + margin));
+            numPoints *= 2;
+        }
+        final TIntArrayList xs = new TIntArrayList();
+        final TFloatArrayList ys = new TFloatArrayList();
+        final TIntArrayList renderedXs = new TIntArrayList(numPoints);
+        final TFloatArrayList renderedYs = new TFloatArrayList(numPoints);
+        for (int i = 0; i < m_spec.numPlots(); i++) {
+            final String lineLabel = m_spec.getLineLabel(i);
+            xs.clear();
+            ys.clear();
+            renderedXs.clear();
+            renderedYs.clear();
+            m_lineData.get(lineLabel).collectPoints(fromX, toX, xs, ys);
+            DLLinePlotDownsampling.largestTriangleThreeBuckets(xs, ys, numPoints, renderedXs, renderedYs);
             final XYSeries line = m_dataset.getSeries(lineLabel);
-            // TODO: we need to differentiate between line plots and scatter plots somewhere
-            line.add(valueX, valueY);
+            line.setNotify(false);
+            line.clear();
+            for (int j = 0; j < renderedXs.size(); j++) {
+                line.add(renderedXs.get(j), renderedYs.get(j), false);
+            }
+            line.setNotify(true);
+            // the smoothed line needs to be recomputed from scratch as the points of the line changed
+            if (m_smoothedLinesEnabled && !m_smoothedLineOutdated.get(lineLabel + SMOOTHED_LINE_KEY_SUFFIX).get()) {
+                initSmoothingIter(lineLabel, m_smoothingAlpha);
+                clearSmoothedLine(lineLabel);
+            }
             plotSmoothed(lineLabel);
-        });
+        }
     }
 
     /**
@@ -51,7 +51,6 @@
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
-import java.net.URL;
 import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
@@ -148,23 +147,32 @@ private DLKerasNetworkPortObject(final DLKerasNetwork network, final List<FileSt
         throws IOException {
         super(fileStores);
         m_network = network;
-        if (getFileStoreCount() > 0) {
-            final URL fileStoreUrl = getFileStore(0).getFile().toURI().toURL();
-            final URL networkUrl = m_network.getSource().getURI().toURL();
-            if (!fileStoreUrl.equals(networkUrl)) {
-                // Copy network to file store.
-                flushToFileStoreInternal(m_network, getFileStore(0));
-                try {
-                    m_network = m_network.getSpec().create(new DLNetworkFileStoreLocation(getFileStore(0)));
-                } catch (final DLInvalidSourceException e) {
-                    throw new IOException(e.getMessage(), e);
-                }
+        if (getFileStoreCount() > 0 && !isStoredIn(m_network, getFileStore(0))) {
+            // Copy network to file store.
+            flushToFileStoreInternal(m_network, getFileStore(0));
+            try {
+                m_network = m_network.getSpec().create(new DLNetworkFileStoreLocation(getFileStore(0)));
+            } catch (final DLInvalidSourceException e) {
+                throw new IOException(e.getMessage(), e);
             }
         }
         m_content = new DLKerasMaterializedPortObjectContent(checkNotNull(m_network));
         m_spec = m_content.getSpec();
     }
 
+    /**
+     * @return true if the network's source is the given file store, e.g. because a training session saved the network
+     *         directly into it. The network is not copied in this case.
+     */
+    private static boolean isStoredIn(final DLKerasNetwork network, final FileStore fileStore) throws IOException {
+        final DLNetworkLocation source = network.getSource();
+        if (source instanceof DLNetworkFileStoreLocation
+            && ((DLNetworkFileStoreLocation)source).getFileStore().getFile().equals(fileStore.getFile())) {
+            return true;
+        }
+        return fileStore.getFile().toURI().toURL().equals(source.getURI().toURL());
+    }
+
     /**
      * Deserialization constructor.
      */
@@ -57,6 +57,7 @@
 import org.knime.dl.keras.cntk.core.DLKerasCNTKCommands;
 import org.knime.dl.keras.cntk.core.DLKerasCNTKNetwork;
 import org.knime.dl.keras.core.execution.DLKerasAbstractNetworkExecutionSession;
+import org.knime.dl.python.core.DLPythonContext;
 
 /**
  * @author Marcel Wiedenmann, KNIME GmbH, Konstanz, Germany
@@ -73,7 +74,7 @@ public DLKerasCNTKNetworkExecutionSession(final DLKerasCNTKNetwork network,
 	}
 
 	@Override
-	protected DLKerasCNTKCommands createCommands() throws DLInvalidEnvironmentException {
-		return new DLKerasCNTKCommands();
+	protected DLKerasCNTKCommands createCommands(final DLPythonContext context) throws DLInvalidEnvironmentException {
+		return new DLKerasCNTKCommands(context);
 	}
 }
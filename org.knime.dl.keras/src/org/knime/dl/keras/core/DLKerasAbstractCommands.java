@@ -88,8 +88,51 @@
  */
 public abstract class DLKerasAbstractCommands extends DLPythonAbstractCommands {
 
+    /**
+     * VM option that specifies the maximum number of training batches whose metrics are sent to Java at once if
+     * {@link DLKerasTrainingConfig#isBatchMetricsCoalescingEnabled() coalescing} is enabled. A value of 1 sends the
+     * metrics of each batch separately.
+     */
+    public static final String METRICS_FLUSH_BATCHES_VM_OPT = "knime.dl.keras.training.metricsflushbatches";
+
+    /**
+     * Default maximum number of training batches whose metrics are sent to Java at once.
+     */
+    public static final int METRICS_FLUSH_BATCHES_DEFAULT = 64;
+
+    /**
+     * VM option that specifies the maximum time for which training batch metrics are held back before they are sent
+     * to Java.
+     */
+    public static final String METRICS_FLUSH_INTERVAL_VM_OPT = "knime.dl.keras.training.metricsflushinterval";
+
+    /**
+     * Default maximum time for which training batch metrics are held back before they are sent to Java.
+     */
+    public static final int METRICS_FLUSH_INTERVAL_DEFAULT = 250; // in ms
+
+    /**
+     * VM option that specifies the maximum size (in MB) of the training or validation data that is cached in Python
+     * for the whole training run if {@link DLKerasTrainingConfig#isDataCachingEnabled() data caching} is enabled.
+     */
+    public static final String DATA_CACHE_LIMIT_VM_OPT = "knime.dl.keras.training.datacachelimit";
+
+    /**
+     * Default maximum size (in MB) of the training or validation data that is cached in Python.
+     */
+    public static final int DATA_CACHE_LIMIT_DEFAULT = 1024;
+
     private static final NodeLogger LOGGER = NodeLogger.getLogger(DLKerasAbstractCommands.class);
 
+    private static final int METRICS_FLUSH_BATCHES =
+        readVMOption(METRICS_FLUSH_BATCHES_VM_OPT, METRICS_FLUSH_BATCHES_DEFAULT, 1);
+
+    private static final int METRICS_FLUSH_INTERVAL =
+        readVMOption(METRICS_FLUSH_INTERVAL_VM_OPT, METRICS_FLUSH_INTERVAL_DEFAULT, 0);
+
+    private static final long DATA_CACHE_LIMIT =
+        readVMOption(DATA_CACHE_LIMIT_VM_OPT, DATA_CACHE_LIMIT_DEFAULT, 0) * 1024L * 1024L;
+
     private static final String KERAS_VERSION_NAME = "keras_version";
 
 	protected DLKerasAbstractCommands() {
@@ -170,6 +213,7 @@ private DLPythonNetworkHandle loadNetworkInternal(final DLKerasAbstractNetworkRe
 	public void setNetworkTrainingConfig(final DLPythonNetworkHandle handle, final DLKerasTrainingConfig config, final DLCancelable cancelable)
 			throws DLInvalidEnvironmentException, IOException, DLCanceledExecutionException {
 	    final Collection<DLKerasCustomLoss> customLosses = getCustomLosses(config.getLosses().values());
+		final boolean coalesceBatchMetrics = config.isBatchMetricsCoalescingEnabled();
 		final DLPythonSourceCodeBuilder b = DLPythonUtils.createSourceCodeBuilder() //
 				.a("from DLKerasNetwork import DLKerasTrainingConfig");
 		if (!customLosses.isEmpty()) {
@@ -188,6 +232,12 @@ public void setNetworkTrainingConfig(final DLPythonNetworkHandle handle, final D
 		.n(config.getLosses().entrySet(),
 		    e -> "config.loss[" + DLPythonUtils.toPython(e.getKey().getIdentifierString()) + "] = "
 		            + e.getValue().getBackendRepresentation()) //
+		.n("config.metrics_flush_batches = ").a(coalesceBatchMetrics ? METRICS_FLUSH_BATCHES : 1) //
+		.n("config.metrics_flush_interval = ").a(coalesceBatchMetrics ? METRICS_FLUSH_INTERVAL : 0) //
+		.n("config.prefetch_batches = ").a(config.getPrefetchBatches()) //
+		.n("config.data_cache_limit = ").a(config.isDataCachingEnabled() ? DATA_CACHE_LIMIT : 0) //
+		.n("config.data_cache_shuffle_seed = ").a(config.getCacheShuffleSeed().isPresent()
+				? Long.toString(config.getCacheShuffleSeed().getAsLong()) : "None") //
 		.n("import DLKerasTrainingCallbacks") //
 		.n(config.getCallbacks(), c -> "config.callbacks.append(" + c.getBackendRepresentation() + ")")
 		.n("import DLPythonNetwork") //
@@ -205,6 +255,27 @@ public void stopTrainNetworkEarly(final DLPythonNetworkHandle network)
         getContext(DLNotCancelable.INSTANCE).executeAsyncInKernel(b.toString(), DLNotCancelable.INSTANCE);
     }
 
+    /**
+     * Exports the architecture and weights of the given network into a file that can be read by the Java execution
+     * back end (see DLKerasJvmModel).
+     *
+     * @param handle the handle of the network
+     * @param path the path of the file to write
+     * @param cancelable to check if the execution has been canceled
+     * @throws DLInvalidEnvironmentException if failed to properly setup the Python context
+     * @throws IOException if failed to export the network
+     * @throws DLCanceledExecutionException if the execution has been canceled
+     */
+    public void exportJvmModel(final DLPythonNetworkHandle handle, final String path, final DLCancelable cancelable)
+        throws DLInvalidEnvironmentException, IOException, DLCanceledExecutionException {
+        final DLPythonSourceCodeBuilder b = DLPythonUtils.createSourceCodeBuilder() //
+            .a("import DLPythonNetwork") //
+            .n("from DLKerasJvmModelExporter import export_model") //
+            .n("export_model(DLPythonNetwork.get_network(").as(handle.getIdentifier()).a(").model, ").asr(path)
+            .a(")");
+        getContext(cancelable).executeInKernel(b.toString(), cancelable);
+    }
+
     /**
      * @param cancelable to check if the execution has been canceled
      * @return the keras version
@@ -266,6 +337,21 @@ public String readFromYaml(final String path, final boolean compatibilityMode) {
         }
     }
 
+    private static int readVMOption(final String option, final int defaultValue, final int minValue) {
+        int value = minValue - 1;
+        try {
+            value = Integer.parseInt(System.getProperty(option, Integer.toString(defaultValue)));
+        } catch (final NumberFormatException ex) {
+            // Ignore, see below.
+        }
+        if (value < minValue) {
+            value = defaultValue;
+            LOGGER.warn("The VM option -D" + option + " was not set to an integer value greater than or equal to "
+                + minValue + ", and thus defaults to " + value + ".");
+        }
+        return value;
+    }
+
     private static class DLKerasNetworkTrainingTaskHandler extends DLPythonNetworkTrainingTaskHandler {
 
         protected DLKerasNetworkTrainingTaskHandler(final DLPythonContext context,
@@ -50,7 +50,7 @@
 
 import org.knime.dl.core.DLTensorFactory;
 import org.knime.dl.keras.core.DLKerasNetwork;
-import org.knime.dl.python.core.DLPythonDefaultTensorFactory;
+import org.knime.dl.python.core.DLPythonDirectTensorFactory;
 
 /**
  * @author Marcel Wiedenmann, KNIME GmbH, Konstanz, Germany
@@ -67,7 +67,7 @@
 	protected DLKerasAbstractExecutionContext(final Class<N> networkType, final String name) {
 		m_networkType = networkType;
 		m_name = name;
-		m_layerDataFactory = new DLPythonDefaultTensorFactory();
+		m_layerDataFactory = DLPythonDirectTensorFactory.createIfEnabled();
 	}
 
 	@Override
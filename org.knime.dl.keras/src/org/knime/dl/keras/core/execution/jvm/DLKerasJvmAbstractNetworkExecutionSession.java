@@ -0,0 +1,395 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ *
+ */
+package org.knime.dl.keras.core.execution.jvm;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Optional;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.commons.lang3.ArrayUtils;
+import org.knime.core.node.NodeLogger;
+import org.knime.dl.core.DLCanceledExecutionException;
+import org.knime.dl.core.DLInvalidEnvironmentException;
+import org.knime.dl.core.DLNetworkInputPreparer;
+import org.knime.dl.core.DLSessionMetrics;
+import org.knime.dl.core.DLSessionMetrics.Phase;
+import org.knime.dl.core.DLTensor;
+import org.knime.dl.core.DLTensorFactory;
+import org.knime.dl.core.DLTensorId;
+import org.knime.dl.core.DLTensorSpec;
+import org.knime.dl.core.data.DLReadableBuffer;
+import org.knime.dl.core.data.DLReadableDoubleBuffer;
+import org.knime.dl.core.data.DLReadableFloatBuffer;
+import org.knime.dl.core.data.DLReadableLongBuffer;
+import org.knime.dl.core.data.DLWritableBuffer;
+import org.knime.dl.core.data.DLWritableFloatBuffer;
+import org.knime.dl.core.data.DLWrappingDataBuffer;
+import org.knime.dl.core.execution.DLAbstractNetworkExecutionSession;
+import org.knime.dl.core.execution.DLExecutionMonitor;
+import org.knime.dl.core.execution.DLExecutionStatus;
+import org.knime.dl.core.execution.DLNetworkExecutionSession;
+import org.knime.dl.core.execution.DLNetworkOutputConsumer;
+import org.knime.dl.core.execution.DLTransportPrecision;
+import org.knime.dl.keras.core.DLKerasAbstractCommands;
+import org.knime.dl.keras.core.DLKerasNetwork;
+import org.knime.dl.keras.core.execution.DLKerasNetworkExecutionSession;
+import org.knime.dl.python.core.DLPythonContext;
+import org.knime.dl.util.DLUtils;
+
+/**
+ * Executes Keras networks in Java, i.e. without a Python process and without transferring tensors between processes,
+ * if all of their layers are supported by the Java execution back end. Supported are dense, 1D and 2D convolution,
+ * pooling, batch normalization, embedding, recurrent (simple, LSTM and GRU), activation, merge and reshaping layers
+ * in the channels last data format.
+ * <P>
+ * Each network is exported once via Python (see {@link DLKerasJvmModelLoader}). Networks that are not supported are
+ * executed by a fallback session in Python, to which all settings of this session are forwarded.
+ *
+ * @param <N> the network type
+ * @param <C> the type of the commands that are used to export the network
+ */
+public abstract class DLKerasJvmAbstractNetworkExecutionSession<N extends DLKerasNetwork, C extends DLKerasAbstractCommands>
+	extends DLAbstractNetworkExecutionSession<N> implements DLKerasNetworkExecutionSession {
+
+	private static final NodeLogger LOGGER = NodeLogger.getLogger(DLKerasJvmAbstractNetworkExecutionSession.class);
+
+	/**
+	 * Canonical Keras tensor ids, see DLKerasNetworkSpecExtractor.py: layer name, node index, tensor index.
+	 */
+	private static final Pattern TENSOR_ID_PATTERN = Pattern.compile("^(.*)_(\\d+):(\\d+)$");
+
+	private static final Set<Class<?>> SUPPORTED_INPUT_TYPES =
+		new HashSet<>(Arrays.asList(float.class, double.class, int.class, long.class));
+
+	private static final Set<Class<?>> SUPPORTED_OUTPUT_TYPES =
+		new HashSet<>(Arrays.asList(float.class, double.class));
+
+	private boolean m_pipelined = false;
+
+	private int m_numThreads = 0;
+
+	private DLTransportPrecision m_transportPrecision = DLTransportPrecision.FULL;
+
+	private DLKerasJvmModel m_model;
+
+	/**
+	 * The names of the layers that correspond to the network inputs respectively the requested outputs.
+	 */
+	private final Map<DLTensorId, String> m_inputLayers = new HashMap<>();
+
+	private final Map<DLTensorId, String> m_outputLayers = new HashMap<>();
+
+	private Map<String, int[]> m_shapes;
+
+	private DLKerasJvmKernels m_kernels;
+
+	/**
+	 * Is instantiated at the beginning of the first call of {@link #run(DLExecutionMonitor)} if the network is not
+	 * supported.
+	 */
+	private DLNetworkExecutionSession m_fallback;
+
+	protected DLKerasJvmAbstractNetworkExecutionSession(final N network, final Set<DLTensorSpec> executionInputSpecs,
+		final Set<DLTensorId> requestedOutputs, final DLNetworkInputPreparer inputPreparer,
+		final DLNetworkOutputConsumer outputConsumer, final DLTensorFactory tensorFactory) {
+		super(network, executionInputSpecs, requestedOutputs, inputPreparer, outputConsumer, tensorFactory);
+	}
+
+	/**
+	 * The caller is responsible for {@link AutoCloseable#close() closing} the command.
+	 *
+	 * @param context the Python context that is used to export the network
+	 */
+	protected abstract C createCommands(DLPythonContext context) throws DLInvalidEnvironmentException;
+
+	/**
+	 * @return a session that executes the network in Python, created with the same arguments as this session
+	 */
+	protected abstract DLNetworkExecutionSession createFallbackSession();
+
+	/**
+	 * Only affects the fallback session, execution in Java does not involve any transfers that could be pipelined.
+	 */
+	@Override
+	public void setPipelined(final boolean pipelined) {
+		m_pipelined = pipelined;
+	}
+
+	@Override
+	public void setNumThreads(final int numThreads) {
+		m_numThreads = numThreads;
+	}
+
+	/**
+	 * Only affects the fallback session, tensors are not transferred when executing in Java.
+	 */
+	@Override
+	public void setTransportPrecision(final DLTransportPrecision precision) {
+		m_transportPrecision = precision;
+	}
+
+	/**
+	 * @return <code>true</code> if the network is executed in Java, <code>false</code> if it is executed in Python or
+	 *         if this has not been decided yet, i.e. before the first call of {@link #run(DLExecutionMonitor)}
+	 */
+	public boolean isExecutedInJava() {
+		return m_model != null;
+	}
+
+	@Override
+	public void run(final DLExecutionMonitor monitor) throws DLCanceledExecutionException, Exception {
+		if (m_model == null && m_fallback == null) {
+			initialize(monitor);
+		}
+		if (m_fallback != null) {
+			m_fallback.run(monitor);
+		} else {
+			super.run(monitor);
+		}
+	}
+
+	@Override
+	public void close() throws Exception {
+		super.close();
+		if (m_kernels != null) {
+			m_kernels.close();
+		}
+		if (m_fallback != null) {
+			m_fallback.close();
+		}
+	}
+
+	@Override
+	protected void executeInternal(final DLExecutionMonitor monitor) throws DLCanceledExecutionException, Exception {
+		final DLExecutionStatus status = monitor.getExecutionStatus();
+		final DLSessionMetrics metrics = status.getMetrics();
+		final Collection<String> requestedLayers = m_outputLayers.values();
+		while (m_inputPreparer.hasNext()) {
+			monitor.checkCanceled();
+			m_inputPreparer.prepareNext(m_input);
+			monitor.checkCanceled();
+			final Map<String, float[]> inputs = new HashMap<>(m_input.size());
+			int batchSize = 0;
+			for (final Entry<DLTensorId, DLTensor<? extends DLWritableBuffer>> input : m_input.entrySet()) {
+				final DLTensor<? extends DLWritableBuffer> tensor = input.getValue();
+				// last batch might be incomplete
+				batchSize = (int)(tensor.getBuffer().size() / tensor.getExampleSize());
+				inputs.put(m_inputLayers.get(input.getKey()), readValues(tensor.getBuffer()));
+			}
+			final long start = metrics.start();
+			final Map<String, float[]> outputs = m_model.execute(m_kernels, inputs, m_shapes, batchSize, requestedLayers);
+			metrics.stop(Phase.EXECUTION, start);
+			for (final DLTensor<?> input : m_input.values()) {
+				input.getBuffer().reset();
+			}
+			monitor.checkCanceled();
+			if (m_output == null) {
+				m_output = createOutputTensors();
+			}
+			for (final Entry<DLTensorId, DLTensor<? extends DLReadableBuffer>> output : m_output.entrySet()) {
+				final String layer = m_outputLayers.get(output.getKey());
+				writeValues(outputs.get(layer), batchSize * DLKerasJvmLayer.size(m_shapes.get(layer)),
+					output.getValue().getBuffer());
+			}
+			m_outputConsumer.accept(m_output);
+			for (final DLTensor<?> output : m_output.values()) {
+				output.getBuffer().reset();
+			}
+			status.batchEnded().raise(null);
+		}
+	}
+
+	private void initialize(final DLExecutionMonitor monitor) throws DLCanceledExecutionException, Exception {
+		try {
+			final DLKerasJvmModel model = DLKerasJvmModelLoader.load(m_network, this::createCommands, monitor);
+			mapTensors(model);
+			m_model = model;
+			m_kernels = new DLKerasJvmKernels(
+				m_numThreads > 0 ? m_numThreads : Runtime.getRuntime().availableProcessors());
+		} catch (final DLKerasJvmUnsupportedModelException e) {
+			LOGGER.info("The network is executed in Python as it is not supported by the Java back end: "
+				+ e.getMessage());
+			m_fallback = createFallbackSession();
+			m_fallback.setPipelined(m_pipelined);
+			m_fallback.setNumThreads(m_numThreads);
+			m_fallback.setTransportPrecision(m_transportPrecision);
+		}
+	}
+
+	/**
+	 * Maps the network inputs and requested outputs to the layers of the model and infers the shapes of all needed
+	 * layers.
+	 */
+	private void mapTensors(final DLKerasJvmModel model) throws DLKerasJvmUnsupportedModelException {
+		// The network spec lists the inputs in the order of the model's inputs. Their ids are not necessarily derived
+		// from the names of the input layers, e.g. for sequential models.
+		final DLTensorSpec[] inputSpecs = m_network.getSpec().getInputSpecs();
+		if (inputSpecs.length != model.getInputLayers().size()) {
+			throw new DLKerasJvmUnsupportedModelException("The network's inputs do not match its input layers.");
+		}
+		final Map<String, int[]> inputShapes = new HashMap<>();
+		for (int i = 0; i < inputSpecs.length; i++) {
+			final DLTensorId id = inputSpecs[i].getIdentifier();
+			final DLTensorSpec executionSpec = m_executionInputSpecs.stream().filter(s -> s.getIdentifier().equals(id))
+				.findFirst().orElseThrow(() -> new IllegalStateException("Missing execution spec of input " + id + "."));
+			if (!SUPPORTED_INPUT_TYPES.contains(executionSpec.getElementType())) {
+				throw new DLKerasJvmUnsupportedModelException(
+					"Input " + id + " is of unsupported type " + executionSpec.getElementType().getSimpleName() + ".");
+			}
+			final Optional<long[]> shape = DLUtils.Shapes.getFixedShape(executionSpec.getShape());
+			if (!shape.isPresent()) {
+				throw new DLKerasJvmUnsupportedModelException("The shape of input " + id + " is not fixed.");
+			}
+			final String layer = model.getInputLayers().get(i);
+			m_inputLayers.put(id, layer);
+			inputShapes.put(layer, Arrays.stream(shape.get()).mapToInt(Math::toIntExact).toArray());
+		}
+		final DLTensorSpec[] outputSpecs =
+			ArrayUtils.addAll(m_network.getSpec().getOutputSpecs(), m_network.getSpec().getHiddenOutputSpecs());
+		for (final DLTensorSpec spec : outputSpecs) {
+			final DLTensorId id = spec.getIdentifier();
+			if (!m_requestedOutputs.contains(id)) {
+				continue;
+			}
+			final Matcher matcher = TENSOR_ID_PATTERN.matcher(id.getIdentifierString());
+			// Only layers that are called once and have a single output are supported.
+			if (!matcher.matches() || !matcher.group(2).equals("0") || !matcher.group(3).equals("0")
+				|| !model.containsLayer(matcher.group(1))) {
+				throw new DLKerasJvmUnsupportedModelException("Output " + id + " is not supported.");
+			}
+			if (!SUPPORTED_OUTPUT_TYPES.contains(spec.getElementType())) {
+				throw new DLKerasJvmUnsupportedModelException(
+					"Output " + id + " is of unsupported type " + spec.getElementType().getSimpleName() + ".");
+			}
+			m_outputLayers.put(id, matcher.group(1));
+		}
+		m_shapes = model.inferShapes(inputShapes, m_outputLayers.values());
+	}
+
+	private Map<DLTensorId, DLTensor<? extends DLReadableBuffer>> createOutputTensors() {
+		final Map<DLTensorId, DLTensor<? extends DLReadableBuffer>> output = new HashMap<>(m_requestedOutputs.size());
+		final DLTensorSpec[] outputSpecs =
+			ArrayUtils.addAll(m_network.getSpec().getOutputSpecs(), m_network.getSpec().getHiddenOutputSpecs());
+		for (final DLTensorSpec spec : outputSpecs) {
+			if (m_requestedOutputs.contains(spec.getIdentifier())) {
+				final long[] shape = Arrays.stream(m_shapes.get(m_outputLayers.get(spec.getIdentifier())))
+					.asLongStream().toArray();
+				final DLTensorSpec executionSpec =
+					m_tensorFactory.createExecutionTensorSpec(spec, m_expectedBatchSize, shape);
+				output.put(spec.getIdentifier(), m_tensorFactory.createReadableTensor(executionSpec));
+			}
+		}
+		return output;
+	}
+
+	/**
+	 * Returns the storage of heap float buffers directly, converts other buffers.
+	 */
+	private static float[] readValues(final DLWritableBuffer buffer) {
+		final int size = (int)buffer.size();
+		if (buffer instanceof DLWrappingDataBuffer) {
+			final Object storage = ((DLWrappingDataBuffer<?>)buffer).getStorageForReading(0, size);
+			if (storage instanceof float[]) {
+				return (float[])storage;
+			}
+		}
+		final float[] values = new float[size];
+		if (buffer instanceof DLReadableFloatBuffer) {
+			((DLReadableFloatBuffer)buffer).readToFloatArray(values, 0, size);
+		} else if (buffer instanceof DLReadableDoubleBuffer) {
+			final double[] doubles = new double[size];
+			((DLReadableDoubleBuffer)buffer).readToDoubleArray(doubles, 0, size);
+			for (int i = 0; i < size; i++) {
+				values[i] = (float)doubles[i];
+			}
+		} else if (buffer instanceof DLReadableLongBuffer) {
+			final long[] longs = new long[size];
+			((DLReadableLongBuffer)buffer).readToLongArray(longs, 0, size);
+			for (int i = 0; i < size; i++) {
+				values[i] = longs[i];
+			}
+		} else {
+			throw new IllegalStateException(
+				"Input buffer type '" + buffer.getClass().getSimpleName() + "' is not supported.");
+		}
+		return values;
+	}
+
+	/**
+	 * Writes into the storage of heap buffers directly, uses the buffer's write methods otherwise.
+	 */
+	private static void writeValues(final float[] values, final int length, final DLReadableBuffer buffer) {
+		if (buffer instanceof DLWrappingDataBuffer) {
+			final Object storage = ((DLWrappingDataBuffer<?>)buffer).getStorageForWriting(0, length);
+			if (storage instanceof float[]) {
+				System.arraycopy(values, 0, storage, 0, length);
+				return;
+			} else if (storage instanceof double[]) {
+				final double[] doubles = (double[])storage;
+				for (int i = 0; i < length; i++) {
+					doubles[i] = values[i];
+				}
+				return;
+			}
+			buffer.reset();
+		}
+		if (buffer instanceof DLWritableFloatBuffer) {
+			// also covers double buffers
+			((DLWritableFloatBuffer)buffer).putAll(Arrays.copyOf(values, length));
+		} else {
+			throw new IllegalStateException(
+				"Output buffer type '" + buffer.getClass().getSimpleName() + "' is not supported.");
+		}
+	}
+}
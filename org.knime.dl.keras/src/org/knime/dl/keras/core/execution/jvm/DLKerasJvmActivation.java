@@ -0,0 +1,210 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ *
+ */
+package org.knime.dl.keras.core.execution.jvm;
+
+/**
+ * The activation functions of Keras (<code>keras.activations</code>) that are supported by the Java execution back
+ * end.
+ */
+enum DLKerasJvmActivation {
+
+		LINEAR("linear") {
+			@Override
+			float apply(final float x) {
+				return x;
+			}
+
+			@Override
+			void apply(final float[] values, final int from, final int to, final int lastDimension) {
+				// no op
+			}
+		},
+		RELU("relu") {
+			@Override
+			float apply(final float x) {
+				return x > 0f ? x : 0f;
+			}
+		},
+		SIGMOID("sigmoid") {
+			@Override
+			float apply(final float x) {
+				return (float)(1d / (1d + Math.exp(-x)));
+			}
+		},
+		HARD_SIGMOID("hard_sigmoid") {
+			@Override
+			float apply(final float x) {
+				return Math.min(1f, Math.max(0f, 0.2f * x + 0.5f));
+			}
+		},
+		TANH("tanh") {
+			@Override
+			float apply(final float x) {
+				return (float)Math.tanh(x);
+			}
+		},
+		ELU("elu") {
+			@Override
+			float apply(final float x) {
+				return x > 0f ? x : (float)Math.expm1(x);
+			}
+		},
+		SELU("selu") {
+			@Override
+			float apply(final float x) {
+				return SELU_SCALE * (x > 0f ? x : SELU_ALPHA * (float)Math.expm1(x));
+			}
+		},
+		SOFTPLUS("softplus") {
+			@Override
+			float apply(final float x) {
+				// numerically stable form of log(exp(x) + 1)
+				return (float)(Math.max(x, 0d) + Math.log1p(Math.exp(-Math.abs(x))));
+			}
+		},
+		SOFTSIGN("softsign") {
+			@Override
+			float apply(final float x) {
+				return x / (Math.abs(x) + 1f);
+			}
+		},
+		EXPONENTIAL("exponential") {
+			@Override
+			float apply(final float x) {
+				return (float)Math.exp(x);
+			}
+		},
+		SOFTMAX("softmax") {
+			@Override
+			boolean isElementwise() {
+				return false;
+			}
+
+			@Override
+			float apply(final float x) {
+				throw new UnsupportedOperationException("Softmax is not an element-wise function.");
+			}
+
+			@Override
+			void apply(final float[] values, final int from, final int to, final int lastDimension) {
+				softmax(values, from, to, lastDimension);
+			}
+		};
+
+	private static final float SELU_ALPHA = 1.6732632423543772848170429916717f;
+
+	private static final float SELU_SCALE = 1.0507009873554804934193349852946f;
+
+	/**
+	 * @param name the name of the activation function in the layer configuration
+	 * @return the activation function
+	 * @throws DLKerasJvmUnsupportedModelException if the activation function is not supported
+	 */
+	static DLKerasJvmActivation fromName(final String name) throws DLKerasJvmUnsupportedModelException {
+		for (final DLKerasJvmActivation activation : values()) {
+			if (activation.m_name.equals(name)) {
+				return activation;
+			}
+		}
+		throw new DLKerasJvmUnsupportedModelException("Activation function '" + name + "' is not supported.");
+	}
+
+	/**
+	 * Normalizes each consecutive run of <code>lastDimension</code> values to a probability distribution.
+	 */
+	static void softmax(final float[] values, final int from, final int to, final int lastDimension) {
+		for (int row = from; row < to; row += lastDimension) {
+			final int end = row + lastDimension;
+			float max = Float.NEGATIVE_INFINITY;
+			for (int i = row; i < end; i++) {
+				max = Math.max(max, values[i]);
+			}
+			double sum = 0d;
+			for (int i = row; i < end; i++) {
+				final float e = (float)Math.exp(values[i] - max);
+				values[i] = e;
+				sum += e;
+			}
+			final float scale = (float)(1d / sum);
+			for (int i = row; i < end; i++) {
+				values[i] *= scale;
+			}
+		}
+	}
+
+	private final String m_name;
+
+	private DLKerasJvmActivation(final String name) {
+		m_name = name;
+	}
+
+	/**
+	 * @return <code>true</code> if the function is applied to each value independently, i.e. supports
+	 *         {@link #apply(float)}
+	 */
+	boolean isElementwise() {
+		return true;
+	}
+
+	/**
+	 * Applies the function to a single value. Only supported by {@link #isElementwise() element-wise} functions.
+	 */
+	abstract float apply(float x);
+
+	/**
+	 * Applies the function in place to the given range of values.
+	 *
+	 * @param from the first value, inclusive, must be the start of a run of the last dimension
+	 * @param to the last value, exclusive, must be the end of a run of the last dimension
+	 * @param lastDimension the size of the last dimension of the tensor, used by non element-wise functions
+	 */
+	void apply(final float[] values, final int from, final int to, final int lastDimension) {
+		for (int i = from; i < to; i++) {
+			values[i] = apply(values[i]);
+		}
+	}
+}
@@ -0,0 +1,240 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ *
+ */
+package org.knime.dl.keras.core.execution.jvm;
+
+import static org.knime.dl.keras.core.execution.jvm.DLKerasJvmLayers.checkChannelsLast;
+import static org.knime.dl.keras.core.execution.jvm.DLKerasJvmLayers.checkNumWeights;
+import static org.knime.dl.keras.core.execution.jvm.DLKerasJvmLayers.checkWeightShape;
+import static org.knime.dl.keras.core.execution.jvm.DLKerasJvmLayers.isSamePadding;
+
+import java.util.List;
+
+import org.knime.dl.keras.core.execution.jvm.DLKerasJvmKernels.Window;
+
+/**
+ * Implementations of Keras' 1D and 2D convolution and pooling layers. Only the channels last data format is supported.
+ */
+final class DLKerasJvmConvolutionalLayers {
+
+	private DLKerasJvmConvolutionalLayers() {
+	}
+
+	/**
+	 * @param rank the number of spatial dimensions, 1 or 2
+	 * @param inputShape [width, channels] or [height, width, channels]
+	 */
+	private static Window createWindow(final int rank, final int[] inputShape, final int[] kernelSize,
+		final int[] strides, final int[] dilation, final boolean same) {
+		if (rank == 1) {
+			return new Window(1, inputShape[0], inputShape[1], 1, kernelSize[0], 1, strides[0], 1, dilation[0], same);
+		}
+		return new Window(inputShape[0], inputShape[1], inputShape[2], kernelSize[0], kernelSize[1], strides[0],
+			strides[1], dilation[0], dilation[1], same);
+	}
+
+	private static int[] createOutputShape(final int rank, final Window window, final int channels) {
+		return rank == 1 ? new int[]{window.getOutWidth(), channels}
+			: new int[]{window.getOutHeight(), window.getOutWidth(), channels};
+	}
+
+	/**
+	 * <code>Conv1D</code> and <code>Conv2D</code>.
+	 */
+	static final class Convolution extends DLKerasJvmLayer {
+
+		private final int m_rank;
+
+		private final int m_filters;
+
+		private final int[] m_kernelSize;
+
+		private final int[] m_strides;
+
+		private final int[] m_dilation;
+
+		private final boolean m_same;
+
+		private final int m_inChannels;
+
+		private final float[] m_kernel;
+
+		private final float[] m_bias;
+
+		private final DLKerasJvmActivation m_activation;
+
+		Convolution(final String name, final List<String> inboundLayers, final DLKerasJvmLayerConfig config,
+			final List<DLKerasJvmWeight> weights, final int rank) throws DLKerasJvmUnsupportedModelException {
+			super(name, inboundLayers);
+			checkChannelsLast(name, config);
+			m_rank = rank;
+			m_filters = config.getInt("filters");
+			m_kernelSize = config.getInts("kernel_size", rank);
+			m_strides = config.getInts("strides", rank);
+			m_dilation = config.contains("dilation_rate") ? config.getInts("dilation_rate", rank) : new int[]{1, 1};
+			m_same = isSamePadding(name, config);
+			m_activation = DLKerasJvmActivation.fromName(config.getString("activation"));
+			final boolean useBias = config.getBoolean("use_bias", true);
+			checkNumWeights(name, weights, useBias ? 2 : 1);
+			// [kernel_size..., in_channels, filters], i.e. the layout expected by the im2col kernel
+			final DLKerasJvmWeight kernel = weights.get(0);
+			if (rank == 1) {
+				checkWeightShape(name, kernel, m_kernelSize[0], -1, m_filters);
+			} else {
+				checkWeightShape(name, kernel, m_kernelSize[0], m_kernelSize[1], -1, m_filters);
+			}
+			m_inChannels = kernel.getShape()[rank];
+			m_kernel = kernel.getValues();
+			if (useBias) {
+				checkWeightShape(name, weights.get(1), m_filters);
+				m_bias = weights.get(1).getValues();
+			} else {
+				m_bias = null;
+			}
+		}
+
+		@Override
+		int[] inferOutputShape(final int[][] inputShapes) throws DLKerasJvmUnsupportedModelException {
+			final int[] inputShape = checkSingleInput(inputShapes);
+			checkRank(inputShape, m_rank + 1);
+			checkDimension(inputShape[m_rank], m_inChannels, "a number of input channels");
+			final Window window = createWindow(m_rank, inputShape, m_kernelSize, m_strides, m_dilation, m_same);
+			return createOutputShape(m_rank, window, m_filters);
+		}
+
+		@Override
+		float[] execute(final DLKerasJvmKernels kernels, final float[][] inputs, final int[][] inputShapes,
+			final int[] outputShape, final int batchSize) {
+			final Window window = createWindow(m_rank, inputShapes[0], m_kernelSize, m_strides, m_dilation, m_same);
+			final float[] out = new float[batchSize * size(outputShape)];
+			kernels.conv2d(inputs[0], window, m_kernel, m_bias, m_filters, m_activation, out, batchSize);
+			return out;
+		}
+	}
+
+	/**
+	 * <code>MaxPooling1D</code>, <code>MaxPooling2D</code>, <code>AveragePooling1D</code> and
+	 * <code>AveragePooling2D</code>.
+	 */
+	static final class Pooling extends DLKerasJvmLayer {
+
+		private static final int[] NO_DILATION = {1, 1};
+
+		private final int m_rank;
+
+		private final boolean m_max;
+
+		private final int[] m_poolSize;
+
+		private final int[] m_strides;
+
+		private final boolean m_same;
+
+		Pooling(final String name, final List<String> inboundLayers, final DLKerasJvmLayerConfig config,
+			final int rank, final boolean max) throws DLKerasJvmUnsupportedModelException {
+			super(name, inboundLayers);
+			checkChannelsLast(name, config);
+			m_rank = rank;
+			m_max = max;
+			m_poolSize = config.getInts("pool_size", rank);
+			// strides default to the pool size
+			m_strides = config.contains("strides") ? config.getInts("strides", rank) : m_poolSize;
+			m_same = isSamePadding(name, config);
+		}
+
+		@Override
+		int[] inferOutputShape(final int[][] inputShapes) throws DLKerasJvmUnsupportedModelException {
+			final int[] inputShape = checkSingleInput(inputShapes);
+			checkRank(inputShape, m_rank + 1);
+			final Window window = createWindow(m_rank, inputShape, m_poolSize, m_strides, NO_DILATION, m_same);
+			return createOutputShape(m_rank, window, inputShape[m_rank]);
+		}
+
+		@Override
+		float[] execute(final DLKerasJvmKernels kernels, final float[][] inputs, final int[][] inputShapes,
+			final int[] outputShape, final int batchSize) {
+			final Window window = createWindow(m_rank, inputShapes[0], m_poolSize, m_strides, NO_DILATION, m_same);
+			final float[] out = new float[batchSize * size(outputShape)];
+			kernels.pool2d(inputs[0], window, m_max, out, batchSize);
+			return out;
+		}
+	}
+
+	/**
+	 * <code>GlobalMaxPooling1D</code>, <code>GlobalMaxPooling2D</code>, <code>GlobalAveragePooling1D</code> and
+	 * <code>GlobalAveragePooling2D</code>.
+	 */
+	static final class GlobalPooling extends DLKerasJvmLayer {
+
+		private final int m_rank;
+
+		private final boolean m_max;
+
+		GlobalPooling(final String name, final List<String> inboundLayers, final DLKerasJvmLayerConfig config,
+			final int rank, final boolean max) throws DLKerasJvmUnsupportedModelException {
+			super(name, inboundLayers);
+			checkChannelsLast(name, config);
+			m_rank = rank;
+			m_max = max;
+		}
+
+		@Override
+		int[] inferOutputShape(final int[][] inputShapes) throws DLKerasJvmUnsupportedModelException {
+			final int[] inputShape = checkSingleInput(inputShapes);
+			checkRank(inputShape, m_rank + 1);
+			return new int[]{inputShape[m_rank]};
+		}
+
+		@Override
+		float[] execute(final DLKerasJvmKernels kernels, final float[][] inputs, final int[][] inputShapes,
+			final int[] outputShape, final int batchSize) {
+			final int channels = outputShape[0];
+			final float[] out = new float[batchSize * channels];
+			kernels.globalPool(inputs[0], size(inputShapes[0]) / channels, channels, m_max, out, batchSize);
+			return out;
+		}
+	}
+}
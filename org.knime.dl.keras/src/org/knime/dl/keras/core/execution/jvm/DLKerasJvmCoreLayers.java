@@ -0,0 +1,530 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ *
+ */
+package org.knime.dl.keras.core.execution.jvm;
+
+import static org.knime.dl.keras.core.execution.jvm.DLKerasJvmLayers.checkChannelsLast;
+import static org.knime.dl.keras.core.execution.jvm.DLKerasJvmLayers.checkNumWeights;
+import static org.knime.dl.keras.core.execution.jvm.DLKerasJvmLayers.checkWeightShape;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Implementations of Keras' core, activation, normalization, embedding and merge layers.
+ */
+final class DLKerasJvmCoreLayers {
+
+	private DLKerasJvmCoreLayers() {
+	}
+
+	/**
+	 * Applies the given element-wise function to a copy of the given input.
+	 */
+	private static float[] map(final DLKerasJvmKernels kernels, final float[] in, final int size,
+		final FloatFunction function) {
+		final float[] out = new float[size];
+		kernels.parallelFor(size, 8, (from, to) -> {
+			for (int i = from; i < to; i++) {
+				out[i] = function.apply(in[i]);
+			}
+		});
+		return out;
+	}
+
+	@FunctionalInterface
+	interface FloatFunction {
+
+		float apply(float x);
+	}
+
+	/**
+	 * Layers that do not change their input at inference time: input layers, dropout and noise layers. Also flatten
+	 * and reshape layers since tensors are stored in row-major order.
+	 */
+	static final class Identity extends DLKerasJvmLayer {
+
+		Identity(final String name, final List<String> inboundLayers) {
+			super(name, inboundLayers);
+		}
+
+		@Override
+		int[] inferOutputShape(final int[][] inputShapes) throws DLKerasJvmUnsupportedModelException {
+			return checkSingleInput(inputShapes);
+		}
+
+		@Override
+		float[] execute(final DLKerasJvmKernels kernels, final float[][] inputs, final int[][] inputShapes,
+			final int[] outputShape, final int batchSize) {
+			return inputs[0];
+		}
+	}
+
+	static final class Flatten extends DLKerasJvmLayer {
+
+		Flatten(final String name, final List<String> inboundLayers, final DLKerasJvmLayerConfig config)
+			throws DLKerasJvmUnsupportedModelException {
+			super(name, inboundLayers);
+			// channels first inputs would have to be transposed
+			checkChannelsLast(name, config);
+		}
+
+		@Override
+		int[] inferOutputShape(final int[][] inputShapes) throws DLKerasJvmUnsupportedModelException {
+			return new int[]{size(checkSingleInput(inputShapes))};
+		}
+
+		@Override
+		float[] execute(final DLKerasJvmKernels kernels, final float[][] inputs, final int[][] inputShapes,
+			final int[] outputShape, final int batchSize) {
+			return inputs[0];
+		}
+	}
+
+	static final class Reshape extends DLKerasJvmLayer {
+
+		private final int[] m_targetShape;
+
+		Reshape(final String name, final List<String> inboundLayers, final DLKerasJvmLayerConfig config)
+			throws DLKerasJvmUnsupportedModelException {
+			super(name, inboundLayers);
+			m_targetShape = config.getInts("target_shape");
+		}
+
+		@Override
+		int[] inferOutputShape(final int[][] inputShapes) throws DLKerasJvmUnsupportedModelException {
+			final int size = size(checkSingleInput(inputShapes));
+			final int[] shape = m_targetShape.clone();
+			int unknown = -1;
+			int known = 1;
+			for (int i = 0; i < shape.length; i++) {
+				if (shape[i] == -1) {
+					unknown = i;
+				} else {
+					known *= shape[i];
+				}
+			}
+			if (unknown != -1 && known > 0) {
+				shape[unknown] = size / known;
+			}
+			checkDimension(size(shape), size, "an input");
+			return shape;
+		}
+
+		@Override
+		float[] execute(final DLKerasJvmKernels kernels, final float[][] inputs, final int[][] inputShapes,
+			final int[] outputShape, final int batchSize) {
+			return inputs[0];
+		}
+	}
+
+	static final class Dense extends DLKerasJvmLayer {
+
+		private final int m_inputDim;
+
+		private final int m_units;
+
+		private final float[] m_kernel;
+
+		private final float[] m_bias;
+
+		private final DLKerasJvmActivation m_activation;
+
+		Dense(final String name, final List<String> inboundLayers, final DLKerasJvmLayerConfig config,
+			final List<DLKerasJvmWeight> weights) throws DLKerasJvmUnsupportedModelException {
+			super(name, inboundLayers);
+			m_units = config.getInt("units");
+			m_activation = DLKerasJvmActivation.fromName(config.getString("activation"));
+			final boolean useBias = config.getBoolean("use_bias", true);
+			checkNumWeights(name, weights, useBias ? 2 : 1);
+			checkWeightShape(name, weights.get(0), -1, m_units);
+			m_inputDim = weights.get(0).getShape()[0];
+			m_kernel = weights.get(0).getValues();
+			if (useBias) {
+				checkWeightShape(name, weights.get(1), m_units);
+				m_bias = weights.get(1).getValues();
+			} else {
+				m_bias = null;
+			}
+		}
+
+		@Override
+		int[] inferOutputShape(final int[][] inputShapes) throws DLKerasJvmUnsupportedModelException {
+			final int[] inputShape = checkSingleInput(inputShapes);
+			if (inputShape.length == 0) {
+				checkRank(inputShape, 1);
+			}
+			checkDimension(inputShape[inputShape.length - 1], m_inputDim, "a last input dimension");
+			final int[] outputShape = inputShape.clone();
+			outputShape[outputShape.length - 1] = m_units;
+			return outputShape;
+		}
+
+		@Override
+		float[] execute(final DLKerasJvmKernels kernels, final float[][] inputs, final int[][] inputShapes,
+			final int[] outputShape, final int batchSize) {
+			// Dense layers are applied to the last dimension of their input.
+			final int rows = batchSize * size(inputShapes[0]) / m_inputDim;
+			final float[] out = new float[rows * m_units];
+			kernels.matmul(inputs[0], 0, m_kernel, m_bias, m_activation, out, 0, rows, m_inputDim, m_units);
+			return out;
+		}
+	}
+
+	static final class Activation extends DLKerasJvmLayer {
+
+		private final DLKerasJvmActivation m_activation;
+
+		Activation(final String name, final List<String> inboundLayers, final DLKerasJvmActivation activation) {
+			super(name, inboundLayers);
+			m_activation = activation;
+		}
+
+		@Override
+		int[] inferOutputShape(final int[][] inputShapes) throws DLKerasJvmUnsupportedModelException {
+			return checkSingleInput(inputShapes);
+		}
+
+		@Override
+		float[] execute(final DLKerasJvmKernels kernels, final float[][] inputs, final int[][] inputShapes,
+			final int[] outputShape, final int batchSize) {
+			final int lastDim = outputShape.length == 0 ? 1 : outputShape[outputShape.length - 1];
+			final int size = batchSize * size(outputShape);
+			final float[] out = Arrays.copyOf(inputs[0], size);
+			kernels.parallelFor(size / lastDim, 8L * lastDim,
+				(from, to) -> m_activation.apply(out, from * lastDim, to * lastDim, lastDim));
+			return out;
+		}
+	}
+
+	/**
+	 * Parameterized activation layers, e.g. <code>LeakyReLU</code>.
+	 */
+	static final class ElementwiseActivation extends DLKerasJvmLayer {
+
+		private final FloatFunction m_function;
+
+		ElementwiseActivation(final String name, final List<String> inboundLayers, final FloatFunction function) {
+			super(name, inboundLayers);
+			m_function = function;
+		}
+
+		@Override
+		int[] inferOutputShape(final int[][] inputShapes) throws DLKerasJvmUnsupportedModelException {
+			return checkSingleInput(inputShapes);
+		}
+
+		@Override
+		float[] execute(final DLKerasJvmKernels kernels, final float[][] inputs, final int[][] inputShapes,
+			final int[] outputShape, final int batchSize) {
+			return map(kernels, inputs[0], batchSize * size(outputShape), m_function);
+		}
+	}
+
+	/**
+	 * Batch normalization at inference time, i.e. using the moving mean and variance. Only normalization over the
+	 * last axis (the channel axis of channels last inputs) is supported.
+	 */
+	static final class BatchNormalization extends DLKerasJvmLayer {
+
+		private final int m_axis;
+
+		private final float[] m_scale;
+
+		private final float[] m_offset;
+
+		BatchNormalization(final String name, final List<String> inboundLayers, final DLKerasJvmLayerConfig config,
+			final List<DLKerasJvmWeight> weights) throws DLKerasJvmUnsupportedModelException {
+			super(name, inboundLayers);
+			final int[] axis = config.getInts("axis");
+			if (axis.length != 1) {
+				throw new DLKerasJvmUnsupportedModelException(
+					"Layer '" + name + "' normalizes over more than one axis.");
+			}
+			m_axis = axis[0];
+			final boolean center = config.getBoolean("center", true);
+			final boolean scale = config.getBoolean("scale", true);
+			final float epsilon = config.getFloat("epsilon", 1e-3f);
+			checkNumWeights(name, weights, (scale ? 1 : 0) + (center ? 1 : 0) + 2);
+			int i = 0;
+			final float[] gamma = scale ? weights.get(i++).getValues() : null;
+			final float[] beta = center ? weights.get(i++).getValues() : null;
+			final float[] mean = weights.get(i++).getValues();
+			final float[] variance = weights.get(i).getValues();
+			for (final DLKerasJvmWeight weight : weights) {
+				checkWeightShape(name, weight, mean.length);
+			}
+			// y = gamma * (x - mean) / sqrt(variance + epsilon) + beta = x * scale + offset
+			m_scale = new float[mean.length];
+			m_offset = new float[mean.length];
+			for (int c = 0; c < mean.length; c++) {
+				m_scale[c] = (float)((gamma != null ? gamma[c] : 1d) / Math.sqrt(variance[c] + (double)epsilon));
+				m_offset[c] = (beta != null ? beta[c] : 0f) - mean[c] * m_scale[c];
+			}
+		}
+
+		@Override
+		int[] inferOutputShape(final int[][] inputShapes) throws DLKerasJvmUnsupportedModelException {
+			final int[] inputShape = checkSingleInput(inputShapes);
+			// The axis includes the batch dimension.
+			if (inputShape.length == 0 || (m_axis != -1 && m_axis != inputShape.length)) {
+				throw new DLKerasJvmUnsupportedModelException(
+					"Layer '" + getName() + "' does not normalize over the last axis.");
+			}
+			checkDimension(inputShape[inputShape.length - 1], m_scale.length, "a last input dimension");
+			return inputShape;
+		}
+
+		@Override
+		float[] execute(final DLKerasJvmKernels kernels, final float[][] inputs, final int[][] inputShapes,
+			final int[] outputShape, final int batchSize) {
+			final float[] in = inputs[0];
+			final int channels = m_scale.length;
+			final int size = batchSize * size(outputShape);
+			final float[] out = new float[size];
+			kernels.parallelFor(size / channels, 2L * channels, (from, to) -> {
+				for (int i = from * channels; i < to * channels; i += channels) {
+					for (int c = 0; c < channels; c++) {
+						out[i + c] = in[i + c] * m_scale[c] + m_offset[c];
+					}
+				}
+			});
+			return out;
+		}
+	}
+
+	static final class Embedding extends DLKerasJvmLayer {
+
+		private final int m_inputDim;
+
+		private final int m_outputDim;
+
+		private final float[] m_embeddings;
+
+		Embedding(final String name, final List<String> inboundLayers, final DLKerasJvmLayerConfig config,
+			final List<DLKerasJvmWeight> weights) throws DLKerasJvmUnsupportedModelException {
+			super(name, inboundLayers);
+			if (config.getBoolean("mask_zero", false)) {
+				throw new DLKerasJvmUnsupportedModelException("Layer '" + name + "' uses masking.");
+			}
+			checkNumWeights(name, weights, 1);
+			checkWeightShape(name, weights.get(0), -1, -1);
+			m_inputDim = weights.get(0).getShape()[0];
+			m_outputDim = weights.get(0).getShape()[1];
+			m_embeddings = weights.get(0).getValues();
+		}
+
+		@Override
+		int[] inferOutputShape(final int[][] inputShapes) throws DLKerasJvmUnsupportedModelException {
+			final int[] inputShape = checkSingleInput(inputShapes);
+			final int[] outputShape = Arrays.copyOf(inputShape, inputShape.length + 1);
+			outputShape[inputShape.length] = m_outputDim;
+			return outputShape;
+		}
+
+		@Override
+		float[] execute(final DLKerasJvmKernels kernels, final float[][] inputs, final int[][] inputShapes,
+			final int[] outputShape, final int batchSize) {
+			final float[] in = inputs[0];
+			final int numIndices = batchSize * size(inputShapes[0]);
+			final float[] out = new float[numIndices * m_outputDim];
+			kernels.parallelFor(numIndices, m_outputDim, (from, to) -> {
+				for (int i = from; i < to; i++) {
+					final int index = (int)in[i];
+					if (index < 0 || index >= m_inputDim) {
+						throw new IllegalArgumentException("Input value " + in[i] + " of layer '" + getName()
+							+ "' is not a valid index into its " + m_inputDim + " embeddings.");
+					}
+					System.arraycopy(m_embeddings, index * m_outputDim, out, i * m_outputDim, m_outputDim);
+				}
+			});
+			return out;
+		}
+	}
+
+	/**
+	 * Element-wise merge layers: <code>Add</code>, <code>Subtract</code>, <code>Multiply</code>,
+	 * <code>Average</code>, <code>Maximum</code> and <code>Minimum</code>. Broadcasting is not supported.
+	 */
+	static final class Merge extends DLKerasJvmLayer {
+
+		private final String m_operation;
+
+		Merge(final String name, final List<String> inboundLayers, final String operation) {
+			super(name, inboundLayers);
+			m_operation = operation;
+		}
+
+		@Override
+		int[] inferOutputShape(final int[][] inputShapes) throws DLKerasJvmUnsupportedModelException {
+			if (inputShapes.length < 2 || (m_operation.equals("Subtract") && inputShapes.length != 2)) {
+				throw new DLKerasJvmUnsupportedModelException(
+					"Layer '" + getName() + "' has an unsupported number of inputs.");
+			}
+			for (final int[] inputShape : inputShapes) {
+				if (!Arrays.equals(inputShape, inputShapes[0])) {
+					throw new DLKerasJvmUnsupportedModelException(
+						"Layer '" + getName() + "' merges inputs of different shapes.");
+				}
+			}
+			return inputShapes[0];
+		}
+
+		@Override
+		float[] execute(final DLKerasJvmKernels kernels, final float[][] inputs, final int[][] inputShapes,
+			final int[] outputShape, final int batchSize) {
+			final int size = batchSize * size(outputShape);
+			final float[] out = Arrays.copyOf(inputs[0], size);
+			kernels.parallelFor(size, inputs.length, (from, to) -> {
+				for (int k = 1; k < inputs.length; k++) {
+					final float[] in = inputs[k];
+					switch (m_operation) {
+						case "Add":
+						case "Average":
+							for (int i = from; i < to; i++) {
+								out[i] += in[i];
+							}
+							break;
+						case "Subtract":
+							for (int i = from; i < to; i++) {
+								out[i] -= in[i];
+							}
+							break;
+						case "Multiply":
+							for (int i = from; i < to; i++) {
+								out[i] *= in[i];
+							}
+							break;
+						case "Maximum":
+							for (int i = from; i < to; i++) {
+								out[i] = Math.max(out[i], in[i]);
+							}
+							break;
+						case "Minimum":
+							for (int i = from; i < to; i++) {
+								out[i] = Math.min(out[i], in[i]);
+							}
+							break;
+						default:
+							throw new IllegalStateException("Unknown merge operation '" + m_operation + "'.");
+					}
+				}
+				if (m_operation.equals("Average")) {
+					final float scale = 1f / inputs.length;
+					for (int i = from; i < to; i++) {
+						out[i] *= scale;
+					}
+				}
+			});
+			return out;
+		}
+	}
+
+	static final class Concatenate extends DLKerasJvmLayer {
+
+		private final int m_axis;
+
+		Concatenate(final String name, final List<String> inboundLayers, final DLKerasJvmLayerConfig config)
+			throws DLKerasJvmUnsupportedModelException {
+			super(name, inboundLayers);
+			m_axis = config.getInt("axis", -1);
+		}
+
+		/**
+		 * @return the concatenation axis with respect to example shapes of the given rank
+		 */
+		private int getExampleAxis(final int rank) throws DLKerasJvmUnsupportedModelException {
+			// The configured axis includes the batch dimension.
+			final int axis = (m_axis < 0 ? rank + 1 + m_axis : m_axis) - 1;
+			if (axis < 0 || axis >= rank) {
+				throw new DLKerasJvmUnsupportedModelException(
+					"Layer '" + getName() + "' concatenates along an unsupported axis.");
+			}
+			return axis;
+		}
+
+		@Override
+		int[] inferOutputShape(final int[][] inputShapes) throws DLKerasJvmUnsupportedModelException {
+			final int axis = getExampleAxis(inputShapes[0].length);
+			final int[] outputShape = inputShapes[0].clone();
+			for (int i = 1; i < inputShapes.length; i++) {
+				checkRank(inputShapes[i], outputShape.length);
+				for (int d = 0; d < outputShape.length; d++) {
+					if (d == axis) {
+						outputShape[d] += inputShapes[i][d];
+					} else {
+						checkDimension(inputShapes[i][d], outputShape[d], "dimension " + d);
+					}
+				}
+			}
+			return outputShape;
+		}
+
+		@Override
+		float[] execute(final DLKerasJvmKernels kernels, final float[][] inputs, final int[][] inputShapes,
+			final int[] outputShape, final int batchSize) {
+			final int axis = (m_axis < 0 ? outputShape.length + 1 + m_axis : m_axis) - 1;
+			// Number of blocks that precede the concatenation axis and the size of each input's part of a block.
+			final int numBlocks = batchSize * size(Arrays.copyOf(outputShape, axis));
+			final int[] partSizes = new int[inputs.length];
+			for (int i = 0; i < inputs.length; i++) {
+				partSizes[i] = size(Arrays.copyOfRange(inputShapes[i], axis, inputShapes[i].length));
+			}
+			final int blockSize = size(Arrays.copyOfRange(outputShape, axis, outputShape.length));
+			final float[] out = new float[numBlocks * blockSize];
+			kernels.parallelFor(numBlocks, blockSize, (from, to) -> {
+				for (int b = from; b < to; b++) {
+					int dst = b * blockSize;
+					for (int i = 0; i < inputs.length; i++) {
+						System.arraycopy(inputs[i], b * partSizes[i], out, dst, partSizes[i]);
+						dst += partSizes[i];
+					}
+				}
+			});
+			return out;
+		}
+	}
+}
@@ -0,0 +1,431 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ *
+ */
+package org.knime.dl.keras.core.execution.jvm;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Float kernels of the Java execution back end. Tensors are dense, row-major float arrays whose first dimension is the
+ * batch dimension, spatial tensors are laid out channels last.
+ * <P>
+ * Work is split into contiguous ranges that are executed by a fixed number of threads. The calling thread always
+ * processes the first range itself. Ranges are only handed off to other threads if they contain enough work to
+ * amortize the hand-off. Kernels never modify their inputs.
+ */
+final class DLKerasJvmKernels implements AutoCloseable {
+
+	/**
+	 * Minimum number of multiply-adds (or comparable operations) per range. Smaller ranges are not worth being handed
+	 * off to another thread.
+	 */
+	private static final long MIN_WORK_PER_RANGE = 1L << 15;
+
+	/**
+	 * Blocking of the inner dimension and the columns of the right-hand side of matrix multiplications. A block of
+	 * 128 x 256 floats (128 KiB) stays in the L2 cache while it is multiplied with all rows of the current row range.
+	 */
+	private static final int DEPTH_BLOCK = 128;
+
+	private static final int COLUMN_BLOCK = 256;
+
+	/**
+	 * Number of output positions of a convolution that are expanded into a patch matrix (im2col) at once.
+	 */
+	private static final int CONV_TILE_ROWS = 64;
+
+	private final int m_numThreads;
+
+	private final ExecutorService m_executor;
+
+	/**
+	 * @param numThreads the number of threads that execute the kernels, including the calling thread
+	 */
+	DLKerasJvmKernels(final int numThreads) {
+		checkArgument(numThreads > 0, "Number of threads must be positive.");
+		m_numThreads = numThreads;
+		m_executor = numThreads > 1 ? Executors.newFixedThreadPool(numThreads - 1, r -> {
+			final Thread t = new Thread(r, "KNIME-DL-Keras-Java-Execution");
+			t.setDaemon(true);
+			return t;
+		}) : null;
+	}
+
+	int getNumThreads() {
+		return m_numThreads;
+	}
+
+	/**
+	 * Executes the given body for the items <code>[0, n)</code>, split into at most {@link #getNumThreads()}
+	 * contiguous ranges.
+	 *
+	 * @param n the number of items
+	 * @param workPerItem the approximate number of operations per item, used to decide how many ranges are worth
+	 *            being executed in parallel
+	 * @param body the body, must only write to memory that belongs to the items of its range
+	 */
+	void parallelFor(final int n, final long workPerItem, final RangeBody body) {
+		final long numRanges = Math.min(Math.min(m_numThreads, n), Math.max(1, n * workPerItem / MIN_WORK_PER_RANGE));
+		if (numRanges <= 1) {
+			body.run(0, n);
+			return;
+		}
+		final int rangeSize = (int)((n + numRanges - 1) / numRanges);
+		final List<Future<?>> futures = new ArrayList<>((int)numRanges - 1);
+		for (int from = rangeSize; from < n; from += rangeSize) {
+			final int f = from;
+			final int t = Math.min(n, from + rangeSize);
+			futures.add(m_executor.submit(() -> body.run(f, t)));
+		}
+		Throwable failure = null;
+		try {
+			body.run(0, rangeSize);
+		} catch (final RuntimeException | Error e) {
+			failure = e;
+		}
+		for (final Future<?> future : futures) {
+			try {
+				future.get();
+			} catch (final ExecutionException e) {
+				if (failure == null) {
+					failure = e.getCause();
+				}
+			} catch (final InterruptedException e) {
+				futures.forEach(f -> f.cancel(true));
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException("Interrupted while waiting for the execution of a network layer.", e);
+			}
+		}
+		if (failure instanceof RuntimeException) {
+			throw (RuntimeException)failure;
+		} else if (failure instanceof Error) {
+			throw (Error)failure;
+		} else if (failure != null) {
+			throw new IllegalStateException(failure);
+		}
+	}
+
+	/**
+	 * Computes <code>C = activation(A * B + bias)</code> where A is of shape [m, k], B of shape [k, n], C of shape
+	 * [m, n] and the bias of shape [n] is broadcast over all rows.
+	 *
+	 * @param bias may be <code>null</code>
+	 */
+	void matmul(final float[] a, final int aOffset, final float[] b, final float[] bias,
+		final DLKerasJvmActivation activation, final float[] c, final int cOffset, final int m, final int k,
+		final int n) {
+		parallelFor(m, (long)k * n, (from, to) -> {
+			initRows(c, cOffset, from, to, n, bias);
+			multiplyAdd(a, aOffset, b, c, cOffset, from, to, k, n);
+			activation.apply(c, cOffset + from * n, cOffset + to * n, n);
+		});
+	}
+
+	/**
+	 * Sets the given rows of C, a matrix with n columns, to the bias or to zero if the bias is <code>null</code>.
+	 */
+	static void initRows(final float[] c, final int cOffset, final int from, final int to, final int n,
+		final float[] bias) {
+		if (bias == null) {
+			Arrays.fill(c, cOffset + from * n, cOffset + to * n, 0f);
+		} else {
+			for (int i = from; i < to; i++) {
+				System.arraycopy(bias, 0, c, cOffset + i * n, n);
+			}
+		}
+	}
+
+	/**
+	 * Computes <code>C += A * B</code> for the rows <code>[from, to)</code> of A (shape [m, k]) and C (shape [m, n]).
+	 * B is of shape [k, n]. Single threaded, blocked over the inner dimension and the columns of B. The innermost loop
+	 * runs over contiguous columns and is vectorized by the JIT.
+	 */
+	static void multiplyAdd(final float[] a, final int aOffset, final float[] b, final float[] c, final int cOffset,
+		final int from, final int to, final int k, final int n) {
+		for (int j0 = 0; j0 < n; j0 += COLUMN_BLOCK) {
+			final int j1 = Math.min(n, j0 + COLUMN_BLOCK);
+			for (int p0 = 0; p0 < k; p0 += DEPTH_BLOCK) {
+				final int p1 = Math.min(k, p0 + DEPTH_BLOCK);
+				for (int i = from; i < to; i++) {
+					final int aRow = aOffset + i * k;
+					final int cRow = cOffset + i * n;
+					for (int p = p0; p < p1; p++) {
+						final float aip = a[aRow + p];
+						if (aip == 0f) {
+							// Frequent after ReLUs and for one-hot or padded inputs.
+							continue;
+						}
+						final int bRow = p * n;
+						for (int j = j0; j < j1; j++) {
+							c[cRow + j] += aip * b[bRow + j];
+						}
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Computes an activated 2D convolution (1D convolutions have a height of one) via im2col: the receptive fields of each tile of
+	 * output positions are expanded into a patch matrix which is multiplied with the kernel of shape
+	 * [kernelHeight * kernelWidth * inChannels, filters], i.e. Keras' kernel layout.
+	 *
+	 * @param bias may be <code>null</code>
+	 */
+	void conv2d(final float[] in, final Window w, final float[] kernel, final float[] bias, final int filters,
+		final DLKerasJvmActivation activation, final float[] out, final int batchSize) {
+		final int patchSize = w.m_kernelHeight * w.m_kernelWidth * w.m_channels;
+		final int outPositions = w.m_outHeight * w.m_outWidth;
+		final int rows = batchSize * outPositions;
+		final int numTiles = (rows + CONV_TILE_ROWS - 1) / CONV_TILE_ROWS;
+		parallelFor(numTiles, (long)CONV_TILE_ROWS * patchSize * filters, (from, to) -> {
+			final float[] patches = new float[CONV_TILE_ROWS * patchSize];
+			for (int tile = from; tile < to; tile++) {
+				final int r0 = tile * CONV_TILE_ROWS;
+				final int r1 = Math.min(rows, r0 + CONV_TILE_ROWS);
+				int dst = 0;
+				for (int r = r0; r < r1; r++) {
+					final int b = r / outPositions;
+					final int oy = (r % outPositions) / w.m_outWidth;
+					final int ox = r % w.m_outWidth;
+					for (int ky = 0; ky < w.m_kernelHeight; ky++) {
+						final int iy = oy * w.m_strideHeight - w.m_padTop + ky * w.m_dilationHeight;
+						for (int kx = 0; kx < w.m_kernelWidth; kx++) {
+							final int ix = ox * w.m_strideWidth - w.m_padLeft + kx * w.m_dilationWidth;
+							if (iy < 0 || iy >= w.m_inHeight || ix < 0 || ix >= w.m_inWidth) {
+								Arrays.fill(patches, dst, dst + w.m_channels, 0f);
+							} else {
+								System.arraycopy(in, ((b * w.m_inHeight + iy) * w.m_inWidth + ix) * w.m_channels,
+									patches, dst, w.m_channels);
+							}
+							dst += w.m_channels;
+						}
+					}
+				}
+				final int cOffset = r0 * filters;
+				initRows(out, cOffset, 0, r1 - r0, filters, bias);
+				multiplyAdd(patches, 0, kernel, out, cOffset, 0, r1 - r0, patchSize, filters);
+				activation.apply(out, cOffset, r1 * filters, filters);
+			}
+		});
+	}
+
+	/**
+	 * Computes a 2D max or average pooling (1D poolings have a height of one). Padded positions are ignored, i.e. they
+	 * neither take part in the maximum nor in the number of elements that are averaged.
+	 */
+	void pool2d(final float[] in, final Window w, final boolean max, final float[] out, final int batchSize) {
+		final int c = w.m_channels;
+		parallelFor(batchSize * w.m_outHeight, (long)w.m_outWidth * w.m_kernelHeight * w.m_kernelWidth * c,
+			(from, to) -> {
+				for (int row = from; row < to; row++) {
+					final int b = row / w.m_outHeight;
+					final int oy = row % w.m_outHeight;
+					for (int ox = 0; ox < w.m_outWidth; ox++) {
+						final int o = (row * w.m_outWidth + ox) * c;
+						Arrays.fill(out, o, o + c, max ? Float.NEGATIVE_INFINITY : 0f);
+						int count = 0;
+						for (int ky = 0; ky < w.m_kernelHeight; ky++) {
+							final int iy = oy * w.m_strideHeight - w.m_padTop + ky * w.m_dilationHeight;
+							if (iy < 0 || iy >= w.m_inHeight) {
+								continue;
+							}
+							for (int kx = 0; kx < w.m_kernelWidth; kx++) {
+								final int ix = ox * w.m_strideWidth - w.m_padLeft + kx * w.m_dilationWidth;
+								if (ix < 0 || ix >= w.m_inWidth) {
+									continue;
+								}
+								final int i = ((b * w.m_inHeight + iy) * w.m_inWidth + ix) * c;
+								if (max) {
+									for (int ch = 0; ch < c; ch++) {
+										out[o + ch] = Math.max(out[o + ch], in[i + ch]);
+									}
+								} else {
+									for (int ch = 0; ch < c; ch++) {
+										out[o + ch] += in[i + ch];
+									}
+								}
+								count++;
+							}
+						}
+						if (!max && count > 0) {
+							final float scale = 1f / count;
+							for (int ch = 0; ch < c; ch++) {
+								out[o + ch] *= scale;
+							}
+						}
+					}
+				}
+			});
+	}
+
+	/**
+	 * Computes the maximum or average over all positions of each example and channel.
+	 */
+	void globalPool(final float[] in, final int positions, final int channels, final boolean max, final float[] out,
+		final int batchSize) {
+		parallelFor(batchSize, (long)positions * channels, (from, to) -> {
+			for (int b = from; b < to; b++) {
+				final int o = b * channels;
+				Arrays.fill(out, o, o + channels, max ? Float.NEGATIVE_INFINITY : 0f);
+				for (int p = 0; p < positions; p++) {
+					final int i = (b * positions + p) * channels;
+					if (max) {
+						for (int ch = 0; ch < channels; ch++) {
+							out[o + ch] = Math.max(out[o + ch], in[i + ch]);
+						}
+					} else {
+						for (int ch = 0; ch < channels; ch++) {
+							out[o + ch] += in[i + ch];
+						}
+					}
+				}
+				if (!max) {
+					final float scale = 1f / positions;
+					for (int ch = 0; ch < channels; ch++) {
+						out[o + ch] *= scale;
+					}
+				}
+			}
+		});
+	}
+
+	@Override
+	public void close() {
+		if (m_executor != null) {
+			m_executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * A range of work items, see {@link DLKerasJvmKernels#parallelFor(int, long, RangeBody)}.
+	 */
+	@FunctionalInterface
+	interface RangeBody {
+
+		/**
+		 * @param from the first item, inclusive
+		 * @param to the last item, exclusive
+		 */
+		void run(int from, int to);
+	}
+
+	/**
+	 * The geometry of a sliding window operation (convolution or pooling) over a channels last input of shape
+	 * [height, width, channels]. Follows Keras' (i.e. TensorFlow's) conventions for "valid" and "same" padding.
+	 */
+	static final class Window {
+
+		private final int m_inHeight;
+
+		private final int m_inWidth;
+
+		private final int m_channels;
+
+		private final int m_kernelHeight;
+
+		private final int m_kernelWidth;
+
+		private final int m_strideHeight;
+
+		private final int m_strideWidth;
+
+		private final int m_dilationHeight;
+
+		private final int m_dilationWidth;
+
+		private final int m_outHeight;
+
+		private final int m_outWidth;
+
+		private final int m_padTop;
+
+		private final int m_padLeft;
+
+		Window(final int inHeight, final int inWidth, final int channels, final int kernelHeight,
+			final int kernelWidth, final int strideHeight, final int strideWidth, final int dilationHeight,
+			final int dilationWidth, final boolean samePadding) {
+			m_inHeight = inHeight;
+			m_inWidth = inWidth;
+			m_channels = channels;
+			m_kernelHeight = kernelHeight;
+			m_kernelWidth = kernelWidth;
+			m_strideHeight = strideHeight;
+			m_strideWidth = strideWidth;
+			m_dilationHeight = dilationHeight;
+			m_dilationWidth = dilationWidth;
+			final int effectiveHeight = (kernelHeight - 1) * dilationHeight + 1;
+			final int effectiveWidth = (kernelWidth - 1) * dilationWidth + 1;
+			if (samePadding) {
+				m_outHeight = (inHeight + strideHeight - 1) / strideHeight;
+				m_outWidth = (inWidth + strideWidth - 1) / strideWidth;
+				m_padTop = Math.max((m_outHeight - 1) * strideHeight + effectiveHeight - inHeight, 0) / 2;
+				m_padLeft = Math.max((m_outWidth - 1) * strideWidth + effectiveWidth - inWidth, 0) / 2;
+			} else {
+				m_outHeight = Math.max(inHeight - effectiveHeight + strideHeight, 0) / strideHeight;
+				m_outWidth = Math.max(inWidth - effectiveWidth + strideWidth, 0) / strideWidth;
+				m_padTop = 0;
+				m_padLeft = 0;
+			}
+		}
+
+		int getOutHeight() {
+			return m_outHeight;
+		}
+
+		int getOutWidth() {
+			return m_outWidth;
+		}
+	}
+}
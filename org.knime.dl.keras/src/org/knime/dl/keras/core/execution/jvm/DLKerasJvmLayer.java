@@ -0,0 +1,138 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ *
+ */
+package org.knime.dl.keras.core.execution.jvm;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A layer of a {@link DLKerasJvmModel}. Layers are immutable and may be executed concurrently by several sessions.
+ * <P>
+ * Shapes passed to and returned by layers are example shapes, i.e. they do not contain the batch dimension.
+ */
+abstract class DLKerasJvmLayer {
+
+	/**
+	 * @return the number of elements of a tensor of the given shape
+	 */
+	static int size(final int[] shape) {
+		int size = 1;
+		for (final int dim : shape) {
+			size *= dim;
+		}
+		return size;
+	}
+
+	private final String m_name;
+
+	private final List<String> m_inboundLayers;
+
+	protected DLKerasJvmLayer(final String name, final List<String> inboundLayers) {
+		m_name = name;
+		m_inboundLayers = inboundLayers;
+	}
+
+	/**
+	 * @return the name of the layer, unique within its model
+	 */
+	String getName() {
+		return m_name;
+	}
+
+	/**
+	 * @return the names of the layers whose outputs are the inputs of this layer, in the order of the inputs
+	 */
+	List<String> getInboundLayers() {
+		return m_inboundLayers;
+	}
+
+	/**
+	 * @param inputShapes the shapes of the layer's inputs
+	 * @return the shape of the layer's output
+	 * @throws DLKerasJvmUnsupportedModelException if the layer does not support inputs of the given shapes
+	 */
+	abstract int[] inferOutputShape(int[][] inputShapes) throws DLKerasJvmUnsupportedModelException;
+
+	/**
+	 * Executes the layer. The inputs must not be modified. Arrays may be larger than needed for the given batch size.
+	 *
+	 * @param kernels the kernels to use
+	 * @param inputs the inputs of the layer
+	 * @param inputShapes the shapes of the inputs
+	 * @param outputShape the shape of the output as returned by {@link #inferOutputShape(int[][])}
+	 * @param batchSize the batch size
+	 * @return the output of the layer, must not be modified by the caller as it may be one of the inputs
+	 */
+	abstract float[] execute(DLKerasJvmKernels kernels, float[][] inputs, int[][] inputShapes, int[] outputShape,
+		int batchSize);
+
+	/**
+	 * @return the single input shape
+	 */
+	protected int[] checkSingleInput(final int[][] inputShapes) throws DLKerasJvmUnsupportedModelException {
+		if (inputShapes.length != 1) {
+			throw new DLKerasJvmUnsupportedModelException(
+				"Layer '" + m_name + "' expects a single input but has " + inputShapes.length + ".");
+		}
+		return inputShapes[0];
+	}
+
+	protected void checkRank(final int[] shape, final int rank) throws DLKerasJvmUnsupportedModelException {
+		if (shape.length != rank) {
+			throw new DLKerasJvmUnsupportedModelException("Layer '" + m_name + "' expects inputs of rank " + rank
+				+ " (excluding the batch dimension) but got shape " + Arrays.toString(shape) + ".");
+		}
+	}
+
+	protected void checkDimension(final int actual, final int expected, final String what)
+		throws DLKerasJvmUnsupportedModelException {
+		if (actual != expected) {
+			throw new DLKerasJvmUnsupportedModelException("Layer '" + m_name + "' expects " + what + " of size "
+				+ expected + " but got " + actual + ".");
+		}
+	}
+}
@@ -0,0 +1,161 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ *
+ */
+package org.knime.dl.keras.core.execution.jvm;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * The configuration of a Keras layer (see <code>keras.layers.Layer.get_config()</code>) as exported for the Java
+ * execution back end. Only entries with scalar values or sequences of scalars are exported, their values are encoded as
+ * strings. Sequences are comma-separated, booleans are encoded as <code>true</code> and <code>false</code>. Entries
+ * whose value is <code>None</code> are omitted.
+ */
+final class DLKerasJvmLayerConfig {
+
+	private final String m_layerName;
+
+	private final Map<String, String> m_entries;
+
+	DLKerasJvmLayerConfig(final String layerName, final Map<String, String> entries) {
+		m_layerName = layerName;
+		m_entries = entries;
+	}
+
+	boolean contains(final String key) {
+		return m_entries.containsKey(key);
+	}
+
+	String getString(final String key) throws DLKerasJvmUnsupportedModelException {
+		final String value = m_entries.get(key);
+		if (value == null) {
+			throw new DLKerasJvmUnsupportedModelException(
+				"Configuration entry '" + key + "' of layer '" + m_layerName + "' is missing or not supported.");
+		}
+		return value;
+	}
+
+	String getString(final String key, final String defaultValue) {
+		return m_entries.getOrDefault(key, defaultValue);
+	}
+
+	int getInt(final String key) throws DLKerasJvmUnsupportedModelException {
+		final String value = getString(key);
+		try {
+			return Integer.parseInt(value);
+		} catch (final NumberFormatException e) {
+			throw invalid(key, value, e);
+		}
+	}
+
+	int getInt(final String key, final int defaultValue) throws DLKerasJvmUnsupportedModelException {
+		return contains(key) ? getInt(key) : defaultValue;
+	}
+
+	float getFloat(final String key, final float defaultValue) throws DLKerasJvmUnsupportedModelException {
+		if (!contains(key)) {
+			return defaultValue;
+		}
+		final String value = getString(key);
+		try {
+			return Float.parseFloat(value);
+		} catch (final NumberFormatException e) {
+			throw invalid(key, value, e);
+		}
+	}
+
+	boolean getBoolean(final String key, final boolean defaultValue) throws DLKerasJvmUnsupportedModelException {
+		if (!contains(key)) {
+			return defaultValue;
+		}
+		final String value = getString(key);
+		if (!value.equals("true") && !value.equals("false")) {
+			throw invalid(key, value, null);
+		}
+		return value.equals("true");
+	}
+
+	/**
+	 * @return the integers of a sequence entry, a single integer is returned as sequence of length one
+	 */
+	int[] getInts(final String key) throws DLKerasJvmUnsupportedModelException {
+		final String value = getString(key);
+		if (value.isEmpty()) {
+			return new int[0];
+		}
+		final String[] parts = value.split(",");
+		final int[] ints = new int[parts.length];
+		try {
+			for (int i = 0; i < parts.length; i++) {
+				ints[i] = Integer.parseInt(parts[i].trim());
+			}
+		} catch (final NumberFormatException e) {
+			throw invalid(key, value, e);
+		}
+		return ints;
+	}
+
+	/**
+	 * @return the integers of a sequence entry of the given length, a single integer is repeated
+	 */
+	int[] getInts(final String key, final int length) throws DLKerasJvmUnsupportedModelException {
+		final int[] ints = getInts(key);
+		if (ints.length == length) {
+			return ints;
+		} else if (ints.length == 1) {
+			final int[] repeated = new int[length];
+			Arrays.fill(repeated, ints[0]);
+			return repeated;
+		}
+		throw invalid(key, getString(key), null);
+	}
+
+	private DLKerasJvmUnsupportedModelException invalid(final String key, final String value, final Throwable cause) {
+		return new DLKerasJvmUnsupportedModelException("Value '" + value + "' of configuration entry '" + key
+			+ "' of layer '" + m_layerName + "' is not supported.", cause);
+	}
+}
@@ -0,0 +1,222 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ *
+ */
+package org.knime.dl.keras.core.execution.jvm;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.knime.dl.keras.core.execution.jvm.DLKerasJvmConvolutionalLayers.Convolution;
+import org.knime.dl.keras.core.execution.jvm.DLKerasJvmConvolutionalLayers.GlobalPooling;
+import org.knime.dl.keras.core.execution.jvm.DLKerasJvmConvolutionalLayers.Pooling;
+import org.knime.dl.keras.core.execution.jvm.DLKerasJvmCoreLayers.Activation;
+import org.knime.dl.keras.core.execution.jvm.DLKerasJvmCoreLayers.BatchNormalization;
+import org.knime.dl.keras.core.execution.jvm.DLKerasJvmCoreLayers.Concatenate;
+import org.knime.dl.keras.core.execution.jvm.DLKerasJvmCoreLayers.Dense;
+import org.knime.dl.keras.core.execution.jvm.DLKerasJvmCoreLayers.ElementwiseActivation;
+import org.knime.dl.keras.core.execution.jvm.DLKerasJvmCoreLayers.Embedding;
+import org.knime.dl.keras.core.execution.jvm.DLKerasJvmCoreLayers.Flatten;
+import org.knime.dl.keras.core.execution.jvm.DLKerasJvmCoreLayers.Identity;
+import org.knime.dl.keras.core.execution.jvm.DLKerasJvmCoreLayers.Merge;
+import org.knime.dl.keras.core.execution.jvm.DLKerasJvmCoreLayers.Reshape;
+import org.knime.dl.keras.core.execution.jvm.DLKerasJvmRecurrentLayers.GRU;
+import org.knime.dl.keras.core.execution.jvm.DLKerasJvmRecurrentLayers.LSTM;
+import org.knime.dl.keras.core.execution.jvm.DLKerasJvmRecurrentLayers.SimpleRNN;
+
+/**
+ * Creates the Java implementations of Keras layers by their class name.
+ */
+final class DLKerasJvmLayers {
+
+	private DLKerasJvmLayers() {
+	}
+
+	/**
+	 * @param name the name of the layer
+	 * @param className the name of the layer's Keras class, e.g. <code>Dense</code>
+	 * @param inboundLayers the names of the layers whose outputs are the inputs of the layer
+	 * @param config the configuration of the layer
+	 * @param weights the weights of the layer
+	 * @return the layer
+	 * @throws DLKerasJvmUnsupportedModelException if the layer or its configuration is not supported
+	 */
+	static DLKerasJvmLayer create(final String name, final String className, final List<String> inboundLayers,
+		final DLKerasJvmLayerConfig config, final List<DLKerasJvmWeight> weights)
+		throws DLKerasJvmUnsupportedModelException {
+		switch (className) {
+			case "InputLayer":
+			case "Dropout":
+			case "SpatialDropout1D":
+			case "SpatialDropout2D":
+			case "SpatialDropout3D":
+			case "AlphaDropout":
+			case "GaussianDropout":
+			case "GaussianNoise":
+			case "ActivityRegularization":
+				return new Identity(name, inboundLayers);
+			case "Flatten":
+				return new Flatten(name, inboundLayers, config);
+			case "Reshape":
+				return new Reshape(name, inboundLayers, config);
+			case "Dense":
+				return new Dense(name, inboundLayers, config, weights);
+			case "Activation":
+				return new Activation(name, inboundLayers, DLKerasJvmActivation.fromName(config.getString("activation")));
+			case "Softmax":
+				if (config.getInt("axis", -1) != -1) {
+					throw new DLKerasJvmUnsupportedModelException(
+						"Layer '" + name + "' does not normalize over the last axis.");
+				}
+				return new Activation(name, inboundLayers, DLKerasJvmActivation.SOFTMAX);
+			case "LeakyReLU": {
+				final float alpha = config.getFloat("alpha", 0.3f);
+				return new ElementwiseActivation(name, inboundLayers, x -> x > 0f ? x : alpha * x);
+			}
+			case "ELU": {
+				final float alpha = config.getFloat("alpha", 1f);
+				return new ElementwiseActivation(name, inboundLayers, x -> x > 0f ? x : alpha * (float)Math.expm1(x));
+			}
+			case "ThresholdedReLU": {
+				final float theta = config.getFloat("theta", 1f);
+				return new ElementwiseActivation(name, inboundLayers, x -> x > theta ? x : 0f);
+			}
+			case "ReLU": {
+				final float maxValue = config.getFloat("max_value", Float.POSITIVE_INFINITY);
+				final float negativeSlope = config.getFloat("negative_slope", 0f);
+				final float threshold = config.getFloat("threshold", 0f);
+				return new ElementwiseActivation(name, inboundLayers,
+					x -> x >= maxValue ? maxValue : x >= threshold ? x : negativeSlope * (x - threshold));
+			}
+			case "BatchNormalization":
+				return new BatchNormalization(name, inboundLayers, config, weights);
+			case "Embedding":
+				return new Embedding(name, inboundLayers, config, weights);
+			case "Add":
+			case "Subtract":
+			case "Multiply":
+			case "Average":
+			case "Maximum":
+			case "Minimum":
+				return new Merge(name, inboundLayers, className);
+			case "Concatenate":
+				return new Concatenate(name, inboundLayers, config);
+			case "Conv1D":
+				return new Convolution(name, inboundLayers, config, weights, 1);
+			case "Conv2D":
+				return new Convolution(name, inboundLayers, config, weights, 2);
+			case "MaxPooling1D":
+				return new Pooling(name, inboundLayers, config, 1, true);
+			case "MaxPooling2D":
+				return new Pooling(name, inboundLayers, config, 2, true);
+			case "AveragePooling1D":
+				return new Pooling(name, inboundLayers, config, 1, false);
+			case "AveragePooling2D":
+				return new Pooling(name, inboundLayers, config, 2, false);
+			case "GlobalMaxPooling1D":
+				return new GlobalPooling(name, inboundLayers, config, 1, true);
+			case "GlobalMaxPooling2D":
+				return new GlobalPooling(name, inboundLayers, config, 2, true);
+			case "GlobalAveragePooling1D":
+				return new GlobalPooling(name, inboundLayers, config, 1, false);
+			case "GlobalAveragePooling2D":
+				return new GlobalPooling(name, inboundLayers, config, 2, false);
+			case "SimpleRNN":
+				return new SimpleRNN(name, inboundLayers, config, weights);
+			case "LSTM":
+				return new LSTM(name, inboundLayers, config, weights);
+			case "GRU":
+				return new GRU(name, inboundLayers, config, weights);
+			default:
+				throw new DLKerasJvmUnsupportedModelException(
+					"Layer '" + name + "' of type '" + className + "' is not supported.");
+		}
+	}
+
+	static void checkNumWeights(final String layerName, final List<DLKerasJvmWeight> weights, final int expected)
+		throws DLKerasJvmUnsupportedModelException {
+		if (weights.size() != expected) {
+			throw new DLKerasJvmUnsupportedModelException("Layer '" + layerName + "' has " + weights.size()
+				+ " weight tensors, expected " + expected + ".");
+		}
+	}
+
+	/**
+	 * @param expectedShape the expected shape, <code>-1</code> matches dimensions of any size
+	 */
+	static void checkWeightShape(final String layerName, final DLKerasJvmWeight weight, final int... expectedShape)
+		throws DLKerasJvmUnsupportedModelException {
+		final int[] shape = weight.getShape();
+		boolean matches = shape.length == expectedShape.length;
+		for (int i = 0; matches && i < shape.length; i++) {
+			matches = expectedShape[i] == -1 || expectedShape[i] == shape[i];
+		}
+		if (!matches) {
+			throw new DLKerasJvmUnsupportedModelException("Layer '" + layerName + "' has a weight tensor of shape "
+				+ Arrays.toString(shape) + ", expected " + Arrays.toString(expectedShape) + ".");
+		}
+	}
+
+	static void checkChannelsLast(final String layerName, final DLKerasJvmLayerConfig config)
+		throws DLKerasJvmUnsupportedModelException {
+		if (!config.getString("data_format", "channels_last").equals("channels_last")) {
+			throw new DLKerasJvmUnsupportedModelException(
+				"Layer '" + layerName + "' uses a data format other than 'channels_last'.");
+		}
+	}
+
+	/**
+	 * @return <code>true</code> for "same" padding, <code>false</code> for "valid" padding
+	 */
+	static boolean isSamePadding(final String layerName, final DLKerasJvmLayerConfig config)
+		throws DLKerasJvmUnsupportedModelException {
+		final String padding = config.getString("padding", "valid");
+		if (!padding.equals("valid") && !padding.equals("same")) {
+			throw new DLKerasJvmUnsupportedModelException(
+				"Layer '" + layerName + "' uses unsupported padding '" + padding + "'.");
+		}
+		return padding.equals("same");
+	}
+}
@@ -0,0 +1,314 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ *
+ */
+package org.knime.dl.keras.core.execution.jvm;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A Keras network that is executed by the Java execution back end: a directed acyclic graph of
+ * {@link DLKerasJvmLayer layers} in topological order. Each layer has a single output.
+ * <P>
+ * Models are read from the binary format that is written by <code>DLKerasJvmModelExporter.py</code>. All numbers are
+ * little endian, strings are UTF-8 encoded and prefixed by their length in bytes:
+ *
+ * <pre>
+ * "KDLJ" version:int32
+ * num_layers:int32, per layer:
+ *     name:string class_name:string num_inbound:int32 inbound_layer_names:string[] num_nodes:int32
+ *     num_config_entries:int32 (key:string value:string)[]
+ *     num_weights:int32, per weight: rank:int32 shape:int32[rank] values:float32[product(shape)]
+ * num_inputs:int32 input_layer_names:string[]
+ * num_outputs:int32 output_layer_names:string[]
+ * </pre>
+ *
+ * Models are immutable and may be executed concurrently.
+ */
+final class DLKerasJvmModel {
+
+	private static final byte[] MAGIC = "KDLJ".getBytes(StandardCharsets.US_ASCII);
+
+	private static final int VERSION = 1;
+
+	/**
+	 * @param file the file written by <code>DLKerasJvmModelExporter.py</code>
+	 * @return the model
+	 * @throws IOException if the file could not be read or is not a valid model file
+	 * @throws DLKerasJvmUnsupportedModelException if the model contains unsupported layers or configurations
+	 */
+	static DLKerasJvmModel read(final File file) throws IOException, DLKerasJvmUnsupportedModelException {
+		return read(ByteBuffer.wrap(Files.readAllBytes(file.toPath())));
+	}
+
+	/**
+	 * @see #read(File)
+	 */
+	static DLKerasJvmModel read(final ByteBuffer buffer) throws IOException, DLKerasJvmUnsupportedModelException {
+		buffer.order(ByteOrder.LITTLE_ENDIAN);
+		try {
+			final byte[] magic = new byte[MAGIC.length];
+			buffer.get(magic);
+			final int version = buffer.getInt();
+			if (!Arrays.equals(magic, MAGIC) || version != VERSION) {
+				throw new IOException("Not a supported exported Keras network (version " + version + ").");
+			}
+			final List<DLKerasJvmLayer> layers = new ArrayList<>();
+			final int numLayers = buffer.getInt();
+			for (int i = 0; i < numLayers; i++) {
+				final String name = readString(buffer);
+				final String className = readString(buffer);
+				final List<String> inboundLayers = readStrings(buffer);
+				final int numNodes = buffer.getInt();
+				final Map<String, String> configEntries = new HashMap<>();
+				final int numConfigEntries = buffer.getInt();
+				for (int j = 0; j < numConfigEntries; j++) {
+					configEntries.put(readString(buffer), readString(buffer));
+				}
+				final List<DLKerasJvmWeight> weights = new ArrayList<>();
+				final int numWeights = buffer.getInt();
+				for (int j = 0; j < numWeights; j++) {
+					weights.add(readWeight(buffer));
+				}
+				if (numNodes > 1) {
+					throw new DLKerasJvmUnsupportedModelException("Layer '" + name + "' is shared.");
+				}
+				layers.add(DLKerasJvmLayers.create(name, className, inboundLayers,
+					new DLKerasJvmLayerConfig(name, configEntries), weights));
+			}
+			return new DLKerasJvmModel(layers, readStrings(buffer), readStrings(buffer));
+		} catch (final BufferUnderflowException e) {
+			throw new IOException("The exported Keras network is truncated.", e);
+		}
+	}
+
+	private static String readString(final ByteBuffer buffer) {
+		final byte[] bytes = new byte[buffer.getInt()];
+		buffer.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	private static List<String> readStrings(final ByteBuffer buffer) {
+		final int num = buffer.getInt();
+		final List<String> strings = new ArrayList<>(num);
+		for (int i = 0; i < num; i++) {
+			strings.add(readString(buffer));
+		}
+		return strings;
+	}
+
+	private static DLKerasJvmWeight readWeight(final ByteBuffer buffer) {
+		final int[] shape = new int[buffer.getInt()];
+		for (int i = 0; i < shape.length; i++) {
+			shape[i] = buffer.getInt();
+		}
+		final float[] values = new float[DLKerasJvmLayer.size(shape)];
+		buffer.asFloatBuffer().get(values);
+		buffer.position(buffer.position() + values.length * Float.BYTES);
+		return new DLKerasJvmWeight(shape, values);
+	}
+
+	private final Map<String, DLKerasJvmLayer> m_layers = new LinkedHashMap<>();
+
+	private final List<String> m_inputLayers;
+
+	private final List<String> m_outputLayers;
+
+	/**
+	 * @param layers the layers in topological order
+	 * @param inputLayers the names of the layers whose outputs are the model's inputs, in the order of the inputs
+	 * @param outputLayers the names of the layers whose outputs are the model's outputs, in the order of the outputs
+	 * @throws DLKerasJvmUnsupportedModelException if the layers do not form a valid graph
+	 */
+	DLKerasJvmModel(final List<DLKerasJvmLayer> layers, final List<String> inputLayers,
+		final List<String> outputLayers) throws DLKerasJvmUnsupportedModelException {
+		for (final DLKerasJvmLayer layer : layers) {
+			for (final String inbound : layer.getInboundLayers()) {
+				if (!m_layers.containsKey(inbound)) {
+					throw new DLKerasJvmUnsupportedModelException("Input '" + inbound + "' of layer '"
+						+ layer.getName() + "' is not a preceding layer of the network.");
+				}
+			}
+			m_layers.put(layer.getName(), layer);
+		}
+		for (final String inputLayer : inputLayers) {
+			if (!m_layers.containsKey(inputLayer) || !m_layers.get(inputLayer).getInboundLayers().isEmpty()) {
+				throw new DLKerasJvmUnsupportedModelException("Network input '" + inputLayer + "' is not an input layer.");
+			}
+		}
+		m_inputLayers = Collections.unmodifiableList(new ArrayList<>(inputLayers));
+		m_outputLayers = Collections.unmodifiableList(new ArrayList<>(outputLayers));
+	}
+
+	/**
+	 * @return the names of the layers whose outputs are the model's inputs, in the order of the inputs
+	 */
+	List<String> getInputLayers() {
+		return m_inputLayers;
+	}
+
+	/**
+	 * @return the names of the layers whose outputs are the model's outputs, in the order of the outputs
+	 */
+	List<String> getOutputLayers() {
+		return m_outputLayers;
+	}
+
+	boolean containsLayer(final String name) {
+		return m_layers.containsKey(name);
+	}
+
+	/**
+	 * Infers the output shapes of all layers that are needed to compute the outputs of the given layers.
+	 *
+	 * @param inputShapes the shapes of the model's inputs by input layer name
+	 * @param requestedLayers the layers whose outputs are requested
+	 * @return the output shapes of the needed layers by layer name, in topological order
+	 * @throws DLKerasJvmUnsupportedModelException if a layer does not support the shapes of its inputs
+	 */
+	Map<String, int[]> inferShapes(final Map<String, int[]> inputShapes, final Collection<String> requestedLayers)
+		throws DLKerasJvmUnsupportedModelException {
+		final Set<String> needed = getNeededLayers(requestedLayers);
+		final Map<String, int[]> shapes = new LinkedHashMap<>();
+		for (final DLKerasJvmLayer layer : m_layers.values()) {
+			if (!needed.contains(layer.getName())) {
+				continue;
+			}
+			final int[][] layerInputShapes;
+			if (m_inputLayers.contains(layer.getName())) {
+				final int[] inputShape = inputShapes.get(layer.getName());
+				if (inputShape == null) {
+					throw new DLKerasJvmUnsupportedModelException(
+						"The shape of network input '" + layer.getName() + "' is unknown.");
+				}
+				layerInputShapes = new int[][]{inputShape};
+			} else {
+				layerInputShapes = layer.getInboundLayers().stream().map(shapes::get).toArray(int[][]::new);
+			}
+			shapes.put(layer.getName(), layer.inferOutputShape(layerInputShapes));
+		}
+		return shapes;
+	}
+
+	/**
+	 * Executes the model for one batch. Outputs of layers are released as soon as they are no longer needed.
+	 *
+	 * @param kernels the kernels to use
+	 * @param inputs the batches of the model's inputs by input layer name, must not be modified by the caller until
+	 *            the method returns
+	 * @param shapes the shapes as returned by {@link #inferShapes(Map, Collection)} for the requested layers
+	 * @param batchSize the batch size
+	 * @param requestedLayers the layers whose outputs are requested
+	 * @return the outputs of the requested layers by layer name, the arrays may be larger than needed for the batch
+	 *         size and must not be modified
+	 */
+	Map<String, float[]> execute(final DLKerasJvmKernels kernels, final Map<String, float[]> inputs,
+		final Map<String, int[]> shapes, final int batchSize, final Collection<String> requestedLayers) {
+		// number of layers that still need the output of a layer
+		final Map<String, Integer> pendingConsumers = new HashMap<>();
+		for (final String name : shapes.keySet()) {
+			for (final String inbound : m_layers.get(name).getInboundLayers()) {
+				pendingConsumers.merge(inbound, 1, Integer::sum);
+			}
+		}
+		final Map<String, float[]> outputs = new HashMap<>();
+		for (final String name : shapes.keySet()) {
+			final DLKerasJvmLayer layer = m_layers.get(name);
+			final float[][] layerInputs;
+			final int[][] layerInputShapes;
+			if (m_inputLayers.contains(name)) {
+				layerInputs = new float[][]{inputs.get(name)};
+				layerInputShapes = new int[][]{shapes.get(name)};
+			} else {
+				final List<String> inbound = layer.getInboundLayers();
+				layerInputs = inbound.stream().map(outputs::get).toArray(float[][]::new);
+				layerInputShapes = inbound.stream().map(shapes::get).toArray(int[][]::new);
+			}
+			outputs.put(name, layer.execute(kernels, layerInputs, layerInputShapes, shapes.get(name), batchSize));
+			for (final String inbound : layer.getInboundLayers()) {
+				if (pendingConsumers.merge(inbound, -1, Integer::sum) == 0 && !requestedLayers.contains(inbound)) {
+					outputs.remove(inbound);
+				}
+			}
+		}
+		outputs.keySet().retainAll(requestedLayers);
+		return outputs;
+	}
+
+	private Set<String> getNeededLayers(final Collection<String> requestedLayers)
+		throws DLKerasJvmUnsupportedModelException {
+		final Set<String> needed = new HashSet<>();
+		final Deque<String> pending = new ArrayDeque<>(requestedLayers);
+		while (!pending.isEmpty()) {
+			final String name = pending.pop();
+			final DLKerasJvmLayer layer = m_layers.get(name);
+			if (layer == null) {
+				throw new DLKerasJvmUnsupportedModelException("Layer '" + name + "' is not part of the network.");
+			}
+			if (needed.add(name)) {
+				pending.addAll(layer.getInboundLayers());
+			}
+		}
+		return needed;
+	}
+}
@@ -0,0 +1,175 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ *
+ */
+package org.knime.dl.keras.core.execution.jvm;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+import java.util.UUID;
+
+import org.knime.core.node.NodeLogger;
+import org.knime.core.util.FileUtil;
+import org.knime.dl.core.DLCancelable;
+import org.knime.dl.core.DLCanceledExecutionException;
+import org.knime.dl.core.DLInvalidEnvironmentException;
+import org.knime.dl.core.DLInvalidSourceException;
+import org.knime.dl.core.DLMissingExtensionException;
+import org.knime.dl.core.cache.DLMemoryAlertAwareGuavaCache;
+import org.knime.dl.keras.core.DLKerasAbstractCommands;
+import org.knime.dl.keras.core.DLKerasNetwork;
+import org.knime.dl.python.core.DLPythonContext;
+import org.knime.dl.python.core.DLPythonKernelPool;
+import org.knime.dl.python.core.DLPythonNetworkHandle;
+import org.knime.dl.python.core.DLPythonNetworkHandleCache;
+import org.knime.dl.python.core.DLPythonNetworkLoader;
+import org.knime.dl.python.core.DLPythonNetworkLoaderRegistry;
+import org.knime.dl.util.DLThrowingLambdas.DLThrowingFunction;
+
+/**
+ * Loads {@link DLKerasJvmModel Java models} of Keras networks. Keras networks are stored in HDF5 files that can only be
+ * read in Python, so each network is exported once using a kernel of the {@link DLPythonKernelPool}. The exported
+ * models (or the reason why a network is not supported) are cached in memory as long as the network file is not
+ * modified and memory does not get low.
+ */
+final class DLKerasJvmModelLoader {
+
+	private static final NodeLogger LOGGER = NodeLogger.getLogger(DLKerasJvmModelLoader.class);
+
+	private DLKerasJvmModelLoader() {
+	}
+
+	/**
+	 * @param network the network
+	 * @param commandsCreator creates the commands of the network's back end for a leased Python context
+	 * @param cancelable to check if the operation has been canceled
+	 * @return the Java model of the network
+	 * @throws DLKerasJvmUnsupportedModelException if the network cannot be executed in Java
+	 * @throws DLMissingExtensionException if the Python back end of the network is missing
+	 * @throws DLInvalidSourceException if the network source is invalid or unavailable
+	 * @throws DLInvalidEnvironmentException if the Python environment is invalid
+	 * @throws IOException if failed to export or read the network
+	 * @throws DLCanceledExecutionException if the operation has been canceled
+	 */
+	static <N extends DLKerasNetwork> DLKerasJvmModel load(final N network,
+		final DLThrowingFunction<DLPythonContext, ? extends DLKerasAbstractCommands, DLInvalidEnvironmentException> commandsCreator,
+		final DLCancelable cancelable) throws DLKerasJvmUnsupportedModelException, DLMissingExtensionException,
+		DLInvalidSourceException, DLInvalidEnvironmentException, IOException, DLCanceledExecutionException {
+		final Optional<UUID> key = createKey(network.getSource().getURI());
+		if (key.isPresent()) {
+			final Optional<Object> cached = DLMemoryAlertAwareGuavaCache.CACHE.get(key.get());
+			if (cached.isPresent() && cached.get() instanceof DLKerasJvmModel) {
+				return (DLKerasJvmModel)cached.get();
+			} else if (cached.isPresent() && cached.get() instanceof String) {
+				throw new DLKerasJvmUnsupportedModelException((String)cached.get());
+			}
+		}
+		final File file = FileUtil.createTempFile("dl-keras-jvm-model", ".bin", true);
+		try {
+			export(network, commandsCreator, file, cancelable);
+			final DLKerasJvmModel model = DLKerasJvmModel.read(file);
+			key.ifPresent(k -> DLMemoryAlertAwareGuavaCache.CACHE.put(k, model));
+			return model;
+		} catch (final DLKerasJvmUnsupportedModelException e) {
+			// Do not export unsupported networks over and over again.
+			key.ifPresent(k -> DLMemoryAlertAwareGuavaCache.CACHE.put(k, e.getMessage()));
+			throw e;
+		} finally {
+			if (!file.delete()) {
+				LOGGER.debug("Could not delete temporary file '" + file + "'.");
+			}
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <N extends DLKerasNetwork> void export(final N network,
+		final DLThrowingFunction<DLPythonContext, ? extends DLKerasAbstractCommands, DLInvalidEnvironmentException> commandsCreator,
+		final File file, final DLCancelable cancelable) throws DLMissingExtensionException, DLInvalidSourceException,
+		DLInvalidEnvironmentException, IOException, DLCanceledExecutionException {
+		final DLPythonContext context = DLPythonKernelPool.getInstance().lease(network.getClass(), cancelable);
+		DLKerasAbstractCommands commands = null;
+		try {
+			commands = commandsCreator.apply(context);
+			final DLPythonNetworkLoader<N> loader = DLPythonNetworkLoaderRegistry.getInstance()
+				.getNetworkLoader((Class<N>)network.getClass())
+				.orElseThrow(() -> new DLMissingExtensionException("Python back end '"
+					+ network.getClass().getCanonicalName()
+					+ "' could not be found. Are you missing a KNIME Deep Learning extension?"));
+			// The network stays resident in the kernel, which speeds up a later fallback to Python execution.
+			final DLPythonNetworkHandle handle =
+				DLPythonNetworkHandleCache.load(loader, network, commands.getContext(cancelable), cancelable);
+			commands.exportJvmModel(handle, file.getAbsolutePath(), cancelable);
+		} catch (final Exception e) {
+			// Do not return a kernel with possibly inconsistent state to the pool.
+			DLPythonKernelPool.invalidate(context);
+			throw e;
+		} finally {
+			// Closing returns the kernel to the pool, so this must happen after a possible invalidation.
+			if (commands != null) {
+				commands.close();
+			} else {
+				context.close();
+			}
+		}
+	}
+
+	private static Optional<UUID> createKey(final URI source) {
+		final File file;
+		try {
+			file = FileUtil.getFileFromURL(source.toURL());
+		} catch (final Exception e) {
+			// Remote or otherwise unresolvable sources are not cached.
+			return Optional.empty();
+		}
+		if (file == null || !file.isFile()) {
+			return Optional.empty();
+		}
+		return Optional.of(UUID.nameUUIDFromBytes(("dl-keras-jvm-model:" + file.getAbsolutePath() + ":"
+			+ file.length() + ":" + file.lastModified()).getBytes(StandardCharsets.UTF_8)));
+	}
+}
@@ -0,0 +1,363 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ *
+ */
+package org.knime.dl.keras.core.execution.jvm;
+
+import static org.knime.dl.keras.core.execution.jvm.DLKerasJvmLayers.checkNumWeights;
+import static org.knime.dl.keras.core.execution.jvm.DLKerasJvmLayers.checkWeightShape;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Implementations of Keras' recurrent layers <code>SimpleRNN</code>, <code>LSTM</code> and <code>GRU</code>. Stateful
+ * layers, layers that return their states and masking are not supported.
+ * <P>
+ * The input projections of all time steps are computed at once by a single matrix multiplication. The recurrences of
+ * the examples of a batch are independent and are therefore computed in parallel, each thread advancing a contiguous
+ * range of examples through all time steps.
+ */
+final class DLKerasJvmRecurrentLayers {
+
+	private DLKerasJvmRecurrentLayers() {
+	}
+
+	private static DLKerasJvmActivation getElementwiseActivation(final String name, final DLKerasJvmLayerConfig config,
+		final String key) throws DLKerasJvmUnsupportedModelException {
+		final DLKerasJvmActivation activation = DLKerasJvmActivation.fromName(config.getString(key));
+		if (!activation.isElementwise()) {
+			throw new DLKerasJvmUnsupportedModelException(
+				"Layer '" + name + "' uses a non element-wise activation function as " + key + ".");
+		}
+		return activation;
+	}
+
+	/**
+	 * @return the columns <code>[from, to)</code> of the given row-major matrix with the given number of columns
+	 */
+	private static float[] sliceColumns(final float[] matrix, final int columns, final int from, final int to) {
+		final int rows = matrix.length / columns;
+		final float[] slice = new float[rows * (to - from)];
+		for (int r = 0; r < rows; r++) {
+			System.arraycopy(matrix, r * columns + from, slice, r * (to - from), to - from);
+		}
+		return slice;
+	}
+
+	abstract static class Recurrent extends DLKerasJvmLayer {
+
+		protected final int m_units;
+
+		/**
+		 * The number of gates (including the candidate) whose pre-activations are computed per unit.
+		 */
+		protected final int m_gates;
+
+		private final int m_inputDim;
+
+		private final boolean m_returnSequences;
+
+		private final boolean m_goBackwards;
+
+		protected final DLKerasJvmActivation m_activation;
+
+		/**
+		 * [input_dim, gates * units]
+		 */
+		private final float[] m_kernel;
+
+		/**
+		 * [gates * units], may be <code>null</code>
+		 */
+		private final float[] m_inputBias;
+
+		/**
+		 * [units, gates * units]
+		 */
+		protected final float[] m_recurrentKernel;
+
+		Recurrent(final String name, final List<String> inboundLayers, final DLKerasJvmLayerConfig config,
+			final List<DLKerasJvmWeight> weights, final int gates, final boolean splitBias)
+			throws DLKerasJvmUnsupportedModelException {
+			super(name, inboundLayers);
+			if (config.getBoolean("stateful", false) || config.getBoolean("return_state", false)) {
+				throw new DLKerasJvmUnsupportedModelException("Layer '" + name + "' is stateful or returns its state.");
+			}
+			m_units = config.getInt("units");
+			m_gates = gates;
+			m_returnSequences = config.getBoolean("return_sequences", false);
+			m_goBackwards = config.getBoolean("go_backwards", false);
+			m_activation = getElementwiseActivation(name, config, "activation");
+			final boolean useBias = config.getBoolean("use_bias", true);
+			checkNumWeights(name, weights, useBias ? 3 : 2);
+			checkWeightShape(name, weights.get(0), -1, gates * m_units);
+			checkWeightShape(name, weights.get(1), m_units, gates * m_units);
+			m_inputDim = weights.get(0).getShape()[0];
+			m_kernel = weights.get(0).getValues();
+			m_recurrentKernel = weights.get(1).getValues();
+			if (!useBias) {
+				m_inputBias = null;
+			} else if (splitBias) {
+				// separate input and recurrent biases
+				checkWeightShape(name, weights.get(2), 2, gates * m_units);
+				m_inputBias = Arrays.copyOf(weights.get(2).getValues(), gates * m_units);
+			} else {
+				checkWeightShape(name, weights.get(2), gates * m_units);
+				m_inputBias = weights.get(2).getValues();
+			}
+		}
+
+		@Override
+		int[] inferOutputShape(final int[][] inputShapes) throws DLKerasJvmUnsupportedModelException {
+			final int[] inputShape = checkSingleInput(inputShapes);
+			checkRank(inputShape, 2);
+			checkDimension(inputShape[1], m_inputDim, "a number of input features");
+			return m_returnSequences ? new int[]{inputShape[0], m_units} : new int[]{m_units};
+		}
+
+		@Override
+		float[] execute(final DLKerasJvmKernels kernels, final float[][] inputs, final int[][] inputShapes,
+			final int[] outputShape, final int batchSize) {
+			final int steps = inputShapes[0][0];
+			final int projectionSize = m_gates * m_units;
+			final float[] projections = new float[batchSize * steps * projectionSize];
+			kernels.matmul(inputs[0], 0, m_kernel, m_inputBias, DLKerasJvmActivation.LINEAR, projections, 0,
+				batchSize * steps, m_inputDim, projectionSize);
+			final float[] out = new float[batchSize * size(outputShape)];
+			kernels.parallelFor(batchSize, (long)steps * m_units * projectionSize, (from, to) -> {
+				final int n = to - from;
+				final float[] state = new float[n * m_units];
+				final float[] preActivations = new float[n * projectionSize];
+				final Object cellState = createCellState(n);
+				for (int step = 0; step < steps; step++) {
+					final int t = m_goBackwards ? steps - 1 - step : step;
+					for (int b = 0; b < n; b++) {
+						System.arraycopy(projections, ((from + b) * steps + t) * projectionSize, preActivations,
+							b * projectionSize, projectionSize);
+					}
+					step(preActivations, state, cellState, n);
+					if (m_returnSequences) {
+						// Like Keras, outputs are in processing order, i.e. reversed if going backwards.
+						for (int b = 0; b < n; b++) {
+							System.arraycopy(state, b * m_units, out, ((from + b) * steps + step) * m_units, m_units);
+						}
+					}
+				}
+				if (!m_returnSequences) {
+					System.arraycopy(state, 0, out, from * m_units, n * m_units);
+				}
+			});
+			return out;
+		}
+
+		/**
+		 * @param n the number of examples that are advanced together
+		 * @return additional state of the cell besides its output, <code>null</code> if none
+		 */
+		protected Object createCellState(final int n) {
+			return null;
+		}
+
+		/**
+		 * Advances the given examples by one time step.
+		 *
+		 * @param inputPreActivations the input projections (including the input bias) of the current time step,
+		 *            [n, gates * units], may be modified
+		 * @param state the output of the previous time step, [n, units], must be updated in place
+		 * @param cellState the state created by {@link #createCellState(int)}
+		 * @param n the number of examples
+		 */
+		protected abstract void step(float[] inputPreActivations, float[] state, Object cellState, int n);
+	}
+
+	static final class SimpleRNN extends Recurrent {
+
+		SimpleRNN(final String name, final List<String> inboundLayers, final DLKerasJvmLayerConfig config,
+			final List<DLKerasJvmWeight> weights) throws DLKerasJvmUnsupportedModelException {
+			super(name, inboundLayers, config, weights, 1, false);
+		}
+
+		@Override
+		protected void step(final float[] inputPreActivations, final float[] state, final Object cellState,
+			final int n) {
+			DLKerasJvmKernels.multiplyAdd(state, 0, m_recurrentKernel, inputPreActivations, 0, 0, n, m_units,
+				m_units);
+			for (int i = 0; i < n * m_units; i++) {
+				state[i] = m_activation.apply(inputPreActivations[i]);
+			}
+		}
+	}
+
+	/**
+	 * Gates are ordered input, forget, cell candidate, output.
+	 */
+	static final class LSTM extends Recurrent {
+
+		private final DLKerasJvmActivation m_recurrentActivation;
+
+		LSTM(final String name, final List<String> inboundLayers, final DLKerasJvmLayerConfig config,
+			final List<DLKerasJvmWeight> weights) throws DLKerasJvmUnsupportedModelException {
+			super(name, inboundLayers, config, weights, 4, false);
+			m_recurrentActivation = getElementwiseActivation(name, config, "recurrent_activation");
+		}
+
+		@Override
+		protected Object createCellState(final int n) {
+			return new float[n * m_units];
+		}
+
+		@Override
+		protected void step(final float[] z, final float[] state, final Object cellState, final int n) {
+			final float[] c = (float[])cellState;
+			final int u = m_units;
+			DLKerasJvmKernels.multiplyAdd(state, 0, m_recurrentKernel, z, 0, 0, n, u, 4 * u);
+			for (int b = 0; b < n; b++) {
+				final int zRow = b * 4 * u;
+				for (int j = 0; j < u; j++) {
+					final float input = m_recurrentActivation.apply(z[zRow + j]);
+					final float forget = m_recurrentActivation.apply(z[zRow + u + j]);
+					final float candidate = m_activation.apply(z[zRow + 2 * u + j]);
+					final float output = m_recurrentActivation.apply(z[zRow + 3 * u + j]);
+					final int k = b * u + j;
+					c[k] = forget * c[k] + input * candidate;
+					state[k] = output * m_activation.apply(c[k]);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Gates are ordered update, reset, candidate. Supports both the original formulation that applies the reset gate
+	 * before the recurrent multiplication and the cuDNN compatible one (<code>reset_after=True</code>) that applies it
+	 * afterwards.
+	 */
+	static final class GRU extends Recurrent {
+
+		private final DLKerasJvmActivation m_recurrentActivation;
+
+		private final boolean m_resetAfter;
+
+		/**
+		 * Recurrent bias of <code>reset_after</code> GRUs, [3 * units], may be <code>null</code>.
+		 */
+		private final float[] m_recurrentBias;
+
+		/**
+		 * Update and reset columns of the recurrent kernel, [units, 2 * units].
+		 */
+		private final float[] m_recurrentGatesKernel;
+
+		/**
+		 * Candidate columns of the recurrent kernel, [units, units].
+		 */
+		private final float[] m_recurrentCandidateKernel;
+
+		GRU(final String name, final List<String> inboundLayers, final DLKerasJvmLayerConfig config,
+			final List<DLKerasJvmWeight> weights) throws DLKerasJvmUnsupportedModelException {
+			super(name, inboundLayers, config, weights, 3, config.getBoolean("reset_after", false)
+				&& config.getBoolean("use_bias", true));
+			m_recurrentActivation = getElementwiseActivation(name, config, "recurrent_activation");
+			m_resetAfter = config.getBoolean("reset_after", false);
+			final int u = m_units;
+			m_recurrentBias = m_resetAfter && weights.size() == 3
+				? Arrays.copyOfRange(weights.get(2).getValues(), 3 * u, 6 * u) : null;
+			m_recurrentGatesKernel = sliceColumns(m_recurrentKernel, 3 * u, 0, 2 * u);
+			m_recurrentCandidateKernel = sliceColumns(m_recurrentKernel, 3 * u, 2 * u, 3 * u);
+		}
+
+		@Override
+		protected Object createCellState(final int n) {
+			// scratch space for the recurrent contributions
+			return new float[n * 3 * m_units];
+		}
+
+		@Override
+		protected void step(final float[] x, final float[] state, final Object cellState, final int n) {
+			final int u = m_units;
+			final float[] r = (float[])cellState;
+			if (m_resetAfter) {
+				DLKerasJvmKernels.initRows(r, 0, 0, n, 3 * u, m_recurrentBias);
+				DLKerasJvmKernels.multiplyAdd(state, 0, m_recurrentKernel, r, 0, 0, n, u, 3 * u);
+				for (int b = 0; b < n; b++) {
+					final int row = b * 3 * u;
+					for (int j = 0; j < u; j++) {
+						final float update = m_recurrentActivation.apply(x[row + j] + r[row + j]);
+						final float reset = m_recurrentActivation.apply(x[row + u + j] + r[row + u + j]);
+						final float candidate = m_activation.apply(x[row + 2 * u + j] + reset * r[row + 2 * u + j]);
+						final int k = b * u + j;
+						state[k] = update * state[k] + (1f - update) * candidate;
+					}
+				}
+				return;
+			}
+			// r holds [n, 2 * units] update and reset contributions followed by [n, units] reset states
+			final int resetStates = n * 2 * u;
+			DLKerasJvmKernels.initRows(r, 0, 0, n, 2 * u, null);
+			DLKerasJvmKernels.multiplyAdd(state, 0, m_recurrentGatesKernel, r, 0, 0, n, u, 2 * u);
+			for (int b = 0; b < n; b++) {
+				for (int j = 0; j < u; j++) {
+					final int g = b * 2 * u + j;
+					r[g] = m_recurrentActivation.apply(x[b * 3 * u + j] + r[g]);
+					final float reset = m_recurrentActivation.apply(x[b * 3 * u + u + j] + r[g + u]);
+					r[resetStates + b * u + j] = reset * state[b * u + j];
+				}
+			}
+			// candidate pre-activations: x_h + (reset * h) * U_h, accumulated in place of the candidate projections
+			final float[] candidates = new float[n * u];
+			for (int b = 0; b < n; b++) {
+				System.arraycopy(x, b * 3 * u + 2 * u, candidates, b * u, u);
+			}
+			DLKerasJvmKernels.multiplyAdd(r, resetStates, m_recurrentCandidateKernel, candidates, 0, 0, n, u, u);
+			for (int b = 0; b < n; b++) {
+				for (int j = 0; j < u; j++) {
+					final float update = r[b * 2 * u + j];
+					final int k = b * u + j;
+					state[k] = update * state[k] + (1f - update) * m_activation.apply(candidates[k]);
+				}
+			}
+		}
+	}
+}
@@ -51,7 +51,10 @@
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
 
 import org.knime.dl.core.DLDefaultTensorId;
 import org.knime.dl.core.DLDefaultTensorSpec;
@@ -73,12 +76,47 @@ protected static void checkInputSpec(final boolean expression, final String mess
         }
     }
 
+    private static final AtomicLong INFERENCE_PASS_COUNTER = new AtomicLong();
+
+    private static final ThreadLocal<Long> CURRENT_INFERENCE_PASS = new ThreadLocal<>();
+
+    /**
+     * Runs the given action as a single spec inference pass. Within the pass, the memoized output specs of each layer
+     * are validated at most once, which makes inferring the specs of all layers of a graph linear in the number of
+     * layers. The layers of the graph must not be modified while the pass is running.
+     *
+     * @param action the action to run
+     * @return the action's result
+     */
+    static <T> T inferInSinglePass(final Supplier<T> action) {
+        if (CURRENT_INFERENCE_PASS.get() != null) {
+            // nested pass
+            return action.get();
+        }
+        CURRENT_INFERENCE_PASS.set(INFERENCE_PASS_COUNTER.incrementAndGet());
+        try {
+            return action.get();
+        } finally {
+            CURRENT_INFERENCE_PASS.remove();
+        }
+    }
+
     private final DLKerasTensorSpecsOutput[] m_parents;
     
     private final int[] m_indexInParents;
     
     private DLKerasDataFormat m_dataFormat;
 
+    // memoized output specs, see getOutputSpecs()
+
+    private List<DLTensorSpec> m_outputSpecs;
+
+    private String m_outputSpecsParameters;
+
+    private List<Object> m_outputSpecsInputs;
+
+    private long m_outputSpecsPass = -1;
+
     public DLKerasAbstractInnerLayer(final String kerasIdentifier, final int numParents) {
         super(kerasIdentifier);
         m_parents = new DLKerasTensorSpecsOutput[numParents];
@@ -132,18 +170,38 @@ public int getTensorIndexInParent(int parentIndex) {
         return m_indexInParents[parentIndex];
     }
 
+    /**
+     * {@inheritDoc}
+     * <P>
+     * The output specs are memoized. They are only inferred again if the parameters of this layer (as reflected by
+     * its {@link #getBackendRepresentation(String) back end representation}) or its inputs changed.
+     */
     @Override
-    public final List<DLTensorSpec> getOutputSpecs() throws DLInvalidTensorSpecException {
-        final DLInputSpecsHelperStruct inputSpecs = collectInputSpecs();
-        validateInputSpecs(inputSpecs.m_elementTypes, inputSpecs.m_shapes);
-        final List<Class<?>> outputElementTypes = inferOutputElementTypes(inputSpecs.m_elementTypes);
-        final List<Long[]> outputShapes = inferOutputShapes(inputSpecs.m_shapes);
-        final List<DLTensorSpec> outputSpecs = new ArrayList<>(outputShapes.size());
-        for (int i = 0; i < outputShapes.size(); i++) {
-            outputSpecs.add(DLDefaultTensorSpec.create(new DLDefaultTensorId("dummy"), "dummy", inputSpecs.m_batchSize,
-                outputShapes.get(i), outputElementTypes.get(i), inputSpecs.m_dimensionOrder));
+    public final synchronized List<DLTensorSpec> getOutputSpecs() throws DLInvalidTensorSpecException {
+        final Long pass = CURRENT_INFERENCE_PASS.get();
+        if (m_outputSpecs != null && pass != null && pass == m_outputSpecsPass) {
+            return m_outputSpecs;
         }
-        return outputSpecs;
+        final List<Object> inputs = collectInputs();
+        final String parameters = getParametersForMemoization();
+        if (m_outputSpecs == null || parameters == null || !parameters.equals(m_outputSpecsParameters)
+            || !inputs.equals(m_outputSpecsInputs)) {
+            final DLInputSpecsHelperStruct inputSpecs = collectInputSpecs();
+            validateInputSpecs(inputSpecs.m_elementTypes, inputSpecs.m_shapes);
+            final List<Class<?>> outputElementTypes = inferOutputElementTypes(inputSpecs.m_elementTypes);
+            final List<Long[]> outputShapes = inferOutputShapes(inputSpecs.m_shapes);
+            final List<DLTensorSpec> outputSpecs = new ArrayList<>(outputShapes.size());
+            for (int i = 0; i < outputShapes.size(); i++) {
+                outputSpecs.add(DLDefaultTensorSpec.create(new DLDefaultTensorId("dummy"), "dummy",
+                    inputSpecs.m_batchSize, outputShapes.get(i), outputElementTypes.get(i),
+                    inputSpecs.m_dimensionOrder));
+            }
+            m_outputSpecs = Collections.unmodifiableList(outputSpecs);
+            m_outputSpecsParameters = parameters;
+            m_outputSpecsInputs = inputs;
+        }
+        m_outputSpecsPass = pass != null ? pass : -1;
+        return m_outputSpecs;
     }
 
     @Override
@@ -175,6 +233,38 @@ public boolean equalsIgnoreName(final DLKerasTensorSpecsOutput other) {
         return true;
     }
 
+    /**
+     * @return everything the output specs of this layer depend on besides its parameters: the output specs of its
+     *         parents and the selected input specs
+     */
+    private List<Object> collectInputs() throws DLInvalidTensorSpecException {
+        final List<Object> inputs = new ArrayList<>(m_parents.length * 3);
+        for (int i = 0; i < m_parents.length; i++) {
+            final DLKerasTensorSpecsOutput parent = m_parents[i];
+            if (parent != null) {
+                final List<DLTensorSpec> parentOutputSpecs = parent.getOutputSpecs();
+                inputs.add(parentOutputSpecs);
+                // not considered by DLTensorSpec#equals
+                for (final DLTensorSpec parentOutputSpec : parentOutputSpecs) {
+                    inputs.add(parentOutputSpec.getDimensionOrder());
+                }
+            } else {
+                inputs.add(null);
+            }
+            inputs.add(getInputTensorSpec(i));
+        }
+        return inputs;
+    }
+
+    private String getParametersForMemoization() {
+        try {
+            return getBackendRepresentation(null);
+        } catch (final RuntimeException e) {
+            // invalid parameters, do not memoize
+            return null;
+        }
+    }
+
     private DLInputSpecsHelperStruct collectInputSpecs() throws DLInvalidTensorSpecException {
         Long inputBatchSize = null;
         final List<Long[]> inputShapes = new ArrayList<>(m_parents.length);
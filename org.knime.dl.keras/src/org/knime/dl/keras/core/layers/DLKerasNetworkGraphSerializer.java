@@ -56,6 +56,7 @@
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
 
@@ -71,10 +72,13 @@
 import org.knime.dl.keras.core.DLKerasNetworkSpec;
 import org.knime.dl.keras.core.layers.DLKerasNetworkGraphIterator.DLKerasLayerVisitor;
 import org.knime.dl.keras.core.struct.Structs;
+import org.knime.dl.keras.core.struct.access.MemberWriteAccess;
+import org.knime.dl.keras.core.struct.access.StructAccess;
 import org.knime.dl.keras.core.struct.instance.MemberReadInstance;
 import org.knime.dl.keras.core.struct.instance.MemberReadWriteInstance;
 import org.knime.dl.keras.core.struct.instance.MemberWriteInstance;
 import org.knime.dl.keras.core.struct.instance.StructInstance;
+import org.knime.dl.keras.core.struct.instance.StructInstances;
 import org.knime.dl.keras.core.struct.nodesettings.NodeSettingsStructs;
 import org.knime.dl.keras.core.struct.param.ParameterStructs;
 import org.knime.dl.keras.core.struct.param.ValidityException;
@@ -109,6 +113,12 @@ public final class DLKerasNetworkGraphSerializer {
 
     private static final String CFG_KEY_OUTPUT_LAYERS = "output_layers";
 
+    /**
+     * Settings accesses of the layer classes. Creating them is costly and they are stateless.
+     */
+    private static final Map<Class<?>, StructAccess<MemberWriteAccess<?, NodeSettingsWO>>> SETTINGS_ACCESS_CACHE =
+        new ConcurrentHashMap<>();
+
     private DLKerasNetworkGraphSerializer() {
     }
 
@@ -218,12 +228,13 @@ public void visitBaseNetworkOutput(final DLKerasBaseNetworkTensorSpecOutput base
                 private NodeSettingsWO saveLayer(final DLKerasLayer layer)
                     throws ValidityException, InvalidSettingsException {
                     final NodeSettingsWO layerSettings = createLayerSettings(layer);
-                    // TODO: Avoid redundant creation of layer struct (not instance), should be cached somewhere.
                     final StructInstance<MemberReadWriteInstance<?>, ?> layerInstance =
                         ParameterStructs.createInstance(layer);
-                    final StructInstance<MemberWriteInstance<?>, ?> settingsInstance =
-                        NodeSettingsStructs.createNodeSettingsInstance(
-                            layerSettings.addNodeSettings(CFG_KEY_LAYER_PARAMS), layerInstance.struct());
+                    final StructAccess<MemberWriteAccess<?, NodeSettingsWO>> settingsAccess = SETTINGS_ACCESS_CACHE
+                        .computeIfAbsent(layer.getClass(),
+                            c -> NodeSettingsStructs.createStructWOAccess(layerInstance.struct()));
+                    final StructInstance<MemberWriteInstance<?>, ?> settingsInstance = StructInstances
+                        .createWriteInstance(layerSettings.addNodeSettings(CFG_KEY_LAYER_PARAMS), settingsAccess);
                     Structs.shallowCopyUnsafe(layerInstance, settingsInstance);
                     layerSettings.addString(CFG_KEY_LAYER_RUNTIME_ID, layer.getRuntimeId());
                     return layerSettings;
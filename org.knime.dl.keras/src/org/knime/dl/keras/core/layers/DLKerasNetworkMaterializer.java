@@ -55,6 +55,7 @@
 import java.util.Map;
 import java.util.Set;
 import java.util.StringJoiner;
+import java.util.UUID;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
@@ -74,8 +75,10 @@
 import org.knime.dl.keras.core.layers.DLKerasNetworkGraphIterator.DLNetworkGraphTraversalException;
 import org.knime.dl.keras.core.layers.impl.DLKerasCollectLayer;
 import org.knime.dl.keras.tensorflow.core.DLKerasTensorFlowNetwork;
-import org.knime.dl.python.core.DLPythonDefaultContext;
+import org.knime.dl.python.core.DLPythonContext;
+import org.knime.dl.python.core.DLPythonKernelPool;
 import org.knime.dl.python.core.DLPythonNetworkHandle;
+import org.knime.dl.python.core.DLPythonNetworkHandleCache;
 import org.knime.dl.python.core.DLPythonNetworkLoader;
 import org.knime.dl.python.core.DLPythonNetworkLoaderRegistry;
 import org.knime.dl.python.util.DLPythonSourceCodeBuilder;
@@ -130,8 +133,14 @@ public DLKerasNetwork materialize() throws DLInvalidEnvironmentException, DLInva
             .getNetworkLoader(backend).orElseThrow(() -> new IllegalStateException("Back end for Keras network type '"
                 + backend.getName() + "' is missing. " + "Are you missing a KNIME Deep Learning extension?"));
 
-        try (final DLKerasAbstractCommands commands =
-            ((DLKerasNetworkLoader<?>)loader).createCommands(new DLPythonDefaultContext())) {
+        final DLPythonContext context;
+        try {
+            context = DLPythonKernelPool.getInstance().lease(backend, DLNotCancelable.INSTANCE);
+        } catch (final DLCanceledExecutionException e) {
+            // Won't happen
+            throw new IllegalStateException(e);
+        }
+        try (final DLKerasAbstractCommands commands = ((DLKerasNetworkLoader<?>)loader).createCommands(context)) {
             // Load base networks (if any). Make base networks available on Python side for later. Collect base network
             // specs.We need the network specs (a) to reserve the layer names that are already present in the base
             // networks and (b) to specify the inputs and outputs of the new network that come from the base networks.
@@ -162,7 +171,9 @@ public DLKerasNetwork materialize() throws DLInvalidEnvironmentException, DLInva
 
             // Execute generated code and build network whose lists of inputs and outputs (possibly) contain inputs and
             // outputs of base networks which have to be "expanded" (base network -> inputs/outputs) first.
-            // Make generated network available on Python side.
+            // Make generated network available on Python side. Its identifier is unique as the network may stay
+            // resident in the kernel (see below).
+            final String networkIdentifier = "generated_network_" + UUID.randomUUID().toString().replace('-', '_');
             final DLPythonSourceCodeBuilder b = DLPythonUtils.createSourceCodeBuilder() //
                 .n("import DLPythonNetwork") //
                 .n(baseNetworks.values(),
@@ -176,26 +187,31 @@ public DLKerasNetwork materialize() throws DLInvalidEnvironmentException, DLInva
                 .a(")") //
                 .n("import DLPythonNetworkType") //
                 .n("network_type = DLPythonNetworkType.get_model_network_type(generated_network)") //
-                .n("DLPythonNetwork.add_network(network_type.wrap_model(generated_network), \"generated_network\")");
+                .n("DLPythonNetwork.add_network(network_type.wrap_model(generated_network), ").as(networkIdentifier).a(")");
             try {
                 commands.getContext(DLNotCancelable.INSTANCE).executeInKernel(b.toString(), DLNotCancelable.INSTANCE);
             } catch (final DLCanceledExecutionException e) {
                 // Won't happen
             }
 
-            final DLPythonNetworkHandle handle = new DLPythonNetworkHandle("generated_network");
+            final DLPythonNetworkHandle handle = new DLPythonNetworkHandle(networkIdentifier);
             try {
                 loader.save(handle, m_saveLocation.getURI(), commands.getContext(DLNotCancelable.INSTANCE),
                     DLNotCancelable.INSTANCE);
             } catch (final DLInvalidDestinationException | DLCanceledExecutionException e) {
                 throw new IOException(e);
             }
+            // The spec is extracted from the network in the kernel rather than by reading the saved file again.
+            final DLKerasNetwork network;
             try {
-                return loader.fetch(handle, m_saveLocation, commands.getContext(DLNotCancelable.INSTANCE),
+                network = loader.fetch(handle, m_saveLocation, commands.getContext(DLNotCancelable.INSTANCE),
                     DLNotCancelable.INSTANCE);
             } catch (final DLInvalidSourceException | DLCanceledExecutionException e) {
                 throw new IOException(e);
             }
+            // Downstream executors that lease the same kernel reuse the network instead of loading the saved file.
+            DLPythonNetworkHandleCache.register(network, handle, commands.getContext(DLNotCancelable.INSTANCE));
+            return network;
         }
     }
 
@@ -108,7 +108,11 @@ public DLKerasNetworkSpec inferNetworkSpec() {
         if (m_inferredSpec != null) {
             return m_inferredSpec;
         }
+        // layers memoize their output specs, a single pass validates each memoized result only once
+        return DLKerasAbstractInnerLayer.inferInSinglePass(this::inferNetworkSpecInternal);
+    }
 
+    private DLKerasNetworkSpec inferNetworkSpecInternal() {
         final List<Function<DLKerasNetworkLayerNameGenerator, List<DLTensorSpec>>> inputSpecsToInfer =
             new ArrayList<>(5);
         final List<Function<DLKerasNetworkLayerNameGenerator, List<DLTensorSpec>>> hiddenSpecsToInfer =
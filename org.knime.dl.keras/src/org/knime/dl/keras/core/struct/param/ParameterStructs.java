@@ -52,7 +52,9 @@
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.knime.dl.keras.core.struct.Member;
 import org.knime.dl.keras.core.struct.Struct;
@@ -72,6 +74,8 @@
  */
 public final class ParameterStructs {
 
+    private static final Map<Class<?>, StructAccess<?>> ACCESS_CACHE = new ConcurrentHashMap<>();
+
     /**
      * Derive a {@link Struct} of the provided type. The type is expected to comprise fields annotated with @Parameter
      * describing it's input and therefore defining the {@link Struct}. If no fields are annotated the number of
@@ -138,6 +142,10 @@ public static <S> StructAccess<MemberReadWriteAccess<?, S>> createStructAccess(C
     public static <T> StructInstance<MemberReadWriteInstance<?>, T> createInstance(T obj) {
         @SuppressWarnings("unchecked")
         final Class<T> type = (Class<T>)obj.getClass();
-        return StructInstances.createReadWriteInstance(obj, createStructAccess(type));
+        // Parsing the struct is reflective and therefore costly, the resulting access is stateless.
+        @SuppressWarnings("unchecked")
+        final StructAccess<MemberReadWriteAccess<?, T>> access = (StructAccess<MemberReadWriteAccess<?, T>>)ACCESS_CACHE
+            .computeIfAbsent(type, ParameterStructs::createStructAccess);
+        return StructInstances.createReadWriteInstance(obj, access);
     }
 }
\ No newline at end of file
@@ -69,6 +69,7 @@
 import org.knime.dl.keras.core.DLKerasNetwork;
 import org.knime.dl.keras.core.execution.DLKerasAbstractNetworkExecutionSession;
 import org.knime.dl.python.core.DLPythonNetworkHandle;
+import org.knime.dl.python.core.DLPythonNetworkHandleCache;
 import org.knime.dl.python.core.DLPythonNetworkLoader;
 import org.knime.dl.python.core.DLPythonNetworkLoaderRegistry;
 import org.knime.dl.python.core.training.DLPythonAbstractNetworkTrainingSession;
@@ -140,8 +141,13 @@ public DLKerasNetworkPortObjectBase getTrainedNetwork(final ExecutionContext exe
 		if (!fileStore.getFile().exists()) {
 			throw new IllegalStateException("Failed to save trained Keras deep learning network.");
 		}
-        return new DLKerasNetworkPortObject(
-            loader.fetch(m_handle, new DLNetworkFileStoreLocation(fileStore), m_commands.getContext(cancelable), cancelable));
+		// The spec is extracted from the trained network in the kernel rather than by reading the file again. As the
+		// file store is the network's source, the port object does not copy the file.
+		final DLKerasNetwork trainedNetwork = loader.fetch(m_handle, new DLNetworkFileStoreLocation(fileStore),
+				m_commands.getContext(cancelable), cancelable);
+		// Downstream executors that lease the same kernel reuse the trained network instead of loading the file.
+		DLPythonNetworkHandleCache.register(trainedNetwork, m_handle, m_commands.getContext(cancelable));
+		return new DLKerasNetworkPortObject(trainedNetwork);
 	}
 
     @Override
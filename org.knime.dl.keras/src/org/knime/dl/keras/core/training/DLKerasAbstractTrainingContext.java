@@ -79,7 +79,7 @@
 import org.knime.dl.keras.core.training.DLKerasOptimizer.DLKerasNadam;
 import org.knime.dl.keras.core.training.DLKerasOptimizer.DLKerasRMSProp;
 import org.knime.dl.keras.core.training.DLKerasOptimizer.DLKerasStochasticGradientDescent;
-import org.knime.dl.python.core.DLPythonDefaultTensorFactory;
+import org.knime.dl.python.core.DLPythonDirectTensorFactory;
 
 /**
  * @param <N> the {@link DLKerasNetwork Keras network} type for which to create {@link DLKerasNetworkTrainingSession
@@ -101,7 +101,7 @@
 	protected DLKerasAbstractTrainingContext(final Class<N> networkType, final String name) {
 		m_networkType = checkNotNull(networkType);
 		m_name = checkNotNullOrEmpty(name);
-		m_layerDataFactory = new DLPythonDefaultTensorFactory();
+		m_layerDataFactory = DLPythonDirectTensorFactory.createIfEnabled();
 	}
 
 	@Override
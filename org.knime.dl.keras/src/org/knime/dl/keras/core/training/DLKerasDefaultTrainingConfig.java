@@ -46,11 +46,14 @@
  */
 package org.knime.dl.keras.core.training;
 
+import static com.google.common.base.Preconditions.checkArgument;
+
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.OptionalLong;
 
 import org.knime.dl.core.DLTensorId;
 
@@ -66,6 +69,10 @@ public class DLKerasDefaultTrainingConfig implements DLKerasTrainingConfig {
 	private final DLKerasOptimizer m_optimizer;
 	private final Map<DLTensorId, DLKerasLossFunction> m_losses;
 	private final Collection<DLKerasCallback> m_callbacks;
+	private final int m_prefetchBatches;
+	private final boolean m_dataCaching;
+	private final Long m_cacheShuffleSeed;
+	private final boolean m_coalesceBatchMetrics;
 
 	/**
 	 * @param epochs the number of times to iterate over the training data before training is finished. Note that the
@@ -81,6 +88,74 @@ public class DLKerasDefaultTrainingConfig implements DLKerasTrainingConfig {
 	public DLKerasDefaultTrainingConfig(final int epochs, final int batchSize, final Integer validationBatchSize,
 			final DLKerasOptimizer optimizer, final Map<DLTensorId, DLKerasLossFunction> losses,
 			final Collection<DLKerasCallback> callbacks) {
+		this(epochs, batchSize, validationBatchSize, optimizer, losses, callbacks, 1);
+	}
+
+	/**
+	 * @param epochs the number of times to iterate over the training data before training is finished. Note that the
+	 *            actual number of executed epochs can be smaller in case of early stopping.
+	 * @param batchSize the number of training samples to use for a single training step
+	 * @param validationBatchSize may be null in which case the validation batch size defaults the to batch size. This
+	 *            value only matters if performing model evaluation during training.
+	 * @param optimizer the optimizer that is used for model updating
+	 * @param losses a mapping of network outputs to loss functions. There must be a mapping for each of the outputs of
+	 *            the network that will be trained.
+	 * @param callbacks may be null or empty in which case it defaults to an empty list
+	 * @param prefetchBatches the maximum number of batches that are transferred to the back end ahead of training,
+	 *            must be at least one
+	 */
+	public DLKerasDefaultTrainingConfig(final int epochs, final int batchSize, final Integer validationBatchSize,
+			final DLKerasOptimizer optimizer, final Map<DLTensorId, DLKerasLossFunction> losses,
+			final Collection<DLKerasCallback> callbacks, final int prefetchBatches) {
+		this(epochs, batchSize, validationBatchSize, optimizer, losses, callbacks, prefetchBatches, false, null);
+	}
+
+	/**
+	 * @param epochs the number of times to iterate over the training data before training is finished. Note that the
+	 *            actual number of executed epochs can be smaller in case of early stopping.
+	 * @param batchSize the number of training samples to use for a single training step
+	 * @param validationBatchSize may be null in which case the validation batch size defaults the to batch size. This
+	 *            value only matters if performing model evaluation during training.
+	 * @param optimizer the optimizer that is used for model updating
+	 * @param losses a mapping of network outputs to loss functions. There must be a mapping for each of the outputs of
+	 *            the network that will be trained.
+	 * @param callbacks may be null or empty in which case it defaults to an empty list
+	 * @param prefetchBatches the maximum number of batches that are transferred to the back end ahead of training,
+	 *            must be at least one
+	 * @param dataCaching whether the back end may keep the training and validation data in memory after the first
+	 *            epoch
+	 * @param cacheShuffleSeed may be null in which case cached training data is not shuffled
+	 */
+	public DLKerasDefaultTrainingConfig(final int epochs, final int batchSize, final Integer validationBatchSize,
+			final DLKerasOptimizer optimizer, final Map<DLTensorId, DLKerasLossFunction> losses,
+			final Collection<DLKerasCallback> callbacks, final int prefetchBatches, final boolean dataCaching,
+			final Long cacheShuffleSeed) {
+		this(epochs, batchSize, validationBatchSize, optimizer, losses, callbacks, prefetchBatches, dataCaching,
+				cacheShuffleSeed, false);
+	}
+
+	/**
+	 * @param epochs the number of times to iterate over the training data before training is finished. Note that the
+	 *            actual number of executed epochs can be smaller in case of early stopping.
+	 * @param batchSize the number of training samples to use for a single training step
+	 * @param validationBatchSize may be null in which case the validation batch size defaults the to batch size. This
+	 *            value only matters if performing model evaluation during training.
+	 * @param optimizer the optimizer that is used for model updating
+	 * @param losses a mapping of network outputs to loss functions. There must be a mapping for each of the outputs of
+	 *            the network that will be trained.
+	 * @param callbacks may be null or empty in which case it defaults to an empty list
+	 * @param prefetchBatches the maximum number of batches that are transferred to the back end ahead of training,
+	 *            must be at least one
+	 * @param dataCaching whether the back end may keep the training and validation data in memory after the first
+	 *            epoch
+	 * @param cacheShuffleSeed may be null in which case cached training data is not shuffled
+	 * @param coalesceBatchMetrics whether the back end may report the metrics of consecutive training batches at once
+	 */
+	public DLKerasDefaultTrainingConfig(final int epochs, final int batchSize, final Integer validationBatchSize,
+			final DLKerasOptimizer optimizer, final Map<DLTensorId, DLKerasLossFunction> losses,
+			final Collection<DLKerasCallback> callbacks, final int prefetchBatches, final boolean dataCaching,
+			final Long cacheShuffleSeed, final boolean coalesceBatchMetrics) {
+		checkArgument(prefetchBatches > 0, "Number of prefetched batches must be greater than zero.");
 		m_epochs = epochs;
 		m_batchSize = batchSize;
 		m_validationBatchSize = validationBatchSize != null ? validationBatchSize : batchSize;
@@ -88,6 +163,10 @@ public DLKerasDefaultTrainingConfig(final int epochs, final int batchSize, final
 		m_losses = Collections.unmodifiableMap(new HashMap<>(losses));
 		m_callbacks = callbacks != null ? Collections.unmodifiableCollection(new ArrayList<>(callbacks))
 				: Collections.emptyList();
+		m_prefetchBatches = prefetchBatches;
+		m_dataCaching = dataCaching;
+		m_cacheShuffleSeed = cacheShuffleSeed;
+		m_coalesceBatchMetrics = coalesceBatchMetrics;
 	}
 
 	@Override
@@ -119,4 +198,24 @@ public Map<DLTensorId, DLKerasLossFunction> getLosses() {
 	public Collection<DLKerasCallback> getCallbacks() {
 		return m_callbacks;
 	}
+
+	@Override
+	public int getPrefetchBatches() {
+		return m_prefetchBatches;
+	}
+
+	@Override
+	public boolean isDataCachingEnabled() {
+		return m_dataCaching;
+	}
+
+	@Override
+	public OptionalLong getCacheShuffleSeed() {
+		return m_cacheShuffleSeed != null ? OptionalLong.of(m_cacheShuffleSeed) : OptionalLong.empty();
+	}
+
+	@Override
+	public boolean isBatchMetricsCoalescingEnabled() {
+		return m_coalesceBatchMetrics;
+	}
 }
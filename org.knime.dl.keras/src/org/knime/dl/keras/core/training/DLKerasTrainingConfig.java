@@ -48,6 +48,7 @@
 
 import java.util.Collection;
 import java.util.Map;
+import java.util.OptionalLong;
 
 import org.knime.dl.core.DLTensorId;
 import org.knime.dl.core.training.DLTrainingConfig;
@@ -75,4 +76,36 @@ public interface DLKerasTrainingConfig extends DLTrainingConfig {
 	 *         training process
 	 */
 	Collection<DLKerasCallback> getCallbacks();
+
+	/**
+	 * @return the maximum number of training or validation batches that are transferred to the back end ahead of the
+	 *         batch that is currently processed, at least one
+	 */
+	default int getPrefetchBatches() {
+		return 1;
+	}
+
+	/**
+	 * @return true if the back end may keep the training and validation data in memory after the first epoch instead
+	 *         of receiving them again in each epoch
+	 */
+	default boolean isDataCachingEnabled() {
+		return false;
+	}
+
+	/**
+	 * @return the seed that is used to shuffle cached training data before each epoch, empty if the training data is
+	 *         not shuffled. Only relevant if {@link #isDataCachingEnabled() data caching} is enabled.
+	 */
+	default OptionalLong getCacheShuffleSeed() {
+		return OptionalLong.empty();
+	}
+
+	/**
+	 * @return true if the back end may collect the metrics of consecutive training batches and report them at once
+	 *         instead of after each batch
+	 */
+	default boolean isBatchMetricsCoalescingEnabled() {
+		return false;
+	}
 }
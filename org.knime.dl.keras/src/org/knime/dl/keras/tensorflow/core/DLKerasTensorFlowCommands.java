@@ -57,7 +57,11 @@
 import org.knime.dl.keras.core.DLKerasAbstractCommands;
 import org.knime.dl.python.core.DLPythonContext;
 import org.knime.dl.python.core.DLPythonNetworkHandle;
+import org.knime.dl.python.core.SingleValueTableCreator;
+import org.knime.dl.python.util.DLPythonSourceCodeBuilder;
+import org.knime.dl.python.util.DLPythonUtils;
 import org.knime.dl.util.DLUtils;
+import org.knime.python2.extensions.serializationlibrary.interfaces.Cell;
 
 /**
  * @author Marcel Wiedenmann, KNIME GmbH, Konstanz, Germany
@@ -65,6 +69,8 @@
  */
 public final class DLKerasTensorFlowCommands extends DLKerasAbstractCommands {
 
+	private static final String NUM_THREADS_CHANGED_NAME = "num_threads_changed";
+
 	public DLKerasTensorFlowCommands() {
 	}
 
@@ -89,6 +95,21 @@ public DLKerasTensorFlowNetworkSpec extractNetworkSpec(final DLPythonNetworkHand
             outputSpecs);
     }
 
+    @Override
+    public boolean setNumThreads(final int numThreads, final DLCancelable cancelable)
+        throws DLInvalidEnvironmentException, IOException, DLCanceledExecutionException {
+        final DLPythonSourceCodeBuilder b = DLPythonUtils.createSourceCodeBuilder() //
+            .a("import pandas as pd") //
+            .n("import DLKerasTensorFlowNetworkType") //
+            .n("global ").a(NUM_THREADS_CHANGED_NAME) //
+            .n(NUM_THREADS_CHANGED_NAME).a(" = pd.DataFrame([str(DLKerasTensorFlowNetworkType.instance()")
+            .a(".set_num_threads(").a(numThreads).a("))])");
+        getContext(cancelable).executeInKernel(b.toString(), cancelable);
+        final String changed = (String)getContext(cancelable).getDataFromKernel(NUM_THREADS_CHANGED_NAME,
+            (s, ts) -> new SingleValueTableCreator<>(s, Cell::getStringValue), cancelable).getTable();
+        return Boolean.parseBoolean(changed);
+    }
+
 	@Override
 	protected String getSetupEnvironmentCode() {
 		return "import os\n" + //
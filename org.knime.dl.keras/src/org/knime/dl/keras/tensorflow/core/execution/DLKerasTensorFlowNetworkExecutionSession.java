@@ -57,6 +57,7 @@
 import org.knime.dl.keras.core.execution.DLKerasAbstractNetworkExecutionSession;
 import org.knime.dl.keras.tensorflow.core.DLKerasTensorFlowCommands;
 import org.knime.dl.keras.tensorflow.core.DLKerasTensorFlowNetwork;
+import org.knime.dl.python.core.DLPythonContext;
 
 /**
  * @author Marcel Wiedenmann, KNIME GmbH, Konstanz, Germany
@@ -73,7 +74,7 @@ public DLKerasTensorFlowNetworkExecutionSession(final DLKerasTensorFlowNetwork n
 	}
 
 	@Override
-	protected DLKerasTensorFlowCommands createCommands() throws DLInvalidEnvironmentException {
-		return new DLKerasTensorFlowCommands();
+	protected DLKerasTensorFlowCommands createCommands(final DLPythonContext context) throws DLInvalidEnvironmentException {
+		return new DLKerasTensorFlowCommands(context);
 	}
 }
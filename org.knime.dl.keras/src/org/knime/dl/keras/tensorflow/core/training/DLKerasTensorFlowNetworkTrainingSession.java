@@ -57,6 +57,7 @@
 import org.knime.dl.keras.core.training.DLKerasTrainingConfig;
 import org.knime.dl.keras.tensorflow.core.DLKerasTensorFlowCommands;
 import org.knime.dl.keras.tensorflow.core.DLKerasTensorFlowNetwork;
+import org.knime.dl.python.core.DLPythonContext;
 
 /**
  * Training session for Keras (TensorFlow) networks.
@@ -88,7 +89,7 @@ public DLKerasTensorFlowNetworkTrainingSession(final DLKerasTensorFlowNetwork ne
 	}
 
 	@Override
-	protected DLKerasTensorFlowCommands createCommands() throws DLInvalidEnvironmentException {
-		return new DLKerasTensorFlowCommands();
+	protected DLKerasTensorFlowCommands createCommands(final DLPythonContext context) throws DLInvalidEnvironmentException {
+		return new DLKerasTensorFlowCommands(context);
 	}
 }
@@ -57,6 +57,7 @@
 import org.knime.dl.keras.core.training.DLKerasTrainingConfig;
 import org.knime.dl.keras.theano.core.DLKerasTheanoCommands;
 import org.knime.dl.keras.theano.core.DLKerasTheanoNetwork;
+import org.knime.dl.python.core.DLPythonContext;
 
 /**
  * Training session for Keras (Theano) networks.
@@ -88,7 +89,7 @@ public DLKerasTheanoNetworkTrainingSession(final DLKerasTheanoNetwork network,
 	}
 
 	@Override
-	protected DLKerasTheanoCommands createCommands() throws DLInvalidEnvironmentException {
-		return new DLKerasTheanoCommands();
+	protected DLKerasTheanoCommands createCommands(final DLPythonContext context) throws DLInvalidEnvironmentException {
+		return new DLKerasTheanoCommands(context);
 	}
 }
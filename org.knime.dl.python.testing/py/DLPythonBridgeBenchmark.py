@@ -0,0 +1,140 @@
+# -*- coding: utf-8 -*-
+
+# Python side of DLPythonBridgeBenchmark. Executed in the kernel's workspace, so only numpy, pandas and the modules of
+# org.knime.dl.python are required. The registered identity network returns its input buffer as output, which makes
+# the measured times those of the bridge rather than of a back end. Likewise, the training task only fetches the
+# training data from Java and does not train anything.
+
+import importlib
+import timeit
+
+import pandas as pd
+
+import DLPythonKernelGateway
+import DLPythonNetwork
+from DLPythonSynchronousExecutor import SynchronousExecutor
+from messaging.AbstractTaskHandler import AbstractTaskHandler
+from messaging.Message import Message
+from messaging.Message import PayloadEncoder
+from messaging.Task import Task
+
+
+class DLPythonBridgeBenchmarkNetworkSpec(DLPythonNetwork.DLPythonNetworkSpec):
+
+    @property
+    def network_type(self):
+        return None
+
+
+class DLPythonBridgeBenchmarkNetwork(DLPythonNetwork.DLPythonNetwork):
+
+    def __init__(self, spec):
+        super(DLPythonBridgeBenchmarkNetwork, self).__init__(None)
+        self._spec = spec
+
+    @property
+    def spec(self):
+        return self._spec
+
+    def execute(self, in_data, batch_size, output_identifiers):
+        out_data = {}
+        for input_spec, output_spec in zip(self._spec.input_specs, self._spec.output_specs):
+            if output_spec.identifier in output_identifiers:
+                out_data[output_spec.identifier] = pd.DataFrame(
+                    {output_spec.identifier: [in_data[input_spec.identifier].values[0][0]]})
+        return out_data
+
+    def save(self, path):
+        raise NotImplementedError('The identity network of the bridge benchmark cannot be saved.')
+
+
+def bridge_benchmark_register(identifier, input_identifier, output_identifier, element_type, size):
+    input_spec = DLPythonNetwork.DLPythonTensorSpec(input_identifier, input_identifier, 1, [size], element_type,
+                                                    'TDHWC')
+    output_spec = DLPythonNetwork.DLPythonTensorSpec(output_identifier, output_identifier, 1, [size], element_type,
+                                                     'TDHWC')
+    spec = DLPythonBridgeBenchmarkNetworkSpec([input_spec], [], [output_spec])
+    # each tensor size and type registers the network anew
+    DLPythonNetwork.remove_network(identifier)
+    DLPythonNetwork.add_network(DLPythonBridgeBenchmarkNetwork(spec), identifier)
+
+
+def bridge_benchmark_measure(identifier, buffer_type, in_data, millis):
+    '''
+    Returns the mean seconds the Python side spends on deserializing the input, executing the network and serializing
+    the output, measured using the (de)serializers of the type extensions that are also used by the kernel.
+    '''
+    network = DLPythonNetwork.get_network(identifier)
+    input_identifier = network.spec.input_specs[0].identifier
+    output_identifier = network.spec.output_specs[0].identifier
+    serializer = importlib.import_module('DLPython' + buffer_type + 'BufferSerializer')
+    deserializer = importlib.import_module('DLPython' + buffer_type + 'BufferDeserializer')
+    buffer = in_data.values[0][0]
+    serialized = serializer.serialize(buffer)
+    return pd.DataFrame({
+        'deserialize': [_mean_seconds(lambda: deserializer.deserialize(serialized), millis)],
+        'execute': [_mean_seconds(lambda: network.execute({input_identifier: in_data}, 1, [output_identifier]),
+                                  millis)],
+        'serialize': [_mean_seconds(lambda: serializer.serialize(buffer), millis)]})
+
+
+class DLPythonBridgeBenchmarkTrainTask(Task):
+    '''
+    Stands in for the training task of a back end (e.g. DLKerasTrainTask): requests each training batch from Java, the
+    same way the training input generators do, and reports its end with zero metrics.
+    '''
+
+    def __init__(self, reply_to, network, num_batches):
+        self._kernel = DLPythonKernelGateway.global_workspace()['workspace']
+        self._commands = self._kernel._commands
+        self._messaging = self._commands._messaging
+        super(DLPythonBridgeBenchmarkTrainTask, self).__init__(None, None, self._messaging, self._messaging,
+                                                               self._messaging.create_receive_queue(),
+                                                               self._messaging.create_next_message_id,
+                                                               self._kernel, SynchronousExecutor())
+        self._reply_to = str(reply_to)
+        self._network = network
+        self._num_batches = num_batches
+
+    def send_to_java(self, message_category, payload=None):
+        self._messaging.send(self._create_message(message_category, payload))
+
+    def request_from_java(self, message_category, payload=None):
+        message = self._create_message(message_category, payload)
+        self._commands.create_task(DLPythonBridgeBenchmarkTrainTask._RequestTaskHandler(), message).get()
+
+    def _create_message(self, message_category, payload=None):
+        if payload is not None:
+            payload = PayloadEncoder().put_string(str(payload)).payload
+        return Message(self._message_id_supplier(), self._reply_to, payload,
+                       {AbstractTaskHandler.FIELD_KEY_MESSAGE_TYPE: message_category})
+
+    def _run_internal(self):
+        input_identifier = self._network.spec.input_specs[0].identifier
+        workspace = DLPythonKernelGateway.global_workspace()
+        for batch_index in range(self._num_batches):
+            self.send_to_java('batch_begin')
+            self.request_from_java('request_training_data', batch_index)
+            assert workspace[input_identifier] is not None
+            self.send_to_java('batch_end', '0;0')
+        self._set_result(None)
+
+    class _RequestTaskHandler(AbstractTaskHandler):
+        def _handle_success_message(self, message):
+            return None
+
+
+def bridge_benchmark_train(identifier, num_batches, reply_to):
+    DLPythonBridgeBenchmarkTrainTask(reply_to, DLPythonNetwork.get_network(identifier), num_batches).get()
+
+
+def _mean_seconds(function, millis):
+    end = timeit.default_timer() + millis / 1000.0
+    calls = 0
+    start = timeit.default_timer()
+    while True:
+        function()
+        calls += 1
+        now = timeit.default_timer()
+        if now >= end:
+            return (now - start) / calls
@@ -0,0 +1,201 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ *
+ */
+package org.knime.dl.python.testing;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.knime.dl.core.DLDefaultFixedTensorShape;
+import org.knime.dl.core.DLDefaultTensor;
+import org.knime.dl.core.DLDefaultTensorId;
+import org.knime.dl.core.DLDefaultTensorSpec;
+import org.knime.dl.core.DLDimensionOrder;
+import org.knime.dl.core.DLTensor;
+import org.knime.dl.core.DLTensorId;
+import org.knime.dl.core.DLTensorSpec;
+import org.knime.dl.core.data.DLReadableBuffer;
+import org.knime.dl.core.data.DLWritableBuffer;
+import org.knime.dl.core.execution.DLTransportPrecision;
+import org.knime.dl.python.core.DLPythonArrowTransport;
+import org.knime.dl.python.core.data.DLPythonDirectDoubleBuffer;
+import org.knime.dl.python.core.data.DLPythonDirectFloatBuffer;
+import org.knime.dl.python.core.data.DLPythonDirectLongBuffer;
+
+/**
+ * Tests the Java side of {@link DLPythonArrowTransport}, i.e. that the streams it writes can be read back. Direct
+ * buffers are used because they do not require the deserializer extensions.
+ */
+public class DLPythonArrowTransportTest {
+
+	private static final int BATCH_SIZE = 4;
+
+	private static final DLTensorId FLOAT_ID = new DLDefaultTensorId("float_tensor");
+
+	private static final DLTensorId LONG_ID = new DLDefaultTensorId("long_tensor");
+
+	private final Random m_rng = new Random(543653);
+
+	@Test
+	public void testProbe() {
+		final DLPythonArrowTransport transport = new DLPythonArrowTransport();
+		Assert.assertTrue(transport.checkProbe(transport.createProbe()));
+		Assert.assertFalse(transport.checkProbe(new byte[0]));
+		Assert.assertFalse(transport.checkProbe(null));
+		final byte[] truncated = transport.createProbe();
+		Assert.assertFalse(transport.checkProbe(Arrays.copyOf(truncated, truncated.length / 2)));
+	}
+
+	@Test
+	public void testRoundTrip() {
+		final DLPythonArrowTransport transport = new DLPythonArrowTransport();
+		final DLTensor<DLPythonDirectFloatBuffer> floats =
+				new DLDefaultTensor<>(createSpec(FLOAT_ID, float.class, 2, 3), new DLPythonDirectFloatBuffer(24), 6);
+		final DLTensor<DLPythonDirectLongBuffer> longs =
+				new DLDefaultTensor<>(createSpec(LONG_ID, long.class, 5), new DLPythonDirectLongBuffer(20), 5);
+		for (int i = 0; i < 24; i++) {
+			floats.getBuffer().put(m_rng.nextFloat());
+		}
+		for (int i = 0; i < 20; i++) {
+			longs.getBuffer().put(m_rng.nextLong());
+		}
+		final Map<DLTensorId, DLTensor<? extends DLWritableBuffer>> inputs = new HashMap<>();
+		inputs.put(FLOAT_ID, floats);
+		inputs.put(LONG_ID, longs);
+		Assert.assertTrue(DLPythonArrowTransport.isSupported(floats));
+		Assert.assertTrue(DLPythonArrowTransport.fits(inputs));
+		final byte[] stream = transport.writeInputs(inputs);
+
+		final DLTensor<DLPythonDirectFloatBuffer> floatsOut =
+				new DLDefaultTensor<>(createSpec(FLOAT_ID, float.class, 2, 3), new DLPythonDirectFloatBuffer(24), 6);
+		final DLTensor<DLPythonDirectLongBuffer> longsOut =
+				new DLDefaultTensor<>(createSpec(LONG_ID, long.class, 5), new DLPythonDirectLongBuffer(20), 5);
+		final Map<DLTensorId, DLTensor<? extends DLReadableBuffer>> outputs = new HashMap<>();
+		outputs.put(FLOAT_ID, floatsOut);
+		outputs.put(LONG_ID, longsOut);
+		final Set<DLTensorId> read = transport.readOutputs(stream, outputs);
+		Assert.assertEquals(outputs.keySet(), read);
+		Assert.assertArrayEquals(floats.getBuffer().toFloatArray(), floatsOut.getBuffer().toFloatArray(), 0f);
+		Assert.assertArrayEquals(longs.getBuffer().toLongArray(), longsOut.getBuffer().toLongArray());
+	}
+
+	@Test
+	public void testReducedPrecisionRoundTrip() {
+		for (final DLTransportPrecision precision : new DLTransportPrecision[] { DLTransportPrecision.FLOAT16,
+				DLTransportPrecision.BFLOAT16 }) {
+			final DLPythonArrowTransport transport = new DLPythonArrowTransport();
+			transport.setPrecision(precision);
+			final DLTensor<DLPythonDirectFloatBuffer> floats = new DLDefaultTensor<>(
+					createSpec(FLOAT_ID, float.class, 2, 3), new DLPythonDirectFloatBuffer(24), 6);
+			final DLTensor<DLPythonDirectLongBuffer> longs =
+					new DLDefaultTensor<>(createSpec(LONG_ID, long.class, 5), new DLPythonDirectLongBuffer(20), 5);
+			for (int i = 0; i < 24; i++) {
+				floats.getBuffer().put(m_rng.nextFloat() * 10 - 5);
+			}
+			for (int i = 0; i < 20; i++) {
+				longs.getBuffer().put(m_rng.nextLong());
+			}
+			final Map<DLTensorId, DLTensor<? extends DLWritableBuffer>> inputs = new HashMap<>();
+			inputs.put(FLOAT_ID, floats);
+			inputs.put(LONG_ID, longs);
+			Assert.assertFalse(transport.getMaxError().isPresent());
+			final byte[] stream = transport.writeInputs(inputs);
+
+			final DLTensor<DLPythonDirectFloatBuffer> floatsOut = new DLDefaultTensor<>(
+					createSpec(FLOAT_ID, float.class, 2, 3), new DLPythonDirectFloatBuffer(24), 6);
+			final DLTensor<DLPythonDirectLongBuffer> longsOut =
+					new DLDefaultTensor<>(createSpec(LONG_ID, long.class, 5), new DLPythonDirectLongBuffer(20), 5);
+			final Map<DLTensorId, DLTensor<? extends DLReadableBuffer>> outputs = new HashMap<>();
+			outputs.put(FLOAT_ID, floatsOut);
+			outputs.put(LONG_ID, longsOut);
+			Assert.assertEquals(outputs.keySet(), transport.readOutputs(stream, outputs));
+			// half a unit in the last place of values below 8: 2^-8 for float16, 2^-5 for bfloat16
+			final float tolerance = precision == DLTransportPrecision.FLOAT16 ? 0x1p-8f : 0x1p-5f;
+			final float[] expected = floats.getBuffer().toFloatArray();
+			final float[] actual = floatsOut.getBuffer().toFloatArray();
+			Assert.assertArrayEquals(expected, actual, tolerance);
+			float maxError = 0;
+			for (int i = 0; i < expected.length; i++) {
+				Assert.assertEquals(precision.decode(precision.encode(expected[i])), actual[i], 0f);
+				maxError = Math.max(maxError, Math.abs(expected[i] - actual[i]));
+			}
+			Assert.assertEquals(maxError, transport.getMaxError().getAsDouble(), 0d);
+			// integers are not affected
+			Assert.assertArrayEquals(longs.getBuffer().toLongArray(), longsOut.getBuffer().toLongArray());
+		}
+	}
+
+	@Test
+	public void testReadOutputsSkipsMismatchingTypes() {
+		final DLPythonArrowTransport transport = new DLPythonArrowTransport();
+		final DLTensor<DLPythonDirectFloatBuffer> floats =
+				new DLDefaultTensor<>(createSpec(FLOAT_ID, float.class, 3), new DLPythonDirectFloatBuffer(12), 3);
+		for (int i = 0; i < 12; i++) {
+			floats.getBuffer().put((float) i);
+		}
+		final Map<DLTensorId, DLTensor<? extends DLWritableBuffer>> inputs = new HashMap<>();
+		inputs.put(FLOAT_ID, floats);
+		final byte[] stream = transport.writeInputs(inputs);
+
+		final DLTensor<DLPythonDirectDoubleBuffer> doublesOut =
+				new DLDefaultTensor<>(createSpec(FLOAT_ID, double.class, 3), new DLPythonDirectDoubleBuffer(12), 3);
+		final Map<DLTensorId, DLTensor<? extends DLReadableBuffer>> outputs = new HashMap<>();
+		outputs.put(FLOAT_ID, doublesOut);
+		Assert.assertTrue(transport.readOutputs(stream, outputs).isEmpty());
+		Assert.assertEquals(0, doublesOut.getBuffer().size());
+		Assert.assertTrue(transport.readOutputs(new byte[0], outputs).isEmpty());
+	}
+
+	private static DLTensorSpec createSpec(final DLTensorId id, final Class<?> elementType, final long... shape) {
+		return new DLDefaultTensorSpec(id, id.getIdentifierString(), BATCH_SIZE, new DLDefaultFixedTensorShape(shape),
+				elementType, DLDimensionOrder.TDHWC);
+	}
+}
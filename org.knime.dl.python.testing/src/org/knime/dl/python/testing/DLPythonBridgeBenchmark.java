@@ -0,0 +1,467 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ *
+ */
+package org.knime.dl.python.testing;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.LongFunction;
+import java.util.function.ObjIntConsumer;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.knime.dl.core.DLCancelable;
+import org.knime.dl.core.DLDefaultFixedTensorShape;
+import org.knime.dl.core.DLDefaultTensor;
+import org.knime.dl.core.DLDefaultTensorId;
+import org.knime.dl.core.DLDefaultTensorSpec;
+import org.knime.dl.core.DLDimensionOrder;
+import org.knime.dl.core.DLInvalidEnvironmentException;
+import org.knime.dl.core.DLNetworkInputProvider;
+import org.knime.dl.core.DLNetworkSpec;
+import org.knime.dl.core.DLNotCancelable;
+import org.knime.dl.core.DLTensor;
+import org.knime.dl.core.DLTensorId;
+import org.knime.dl.core.data.DLReadableBuffer;
+import org.knime.dl.core.data.DLWritableBuffer;
+import org.knime.dl.core.training.DLTrainingMonitor;
+import org.knime.dl.python.core.DLPythonAbstractCommands;
+import org.knime.dl.python.core.DLPythonArrowTransport;
+import org.knime.dl.python.core.DLPythonContext;
+import org.knime.dl.python.core.DLPythonNetworkHandle;
+import org.knime.dl.python.core.DLPythonSharedMemoryTransport;
+import org.knime.dl.python.core.data.DLPythonDataBuffer;
+import org.knime.dl.python.core.data.DLPythonDoubleBuffer;
+import org.knime.dl.python.core.data.DLPythonFloatBuffer;
+import org.knime.dl.python.core.data.DLPythonIntBuffer;
+import org.knime.dl.python.core.data.DLPythonLongBuffer;
+import org.knime.dl.python.core.data.serde.DLPythonDeserializer;
+import org.knime.dl.python.core.data.serde.DLPythonDoubleBufferDeserializerFactory;
+import org.knime.dl.python.core.data.serde.DLPythonDoubleBufferSerializerFactory;
+import org.knime.dl.python.core.data.serde.DLPythonFloatBufferDeserializerFactory;
+import org.knime.dl.python.core.data.serde.DLPythonFloatBufferSerializerFactory;
+import org.knime.dl.python.core.data.serde.DLPythonIntBufferDeserializerFactory;
+import org.knime.dl.python.core.data.serde.DLPythonIntBufferSerializerFactory;
+import org.knime.dl.python.core.data.serde.DLPythonLongBufferDeserializerFactory;
+import org.knime.dl.python.core.data.serde.DLPythonLongBufferSerializerFactory;
+import org.knime.dl.python.core.training.DLPythonAbstractTrainingStatus;
+import org.knime.dl.python.core.training.DLPythonTrainingStatus;
+import org.knime.dl.python.util.DLPythonUtils;
+import org.knime.dl.testing.DLMicroBenchmark;
+import org.knime.dl.testing.DLMicroBenchmark.Result;
+import org.knime.dl.testing.DLTestTrainingMonitor;
+import org.knime.dl.testing.DLTestUtil;
+import org.knime.dl.util.DLThrowingLambdas.DLThrowingBiFunction;
+import org.knime.dl.util.DLUtils;
+import org.knime.python.typeextension.DeserializerFactory;
+import org.knime.python.typeextension.Serializer;
+import org.knime.python.typeextension.SerializerFactory;
+import org.knime.python2.extensions.serializationlibrary.interfaces.Row;
+import org.knime.python2.extensions.serializationlibrary.interfaces.TableChunker;
+import org.knime.python2.extensions.serializationlibrary.interfaces.TableCreator;
+import org.knime.python2.extensions.serializationlibrary.interfaces.TableSpec;
+
+/**
+ * Measures where the time goes when tensors are sent through the Python bridge of {@link DLPythonAbstractCommands}.
+ * An identity network that returns its input as output is registered in a local Python kernel (only numpy and pandas
+ * are required) and each phase of a round trip is benchmarked for several tensor sizes and element types:
+ * <ul>
+ * <li>serialization in the <code>DLPython*BufferSerializerFactory</code> on the Java side</li>
+ * <li>{@link DLPythonAbstractCommands#setNetworkInputs setNetworkInputs}, which comprises the serialization, the
+ * transfer through the socket and the deserialization on the Python side</li>
+ * <li>{@link DLPythonAbstractCommands#executeNetwork executeNetwork}</li>
+ * <li>{@link DLPythonAbstractCommands#getNetworkOutputs getNetworkOutputs}, which comprises the serialization on the
+ * Python side, the transfer and the deserialization in the <code>DLPython*BufferDeserializerFactory</code></li>
+ * <li>deserialization on the Java side</li>
+ * <li>{@link DLPythonAbstractCommands#trainNetwork trainNetwork}, measured in batches per second, with a stub
+ * training task that only requests its training data from Java</li>
+ * </ul>
+ * All round trip phases are measured for each {@link Transport transport} and reported separately: the default one
+ * (i.e. as configured via the VM options of the benchmark run), the socket, Arrow and shared memory. The Arrow transport falls
+ * back to the socket if the kernel does not provide pyarrow.
+ * <P>
+ * For the socket, the Python side of the (de)serialization and the execution are additionally measured within the
+ * kernel. The transfer times are what remains of the round trip phases after subtracting the (de)serialization on both
+ * sides, i.e. they include the framing of the serialization library. The other transports bypass the serializer
+ * factories.
+ *
+ * @see DLMicroBenchmark
+ */
+public final class DLPythonBridgeBenchmark {
+
+	private static final int[] SIZES = { 1 << 10, 1 << 16, 1 << 20 };
+
+	/**
+	 * The number of batches of a {@link DLPythonAbstractCommands#trainNetwork trainNetwork} call.
+	 */
+	private static final int NUM_TRAINING_BATCHES = 10;
+
+	/**
+	 * The duration of a measurement on the Python side, same as the iteration duration of {@link DLMicroBenchmark}.
+	 */
+	private static final long PYTHON_MILLIS = Long.getLong("knime.dl.benchmark.millis", 200);
+
+	private static final String BUNDLE_ID = "org.knime.dl.python.testing";
+
+	private static final DLCancelable CANCELABLE = DLNotCancelable.INSTANCE;
+
+	private static final DLPythonNetworkHandle HANDLE = new DLPythonNetworkHandle("bridge_benchmark");
+
+	private static final DLTensorId IN_TENSOR_ID = new DLDefaultTensorId("bridge_benchmark_in");
+
+	private static final DLTensorId OUT_TENSOR_ID = new DLDefaultTensorId("bridge_benchmark_out");
+
+	private static final String PYTHON_TIMES_NAME = "bridge_benchmark_times";
+
+	private DLPythonAbstractCommands m_commands;
+
+	@BeforeClass
+	public static void checkEnabled() {
+		DLMicroBenchmark.assumeEnabled();
+	}
+
+	/**
+	 * Creates {@link #m_commands} after configuring the given transport, which is decided upon when the commands are
+	 * created. The previous values of the transport's VM options are put into the given map.
+	 */
+	private void setUp(final Transport transport, final Map<String, String> previousProperties) throws Exception {
+		for (final Map.Entry<String, String> property : transport.m_properties.entrySet()) {
+			previousProperties.put(property.getKey(), System.setProperty(property.getKey(), property.getValue()));
+		}
+		m_commands = new DLPythonAbstractCommands() {
+
+			@Override
+			public DLNetworkSpec extractNetworkSpec(final DLPythonNetworkHandle network, final DLCancelable cancelable)
+					throws DLInvalidEnvironmentException, IOException {
+				return null;
+			}
+
+			@Override
+			protected File getInstallationTestFile() {
+				return null;
+			}
+
+			@Override
+			protected String getSetupEnvironmentCode() {
+				return "";
+			}
+
+			@Override
+			protected String getSetupBackendCode() {
+				return "";
+			}
+
+			@Override
+			protected DLPythonAbstractNetworkReaderCommands getNetworkReaderCommands() {
+				return null;
+			}
+
+			@Override
+			protected DLPythonNetworkTrainingTaskHandler createNetworkTrainingTaskHandler(final DLPythonContext context,
+					final DLTrainingMonitor<? extends DLPythonTrainingStatus> monitor,
+					final DLNetworkInputProvider trainingInputProvider,
+					final DLNetworkInputProvider validationInputProvider,
+					final DLThrowingBiFunction<DLTensorId, DLTensor<? extends DLWritableBuffer>, TableChunker, IOException> singleTensorTableChunkerCreator) {
+				return new DLPythonNetworkTrainingTaskHandler(context, monitor, trainingInputProvider,
+						validationInputProvider, singleTensorTableChunkerCreator) {};
+			}
+
+			@Override
+			protected String getTrainNetworkCode(final DLPythonNetworkHandle network,
+					final DLNetworkInputProvider trainingInputProvider,
+					final DLNetworkInputProvider validationInputProvider) {
+				return DLPythonUtils.createSourceCodeBuilder() //
+						.a("bridge_benchmark_train(").as(network.getIdentifier()).a(", ")
+						.a(trainingInputProvider.getNumBatches()).a(", ")
+						.a("locals()['python_messaging_initiating_message_id'])").toString();
+			}
+		};
+		final String code = DLUtils.Files
+				.readAllUTF8(DLUtils.Files.getFileFromBundle(BUNDLE_ID, "py/DLPythonBridgeBenchmark.py"));
+		m_commands.getContext(CANCELABLE).executeInKernel(code, CANCELABLE);
+	}
+
+	private void tearDown(final Map<String, String> previousProperties) {
+		try {
+			if (m_commands != null) {
+				m_commands.close();
+				m_commands = null;
+			}
+		} finally {
+			for (final Map.Entry<String, String> property : previousProperties.entrySet()) {
+				if (property.getValue() != null) {
+					System.setProperty(property.getKey(), property.getValue());
+				} else {
+					System.clearProperty(property.getKey());
+				}
+			}
+		}
+	}
+
+	@Test
+	public void benchmarkFloat() throws Exception {
+		benchmark("Float", float.class, DLPythonFloatBuffer::new, (b, n) -> b.putAll(DLTestUtil.floatRange(n)),
+				new DLPythonFloatBufferSerializerFactory(), new DLPythonFloatBufferDeserializerFactory());
+	}
+
+	@Test
+	public void benchmarkDouble() throws Exception {
+		benchmark("Double", double.class, DLPythonDoubleBuffer::new, (b, n) -> b.putAll(DLTestUtil.doubleRange(n)),
+				new DLPythonDoubleBufferSerializerFactory(), new DLPythonDoubleBufferDeserializerFactory());
+	}
+
+	@Test
+	public void benchmarkInt() throws Exception {
+		benchmark("Int", int.class, DLPythonIntBuffer::new, (b, n) -> b.putAll(DLTestUtil.intRange(n)),
+				new DLPythonIntBufferSerializerFactory(), new DLPythonIntBufferDeserializerFactory());
+	}
+
+	@Test
+	public void benchmarkLong() throws Exception {
+		benchmark("Long", long.class, DLPythonLongBuffer::new, (b, n) -> b.putAll(DLTestUtil.longRange(n)),
+				new DLPythonLongBufferSerializerFactory(), new DLPythonLongBufferDeserializerFactory());
+	}
+
+	private <B extends DLPythonDataBuffer<?>> void benchmark(final String bufferType, final Class<?> elementType,
+			final LongFunction<B> bufferCreator, final ObjIntConsumer<B> filler,
+			final SerializerFactory<?> serializerFactory, final DeserializerFactory deserializerFactory)
+			throws Exception {
+		for (final Transport transport : Transport.values()) {
+			final Map<String, String> previousProperties = new HashMap<>();
+			try {
+				setUp(transport, previousProperties);
+				benchmark(transport, bufferType, elementType, bufferCreator, filler, serializerFactory,
+						deserializerFactory);
+			} finally {
+				tearDown(previousProperties);
+			}
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private <B extends DLPythonDataBuffer<?>> void benchmark(final Transport transport, final String bufferType,
+			final Class<?> elementType, final LongFunction<B> bufferCreator, final ObjIntConsumer<B> filler,
+			final SerializerFactory<?> serializerFactory, final DeserializerFactory deserializerFactory)
+			throws Exception {
+		final Serializer<DLPythonDataBuffer<?>> serializer =
+			(Serializer<DLPythonDataBuffer<?>>) serializerFactory.createSerializer();
+		final DLPythonDeserializer<B> deserializer =
+			(DLPythonDeserializer<B>) deserializerFactory.createDeserializer();
+		for (final int size : SIZES) {
+			final String name =
+				"Python bridge (" + transport.m_name + ") " + elementType.getSimpleName() + "[" + size + "] ";
+			final DLTensor<B> input = createTensor(IN_TENSOR_ID, elementType, size, bufferCreator);
+			filler.accept(input.getBuffer(), size);
+			final DLTensor<B> output = createTensor(OUT_TENSOR_ID, elementType, size, bufferCreator);
+			final Map<DLTensorId, DLTensor<? extends DLWritableBuffer>> inputs =
+				Collections.singletonMap(IN_TENSOR_ID, input);
+			final Map<DLTensorId, DLTensor<? extends DLReadableBuffer>> outputs =
+				Collections.singletonMap(OUT_TENSOR_ID, output);
+			m_commands.getContext(CANCELABLE).executeInKernel(DLPythonUtils.createSourceCodeBuilder() //
+					.a("bridge_benchmark_register(").as(HANDLE.getIdentifier()).a(", ")
+					.as(IN_TENSOR_ID.getIdentifierString()).a(", ").as(OUT_TENSOR_ID.getIdentifierString()).a(", ")
+					.as(elementType.getSimpleName()).a(", ").a(size).a(")").toString(), CANCELABLE);
+
+			// One unmeasured round trip ensures that each phase can be benchmarked on its own.
+			m_commands.setNetworkInputs(HANDLE, inputs, CANCELABLE);
+			m_commands.executeNetwork(HANDLE, outputs.keySet(), 1, CANCELABLE);
+			m_commands.getNetworkOutputs(HANDLE, outputs, CANCELABLE);
+			final byte[] serialized = serializer.serialize(input.getBuffer());
+			assertEquals(size, output.getBuffer().size());
+			assertArrayEquals(serialized, serializer.serialize(output.getBuffer()));
+
+			// The other transports bypass the serializer factories.
+			final boolean socket = transport == Transport.SOCKET;
+			final Result javaSerialization = socket
+				? DLMicroBenchmark.run(name + "Java serialization", 1, () -> serializer.serialize(input.getBuffer()))
+				: null;
+			final Result setInputs = DLMicroBenchmark.run(name + "setNetworkInputs", 1, () -> {
+				m_commands.setNetworkInputs(HANDLE, inputs, CANCELABLE);
+				return inputs;
+			});
+			final Result execute = DLMicroBenchmark.run(name + "executeNetwork", 1, () -> {
+				m_commands.executeNetwork(HANDLE, outputs.keySet(), 1, CANCELABLE);
+				return outputs;
+			});
+			final Result getOutputs = DLMicroBenchmark.run(name + "getNetworkOutputs", 1, () -> {
+				output.getBuffer().reset();
+				m_commands.getNetworkOutputs(HANDLE, outputs, CANCELABLE);
+				return output;
+			});
+			final Result javaDeserialization = socket
+				? DLMicroBenchmark.run(name + "Java deserialization", 1, () -> {
+					output.getBuffer().reset();
+					deserializer.deserialize(serialized, output);
+					return output;
+				})
+				: null;
+			final DLNetworkInputProvider trainingInputProvider = new DLNetworkInputProvider() {
+
+				@Override
+				public long getNumBatches() {
+					return NUM_TRAINING_BATCHES;
+				}
+
+				@Override
+				public Map<DLTensorId, DLTensor<? extends DLWritableBuffer>> get(final long batchIndex) {
+					// the training task handler resets the tensors after sending them
+					filler.accept(input.getBuffer(), size);
+					return inputs;
+				}
+
+				@Override
+				public void close() {
+					// nothing to close
+				}
+			};
+			DLMicroBenchmark.run(name + "trainNetwork", NUM_TRAINING_BATCHES, () -> {
+				m_commands.trainNetwork(HANDLE, trainingInputProvider, null, new DLTestTrainingMonitor<>(
+						new DLPythonAbstractTrainingStatus(1, NUM_TRAINING_BATCHES) {}));
+				return trainingInputProvider;
+			});
+			if (javaSerialization != null && setInputs != null && execute != null && getOutputs != null
+					&& javaDeserialization != null) {
+				final Map<String, Double> python = measurePythonSide(bufferType);
+				final double pythonDeserialization = python.get("deserialize") * 1000;
+				final double pythonExecution = python.get("execute") * 1000;
+				final double pythonSerialization = python.get("serialize") * 1000;
+				DLMicroBenchmark.log(String.format(
+						"%s[ms]: Java ser. %.3f, transfer %.3f, Python deser. %.3f, execution %.3f (call %.3f), "
+								+ "Python ser. %.3f, transfer %.3f, Java deser. %.3f",
+						name, millis(javaSerialization),
+						millis(setInputs) - millis(javaSerialization) - pythonDeserialization, pythonDeserialization,
+						pythonExecution, millis(execute), pythonSerialization,
+						millis(getOutputs) - pythonSerialization - millis(javaDeserialization),
+						millis(javaDeserialization)));
+			}
+		}
+	}
+
+	/**
+	 * @return the mean seconds of the deserialization ("deserialize"), execution ("execute") and serialization
+	 *         ("serialize") on the Python side
+	 */
+	private Map<String, Double> measurePythonSide(final String bufferType) throws Exception {
+		m_commands.getContext(CANCELABLE).executeInKernel(DLPythonUtils.createSourceCodeBuilder() //
+				.a("global ").a(PYTHON_TIMES_NAME) //
+				.n(PYTHON_TIMES_NAME).a(" = bridge_benchmark_measure(").as(HANDLE.getIdentifier()).a(", ")
+				.as(bufferType).a(", ").a(IN_TENSOR_ID.getIdentifierString()).a(", ").a(PYTHON_MILLIS).a(")")
+				.toString(), CANCELABLE);
+		final Map<String, Double> seconds = new HashMap<>();
+		m_commands.getContext(CANCELABLE).getDataFromKernel(PYTHON_TIMES_NAME,
+				(tableSpec, tableSize) -> new TableCreator<Object>() {
+
+					@Override
+					public void addRow(final Row row) {
+						final String[] names = tableSpec.getColumnNames();
+						for (int i = 0; i < names.length; i++) {
+							seconds.put(names[i], row.getCell(i).getDoubleValue());
+						}
+					}
+
+					@Override
+					public TableSpec getTableSpec() {
+						return tableSpec;
+					}
+
+					@Override
+					public Object getTable() {
+						return null;
+					}
+				}, CANCELABLE);
+		return seconds;
+	}
+
+	/**
+	 * The transports the round trips are benchmarked with.
+	 */
+	private enum Transport {
+
+		/**
+		 * The transport that is used by default, i.e. the one configured via the VM options of the benchmark run.
+		 */
+		DEFAULT("default", Collections.emptyMap()),
+
+		SOCKET("socket", properties("false", "false")),
+
+		ARROW("Arrow", properties("true", "false")),
+
+		SHARED_MEMORY("shared memory", properties("false", "true"));
+
+		private final String m_name;
+
+		private final Map<String, String> m_properties;
+
+		private Transport(final String name, final Map<String, String> properties) {
+			m_name = name;
+			m_properties = properties;
+		}
+
+		private static Map<String, String> properties(final String arrow, final String sharedMemory) {
+			final Map<String, String> properties = new HashMap<>(2);
+			properties.put(DLPythonArrowTransport.ENABLED_VM_OPT, arrow);
+			properties.put(DLPythonSharedMemoryTransport.ENABLED_VM_OPT, sharedMemory);
+			return properties;
+		}
+	}
+
+	private static double millis(final Result result) {
+		return 1000 / result.getOpsPerSecond();
+	}
+
+	private static <B extends DLPythonDataBuffer<?>> DLTensor<B> createTensor(final DLTensorId id,
+			final Class<?> elementType, final int size, final LongFunction<B> bufferCreator) {
+		return new DLDefaultTensor<>(new DLDefaultTensorSpec(id, id.getIdentifierString(), 1,
+				new DLDefaultFixedTensorShape(new long[] { size }), elementType, DLDimensionOrder.TDHWC),
+				bufferCreator.apply(size), size);
+	}
+}
@@ -223,7 +223,8 @@ public void accept(final Map<DLTensorId, DLTensor<? extends DLReadableBuffer>> o
                 // check if conversion succeeded
                 for (final Entry<DLTensorId, DLTensorToDataCellConverterFactory<?, ?>> outputSpecPair : outputConverters
                         .entrySet()) {
-                    final Iterable<DataValue> inputsForSpec = inputs.get(networkSpec.getInputSpecs()[0]);
+                    final Iterable<DataValue> inputsForSpec =
+                            inputs.get(networkSpec.getInputSpecs()[0].getIdentifier());
                     final DataCell[] outputsForSpec = outputs.get(outputSpecPair.getKey());
                     int i = 0;
                     for (final DataValue input : inputsForSpec) {
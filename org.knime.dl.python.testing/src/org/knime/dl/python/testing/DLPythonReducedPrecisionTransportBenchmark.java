@@ -0,0 +1,138 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ *
+ */
+package org.knime.dl.python.testing;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.knime.dl.core.DLDefaultFixedTensorShape;
+import org.knime.dl.core.DLDefaultTensor;
+import org.knime.dl.core.DLDefaultTensorId;
+import org.knime.dl.core.DLDefaultTensorSpec;
+import org.knime.dl.core.DLDimensionOrder;
+import org.knime.dl.core.DLTensor;
+import org.knime.dl.core.DLTensorId;
+import org.knime.dl.core.data.DLReadableBuffer;
+import org.knime.dl.core.data.DLWritableBuffer;
+import org.knime.dl.core.execution.DLTransportPrecision;
+import org.knime.dl.python.core.DLPythonArrowTransport;
+import org.knime.dl.python.core.data.DLPythonDirectFloatBuffer;
+import org.knime.dl.testing.DLMicroBenchmark;
+
+/**
+ * Compares the bytes per batch and the batches per second of the Java side of {@link DLPythonArrowTransport} at full
+ * and reduced precisions. Each batch of 32 images of shape [224, 224, 3] is written as input stream and read back as
+ * output, which includes the conversion in both directions. The Python side and the socket are not part of the
+ * measurement, so the effect on the end-to-end throughput additionally depends on the bandwidth between the processes.
+ *
+ * @see DLMicroBenchmark#assumeEnabled()
+ */
+public final class DLPythonReducedPrecisionTransportBenchmark {
+
+	private static final int BATCH_SIZE = 32;
+
+	private static final long[] SHAPE = { 224, 224, 3 };
+
+	private static final int NUM_BATCHES = 20;
+
+	private static final DLTensorId ID = new DLDefaultTensorId("images");
+
+	@BeforeClass
+	public static void checkEnabled() {
+		DLMicroBenchmark.assumeEnabled();
+	}
+
+	@Test
+	public void benchmark() {
+		final int batchElements = BATCH_SIZE * (int) (SHAPE[0] * SHAPE[1] * SHAPE[2]);
+		final DLTensor<DLPythonDirectFloatBuffer> input = createTensor(batchElements);
+		final Random rng = new Random(436);
+		for (int i = 0; i < batchElements; i++) {
+			input.getBuffer().put(rng.nextFloat());
+		}
+		final DLTensor<DLPythonDirectFloatBuffer> output = createTensor(batchElements);
+		final Map<DLTensorId, DLTensor<? extends DLWritableBuffer>> inputs = Collections.singletonMap(ID, input);
+		final Map<DLTensorId, DLTensor<? extends DLReadableBuffer>> outputs = Collections.singletonMap(ID, output);
+		for (final DLTransportPrecision precision : DLTransportPrecision.values()) {
+			final DLPythonArrowTransport transport = new DLPythonArrowTransport();
+			transport.setPrecision(precision);
+			// warm up
+			final int numBytes = roundTrip(transport, inputs, outputs, NUM_BATCHES / 4);
+			final long start = System.nanoTime();
+			roundTrip(transport, inputs, outputs, NUM_BATCHES);
+			final double seconds = (System.nanoTime() - start) / 1e9;
+			DLMicroBenchmark.log(String.format("%-8s: %.1f MiB per batch, %.1f batches/s, max. error %.3g",
+					precision.getLabel(), numBytes / (double) (1 << 20), NUM_BATCHES / seconds,
+					transport.getMaxError().orElse(0)));
+			assertEquals(batchElements, output.getBuffer().size());
+		}
+	}
+
+	private static int roundTrip(final DLPythonArrowTransport transport,
+			final Map<DLTensorId, DLTensor<? extends DLWritableBuffer>> inputs,
+			final Map<DLTensorId, DLTensor<? extends DLReadableBuffer>> outputs, final int numBatches) {
+		int numBytes = 0;
+		for (int i = 0; i < numBatches; i++) {
+			outputs.get(ID).getBuffer().reset();
+			final byte[] stream = transport.writeInputs(inputs);
+			transport.readOutputs(stream, outputs);
+			numBytes = stream.length;
+		}
+		return numBytes;
+	}
+
+	private static DLTensor<DLPythonDirectFloatBuffer> createTensor(final int numElements) {
+		return new DLDefaultTensor<>(new DLDefaultTensorSpec(ID, ID.getIdentifierString(), BATCH_SIZE,
+				new DLDefaultFixedTensorShape(SHAPE), float.class, DLDimensionOrder.TDHWC),
+				new DLPythonDirectFloatBuffer(numElements), (int) (SHAPE[0] * SHAPE[1] * SHAPE[2]));
+	}
+}
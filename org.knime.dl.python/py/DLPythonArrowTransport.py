@@ -0,0 +1,222 @@
+# -*- coding: utf-8 -*-
+
+# ------------------------------------------------------------------------
+#  Copyright by KNIME AG, Zurich, Switzerland
+#  Website: http://www.knime.com; Email: contact@knime.com
+#
+#  This program is free software; you can redistribute it and/or modify
+#  it under the terms of the GNU General Public License, Version 3, as
+#  published by the Free Software Foundation.
+#
+#  This program is distributed in the hope that it will be useful, but
+#  WITHOUT ANY WARRANTY; without even the implied warranty of
+#  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+#  GNU General Public License for more details.
+#
+#  You should have received a copy of the GNU General Public License
+#  along with this program; if not, see <http://www.gnu.org/licenses>.
+#
+#  Additional permission under GNU GPL version 3 section 7:
+#
+#  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+#  Hence, KNIME and ECLIPSE are both independent programs and are not
+#  derived from each other. Should, however, the interpretation of the
+#  GNU GPL Version 3 ("License") under any applicable laws result in
+#  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+#  you the additional permission to use and propagate KNIME together with
+#  ECLIPSE with only the license terms in place for ECLIPSE applying to
+#  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+#  license terms of ECLIPSE themselves allow for the respective use and
+#  propagation of ECLIPSE together with KNIME.
+#
+#  Additional permission relating to nodes for KNIME that extend the Node
+#  Extension (and in particular that are based on subclasses of NodeModel,
+#  NodeDialog, and NodeView) and that only interoperate with KNIME through
+#  standard APIs ("Nodes"):
+#  Nodes are deemed to be separate and independent programs and to not be
+#  covered works.  Notwithstanding anything to the contrary in the
+#  License, the License does not apply to Nodes, you are not required to
+#  license Nodes under the License, and you are granted a license to
+#  prepare and propagate Nodes, in each case even if such Nodes are
+#  propagated with or for interoperation with KNIME.  The owner of a Node
+#  may freely choose the license terms applicable to such Node, including
+#  when such Node is propagated with or for interoperation with KNIME.
+# ------------------------------------------------------------------------
+
+
+
+'''
+Python side of the Arrow tensor transport (see DLPythonArrowTransport.java). All numeric inputs of a batch arrive as a
+single Arrow IPC stream with one fixed size list column per tensor, all numeric outputs are sent back the same way.
+Floating point tensors may be encoded at a reduced precision ('float16' or 'bfloat16'), in which case their columns
+carry the original type and the encoding as metadata. Requires pyarrow 0.15 or later.
+'''
+
+import os
+import sys
+
+import numpy as np
+import pandas as pd
+
+sys.path.insert(0, os.path.dirname(os.path.abspath(__file__)))
+import DLPythonDataBuffers
+
+try:
+    import pyarrow as pa
+except ImportError:
+    pa = None
+
+_NUMPY_TYPES = {
+    'DLPythonByteBuffer': np.int8,
+    'DLPythonUnsignedByteBuffer': np.uint8,
+    'DLPythonShortBuffer': np.int16,
+    'DLPythonIntBuffer': np.int32,
+    'DLPythonLongBuffer': np.int64,
+    'DLPythonFloatBuffer': np.float32,
+    'DLPythonDoubleBuffer': np.float64,
+}
+
+
+def is_available():
+    """
+    Returns whether the installed pyarrow version supports everything this transport needs.
+    """
+    return pa is not None and hasattr(pa, 'FixedSizeListArray') and hasattr(pa.FixedSizeListArray, 'from_arrays') \
+        and hasattr(pa, 'ipc') and hasattr(pa.ipc, 'open_stream')
+
+
+def probe(table):
+    """
+    Reads the probe stream contained in the given data frame and writes its columns back into a new stream. Returns an
+    empty stream if pyarrow is not available or the probe could not be read.
+    """
+    try:
+        if not is_available():
+            return _to_data_frame(b'')
+        return _to_data_frame(_write(list(_read(table.iloc[0, 0]))))
+    except Exception:
+        return _to_data_frame(b'')
+
+
+def read_inputs(namespace, table):
+    """
+    Reads the input stream contained in the given data frame into the given namespace. Each input is stored in the same
+    data frame layout the socket based transport creates. The NumPy arrays share their memory with the stream.
+    """
+    read_input_stream(namespace, table.iloc[0, 0])
+
+
+def read_input_stream(namespace, stream):
+    """
+    Like read_inputs but reads the given stream (bytes or any other object that supports the buffer protocol).
+    """
+    for name, array, metadata in _read(stream):
+        if b'encoding' in metadata:
+            array = _decode(array, metadata[b'encoding'].decode('utf-8'), np.dtype(metadata[b'dtype'].decode('utf-8')))
+        shape = [int(d) for d in metadata[b'shape'].decode('utf-8').split(',') if d]
+        buffer = getattr(DLPythonDataBuffers, metadata[b'buffer_type'].decode('utf-8'))(array)
+        namespace[name] = pd.DataFrame([[buffer, shape]], columns=[name, 'shape'])
+
+
+def write_outputs(out_data, encoding=None):
+    """
+    Writes all non-empty numeric outputs in the given dictionary of output data frames into a single stream. Returns a
+    data frame that contains the stream, which is empty if there are no such outputs or writing them failed. Java falls
+    back to fetching the outputs one by one in that case. Floating point outputs are encoded using the given encoding
+    ('float16' or 'bfloat16') if not None.
+    """
+    try:
+        return _to_data_frame(write_output_stream(out_data, encoding))
+    except Exception:
+        return _to_data_frame(b'')
+
+
+def write_output_stream(out_data, encoding=None):
+    """
+    Like write_outputs but returns the stream itself and raises an error if writing it failed.
+    """
+    columns = []
+    for name, data in out_data.items():
+        buffer = data.iloc[0][0]
+        dtype = _NUMPY_TYPES.get(type(buffer).__name__)
+        if dtype is not None and buffer.array.size > 0:
+            array = np.ascontiguousarray(buffer.array, dtype=dtype)
+            if encoding is not None and array.dtype.kind == 'f':
+                encoded, error = _encode(array, encoding)
+                metadata = {'dtype': array.dtype.name, 'encoding': encoding, 'transport_error': _format_error(error)}
+                columns.append((name, encoded, metadata))
+            else:
+                columns.append((name, array, {}))
+    return _write(columns) if columns else b''
+
+
+def _read(stream):
+    reader = pa.ipc.open_stream(pa.py_buffer(stream))
+    batch = reader.read_next_batch()
+    for i, field in enumerate(batch.schema):
+        column = batch.column(i)
+        list_size = column.type.list_size
+        dtype = np.dtype(column.type.value_type.to_pandas_dtype())
+        # Buffers in depth-first order: list validity, element validity, element data.
+        data = column.buffers()[2]
+        array = np.frombuffer(data, dtype=dtype, count=len(column) * list_size,
+                              offset=column.offset * list_size * dtype.itemsize)
+        yield field.name, array, field.metadata or {}
+
+
+def _encode(array, encoding):
+    """
+    Returns the given floating point array encoded at the given reduced precision (rounded to nearest, ties to even)
+    and the largest absolute rounding error of its finite elements.
+    """
+    if encoding == 'float16':
+        encoded = array.astype(np.float16)
+    elif encoding == 'bfloat16':
+        bits = np.ascontiguousarray(array, dtype=np.float32).view(np.uint32)
+        with np.errstate(over='ignore'):
+            rounded = bits + np.uint32(0x7FFF) + ((bits >> np.uint32(16)) & np.uint32(1))
+        encoded = (rounded >> np.uint32(16)).astype(np.uint16)
+        nan = np.isnan(array)
+        # keep NaNs quiet instead of letting the rounding carry them into infinity
+        encoded[nan] = ((bits[nan] >> np.uint32(16)) | np.uint32(0x0040)).astype(np.uint16)
+    else:
+        raise ValueError('Unknown transport encoding: ' + str(encoding))
+    with np.errstate(invalid='ignore', over='ignore'):
+        error = np.abs(array - _decode(encoded, encoding, array.dtype))
+    error = error[~np.isnan(error)]
+    return encoded, float(error.max()) if error.size > 0 else 0.0
+
+
+def _decode(encoded, encoding, dtype):
+    if encoding == 'float16':
+        return encoded.astype(dtype)
+    elif encoding == 'bfloat16':
+        return (encoded.astype(np.uint32) << np.uint32(16)).view(np.float32).astype(dtype, copy=False)
+    raise ValueError('Unknown transport encoding: ' + str(encoding))
+
+
+def _format_error(error):
+    # Parsed by Java's Double.parseDouble, which does not understand 'inf'.
+    return 'Infinity' if np.isinf(error) else repr(error)
+
+
+def _write(columns):
+    # One list per batch entry if all tensors agree on the batch size, otherwise a single list per tensor.
+    num_rows = {array.shape[0] if array.ndim > 0 and array.shape[0] > 0 else -1 for _, array, _ in columns}
+    rows = num_rows.pop() if len(num_rows) == 1 and -1 not in num_rows else 1
+    arrays = []
+    fields = []
+    for name, array, metadata in columns:
+        values = pa.array(array.reshape(-1))
+        arrays.append(pa.FixedSizeListArray.from_arrays(values, len(values) // rows))
+        fields.append(pa.field(name, arrays[-1].type, metadata=metadata or None))
+    table = pa.Table.from_arrays(arrays, schema=pa.schema(fields))
+    sink = pa.BufferOutputStream()
+    writer = pa.RecordBatchStreamWriter(sink, table.schema)
+    writer.write_table(table)
+    writer.close()
+    return sink.getvalue().to_pybytes()
+
+
+def _to_data_frame(payload):
+    return pd.DataFrame({'stream': [payload]})
@@ -51,6 +51,8 @@ import numpy as np
 sys.path.insert(0, os.path.dirname(os.path.abspath(__file__)))
 from DLPythonDataBuffers import DLPythonBitBuffer
 
+# Wire format: see DLPythonBitBufferSerializer.py
 def deserialize(bytes):
-	return DLPythonBitBuffer(np.frombuffer(bytes, dtype=np.bool_))
-
+	num_bits = int(np.frombuffer(bytes, dtype='<i8', count=1)[0])
+	bits = np.unpackbits(np.frombuffer(bytes, dtype=np.uint8, offset=8))[:num_bits]
+	return DLPythonBitBuffer(bits.view(np.bool_))
@@ -45,16 +45,19 @@
 
 from io import BytesIO
 import os
+import struct
 import sys
 import numpy as np
 
 sys.path.insert(0, os.path.dirname(os.path.abspath(__file__)))
 from DLPythonDataBuffers import DLPythonBitBuffer
 
+# Wire format: the number of bits as little-endian int64, followed by the bits packed into bytes (see np.packbits).
 def serialize(value):
-	if not value.array.dtype == np.bool_:
-		value = DLPythonBitBuffer(value.array.astype(np.bool_))
+	array = value.array.reshape(-1)
+	if not array.dtype == np.bool_:
+		array = array.astype(np.bool_)
 	buffer = BytesIO(bytes())
-	buffer.write(value.array.tobytes())
+	buffer.write(struct.pack('<q', array.size))
+	buffer.write(np.packbits(array).tobytes())
 	return buffer.getvalue()
-
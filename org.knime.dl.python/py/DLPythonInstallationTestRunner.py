@@ -0,0 +1,127 @@
+# -*- coding: utf-8 -*-
+
+# ------------------------------------------------------------------------
+#  Copyright by KNIME AG, Zurich, Switzerland
+#  Website: http://www.knime.com; Email: contact@knime.com
+#
+#  This program is free software; you can redistribute it and/or modify
+#  it under the terms of the GNU General Public License, Version 3, as
+#  published by the Free Software Foundation.
+#
+#  This program is distributed in the hope that it will be useful, but
+#  WITHOUT ANY WARRANTY; without even the implied warranty of
+#  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+#  GNU General Public License for more details.
+#
+#  You should have received a copy of the GNU General Public License
+#  along with this program; if not, see <http://www.gnu.org/licenses>.
+#
+#  Additional permission under GNU GPL version 3 section 7:
+#
+#  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+#  Hence, KNIME and ECLIPSE are both independent programs and are not
+#  derived from each other. Should, however, the interpretation of the
+#  GNU GPL Version 3 ("License") under any applicable laws result in
+#  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+#  you the additional permission to use and propagate KNIME together with
+#  ECLIPSE with only the license terms in place for ECLIPSE applying to
+#  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+#  license terms of ECLIPSE themselves allow for the respective use and
+#  propagation of ECLIPSE together with KNIME.
+#
+#  Additional permission relating to nodes for KNIME that extend the Node
+#  Extension (and in particular that are based on subclasses of NodeModel,
+#  NodeDialog, and NodeView) and that only interoperate with KNIME through
+#  standard APIs ("Nodes"):
+#  Nodes are deemed to be separate and independent programs and to not be
+#  covered works.  Notwithstanding anything to the contrary in the
+#  License, the License does not apply to Nodes, you are not required to
+#  license Nodes under the License, and you are granted a license to
+#  prepare and propagate Nodes, in each case even if such Nodes are
+#  propagated with or for interoperation with KNIME.  The owner of a Node
+#  may freely choose the license terms applicable to such Node, including
+#  when such Node is propagated with or for interoperation with KNIME.
+# ------------------------------------------------------------------------
+
+
+'''
+Tests the installations of several deep learning network types in a single Python process and computes a fingerprint of
+the Python environment that changes whenever the installation of one of the tested libraries changes.
+
+Usage: DLPythonInstallationTestRunner.py (fingerprint|test) <network type module>=<network type identifier>...
+'''
+
+import hashlib
+import importlib
+import importlib.util
+import os
+import sys
+
+import DLPythonNetworkType
+
+# markers are expected on Java side - do not change
+FINGERPRINT_MARKER = '[DL Python environment fingerprint]'
+RESULT_MARKER = '[DL Python installation test result]'
+
+
+def _load_network_types(args):
+    network_types = []
+    for arg in args:
+        module_name, identifier = arg.split('=', 1)
+        # network type modules must not import third-party libraries, so this is cheap
+        importlib.import_module(module_name)
+        network_types.append(DLPythonNetworkType.get_network_type(identifier))
+    return network_types
+
+
+def _stamp(path):
+    try:
+        return path + '@' + str(os.stat(path).st_mtime_ns)
+    except (OSError, TypeError):
+        return str(path)
+
+
+def _get_version(lib):
+    try:
+        from importlib import metadata
+        return metadata.version(lib)
+    except Exception:
+        return ''
+
+
+def _describe_library(lib):
+    # find_spec locates top-level modules without importing them
+    try:
+        spec = importlib.util.find_spec(lib)
+    except Exception:
+        spec = None
+    if spec is None:
+        return lib + ':missing'
+    locations = list(spec.submodule_search_locations or []) or [spec.origin]
+    return lib + ':' + _get_version(lib) + ':' + ';'.join(_stamp(location) for location in locations)
+
+
+def fingerprint(network_types):
+    parts = [sys.executable, sys.prefix, sys.version]
+    # installing or removing a distribution touches the site-packages directory it lives in
+    parts.extend(_stamp(path) for path in sys.path if path and os.path.isdir(path))
+    libs = sorted(set(lib for network_type in network_types for lib in network_type.installation_test_libraries))
+    parts.extend(_describe_library(lib) for lib in libs)
+    return hashlib.sha1('\n'.join(parts).encode('utf-8')).hexdigest()
+
+
+def main(args):
+    mode = args[0]
+    network_types = _load_network_types(args[1:])
+    print(FINGERPRINT_MARKER + fingerprint(network_types), flush=True)
+    if mode == 'test':
+        for network_type in network_types:
+            try:
+                result = network_type.test_installation()
+            except Exception as e:
+                result = '[DL Python installation test: FAIL]' + str(e)
+            print(RESULT_MARKER + network_type.identifier, flush=True)
+            print(result, flush=True)
+
+
+main(sys.argv[1:])
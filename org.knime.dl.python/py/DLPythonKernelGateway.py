@@ -64,11 +64,52 @@ def global_workspace():
     return _instance.global_workspace
 
 
+def mark_workspace_clean():
+    _instance.mark_workspace_clean()
+
+
+def reset_workspace(retained_network_ids=None):
+    _instance.reset_workspace(retained_network_ids)
+
+
 class DLPythonKernelGateway(object):
     def __init__(self, workspace):
         assert workspace is not None
         self._workspace = workspace
+        self._clean_workspace_keys = None
 
     @property
     def global_workspace(self):
         return self._workspace
+
+    def mark_workspace_clean(self):
+        """
+        Remembers the current state of the workspace. Everything that is added to the workspace afterwards is removed
+        by reset_workspace.
+        """
+        self._clean_workspace_keys = set(self._workspace.keys())
+
+    def reset_workspace(self, retained_network_ids=None):
+        """
+        Removes all networks - except for the ones whose identifiers are contained in retained_network_ids - and all
+        workspace entries that were added after the last call of mark_workspace_clean. If no networks are retained, the
+        sessions of the network types' back ends are cleared as well, which releases e.g. the graphs of all models that
+        were built during the last lease.
+        """
+        import gc
+        import DLPythonNetwork
+        import DLPythonNetworkType
+        import DLPythonSharedMemoryTransport
+        DLPythonSharedMemoryTransport.release_segments()
+        if retained_network_ids:
+            for network_id in DLPythonNetwork.get_network_ids():
+                if network_id not in retained_network_ids:
+                    DLPythonNetwork.remove_network(network_id)
+        else:
+            DLPythonNetwork.remove_all_networks()
+            for network_type in DLPythonNetworkType.get_all_network_types():
+                network_type.clear_session()
+        if self._clean_workspace_keys is not None:
+            for key in [k for k in self._workspace.keys() if k not in self._clean_workspace_keys]:
+                del self._workspace[key]
+        gc.collect()
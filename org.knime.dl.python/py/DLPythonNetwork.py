@@ -77,6 +77,12 @@ def remove_network(identifier):
     else:
         return False
 
+def get_network_ids():
+    return list(_networks.keys())
+
+def remove_all_networks():
+    _networks.clear()
+
 def _get_next_network_id():
     global _network_id_suffix
     identifier = 'network_' + str(_network_id_suffix)
@@ -0,0 +1,106 @@
+# -*- coding: utf-8 -*-
+
+# ------------------------------------------------------------------------
+#  Copyright by KNIME AG, Zurich, Switzerland
+#  Website: http://www.knime.com; Email: contact@knime.com
+#
+#  This program is free software; you can redistribute it and/or modify
+#  it under the terms of the GNU General Public License, Version 3, as
+#  published by the Free Software Foundation.
+#
+#  This program is distributed in the hope that it will be useful, but
+#  WITHOUT ANY WARRANTY; without even the implied warranty of
+#  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+#  GNU General Public License for more details.
+#
+#  You should have received a copy of the GNU General Public License
+#  along with this program; if not, see <http://www.gnu.org/licenses>.
+#
+#  Additional permission under GNU GPL version 3 section 7:
+#
+#  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+#  Hence, KNIME and ECLIPSE are both independent programs and are not
+#  derived from each other. Should, however, the interpretation of the
+#  GNU GPL Version 3 ("License") under any applicable laws result in
+#  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+#  you the additional permission to use and propagate KNIME together with
+#  ECLIPSE with only the license terms in place for ECLIPSE applying to
+#  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+#  license terms of ECLIPSE themselves allow for the respective use and
+#  propagation of ECLIPSE together with KNIME.
+#
+#  Additional permission relating to nodes for KNIME that extend the Node
+#  Extension (and in particular that are based on subclasses of NodeModel,
+#  NodeDialog, and NodeView) and that only interoperate with KNIME through
+#  standard APIs ("Nodes"):
+#  Nodes are deemed to be separate and independent programs and to not be
+#  covered works.  Notwithstanding anything to the contrary in the
+#  License, the License does not apply to Nodes, you are not required to
+#  license Nodes under the License, and you are granted a license to
+#  prepare and propagate Nodes, in each case even if such Nodes are
+#  propagated with or for interoperation with KNIME.  The owner of a Node
+#  may freely choose the license terms applicable to such Node, including
+#  when such Node is propagated with or for interoperation with KNIME.
+# ------------------------------------------------------------------------
+
+
+'''
+Executes a network on a sequence of batches within a single task (see
+DLPythonAbstractCommands#executeNetworkBatches). Each batch takes exactly one message exchange with Java: the request
+carries the outputs of the previous batch, the response carries the inputs of the next batch. Both are Arrow streams
+(see DLPythonArrowTransport.py). An empty response ends the task.
+'''
+
+import numpy as np
+
+import DLPythonArrowTransport
+import DLPythonKernelGateway
+from DLPythonSynchronousExecutor import SynchronousExecutor
+from messaging.AbstractTaskHandler import AbstractTaskHandler
+from messaging.Message import Message
+from messaging.Task import Task
+
+
+class DLPythonNetworkExecutionTask(Task):
+    def __init__(self, reply_to, network, output_identifiers, encoding=None):
+        self._kernel = DLPythonKernelGateway.global_workspace()['workspace']
+        self._commands = self._kernel._commands
+        self._messaging = self._commands._messaging
+        super(DLPythonNetworkExecutionTask, self).__init__(None, None, self._messaging, self._messaging,
+                                                           self._messaging.create_receive_queue(),
+                                                           self._messaging.create_next_message_id,
+                                                           self._kernel, SynchronousExecutor())
+        self._reply_to = str(reply_to)
+        self._network = network
+        self._output_identifiers = output_identifiers
+        self._encoding = encoding
+
+    def request_from_java(self, message_category, payload=None):
+        message = Message(self._message_id_supplier(), self._reply_to, payload,
+                          {AbstractTaskHandler.FIELD_KEY_MESSAGE_TYPE: message_category})
+        return self._commands.create_task(DLPythonNetworkExecutionTask._RequestTaskHandler(), message).get()
+
+    def _run_internal(self):
+        num_batches = 0
+        outputs = None
+        while True:
+            inputs = self.request_from_java('request_batch', outputs)
+            if not inputs:
+                break
+            in_data = {}
+            DLPythonArrowTransport.read_input_stream(in_data, inputs)
+            out_data = self._network.execute(in_data, self._get_batch_size(in_data), self._output_identifiers)
+            outputs = DLPythonArrowTransport.write_output_stream(out_data, self._encoding)
+            num_batches += 1
+        self._set_result(num_batches)
+
+    @staticmethod
+    def _get_batch_size(in_data):
+        # Same as on Java side: the last batch might be incomplete.
+        data = next(iter(in_data.values()))
+        example_size = int(np.prod(data.iloc[0, 1]))
+        return data.iloc[0, 0].array.size // example_size if example_size > 0 else 0
+
+    class _RequestTaskHandler(AbstractTaskHandler):
+        def _handle_success_message(self, message):
+            return message.payload
@@ -66,6 +66,10 @@ def add_network_type(network_type):
     _network_types[network_type.identifier] = network_type
 
 
+def get_all_network_types():
+    return list(_network_types.values())
+
+
 def remove_network_type(identifier):
     if identifier in _network_types:
         del _network_types[identifier]
@@ -92,6 +96,14 @@ class DLPythonNetworkType(object):
     def reader(self):
         raise NotImplementedError()
 
+    @property
+    def installation_test_libraries(self):
+        """
+        The names of the third-party libraries whose installation state determines the outcome of the installation test.
+        The installation test results are only re-evaluated if one of these libraries changes.
+        """
+        return []
+
     def test_installation(self):
         tester = DLPythonInstallationTester()
         self._test_installation(tester)
@@ -104,6 +116,23 @@ class DLPythonNetworkType(object):
             results = "[DL Python installation test: OK]"
         return results
 
+    def set_num_threads(self, num_threads):
+        """
+        Limits the number of threads that are used to execute networks of this type. Network types that do not support
+        this setting ignore it.
+        :param num_threads: the maximum number of threads, 0 to use the library's default
+        :return: True if the setting was changed and networks that were loaded before became invalid, False otherwise
+        """
+        return False
+
+    def clear_session(self):
+        """
+        Releases all state that the back end of this network type keeps for models that were created so far, e.g. the
+        graphs of the models. Networks of this type that are still loaded become invalid. Network types whose back end
+        does not keep such state ignore this call.
+        """
+        pass
+
     @abc.abstractmethod
     def supports_model(self, model):
         raise NotImplementedError()
@@ -0,0 +1,101 @@
+# -*- coding: utf-8 -*-
+
+# ------------------------------------------------------------------------
+#  Copyright by KNIME AG, Zurich, Switzerland
+#  Website: http://www.knime.com; Email: contact@knime.com
+#
+#  This program is free software; you can redistribute it and/or modify
+#  it under the terms of the GNU General Public License, Version 3, as
+#  published by the Free Software Foundation.
+#
+#  This program is distributed in the hope that it will be useful, but
+#  WITHOUT ANY WARRANTY; without even the implied warranty of
+#  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+#  GNU General Public License for more details.
+#
+#  You should have received a copy of the GNU General Public License
+#  along with this program; if not, see <http://www.gnu.org/licenses>.
+#
+#  Additional permission under GNU GPL version 3 section 7:
+#
+#  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+#  Hence, KNIME and ECLIPSE are both independent programs and are not
+#  derived from each other. Should, however, the interpretation of the
+#  GNU GPL Version 3 ("License") under any applicable laws result in
+#  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+#  you the additional permission to use and propagate KNIME together with
+#  ECLIPSE with only the license terms in place for ECLIPSE applying to
+#  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+#  license terms of ECLIPSE themselves allow for the respective use and
+#  propagation of ECLIPSE together with KNIME.
+#
+#  Additional permission relating to nodes for KNIME that extend the Node
+#  Extension (and in particular that are based on subclasses of NodeModel,
+#  NodeDialog, and NodeView) and that only interoperate with KNIME through
+#  standard APIs ("Nodes"):
+#  Nodes are deemed to be separate and independent programs and to not be
+#  covered works.  Notwithstanding anything to the contrary in the
+#  License, the License does not apply to Nodes, you are not required to
+#  license Nodes under the License, and you are granted a license to
+#  prepare and propagate Nodes, in each case even if such Nodes are
+#  propagated with or for interoperation with KNIME.  The owner of a Node
+#  may freely choose the license terms applicable to such Node, including
+#  when such Node is propagated with or for interoperation with KNIME.
+# ------------------------------------------------------------------------
+
+
+'''
+Python side of the shared memory tensor transport (see DLPythonSharedMemoryTransport.java). Tensors are exchanged via
+files that are memory-mapped by both Java and Python. Mappings are kept across batches and only replaced if Java assigns
+a new file to a tensor.
+'''
+
+import os
+import sys
+
+import numpy as np
+import pandas as pd
+
+sys.path.insert(0, os.path.dirname(os.path.abspath(__file__)))
+import DLPythonDataBuffers
+
+_segments = {}
+
+
+def read_input(identifier, path, dtype, buffer_type, num_elements, shape):
+    """
+    Wraps the given number of elements at the beginning of the shared file in a NumPy array without copying them.
+    Returns the same data frame layout as the socket based transport.
+    """
+    segment = _map_segment(('in', identifier), path, 'r')
+    array = np.frombuffer(segment, dtype=dtype, count=num_elements)
+    buffer = getattr(DLPythonDataBuffers, buffer_type)(array)
+    return pd.DataFrame([[buffer, shape]], columns=[identifier, 'shape'])
+
+
+def write_output(identifier, data, path, dtype):
+    """
+    Writes the buffer contained in the given output data frame into the shared file. Returns the number of written
+    elements.
+    """
+    array = np.ascontiguousarray(data.iloc[0][0].array, dtype=dtype).reshape(-1)
+    segment = _map_segment(('out', identifier), path, 'r+')
+    if array.nbytes > segment.size:
+        raise ValueError("Output '" + identifier + "' does not fit into its shared memory segment.")
+    segment[:array.nbytes] = array.view(np.uint8)
+    return array.size
+
+
+def release_segments():
+    """
+    Releases all mappings.
+    """
+    _segments.clear()
+
+
+def _map_segment(key, path, mode):
+    mapped = _segments.get(key)
+    if mapped is None or mapped[0] != path:
+        mapped = (path, np.memmap(path, dtype=np.uint8, mode=mode))
+        _segments[key] = mapped
+    return mapped[1]
@@ -47,6 +47,9 @@
  */
 package org.knime.dl.python.base.node.executor;
 
+import org.knime.core.node.InvalidSettingsException;
+import org.knime.core.node.NodeSettingsRO;
+import org.knime.core.node.NodeSettingsWO;
 import org.knime.python2.config.PythonSourceCodeConfig;
 import org.knime.python2.generic.VariableNames;
 
@@ -69,6 +72,67 @@ final class DLPythonExecutorNodeConfig extends PythonSourceCodeConfig {
 			null // general output objects
 	);
 
+	/**
+	 * Name of the function that processes a single chunk of the input table in chunked execution mode.
+	 */
+	static final String CHUNK_FUNCTION_NAME = "process_chunk";
+
+	static final int DEFAULT_ROWS_PER_EXECUTION_CHUNK = 10000;
+
+	private static final String CFG_KEY_CHUNKED_EXECUTION = "chunked_execution";
+
+	private static final String CFG_KEY_ROWS_PER_EXECUTION_CHUNK = "rows_per_execution_chunk";
+
+	private boolean m_chunkedExecution = false;
+
+	private int m_rowsPerExecutionChunk = DEFAULT_ROWS_PER_EXECUTION_CHUNK;
+
+	/**
+	 * @return <code>true</code> if the input table is streamed through the function {@link #CHUNK_FUNCTION_NAME}
+	 *         chunk by chunk instead of being transferred to Python as a whole
+	 */
+	boolean isChunkedExecution() {
+		return m_chunkedExecution;
+	}
+
+	void setChunkedExecution(final boolean chunkedExecution) {
+		m_chunkedExecution = chunkedExecution;
+	}
+
+	int getRowsPerExecutionChunk() {
+		return m_rowsPerExecutionChunk;
+	}
+
+	void setRowsPerExecutionChunk(final int rowsPerExecutionChunk) {
+		m_rowsPerExecutionChunk = rowsPerExecutionChunk;
+	}
+
+	@Override
+	public void saveTo(final NodeSettingsWO settings) {
+		super.saveTo(settings);
+		settings.addBoolean(CFG_KEY_CHUNKED_EXECUTION, m_chunkedExecution);
+		settings.addInt(CFG_KEY_ROWS_PER_EXECUTION_CHUNK, m_rowsPerExecutionChunk);
+	}
+
+	@Override
+	public void loadFrom(final NodeSettingsRO settings) throws InvalidSettingsException {
+		super.loadFrom(settings);
+		// backward compatibility (3.7): settings did not contain the execution mode
+		m_chunkedExecution = settings.getBoolean(CFG_KEY_CHUNKED_EXECUTION, false);
+		m_rowsPerExecutionChunk = settings.getInt(CFG_KEY_ROWS_PER_EXECUTION_CHUNK, DEFAULT_ROWS_PER_EXECUTION_CHUNK);
+		if (m_rowsPerExecutionChunk < 1) {
+			throw new InvalidSettingsException("The number of rows per execution chunk must be at least 1.");
+		}
+	}
+
+	@Override
+	public void loadFromInDialog(final NodeSettingsRO settings) {
+		super.loadFromInDialog(settings);
+		m_chunkedExecution = settings.getBoolean(CFG_KEY_CHUNKED_EXECUTION, false);
+		m_rowsPerExecutionChunk = Math.max(1,
+				settings.getInt(CFG_KEY_ROWS_PER_EXECUTION_CHUNK, DEFAULT_ROWS_PER_EXECUTION_CHUNK));
+	}
+
 	@Override
 	protected String getDefaultSourceCode() {
 		final VariableNames vars = getVariableNames();
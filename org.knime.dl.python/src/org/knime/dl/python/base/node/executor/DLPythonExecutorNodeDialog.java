@@ -47,8 +47,17 @@
  */
 package org.knime.dl.python.base.node.executor;
 
+import java.awt.GridBagConstraints;
+import java.awt.GridBagLayout;
+import java.awt.Insets;
 import java.io.IOException;
 
+import javax.swing.JCheckBox;
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+import javax.swing.JSpinner;
+import javax.swing.SpinnerNumberModel;
+
 import org.knime.core.node.BufferedDataTable;
 import org.knime.core.node.DataAwareNodeDialogPane;
 import org.knime.core.node.InvalidSettingsException;
@@ -83,6 +92,11 @@ final class DLPythonExecutorNodeDialog extends DataAwareNodeDialogPane {
 
     private final PythonSourceCodeOptionsPanel m_sourceCodeOptionsPanel;
 
+    private final JCheckBox m_chunkedExecution = new JCheckBox("Process input table in chunks");
+
+    private final JSpinner m_rowsPerExecutionChunk = new JSpinner(
+        new SpinnerNumberModel(DLPythonExecutorNodeConfig.DEFAULT_ROWS_PER_EXECUTION_CHUNK, 1, Integer.MAX_VALUE, 100));
+
     private WorkspacePreparer m_workspacePreparer;
 
     DLPythonExecutorNodeDialog() {
@@ -91,6 +105,34 @@ final class DLPythonExecutorNodeDialog extends DataAwareNodeDialogPane {
         m_sourceCodeOptionsPanel = new PythonSourceCodeOptionsPanel(m_sourceCodePanel, EnforcePythonVersion.PYTHON3);
         addTab("Script", m_sourceCodePanel, false);
         addTab("Options", m_sourceCodeOptionsPanel, true);
+        addTab("Execution", createExecutionPanel(), true);
+    }
+
+    private JPanel createExecutionPanel() {
+        final JPanel panel = new JPanel(new GridBagLayout());
+        final GridBagConstraints gbc = new GridBagConstraints();
+        gbc.insets = new Insets(5, 5, 5, 5);
+        gbc.anchor = GridBagConstraints.NORTHWEST;
+        gbc.gridx = 0;
+        gbc.gridy = 0;
+        gbc.gridwidth = 2;
+        panel.add(m_chunkedExecution, gbc);
+        gbc.gridy++;
+        gbc.gridwidth = 1;
+        panel.add(new JLabel("Rows per execution chunk"), gbc);
+        gbc.gridx++;
+        panel.add(m_rowsPerExecutionChunk, gbc);
+        gbc.gridx = 0;
+        gbc.gridy++;
+        gbc.gridwidth = 2;
+        gbc.weightx = 1;
+        gbc.weighty = 1;
+        panel.add(new JLabel("<html>In chunked mode, the script must define a function <code>"
+            + DLPythonExecutorNodeConfig.CHUNK_FUNCTION_NAME
+            + "(input_table)</code> that is called once per chunk<br>and returns the corresponding output table.</html>"),
+            gbc);
+        m_chunkedExecution.addChangeListener(e -> m_rowsPerExecutionChunk.setEnabled(m_chunkedExecution.isSelected()));
+        return panel;
     }
 
     @Override
@@ -98,6 +140,8 @@ protected void saveSettingsTo(final NodeSettingsWO settings) throws InvalidSetti
         final DLPythonExecutorNodeConfig config = new DLPythonExecutorNodeConfig();
         m_sourceCodePanel.saveSettingsTo(config);
         m_sourceCodeOptionsPanel.saveSettingsTo(config);
+        config.setChunkedExecution(m_chunkedExecution.isSelected());
+        config.setRowsPerExecutionChunk((Integer)m_rowsPerExecutionChunk.getValue());
         config.saveTo(settings);
     }
 
@@ -110,6 +154,9 @@ protected void loadSettingsFrom(final NodeSettingsRO settings, final PortObjectS
         m_sourceCodePanel.updateFlowVariables(
             getAvailableFlowVariables().values().toArray(new FlowVariable[getAvailableFlowVariables().size()]));
         m_sourceCodeOptionsPanel.loadSettingsFrom(config);
+        m_chunkedExecution.setSelected(config.isChunkedExecution());
+        m_rowsPerExecutionChunk.setValue(config.getRowsPerExecutionChunk());
+        m_rowsPerExecutionChunk.setEnabled(config.isChunkedExecution());
         m_sourceCodePanel.updateData(new BufferedDataTable[]{null}, new PickledObject[]{null});
     }
 
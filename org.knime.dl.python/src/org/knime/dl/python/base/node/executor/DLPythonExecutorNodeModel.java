@@ -53,7 +53,9 @@
 import java.util.LinkedList;
 
 import org.knime.core.data.DataColumnSpec;
+import org.knime.core.data.DataRow;
 import org.knime.core.data.DataTableSpec;
+import org.knime.core.data.container.CloseableRowIterator;
 import org.knime.core.node.BufferedDataContainer;
 import org.knime.core.node.BufferedDataTable;
 import org.knime.core.node.ExecutionContext;
@@ -76,6 +78,8 @@
 import org.knime.dl.python.core.DLPythonNetworkLoader;
 import org.knime.dl.python.core.DLPythonNetworkLoaderRegistry;
 import org.knime.dl.python.core.DLPythonNetworkPortObject;
+import org.knime.dl.util.DLThrowingLambdas.DLThrowingConsumer;
+import org.knime.python2.generic.VariableNames;
 import org.knime.python2.kernel.PythonKernel;
 
 /**
@@ -128,6 +132,24 @@ protected PortObject[] execute(final PortObject[] inData, final ExecutionContext
 			setWarningMessage("Input table is empty. Node created an empty output table.");
 			return new PortObject[] { emptyContainer.getTable() };
 		}
+		if (getConfig().isChunkedExecution()) {
+			final BufferedDataContainer[] container = new BufferedDataContainer[1];
+			executeChunked(inData[IN_NETWORK_PORT_IDX], inTable, chunk -> {
+				if (container[0] == null) {
+					// the first chunk defines the spec of the output table
+					container[0] = exec.createDataContainer(chunk.getDataTableSpec());
+				} else if (!chunk.getDataTableSpec().equalStructure(container[0].getTableSpec())) {
+					throw new IllegalStateException(
+							"The output tables of all chunks must have the same columns. Chunk output spec "
+									+ chunk.getDataTableSpec() + " differs from " + container[0].getTableSpec() + ".");
+				}
+				for (final DataRow row : chunk) {
+					container[0].addRowToTable(row);
+				}
+			}, exec);
+			container[0].close();
+			return new BufferedDataTable[] { container[0].getTable() };
+		}
 		BufferedDataTable outTable = null;
 		final DLPythonDefaultContext context = new DLPythonDefaultContext(new PythonKernel(getKernelOptions()));
 		final DLCancelable cancelable = new DLExecutionMonitorCancelable(exec);
@@ -140,9 +162,9 @@ protected PortObject[] execute(final PortObject[] inData, final ExecutionContext
 			exec.createSubProgress(0.1).setProgress(1);
 			context.getKernel().putDataTable(DLPythonExecutorNodeConfig.getVariableNames().getInputTables()[0], inTable,
 					exec.createSubProgress(0.2));
-			final String[] output = context.executeInKernel(getConfig().getSourceCode(), cancelable);
-			setExternalOutput(new LinkedList<>(Arrays.asList(output[0].split("\n"))));
-			setExternalErrorOutput(new LinkedList<>(Arrays.asList(output[1].split("\n"))));
+			final ScriptOutput output = new ScriptOutput();
+			output.append(context.executeInKernel(getConfig().getSourceCode(), cancelable));
+			output.publish();
 			exec.createSubProgress(0.4).setProgress(1);
 			final Collection<FlowVariable> variables = context.getKernel()
 					.getFlowVariables(DLPythonExecutorNodeConfig.getVariableNames().getFlowVariables());
@@ -156,6 +178,96 @@ protected PortObject[] execute(final PortObject[] inData, final ExecutionContext
 		return new BufferedDataTable[] { outTable };
 	}
 
+	/**
+	 * Runs the user script once, then passes the input rows to the script's
+	 * {@link DLPythonExecutorNodeConfig#CHUNK_FUNCTION_NAME chunk function} in chunks of fixed size. Only a single chunk
+	 * of input and output rows is held in Python at any time.
+	 *
+	 * @param networkPortObject the input network
+	 * @param inTable the input table
+	 * @param outputConsumer receives the output chunks in the order of the input chunks, the chunk tables are cleared
+	 *            afterwards
+	 * @param exec the execution context
+	 */
+	private void executeChunked(final PortObject networkPortObject, final BufferedDataTable inTable,
+			final DLThrowingConsumer<BufferedDataTable, Exception> outputConsumer, final ExecutionContext exec)
+			throws Exception {
+		final VariableNames vars = DLPythonExecutorNodeConfig.getVariableNames();
+		final String inputTableName = vars.getInputTables()[0];
+		final String outputTableName = vars.getOutputTables()[0];
+		final String chunkFunctionName = DLPythonExecutorNodeConfig.CHUNK_FUNCTION_NAME;
+		final int rowsPerChunk = getConfig().getRowsPerExecutionChunk();
+		final DataTableSpec inSpec = inTable.getDataTableSpec();
+		final long numRows = inTable.size();
+		final ScriptOutput output = new ScriptOutput();
+		final DLPythonDefaultContext context = new DLPythonDefaultContext(new PythonKernel(getKernelOptions()));
+		final DLCancelable cancelable = new DLExecutionMonitorCancelable(exec);
+		try (final CloseableRowIterator rows = inTable.iterator()) {
+			context.getKernel().putFlowVariables(vars.getFlowVariables(), getAvailableFlowVariables().values());
+			setupNetwork(((DLPythonNetworkPortObject<?>) networkPortObject).getNetwork(), context, cancelable);
+			// defines the chunk function
+			output.append(context.executeInKernel(getConfig().getSourceCode(), cancelable));
+			context.executeInKernel("if not callable(globals().get('" + chunkFunctionName + "')):\n" //
+					+ "    raise ValueError(\"Chunked execution requires the script to define a function '"
+					+ chunkFunctionName + "(" + inputTableName + ")' that returns the output table of a chunk.\")",
+					cancelable);
+			final String processChunkCode = "global " + outputTableName + "\n" //
+					+ outputTableName + " = " + chunkFunctionName + "(" + inputTableName + ")";
+			long numProcessedRows = 0;
+			while (rows.hasNext()) {
+				exec.checkCanceled();
+				final BufferedDataContainer chunkContainer = exec.createDataContainer(inSpec);
+				while (rows.hasNext() && chunkContainer.size() < rowsPerChunk) {
+					chunkContainer.addRowToTable(rows.next());
+				}
+				chunkContainer.close();
+				final BufferedDataTable inChunk = chunkContainer.getTable();
+				final long inChunkSize = inChunk.size();
+				context.getKernel().putDataTable(inputTableName, inChunk, exec.createSubProgress(0));
+				exec.clearTable(inChunk);
+				output.append(context.executeInKernel(processChunkCode, cancelable));
+				final BufferedDataTable outChunk = context.getKernel().getDataTable(outputTableName, exec,
+						exec.createSubProgress(0));
+				outputConsumer.accept(outChunk);
+				exec.clearTable(outChunk);
+				numProcessedRows += inChunkSize;
+				exec.setProgress(numProcessedRows / (double) numRows,
+						"Processed " + numProcessedRows + " of " + numRows + " rows.");
+			}
+			output.publish();
+			addNewVariables(context.getKernel().getFlowVariables(vars.getFlowVariables()));
+		} finally {
+			context.close();
+		}
+	}
+
+	/**
+	 * Collects the standard and error output of one or more script executions in the kernel.
+	 */
+	private final class ScriptOutput {
+
+		private final LinkedList<String> m_stdout = new LinkedList<>();
+
+		private final LinkedList<String> m_stderr = new LinkedList<>();
+
+		private void append(final String[] output) {
+			if (!output[0].isEmpty()) {
+				m_stdout.addAll(Arrays.asList(output[0].split("\n")));
+			}
+			if (!output[1].isEmpty()) {
+				m_stderr.addAll(Arrays.asList(output[1].split("\n")));
+			}
+		}
+
+		/**
+		 * Makes the collected output available as external output of the node.
+		 */
+		private void publish() {
+			setExternalOutput(m_stdout);
+			setExternalErrorOutput(m_stderr);
+		}
+	}
+
 	@Override
 	protected PortObjectSpec[] configure(final PortObjectSpec[] inSpecs) throws InvalidSettingsException {
 		final DataTableSpec inTableSpec = (DataTableSpec) inSpecs[IN_DATA_PORT_IDX];
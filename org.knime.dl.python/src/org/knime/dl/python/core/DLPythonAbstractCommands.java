@@ -48,14 +48,19 @@
  */
 package org.knime.dl.python.core;
 
+import static com.google.common.base.Preconditions.checkNotNull;
+
 import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.OptionalDouble;
 import java.util.Set;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.RunnableFuture;
@@ -70,11 +75,14 @@
 import org.knime.dl.core.DLCanceledExecutionException;
 import org.knime.dl.core.DLInvalidEnvironmentException;
 import org.knime.dl.core.DLNetworkInputProvider;
+import org.knime.dl.core.DLSessionMetrics;
+import org.knime.dl.core.DLSessionMetrics.Phase;
 import org.knime.dl.core.DLTensor;
 import org.knime.dl.core.DLTensorId;
 import org.knime.dl.core.DLTensorSpec;
 import org.knime.dl.core.data.DLReadableBuffer;
 import org.knime.dl.core.data.DLWritableBuffer;
+import org.knime.dl.core.execution.DLTransportPrecision;
 import org.knime.dl.core.training.DLReportedMetric;
 import org.knime.dl.core.training.DLTrainingMonitor;
 import org.knime.dl.python.core.data.DLPythonDataBuffer;
@@ -85,6 +93,8 @@
 import org.knime.dl.python.util.DLPythonSourceCodeBuilder;
 import org.knime.dl.python.util.DLPythonUtils;
 import org.knime.dl.util.DLThrowingLambdas.DLThrowingBiFunction;
+import org.knime.dl.util.DLThrowingLambdas.DLThrowingConsumer;
+import org.knime.dl.util.DLThrowingLambdas.DLThrowingSupplier;
 import org.knime.dl.util.DLUtils;
 import org.knime.python.typeextension.Deserializer;
 import org.knime.python.typeextension.DeserializerFactory;
@@ -110,6 +120,7 @@
 import org.knime.python2.kernel.messaging.DefaultMessage.PayloadDecoder;
 import org.knime.python2.kernel.messaging.Message;
 
+import com.google.common.base.Throwables;
 import com.google.common.collect.Sets;
 import com.google.common.primitives.UnsignedBytes;
 
@@ -164,11 +175,49 @@ public abstract class DLPythonAbstractCommands implements DLPythonCommands {
 
 	private final Map<DLTensorId, DLPythonTableChunker> m_tableChunkers = new HashMap<>();
 
+	/**
+	 * Only created if enabled, see {@link DLPythonSharedMemoryTransport#isEnabled()}.
+	 */
+	private final DLPythonSharedMemoryTransport m_sharedMemoryTransport =
+		DLPythonSharedMemoryTransport.isEnabled() ? new DLPythonSharedMemoryTransport() : null;
+
+	/**
+	 * Only created if enabled and the shared memory transport is not, see {@link DLPythonArrowTransport#isEnabled()}.
+	 */
+	private final DLPythonArrowTransport m_arrowTransport =
+		m_sharedMemoryTransport == null && DLPythonArrowTransport.isEnabled() ? new DLPythonArrowTransport() : null;
+
+	/**
+	 * Whether the kernel supports the Arrow transport, <code>null</code> until negotiated, see
+	 * {@link #isArrowTransportSupported(DLCancelable)}.
+	 */
+	private Boolean m_arrowTransportSupported = null;
+
+	/**
+	 * Set to <code>true</code> if inputs were sent via the Arrow transport but not yet read on Python side. They are
+	 * read as part of the next {@link #executeNetwork(DLPythonNetworkHandle, Set, long, DLCancelable)} or, if the
+	 * context is used otherwise before, in {@link #getContext(DLCancelable)}.
+	 */
+	private boolean m_arrowInputsPending = false;
+
+	/**
+	 * Set to <code>true</code> if the last network execution wrote its outputs into the Arrow stream.
+	 */
+	private boolean m_arrowOutputsWritten = false;
+
+	/**
+	 * Set to <code>true</code> if all inputs and outputs of the last batch were transferred via the Arrow transport,
+	 * which is required by {@link #executeNetworkBatches}.
+	 */
+	private boolean m_arrowOnly = false;
+
 	/**
 	 * Set to <code>true</code> if the setup steps in {@link #getContext()} were successful.
 	 */
 	private boolean m_contextSetup = false;
 
+	private DLSessionMetrics m_metrics = DLSessionMetrics.DISABLED;
+
 	/**
 	 * Creates a new instance of this commands class.
 	 */
@@ -200,6 +249,11 @@ protected abstract DLPythonNetworkTrainingTaskHandler createNetworkTrainingTaskH
 
 	@Override
 	public final synchronized DLPythonContext getContext(final DLCancelable cancelable) throws DLInvalidEnvironmentException, DLCanceledExecutionException {
+		if (!m_contextSetup && m_context instanceof DLPythonPooledContext
+				&& ((DLPythonPooledContext) m_context).isSetUp()) {
+			// Pooled kernels are handed out with the back end already being set up.
+			m_contextSetup = true;
+		}
 		if (!m_contextSetup) {
 			// setup Python process environment
 			try {
@@ -251,6 +305,18 @@ public final synchronized DLPythonContext getContext(final DLCancelable cancelab
 
 			m_contextSetup = true;
 		}
+		if (m_arrowInputsPending) {
+			// The caller is about to use the kernel directly, so it must see the inputs.
+			m_arrowInputsPending = false;
+			try {
+				m_context.executeInKernel(DLPythonArrowTransport.getReadInputsCode(), cancelable);
+			} catch (final IOException e) {
+				throw new DLInvalidEnvironmentException(
+						"An error occurred while communicating with Python (while reading the network inputs)."
+								+ (e.getMessage() != null ? "\nCause: " + e.getMessage() : ""),
+						e);
+			}
+		}
 		return m_context;
 	}
 
@@ -261,20 +327,7 @@ public synchronized void testInstallation(final DLCancelable cancelable) throws
 			final String[] output = m_context.isKernelOpen()
 					? m_context.executeInKernel(DLUtils.Files.readAllUTF8(script), cancelable)
 					: m_context.execute(cancelable, script);
-			if (!output[0].contains(INSTALLATION_TEST_OK_MSG)) {
-				final int idx = output[0].indexOf(INSTALLATION_TEST_FAIL_MSG);
-				final String cause = idx != -1 //
-						? "\nCause: " + output[0].substring(idx + INSTALLATION_TEST_FAIL_MSG.length())
-						: "";
-				final String further = !output[1].isEmpty() ? "\nFurther output: " + output[1] : "";
-				if (!cause.isEmpty()) {
-					throw new DLInvalidEnvironmentException(
-							"Deep learning Python back end installation tests failed." + cause + further);
-				} else {
-					throw new DLInvalidEnvironmentException(
-							"Deep learning Python back end installation tests failed for unknown reasons." + further);
-				}
-			}
+			checkInstallationTestOutput(output[0], output[1]);
 		} catch (final IOException e) {
 			throw new DLInvalidEnvironmentException("An error occurred while communicating with Python "
 					+ "(while testing the installation of the Python back end)."
@@ -282,6 +335,32 @@ public synchronized void testInstallation(final DLCancelable cancelable) throws
 		}
 	}
 
+	/**
+	 * Checks the output of an installation test script as printed by <code>DLPythonNetworkType.test_installation</code>
+	 * on Python side.
+	 *
+	 * @param stdout the standard output of the test
+	 * @param stderr the error output of the test
+	 * @throws DLInvalidEnvironmentException if the output does not report a successful test
+	 */
+	static void checkInstallationTestOutput(final String stdout, final String stderr)
+		throws DLInvalidEnvironmentException {
+		if (!stdout.contains(INSTALLATION_TEST_OK_MSG)) {
+			final int idx = stdout.indexOf(INSTALLATION_TEST_FAIL_MSG);
+			final String cause = idx != -1 //
+					? "\nCause: " + stdout.substring(idx + INSTALLATION_TEST_FAIL_MSG.length())
+					: "";
+			final String further = !stderr.isEmpty() ? "\nFurther output: " + stderr : "";
+			if (!cause.isEmpty()) {
+				throw new DLInvalidEnvironmentException(
+						"Deep learning Python back end installation tests failed." + cause + further);
+			} else {
+				throw new DLInvalidEnvironmentException(
+						"Deep learning Python back end installation tests failed for unknown reasons." + further);
+			}
+		}
+	}
+
     @Override
     public DLPythonNetworkHandle loadNetwork(final String path, final boolean loadTrainingConfig,
         final DLCancelable cancelable) throws DLInvalidEnvironmentException, IOException, DLCanceledExecutionException {
@@ -312,26 +391,66 @@ public void saveNetwork(final DLPythonNetworkHandle network, final String path,
 	public void setNetworkInputs(final DLPythonNetworkHandle network,
 			final Map<? extends DLTensorId, ? extends DLTensor<? extends DLWritableBuffer>> inputs, final DLCancelable cancelable)
 			throws DLInvalidEnvironmentException, IOException, DLCanceledExecutionException {
+		final long start = m_metrics.start();
+		final Map<DLTensorId, DLTensor<? extends DLWritableBuffer>> sharedMemoryInputs = new LinkedHashMap<>();
+		Map<DLTensorId, DLTensor<? extends DLWritableBuffer>> arrowInputs = new LinkedHashMap<>();
+		final boolean arrow = isArrowTransportSupported(cancelable);
 		for (final Entry<? extends DLTensorId, ? extends DLTensor<? extends DLWritableBuffer>> input : inputs
 				.entrySet()) {
-			final DLTensorId tensorIdentifier = input.getKey();
-			final DLTensor<? extends DLWritableBuffer> tensor = input.getValue();
-			final TableChunker tableChunker = createSingleTensorTableChunker(tensorIdentifier, tensor);
-			try {
-				getContext(cancelable).putDataInKernel(tensorIdentifier.getIdentifierString(), tableChunker, 1, cancelable);
-			} catch (final IOException ex) {
-				throw new RuntimeException("Transmitting input data to Python failed.", ex);
+			if (m_sharedMemoryTransport != null && DLPythonSharedMemoryTransport.isSupported(input.getValue())) {
+				sharedMemoryInputs.put(input.getKey(), input.getValue());
+				continue;
+			}
+			if (arrow && DLPythonArrowTransport.isSupported(input.getValue())) {
+				arrowInputs.put(input.getKey(), input.getValue());
+				continue;
 			}
+			putTensorInKernel(input.getKey(), input.getValue(), cancelable);
+		}
+		if (!arrowInputs.isEmpty() && !DLPythonArrowTransport.fits(arrowInputs)) {
+			for (final Entry<DLTensorId, DLTensor<? extends DLWritableBuffer>> input : arrowInputs.entrySet()) {
+				putTensorInKernel(input.getKey(), input.getValue(), cancelable);
+			}
+			arrowInputs = Collections.emptyMap();
+		}
+		if (!sharedMemoryInputs.isEmpty()) {
+			getContext(cancelable).executeInKernel(m_sharedMemoryTransport.writeInputs(sharedMemoryInputs),
+					cancelable);
+		}
+		m_arrowOnly = arrowInputs.size() == inputs.size();
+		if (!arrowInputs.isEmpty()) {
+			// Read on Python side as part of the network execution, which saves a round trip.
+			final byte[] stream = m_arrowTransport.writeInputs(arrowInputs);
+			m_metrics.addBytesSent(stream.length);
+			putSingleCellInKernel(DLPythonArrowTransport.INPUTS_NAME, new CellImpl(stream), Type.BYTES, cancelable);
+			m_arrowInputsPending = true;
+		}
+		m_metrics.stop(Phase.SERIALIZATION, start);
+	}
+
+	private void putTensorInKernel(final DLTensorId tensorIdentifier, final DLTensor<? extends DLWritableBuffer> tensor,
+			final DLCancelable cancelable)
+			throws DLInvalidEnvironmentException, IOException, DLCanceledExecutionException {
+		final TableChunker tableChunker = createSingleTensorTableChunker(tensorIdentifier, tensor);
+		try {
+			getContext(cancelable).putDataInKernel(tensorIdentifier.getIdentifierString(), tableChunker, 1, cancelable);
+		} catch (final IOException ex) {
+			throw new RuntimeException("Transmitting input data to Python failed.", ex);
 		}
 	}
 
 	@Override
 	public void executeNetwork(final DLPythonNetworkHandle network, final Set<? extends DLTensorId> requestedOutputs,
 			final long batchSize, final DLCancelable cancelable) throws DLInvalidEnvironmentException, IOException, DLCanceledExecutionException {
+		final long start = m_metrics.start();
         final String outputIdentifiers = requestedOutputs.stream().map((id) -> "'" + id.getIdentifierString() + "'")
             .collect(Collectors.joining(", ", "[", "]"));
-		final DLPythonSourceCodeBuilder b = DLPythonUtils.createSourceCodeBuilder() //
-				.a("import DLPythonNetwork") //
+		final DLPythonSourceCodeBuilder b = DLPythonUtils.createSourceCodeBuilder();
+		if (m_arrowInputsPending) {
+			b.a(DLPythonArrowTransport.getReadInputsCode()).n();
+			m_arrowInputsPending = false;
+		}
+		b.a("import DLPythonNetwork") //
 				.n("network = DLPythonNetwork.get_network(").as(network.getIdentifier()).a(")") //
 				.n("in_data = {}") //
 				.n("for input_spec in network.spec.input_specs:") //
@@ -344,7 +463,12 @@ public void executeNetwork(final DLPythonNetworkHandle network, final Set<? exte
 				.a("output_shapes[name] = [-1 if d is None else d for d in shape]") // replace None with -1
 				.n().t().a("globals()[name] = data").n("globals()[").as(OUTPUT_SHAPES_NAME)
 				.a("] = pd.DataFrame(output_shapes)");
+		m_arrowOutputsWritten = Boolean.TRUE.equals(m_arrowTransportSupported);
+		if (m_arrowOutputsWritten) {
+			b.n(DLPythonArrowTransport.getWriteOutputsCode("out_data", m_arrowTransport.getPrecision()));
+		}
         getContext(cancelable).executeInKernel(b.toString(), cancelable);
+		m_metrics.stop(Phase.EXECUTION, start);
 	}
 
 	@Override
@@ -398,8 +522,19 @@ public Object getTable() {
 	public void getNetworkOutputs(final DLPythonNetworkHandle network,
 			final Map<? extends DLTensorId, ? extends DLTensor<? extends DLReadableBuffer>> outputs, final DLCancelable cancelable)
 			throws DLInvalidEnvironmentException, IOException, DLCanceledExecutionException {
+		final long start = m_metrics.start();
+		final Map<DLTensorId, DLTensor<? extends DLReadableBuffer>> sharedMemoryOutputs = new LinkedHashMap<>();
+		final Set<DLTensorId> arrowOutputs = getArrowOutputs(outputs, cancelable);
+		m_arrowOnly &= arrowOutputs.containsAll(outputs.keySet());
 		for (final Entry<? extends DLTensorId, ? extends DLTensor<? extends DLReadableBuffer>> output : outputs
 				.entrySet()) {
+			if (m_sharedMemoryTransport != null && DLPythonSharedMemoryTransport.isSupported(output.getValue())) {
+				sharedMemoryOutputs.put(output.getKey(), output.getValue());
+				continue;
+			}
+			if (arrowOutputs.contains(output.getKey())) {
+				continue;
+			}
 			final DLTensorId tensorIdentifier = output.getKey();
 			final DLTensor<? extends DLReadableBuffer> tensor = output.getValue();
 
@@ -425,7 +560,9 @@ public void addRow(final Row row) {
 							}
 							final Cell cell = row.getCell(0);
 							try {
-								((DLPythonDeserializer) deserializer).deserialize(cell.getBytesValue(), tensor);
+								final byte[] bytes = cell.getBytesValue();
+								m_metrics.addBytesReceived(bytes.length);
+								((DLPythonDeserializer) deserializer).deserialize(bytes, tensor);
 							} catch (final IllegalStateException e) {
 								LOGGER.error("An exception occurred while collecting network output from Python: "
 										+ e.getMessage(), e);
@@ -443,6 +580,153 @@ public DLTensor<? extends DLReadableBuffer> getTable() {
 						}
 					}, cancelable);
 		}
+		if (!sharedMemoryOutputs.isEmpty()) {
+			getSharedMemoryOutputs(sharedMemoryOutputs, cancelable);
+		}
+		m_metrics.stop(Phase.DESERIALIZATION, start);
+	}
+
+	@Override
+	public boolean setTransportPrecision(final DLTransportPrecision precision) {
+		if (m_arrowTransport == null) {
+			return false;
+		}
+		m_arrowTransport.setPrecision(precision);
+		return true;
+	}
+
+	@Override
+	public OptionalDouble getMaxTransportError() {
+		return m_arrowTransport != null ? m_arrowTransport.getMaxError() : OptionalDouble.empty();
+	}
+
+	@Override
+	public void setMetrics(final DLSessionMetrics metrics) {
+		m_metrics = checkNotNull(metrics);
+	}
+
+	@Override
+	public boolean executeNetworkBatches(final DLPythonNetworkHandle network,
+			final Set<? extends DLTensorId> requestedOutputs,
+			final Map<? extends DLTensorId, ? extends DLTensor<? extends DLWritableBuffer>> inputs,
+			final Map<? extends DLTensorId, ? extends DLTensor<? extends DLReadableBuffer>> outputs,
+			final DLThrowingSupplier<Boolean, Exception> nextBatch,
+			final DLThrowingConsumer<Map<? extends DLTensorId, ? extends DLTensor<? extends DLReadableBuffer>>, Exception> outputsConsumer,
+			final DLCancelable cancelable)
+			throws DLInvalidEnvironmentException, IOException, DLCanceledExecutionException {
+		if (!m_arrowOnly || !Boolean.TRUE.equals(m_arrowTransportSupported)) {
+			return false;
+		}
+		final PythonKernel kernel = getContext(cancelable).getKernel();
+		final String outputIdentifiers = requestedOutputs.stream().map((id) -> "'" + id.getIdentifierString() + "'")
+				.collect(Collectors.joining(", ", "[", "]"));
+		// The per batch work is done by the task, so the code is only sent once.
+		final DLPythonSourceCodeBuilder b = DLPythonUtils.createSourceCodeBuilder() //
+				.a("import DLPythonNetwork") //
+				.n("from DLPythonNetworkExecutionTask import DLPythonNetworkExecutionTask") //
+				.n("reply_to = locals()['python_messaging_initiating_message_id']") //
+				.n("DLPythonNetworkExecutionTask(reply_to, DLPythonNetwork.get_network(").as(network.getIdentifier())
+				.a("), ").a(outputIdentifiers).a(", ")
+				.a(DLPythonArrowTransport.getEncodingCode(m_arrowTransport.getPrecision())).a(").get()");
+		try {
+			final RunnableFuture<Void> executionTask = kernel.createExecutionTask(
+					new DLPythonNetworkExecutionTaskHandler(m_arrowTransport, inputs, outputs, nextBatch,
+							outputsConsumer, m_metrics),
+					b.toString());
+			executionTask.run();
+			executionTask.get();
+		} catch (final ExecutionException ex) {
+			for (final Throwable cause : Throwables.getCausalChain(ex)) {
+				if (cause instanceof DLCanceledExecutionException) {
+					throw (DLCanceledExecutionException) cause;
+				}
+			}
+			throw new IOException(ex);
+		} catch (final InterruptedException ex) {
+			throw new IOException(ex);
+		}
+		return true;
+	}
+
+	/**
+	 * Reads all outputs the last network execution wrote into the Arrow stream in a single round trip.
+	 *
+	 * @return the identifiers of the outputs that were read, all other outputs need to be fetched one by one
+	 */
+	private Set<DLTensorId> getArrowOutputs(
+			final Map<? extends DLTensorId, ? extends DLTensor<? extends DLReadableBuffer>> outputs,
+			final DLCancelable cancelable)
+			throws DLInvalidEnvironmentException, IOException, DLCanceledExecutionException {
+		if (!m_arrowOutputsWritten) {
+			return Collections.emptySet();
+		}
+		m_arrowOutputsWritten = false;
+		final byte[] stream = (byte[]) getContext(cancelable).getDataFromKernel(DLPythonArrowTransport.OUTPUTS_NAME,
+				(s, ts) -> new SingleValueTableCreator<>(s, Cell::getBytesValue), cancelable).getTable();
+		m_metrics.addBytesReceived(stream.length);
+		return m_arrowTransport.readOutputs(stream, outputs);
+	}
+
+	/**
+	 * Negotiates whether the kernel supports the Arrow transport by sending a probe to Python and checking the
+	 * response. Only done once per kernel.
+	 */
+	private boolean isArrowTransportSupported(final DLCancelable cancelable)
+			throws DLInvalidEnvironmentException, DLCanceledExecutionException {
+		if (m_arrowTransport == null) {
+			return false;
+		}
+		if (m_arrowTransportSupported == null) {
+			try {
+				putSingleCellInKernel(DLPythonArrowTransport.PROBE_NAME, new CellImpl(m_arrowTransport.createProbe()),
+						Type.BYTES, cancelable);
+				getContext(cancelable).executeInKernel(DLPythonArrowTransport.getProbeCode(), cancelable);
+				final byte[] result = (byte[]) getContext(cancelable)
+						.getDataFromKernel(DLPythonArrowTransport.PROBE_RESULT_NAME,
+								(s, ts) -> new SingleValueTableCreator<>(s, Cell::getBytesValue), cancelable)
+						.getTable();
+				m_arrowTransportSupported = m_arrowTransport.checkProbe(result);
+			} catch (final IOException | RuntimeException e) {
+				LOGGER.debug("Negotiating the Arrow transport with Python failed.", e);
+				m_arrowTransportSupported = false;
+			}
+			if (!m_arrowTransportSupported) {
+				LOGGER.debug("Arrow transport is not supported by the Python kernel (pyarrow 0.15 or later is "
+						+ "required). Tensors are transferred one by one.");
+			}
+		}
+		return m_arrowTransportSupported;
+	}
+
+	private void getSharedMemoryOutputs(
+			final Map<DLTensorId, DLTensor<? extends DLReadableBuffer>> outputs, final DLCancelable cancelable)
+			throws DLInvalidEnvironmentException, IOException, DLCanceledExecutionException {
+		getContext(cancelable).executeInKernel(m_sharedMemoryTransport.prepareOutputs(outputs), cancelable);
+		final Map<String, Long> sizes = new HashMap<>(outputs.size());
+		getContext(cancelable).getDataFromKernel(DLPythonSharedMemoryTransport.OUTPUT_SIZES_NAME,
+				(tableSpec, tableSize) -> new TableCreator<Object>() {
+
+					@Override
+					public void addRow(final Row row) {
+						final String[] tensorNames = tableSpec.getColumnNames();
+						for (int i = 0; i < tensorNames.length; i++) {
+							final Cell sizeCell = row.getCell(i);
+							sizes.put(tensorNames[i], sizeCell.getColumnType().equals(Type.LONG)
+									? sizeCell.getLongValue() : sizeCell.getIntegerValue());
+						}
+					}
+
+					@Override
+					public TableSpec getTableSpec() {
+						return tableSpec;
+					}
+
+					@Override
+					public Object getTable() {
+						return null;
+					}
+				}, cancelable);
+		m_sharedMemoryTransport.readOutputs(outputs, sizes);
 	}
 
     @Override
@@ -452,6 +736,7 @@ public void trainNetwork(final DLPythonNetworkHandle network, final DLNetworkInp
         throws DLInvalidEnvironmentException, IOException, DLCanceledExecutionException {
         final DLPythonContext context = getContext(monitor);
         final DLPythonTrainingStatus status = monitor.getTrainingStatus();
+        m_metrics = status.getMetrics();
 
         // Add log listeners.
         final StringBuilder stdOut = new StringBuilder();
@@ -502,30 +787,11 @@ public void messageReceived(final String message, final boolean isWarningMessage
         kernel.addStdoutListener(stdOutListener);
         kernel.addStderrorListener(stdErrListener);
 
-        final DLPythonSourceCodeBuilder b = DLPythonUtils.createSourceCodeBuilder() //
-            .a("import DLPythonNetwork") //
-            .n("network = DLPythonNetwork.get_network(").as(network.getIdentifier()).a(")") //
-            .n("from DLKerasNetworkTrainingInputGenerator import DLKerasNetworkTrainingInputGenerator") //
-            .n("training_data_supplier = DLKerasNetworkTrainingInputGenerator(network, ")
-            /**/ .a(trainingInputProvider.getNumBatches()).a(", network.spec.training_config.batch_size, ")
-            /**/ .as("request_training_data").a(")");
-        if (validationInputProvider != null) {
-            b.n("validation_data_supplier = DLKerasNetworkTrainingInputGenerator(network, ")
-                .a(validationInputProvider.getNumBatches()).a(", network.spec.training_config.validation_batch_size, ")
-                .as("request_validation_data").a(", is_validation_data=True)");
-        } else {
-            b.n("validation_data_supplier = None");
-        }
-        b.n("from DLKerasTrainTask import DLKerasTrainTask") //
-            .n("reply_to = locals()['python_messaging_initiating_message_id']")
-            .n("train_task = DLKerasTrainTask(reply_to, network, training_data_supplier, ") //
-            .a("validation_data_supplier=validation_data_supplier)") //
-            .n("train_task.get()");
-
+        final String code = getTrainNetworkCode(network, trainingInputProvider, validationInputProvider);
         try {
             final DLPythonNetworkTrainingTaskHandler trainingTaskHandler = createNetworkTrainingTaskHandler(context,
                 monitor, trainingInputProvider, validationInputProvider, this::createSingleTensorTableChunker);
-            final RunnableFuture<Void> trainingTask = kernel.createExecutionTask(trainingTaskHandler, b.toString());
+            final RunnableFuture<Void> trainingTask = kernel.createExecutionTask(trainingTaskHandler, code);
             kernel.routeErrorMessagesToWarningLog(true);
             trainingTask.run();
             trainingTask.get();
@@ -533,9 +799,10 @@ public void messageReceived(final String message, final boolean isWarningMessage
             throw new IOException(ex);
         } finally {
             kernel.routeErrorMessagesToWarningLog(false);
-            // Remove log listeners.
-            kernel.removeStderrorListener(stdOutListener);
+            // Remove log listeners. The kernel may be reused (see DLPythonKernelPool), so restore its default state.
+            kernel.removeStdoutListener(stdOutListener);
             kernel.removeStderrorListener(stdErrListener);
+            kernel.getDefaultStdoutListener().setSilenced(false);
         }
     }
 
@@ -544,9 +811,46 @@ public void messageReceived(final String message, final boolean isWarningMessage
 	 */
 	@Override
 	public synchronized void close() {
+		if (m_sharedMemoryTransport != null) {
+			m_sharedMemoryTransport.close();
+		}
 		m_context.close();
 	}
 
+    /**
+     * Returns the code that trains the network within a task that requests its training and validation data from the
+     * {@link #createNetworkTrainingTaskHandler training task handler}. The variable
+     * <code>python_messaging_initiating_message_id</code> holds the id of the message the task must reply to.
+     *
+     * @param network the network to train
+     * @param trainingInputProvider the provider of the training data
+     * @param validationInputProvider the provider of the validation data, <code>null</code> if there is none
+     * @return the code
+     */
+    protected String getTrainNetworkCode(final DLPythonNetworkHandle network,
+        final DLNetworkInputProvider trainingInputProvider, final DLNetworkInputProvider validationInputProvider) {
+        final DLPythonSourceCodeBuilder b = DLPythonUtils.createSourceCodeBuilder() //
+            .a("import DLPythonNetwork") //
+            .n("network = DLPythonNetwork.get_network(").as(network.getIdentifier()).a(")") //
+            .n("from DLKerasNetworkTrainingInputGenerator import DLKerasNetworkTrainingInputGenerator") //
+            .n("training_data_supplier = DLKerasNetworkTrainingInputGenerator(network, ")
+            /**/ .a(trainingInputProvider.getNumBatches()).a(", network.spec.training_config.batch_size, ")
+            /**/ .as("request_training_data").a(")");
+        if (validationInputProvider != null) {
+            b.n("validation_data_supplier = DLKerasNetworkTrainingInputGenerator(network, ")
+                .a(validationInputProvider.getNumBatches()).a(", network.spec.training_config.validation_batch_size, ")
+                .as("request_validation_data").a(", is_validation_data=True)");
+        } else {
+            b.n("validation_data_supplier = None");
+        }
+        b.n("from DLKerasTrainTask import DLKerasTrainTask") //
+            .n("reply_to = locals()['python_messaging_initiating_message_id']")
+            .n("train_task = DLKerasTrainTask(reply_to, network, training_data_supplier, ") //
+            .a("validation_data_supplier=validation_data_supplier)") //
+            .n("train_task.get()");
+        return b.toString();
+    }
+
     protected String getRegisterNetworkCode(final String networkVariable, final String networkIdentifier) {
         final DLPythonSourceCodeBuilder b = DLPythonUtils.createSourceCodeBuilder() //
             .a("import DLPythonNetwork") //
@@ -616,9 +920,20 @@ private TableChunker createSingleTensorTableChunker(final DLTensorId tensorId, f
             m_tableChunkers.put(tensorId, tableChunker);
         }
         tableChunker.resetWithNextTensor(tensor);
+        m_metrics.addBytesSent(tableChunker.m_numBytes);
         return tableChunker;
     }
 
+    private void putSingleCellInKernel(final String name, final Cell cell, final Type type,
+        final DLCancelable cancelable) throws DLInvalidEnvironmentException, IOException, DLCanceledExecutionException {
+        final TableSpec tableSpec =
+            new TableSpecImpl(new Type[]{type}, new String[]{name}, Collections.<String, String> emptyMap());
+        final Row row = new RowImpl(name, 1);
+        row.setCell(cell, 0);
+        getContext(cancelable).putDataInKernel(name, new DLPythonSingleRowTableChunker(tableSpec, row), 1,
+            cancelable);
+    }
+
     private static byte[] getNotMissingForLength(final int length) {
         final int entries = length / 8 + 1;
         final byte[] missings = new byte[entries];
@@ -638,6 +953,13 @@ private static final class DLPythonTableChunker implements TableChunker {
 
         private final Row m_row;
 
+        private long[] m_shape;
+
+        /**
+         * The size of the serialized tensor.
+         */
+        private int m_numBytes;
+
         private DLPythonTableChunker(final DLTensor<? extends DLWritableBuffer> tensor) {
             // Create the serializer
             final KnimeToPythonExtension extension = KnimeToPythonExtensions.getExtensions().stream()
@@ -651,11 +973,6 @@ private DLPythonTableChunker(final DLTensor<? extends DLWritableBuffer> tensor)
             // Primitives.wrap etc.)
             m_serializer = (Serializer<DLPythonDataBuffer<?>>)extension.getJavaSerializerFactory().createSerializer();
 
-            // Create the shape cell (the same every time)
-            final long[] shape = DLUtils.Shapes.getFixedShape(tensor.getSpec().getShape())
-                .orElseThrow(() -> new IllegalStateException("Execution spec does not contain fixed shape."));
-            final Cell shapeCell = new CellImpl(shape, getNotMissingForLength(shape.length));
-
             // Create the table spec
             final String identifier = tensor.getSpec().getIdentifier().getIdentifierString();
             m_tableSpec = new TableSpecImpl(new Type[]{Type.BYTES, Type.LONG_LIST}, new String[]{identifier, "shape"},
@@ -663,7 +980,6 @@ private DLPythonTableChunker(final DLTensor<? extends DLWritableBuffer> tensor)
 
             // Create the row
             m_row = new RowImpl(identifier, 2);
-            m_row.setCell(shapeCell, 1);
             m_iterator = new DLPythonResettableTableIterator(m_tableSpec, m_row);
         }
 
@@ -691,13 +1007,53 @@ public TableSpec getTableSpec() {
         }
 
         private void resetWithNextTensor(final DLTensor<? extends DLWritableBuffer> tensor) throws IOException {
-            final Cell cell = new CellImpl(m_serializer.serialize((DLPythonDataBuffer<?>)tensor.getBuffer()));
-            m_row.setCell(cell, 0);
+            // The shape is the same for all tensors unless they belong to different length buckets.
+            final long[] shape = DLUtils.Shapes.getFixedShape(tensor.getSpec().getShape())
+                .orElseThrow(() -> new IllegalStateException("Execution spec does not contain fixed shape."));
+            if (!Arrays.equals(shape, m_shape)) {
+                m_row.setCell(new CellImpl(shape, getNotMissingForLength(shape.length)), 1);
+                m_shape = shape;
+            }
+            final byte[] bytes = m_serializer.serialize((DLPythonDataBuffer<?>)tensor.getBuffer());
+            m_numBytes = bytes.length;
+            m_row.setCell(new CellImpl(bytes), 0);
             m_iterator.reset();
             m_hasNextChunk = true;
         }
     }
 
+    private static final class DLPythonSingleRowTableChunker implements TableChunker {
+
+        private final DLPythonResettableTableIterator m_iterator;
+
+        private boolean m_hasNextChunk = true;
+
+        private DLPythonSingleRowTableChunker(final TableSpec tableSpec, final Row row) {
+            m_iterator = new DLPythonResettableTableIterator(tableSpec, row);
+        }
+
+        @Override
+        public boolean hasNextChunk() {
+            return m_hasNextChunk;
+        }
+
+        @Override
+        public TableIterator nextChunk(final int numRows) {
+            m_hasNextChunk = false;
+            return m_iterator;
+        }
+
+        @Override
+        public int getNumberRemainingRows() {
+            return m_iterator.getNumberRemainingRows();
+        }
+
+        @Override
+        public TableSpec getTableSpec() {
+            return m_iterator.getTableSpec();
+        }
+    }
+
     private static final class DLPythonResettableTableIterator implements TableIterator {
 
         private final TableSpec m_tableSpec;
@@ -760,6 +1116,96 @@ public String createReader() {
         }
     }
 
+	/**
+	 * Java side of DLPythonNetworkExecutionTask.py. Each request of the task contains the outputs of the previous batch
+	 * (if any) and is answered with the inputs of the next batch, or an empty payload if there are no more batches. The
+	 * time between answering and the next request is recorded as execution time.
+	 */
+	private static final class DLPythonNetworkExecutionTaskHandler extends AbstractTaskHandler<Void> {
+
+		private final DLPythonArrowTransport m_transport;
+
+		private final Map<? extends DLTensorId, ? extends DLTensor<? extends DLWritableBuffer>> m_inputs;
+
+		private final Map<? extends DLTensorId, ? extends DLTensor<? extends DLReadableBuffer>> m_outputs;
+
+		private final DLThrowingSupplier<Boolean, Exception> m_nextBatch;
+
+		private final DLThrowingConsumer<Map<? extends DLTensorId, ? extends DLTensor<? extends DLReadableBuffer>>, Exception> m_outputsConsumer;
+
+		private final DLSessionMetrics m_metrics;
+
+		/**
+		 * The time the inputs of the batch that is currently being executed were sent.
+		 */
+		private long m_sent;
+
+		private DLPythonNetworkExecutionTaskHandler(final DLPythonArrowTransport transport,
+				final Map<? extends DLTensorId, ? extends DLTensor<? extends DLWritableBuffer>> inputs,
+				final Map<? extends DLTensorId, ? extends DLTensor<? extends DLReadableBuffer>> outputs,
+				final DLThrowingSupplier<Boolean, Exception> nextBatch,
+				final DLThrowingConsumer<Map<? extends DLTensorId, ? extends DLTensor<? extends DLReadableBuffer>>, Exception> outputsConsumer,
+				final DLSessionMetrics metrics) {
+			m_transport = transport;
+			m_inputs = inputs;
+			m_outputs = outputs;
+			m_nextBatch = nextBatch;
+			m_outputsConsumer = outputsConsumer;
+			m_metrics = metrics;
+		}
+
+		@Override
+		protected Void handleSuccessMessage(final Message message) throws Exception {
+			// See DLPythonNetworkTrainingTaskHandler#handleSuccessMessage.
+			final PayloadDecoder decoder = new PayloadDecoder(message.getPayload());
+			decoder.getNextString();
+			final String stdErr = decoder.getNextString();
+			if (!stdErr.isEmpty()) {
+				throw new PythonIOException(stdErr);
+			}
+			return null;
+		}
+
+		@Override
+		protected boolean handleCustomMessage(final Message message, final IntSupplier responseMessageIdSupplier,
+				final Consumer<Message> responseConsumer, final Consumer<Void> resultConsumer)
+				throws ExecutionException {
+			if (!"request_batch".equals(message.getHeaderField(FIELD_KEY_MESSAGE_TYPE))) {
+				return false;
+			}
+			try {
+				final byte[] outputs = message.getPayload();
+				if (outputs != null && outputs.length > 0) {
+					m_metrics.stop(Phase.EXECUTION, m_sent);
+					final long deserializationStart = m_metrics.start();
+					final Set<DLTensorId> read = m_transport.readOutputs(outputs, m_outputs);
+					if (!read.containsAll(m_outputs.keySet())) {
+						throw new IllegalStateException("Python didn't return all network outputs. Outputs "
+								+ Sets.difference(m_outputs.keySet(), read) + " are missing.");
+					}
+					m_metrics.stop(Phase.DESERIALIZATION, deserializationStart);
+					m_metrics.addBytesReceived(outputs.length);
+					m_outputsConsumer.accept(m_outputs);
+				}
+				byte[] inputs = new byte[0];
+				if (m_nextBatch.get()) {
+					final long serializationStart = m_metrics.start();
+					inputs = m_transport.writeInputs(m_inputs);
+					m_metrics.stop(Phase.SERIALIZATION, serializationStart);
+					m_metrics.addBytesSent(inputs.length);
+				}
+				final Map<String, String> options = new HashMap<>(1);
+				options.put(FIELD_KEY_MESSAGE_TYPE, MESSAGE_TYPE_SUCCESS);
+				responseConsumer.accept(new DefaultMessage(responseMessageIdSupplier.getAsInt(),
+						Integer.toString(message.getId()), inputs, options));
+				m_sent = m_metrics.start();
+			} catch (final Exception ex) {
+				throw new ExecutionException(ex.getMessage(), ex);
+			}
+			return true;
+		}
+	}
+
     protected static class DLPythonNetworkTrainingTaskHandler extends AbstractTaskHandler<Void> {
 
         protected final DLPythonContext m_context;
@@ -782,6 +1228,12 @@ protected static class DLPythonNetworkTrainingTaskHandler extends AbstractTaskHa
         protected final DLThrowingBiFunction<DLTensorId, DLTensor<? extends DLWritableBuffer>, TableChunker, //
                 IOException> m_singleTensorTableChunkerCreator;
 
+        /**
+         * The time the last training batch was sent, <code>0</code> before the first one. The time until the next
+         * request is recorded as execution time.
+         */
+        private long m_sent = 0;
+
         protected DLPythonNetworkTrainingTaskHandler(final DLPythonContext context,
             final DLTrainingMonitor<? extends DLPythonTrainingStatus> monitor,
             final DLNetworkInputProvider trainingInputProvider, final DLNetworkInputProvider validationInputProvider,
@@ -840,6 +1292,9 @@ protected boolean handleCustomMessage(final Message message, final IntSupplier r
                     case "batch_end":
                         handleBatchEnd(message);
                         break;
+                    case "batches_end":
+                        handleBatchesEnd(message);
+                        break;
                     default:
                         return false;
                 }
@@ -855,7 +1310,12 @@ protected boolean handleCustomMessage(final Message message, final IntSupplier r
         private Message handleTrainingDataRequest(final Message message, final IntSupplier responseMessageIdSupplier)
             throws Exception {
             final long batchIndex = Long.parseLong(new PayloadDecoder(message.getPayload()).getNextString());
+            final DLSessionMetrics metrics = m_status.getMetrics();
+            if (m_sent != 0) {
+                metrics.stop(Phase.EXECUTION, m_sent);
+            }
             final Map<DLTensorId, DLTensor<? extends DLWritableBuffer>> input = m_trainingInputProvider.get(batchIndex);
+            final long start = metrics.start();
             for (final Entry<DLTensorId, DLTensor<? extends DLWritableBuffer>> entry : input.entrySet()) {
                 final DLTensor<? extends DLWritableBuffer> tensor = entry.getValue();
                 final TableChunker tableChunker = m_singleTensorTableChunkerCreator.apply(entry.getKey(), tensor);
@@ -867,6 +1327,8 @@ private Message handleTrainingDataRequest(final Message message, final IntSuppli
                     tensor.getBuffer().reset();
                 }
             }
+            metrics.stop(Phase.SERIALIZATION, start);
+            m_sent = metrics.start();
 
             final HashMap<String, String> options = new HashMap<>(1);
             options.put(FIELD_KEY_MESSAGE_TYPE, MESSAGE_TYPE_SUCCESS);
@@ -933,6 +1395,33 @@ private void handleBatchEnd(final Message message) {
                 }
                 i++;
             }
+            onBatchEnded();
+        }
+
+        /**
+         * Handles the metrics of multiple consecutive batches. The payload holds one big-endian float per batch metric
+         * (in the order of {@link #batchMetrics}) for each batch. NaN encodes an invalid value.
+         */
+        private void handleBatchesEnd(final Message message) {
+            final ByteBuffer payload = ByteBuffer.wrap(message.getPayload()).order(ByteOrder.BIG_ENDIAN);
+            final int batchSize = batchMetrics.size() * Float.BYTES;
+            while (payload.remaining() >= batchSize) {
+                m_status.batchStarted().raise(null);
+                for (final DLReportedMetric m : batchMetrics.values()) {
+                    final float value = payload.getFloat();
+                    if (Float.isNaN(value)) {
+                        // consistent with handleBatchEnd
+                        m.setValue(-1f);
+                        LOGGER.debug("Received invalid value for metric '" + m.getName() + "': NaN.");
+                    } else {
+                        m.setValue(value);
+                    }
+                }
+                onBatchEnded();
+            }
+        }
+
+        private void onBatchEnded() {
             m_status.batchEnded().raise(batchMetrics);
             // Start validation phase if validation is enabled and we finished the last training batch of the
             // epoch.
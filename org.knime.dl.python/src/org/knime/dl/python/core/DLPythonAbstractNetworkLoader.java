@@ -107,56 +107,74 @@ public DLPythonInstallationTester() {
         protected synchronized void testInstallation(final boolean forceRefresh, final int timeout,
             final DLPythonAbstractNetworkLoader<?> loader, final DLCancelable cancelable)
             throws DLMissingDependencyException, DLInstallationTestTimeoutException {
+            if (!forceRefresh && m_tested) {
+                // pick up results of background refreshes
+                final DLPythonInstallationTestCache.Result result =
+                    DLPythonInstallationTestCache.getSessionResult(loader);
+                if (result != null) {
+                    m_success = result.isSuccess();
+                    m_message = result.getMessage();
+                    m_timeoutException = null;
+                }
+            }
             if (forceRefresh || !m_tested) {
                 final AtomicBoolean success = new AtomicBoolean();
                 final AtomicReference<String> message = new AtomicReference<>();
                 final AtomicReference<DLInstallationTestTimeoutException> timeoutException = new AtomicReference<>();
-                try (DLPythonContext context = new DLPythonDefaultContext()) {
-                    final Thread t = new Thread(() -> {
-                        try {
-                            loader.createCommands(context).testInstallation(cancelable);
+                final Thread t = new Thread(() -> {
+                    try {
+                        // all back ends are tested in one Python process, results are persisted across sessions
+                        DLPythonInstallationTestCache.Result result =
+                            forceRefresh ? null : DLPythonInstallationTestCache.getResult(loader, cancelable);
+                        if (result == null) {
+                            result = DLPythonInstallationTestCache.testAll(loader, cancelable);
+                        }
+                        if (result.isSuccess()) {
                             success.set(true);
-                        } catch (final Throwable th) {
-                            message.set(Strings.isNullOrEmpty(th.getMessage())
-                                ? "Unknown error of type '" + th.getClass().getName() + "'." //
-                                : th.getMessage());
-                            if (th instanceof Error) {
-                                throw (Error)th;
-                            }
+                        } else {
+                            message.set(result.getMessage());
                         }
-                    }, "DL-Installation-Test-" + loader.getNetworkType().getCanonicalName());
-                    t.start();
-                    try {
-                        t.join(timeout);
-                    } catch (final InterruptedException e) {
-                        if (!success.get()) {
-                            t.interrupt();
-                            message.getAndUpdate(msg -> {
-                                if (msg == null) {
-                                    msg = "Installation test for Python back end '"
-                                        + loader.getNetworkType().getCanonicalName() + "' was interrupted.";
-                                    timeoutException.set(new DLInstallationTestTimeoutException(msg, e));
-                                }
-                                return msg;
-                            });
+                    } catch (final Throwable th) {
+                        message.set(Strings.isNullOrEmpty(th.getMessage())
+                            ? "Unknown error of type '" + th.getClass().getName() + "'." //
+                            : th.getMessage());
+                        if (th instanceof Error) {
+                            throw (Error)th;
                         }
-                        Thread.currentThread().interrupt();
                     }
-                    if (!success.get() && timeoutException.get() == null) {
+                }, "DL-Installation-Test-" + loader.getNetworkType().getCanonicalName());
+                t.start();
+                try {
+                    // the timeout applies to each of the back ends that are tested together
+                    t.join(timeout * (long)DLPythonInstallationTestCache.getNumberOfTestedNetworkTypes(loader));
+                } catch (final InterruptedException e) {
+                    if (!success.get()) {
                         t.interrupt();
                         message.getAndUpdate(msg -> {
                             if (msg == null) {
                                 msg = "Installation test for Python back end '"
-                                    + loader.getNetworkType().getCanonicalName() + "' timed out. "
-                                    + "Please make sure your Python environment is properly set up and "
-                                    + "consider increasing the timeout (currently " + timeout
-                                    + " ms) using the VM option " + "'-D"
-                                    + DLInstallationTestTimeout.INSTALLATION_TEST_VM_OPT + "=<value-in-ms>'.";
-                                timeoutException.set(new DLInstallationTestTimeoutException(msg));
+                                    + loader.getNetworkType().getCanonicalName() + "' was interrupted.";
+                                timeoutException.set(new DLInstallationTestTimeoutException(msg, e));
                             }
                             return msg;
                         });
                     }
+                    Thread.currentThread().interrupt();
+                }
+                if (!success.get() && timeoutException.get() == null) {
+                    t.interrupt();
+                    message.getAndUpdate(msg -> {
+                        if (msg == null) {
+                            msg = "Installation test for Python back end '"
+                                + loader.getNetworkType().getCanonicalName() + "' timed out. "
+                                + "Please make sure your Python environment is properly set up and "
+                                + "consider increasing the timeout (currently " + timeout
+                                + " ms) using the VM option " + "'-D"
+                                + DLInstallationTestTimeout.INSTALLATION_TEST_VM_OPT + "=<value-in-ms>'.";
+                            timeoutException.set(new DLInstallationTestTimeoutException(msg));
+                        }
+                        return msg;
+                    });
                 }
                 m_tested = true;
                 m_success = success.get();
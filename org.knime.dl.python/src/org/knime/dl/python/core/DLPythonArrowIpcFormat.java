@@ -0,0 +1,804 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ *
+ */
+package org.knime.dl.python.core;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.function.Consumer;
+
+/**
+ * Minimal writer and reader of the <a href="https://arrow.apache.org/docs/format/Columnar.html">Arrow IPC streaming
+ * format</a> as used by {@link DLPythonArrowTransport}. Only the subset needed by the transport is supported: a schema
+ * whose fields are fixed size lists of little-endian primitive numbers (the tensors), followed by a single record batch
+ * without nulls or compression. The flatbuffers metadata is encoded and decoded by hand, so no Arrow library is
+ * required on the Java side.
+ * <P>
+ * Element types are identified by their NumPy names, see {@link DLPythonSharedMemoryTransport#NUMPY_TYPES}.
+ */
+final class DLPythonArrowIpcFormat {
+
+	private static final int CONTINUATION = 0xFFFFFFFF;
+
+	/**
+	 * MetadataVersion.V4, the version written by pyarrow 0.15 and readable by all later versions.
+	 */
+	private static final short METADATA_VERSION = 3;
+
+	private static final byte HEADER_SCHEMA = 1;
+
+	private static final byte HEADER_RECORD_BATCH = 3;
+
+	private static final byte TYPE_INT = 2;
+
+	private static final byte TYPE_FLOATING_POINT = 3;
+
+	private static final byte TYPE_FIXED_SIZE_LIST = 16;
+
+	private static final short PRECISION_HALF = 0;
+
+	private static final short PRECISION_SINGLE = 1;
+
+	private static final short PRECISION_DOUBLE = 2;
+
+	private static final int ALIGNMENT = 8;
+
+	private DLPythonArrowIpcFormat() {
+	}
+
+	/**
+	 * A fixed size list column of an Arrow stream.
+	 */
+	static final class Column {
+
+		private final String m_name;
+
+		private final String m_type;
+
+		private final long m_numElements;
+
+		private final Map<String, String> m_metadata;
+
+		private final Consumer<ByteBuffer> m_writer;
+
+		private final ByteBuffer m_data;
+
+		/**
+		 * Creates a column to write.
+		 *
+		 * @param name the name of the column
+		 * @param type the NumPy name of the element type
+		 * @param numElements the total number of elements of the column
+		 * @param metadata the custom metadata of the column
+		 * @param writer fills the given little-endian buffer (whose remaining bytes exactly fit the elements) with the
+		 *            column's elements
+		 */
+		Column(final String name, final String type, final long numElements, final Map<String, String> metadata,
+				final Consumer<ByteBuffer> writer) {
+			m_name = name;
+			m_type = type;
+			m_numElements = numElements;
+			m_metadata = metadata;
+			m_writer = writer;
+			m_data = null;
+		}
+
+		private Column(final String name, final String type, final long numElements,
+				final Map<String, String> metadata, final ByteBuffer data) {
+			m_name = name;
+			m_type = type;
+			m_numElements = numElements;
+			m_metadata = metadata;
+			m_writer = null;
+			m_data = data;
+		}
+
+		String getName() {
+			return m_name;
+		}
+
+		/**
+		 * @return the NumPy name of the element type or <code>null</code> if the element type is not supported
+		 */
+		String getType() {
+			return m_type;
+		}
+
+		long getNumElements() {
+			return m_numElements;
+		}
+
+		Map<String, String> getMetadata() {
+			return m_metadata;
+		}
+
+		/**
+		 * @return the little-endian elements of a column that was read, positioned at the first and limited to the
+		 *         last element, or <code>null</code> if the column is to be written
+		 */
+		ByteBuffer getData() {
+			return m_data == null ? null : m_data.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+		}
+
+		private long getNumBytes() {
+			return m_numElements * getElementSize(m_type);
+		}
+	}
+
+	/**
+	 * @param type the NumPy name of an element type
+	 * @return the size of an element of the type in bytes
+	 */
+	static int getElementSize(final String type) {
+		return getBitWidth(type) / Byte.SIZE;
+	}
+
+	/**
+	 * Writes a stream that consists of a schema message, a single record batch message and the end-of-stream marker.
+	 * The number of elements of each column must be a positive multiple of the number of rows.
+	 *
+	 * @param columns the columns to write
+	 * @param numRows the number of rows, i.e. the length of each fixed size list column
+	 * @param reuse an array that is reused if it has exactly the size of the stream, may be <code>null</code>
+	 * @return the stream
+	 * @throws IllegalArgumentException if the stream would exceed 2^31 bytes
+	 */
+	static byte[] write(final List<Column> columns, final long numRows, final byte[] reuse) {
+		final byte[] schema = encodeMessage(HEADER_SCHEMA, createSchema(columns, numRows), 0);
+		final long bodyLength = getBodyLength(columns);
+		final byte[] recordBatch =
+				encodeMessage(HEADER_RECORD_BATCH, createRecordBatch(columns, numRows), bodyLength);
+		final long size = schema.length + recordBatch.length + bodyLength + 2 * Integer.BYTES;
+		if (size > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("Arrow stream exceeds the maximum size of 2^31 bytes.");
+		}
+		final byte[] stream = reuse != null && reuse.length == size ? reuse : new byte[(int) size];
+		final ByteBuffer buffer = ByteBuffer.wrap(stream).order(ByteOrder.LITTLE_ENDIAN);
+		buffer.put(schema).put(recordBatch);
+		final int bodyStart = buffer.position();
+		for (final Column column : columns) {
+			final ByteBuffer data = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+			data.limit(data.position() + (int) column.getNumBytes());
+			column.m_writer.accept(data.slice().order(ByteOrder.LITTLE_ENDIAN));
+			buffer.position(buffer.position() + (int) pad(column.getNumBytes()));
+		}
+		buffer.position(bodyStart + (int) bodyLength);
+		buffer.putInt(CONTINUATION).putInt(0);
+		return stream;
+	}
+
+	/**
+	 * Reads a stream that consists of a schema message, a single record batch message and (optionally) the
+	 * end-of-stream marker. The returned columns share their data with the given array.
+	 *
+	 * @param stream the stream
+	 * @return the columns of the stream by their names, in the order of the schema
+	 * @throws IllegalStateException if the stream is malformed or contains unsupported data
+	 */
+	static Map<String, Column> read(final byte[] stream) {
+		final ByteBuffer buffer = ByteBuffer.wrap(stream).order(ByteOrder.LITTLE_ENDIAN);
+		List<Field> fields = null;
+		while (buffer.remaining() >= Integer.BYTES) {
+			int metadataLength = buffer.getInt();
+			if (metadataLength == CONTINUATION) {
+				metadataLength = buffer.getInt();
+			}
+			if (metadataLength == 0) {
+				break;
+			}
+			final ByteBuffer metadata = slice(buffer, buffer.position(), metadataLength);
+			buffer.position(buffer.position() + metadataLength);
+			final FlatTableReader message = FlatTableReader.root(metadata);
+			final int headerType = message.getUnsignedByte(1);
+			final FlatTableReader header = message.getTable(2);
+			final long bodyLength = message.getLong(3);
+			if (header == null) {
+				throw new IllegalStateException("Arrow message does not have a header.");
+			}
+			if (headerType == HEADER_SCHEMA) {
+				fields = readSchema(header);
+			} else if (headerType == HEADER_RECORD_BATCH) {
+				if (fields == null) {
+					throw new IllegalStateException("Arrow stream does not start with a schema.");
+				}
+				return readRecordBatch(header, fields, slice(buffer, buffer.position(), (int) bodyLength));
+			} else {
+				throw new IllegalStateException("Unsupported Arrow message type: " + headerType + ".");
+			}
+			buffer.position(buffer.position() + (int) bodyLength);
+		}
+		throw new IllegalStateException("Arrow stream does not contain a record batch.");
+	}
+
+	// Writing:
+
+	private static FlatTable createSchema(final List<Column> columns, final long numRows) {
+		final List<FlatObject> fields = new ArrayList<>(columns.size());
+		for (final Column column : columns) {
+			final List<FlatObject> metadata = new ArrayList<>(column.getMetadata().size());
+			for (final Entry<String, String> entry : column.getMetadata().entrySet()) {
+				metadata.add(new FlatTable() //
+						.addObject(0, new FlatString(entry.getKey())) //
+						.addObject(1, new FlatString(entry.getValue())));
+			}
+			final FlatTable child = new FlatTable() //
+					.addObject(0, new FlatString("item")) //
+					.addByte(1, 0) //
+					.addByte(2, isFloatingPoint(column.getType()) ? TYPE_FLOATING_POINT : TYPE_INT) //
+					.addObject(3, createElementType(column.getType())) //
+					.addObject(5, new FlatVector(Collections.emptyList()));
+			fields.add(new FlatTable() //
+					.addObject(0, new FlatString(column.getName())) //
+					.addByte(1, 0) //
+					.addByte(2, TYPE_FIXED_SIZE_LIST) //
+					.addObject(3, new FlatTable().addInt(0, (int) (column.getNumElements() / numRows)))
+					.addObject(5, new FlatVector(Collections.singletonList(child))) //
+					.addObject(6, new FlatVector(metadata)));
+		}
+		return new FlatTable() //
+				.addShort(0, 0) // little-endian
+				.addObject(1, new FlatVector(fields));
+	}
+
+	private static FlatTable createElementType(final String type) {
+		if (isFloatingPoint(type)) {
+			final int bitWidth = getBitWidth(type);
+			return new FlatTable().addShort(0,
+					bitWidth == 16 ? PRECISION_HALF : bitWidth == 32 ? PRECISION_SINGLE : PRECISION_DOUBLE);
+		}
+		return new FlatTable().addInt(0, getBitWidth(type)).addByte(1, type.startsWith("u") ? 0 : 1);
+	}
+
+	private static FlatTable createRecordBatch(final List<Column> columns, final long numRows) {
+		final long[] nodes = new long[columns.size() * 4];
+		final long[] buffers = new long[columns.size() * 6];
+		long offset = 0;
+		for (int i = 0; i < columns.size(); i++) {
+			final Column column = columns.get(i);
+			// list node and child node, neither contain nulls
+			nodes[i * 4] = numRows;
+			nodes[i * 4 + 2] = column.getNumElements();
+			// list validity and child validity are omitted (zero length), followed by the child data
+			buffers[i * 6] = offset;
+			buffers[i * 6 + 2] = offset;
+			buffers[i * 6 + 4] = offset;
+			buffers[i * 6 + 5] = column.getNumBytes();
+			offset += pad(column.getNumBytes());
+		}
+		return new FlatTable() //
+				.addLong(0, numRows) //
+				.addObject(1, new FlatStructVector(nodes, 2)) //
+				.addObject(2, new FlatStructVector(buffers, 2));
+	}
+
+	private static long getBodyLength(final List<Column> columns) {
+		return columns.stream().mapToLong(c -> pad(c.getNumBytes())).sum();
+	}
+
+	/**
+	 * Encodes the given header in a message and prepends the continuation marker and the length of the metadata.
+	 * The metadata is padded such that the body of the message starts at an aligned position.
+	 */
+	private static byte[] encodeMessage(final byte headerType, final FlatTable header, final long bodyLength) {
+		final FlatTable message = new FlatTable() //
+				.addShort(0, METADATA_VERSION) //
+				.addByte(1, headerType) //
+				.addObject(2, header) //
+				.addLong(3, bodyLength);
+		final FlatBufferWriter writer = new FlatBufferWriter();
+		writer.putInt(0);
+		writer.setInt(0, message.writeTo(writer));
+		writer.pad(ALIGNMENT, 0);
+		final byte[] metadata = writer.toByteArray();
+		return ByteBuffer.allocate(2 * Integer.BYTES + metadata.length).order(ByteOrder.LITTLE_ENDIAN)
+				.putInt(CONTINUATION).putInt(metadata.length).put(metadata).array();
+	}
+
+	// Reading:
+
+	private static List<Field> readSchema(final FlatTableReader schema) {
+		if (schema.getShort(0) != 0) {
+			throw new IllegalStateException("Big-endian Arrow streams are not supported.");
+		}
+		final FlatTableReader[] fieldTables = schema.getTables(1);
+		final List<Field> fields = new ArrayList<>(fieldTables.length);
+		for (final FlatTableReader field : fieldTables) {
+			final String name = field.getString(0);
+			if (field.getUnsignedByte(2) != TYPE_FIXED_SIZE_LIST) {
+				throw new IllegalStateException("Arrow field '" + name + "' is not a fixed size list.");
+			}
+			final FlatTableReader[] children = field.getTables(5);
+			if (children.length != 1) {
+				throw new IllegalStateException("Arrow field '" + name + "' does not have a single child.");
+			}
+			final Map<String, String> metadata = new LinkedHashMap<>();
+			for (final FlatTableReader keyValue : field.getTables(6)) {
+				metadata.put(keyValue.getString(0), keyValue.getString(1));
+			}
+			fields.add(new Field(name, readElementType(name, children[0]), metadata));
+		}
+		return fields;
+	}
+
+	private static String readElementType(final String name, final FlatTableReader child) {
+		final int typeType = child.getUnsignedByte(2);
+		final FlatTableReader type = child.getTable(3);
+		if (typeType == TYPE_FLOATING_POINT && type != null) {
+			final short precision = type.getShort(0);
+			if (precision == PRECISION_HALF) {
+				return "float16";
+			} else if (precision == PRECISION_SINGLE) {
+				return "float32";
+			} else if (precision == PRECISION_DOUBLE) {
+				return "float64";
+			}
+		} else if (typeType == TYPE_INT && type != null) {
+			final int bitWidth = type.getInt(0);
+			if (bitWidth == 8 || bitWidth == 16 || bitWidth == 32 || bitWidth == 64) {
+				return (type.getUnsignedByte(1) != 0 ? "int" : "uint") + bitWidth;
+			}
+		}
+		throw new IllegalStateException("Arrow field '" + name + "' has an unsupported element type.");
+	}
+
+	private static Map<String, Column> readRecordBatch(final FlatTableReader recordBatch, final List<Field> fields,
+			final ByteBuffer body) {
+		if (recordBatch.getTable(3) != null) {
+			throw new IllegalStateException("Compressed Arrow record batches are not supported.");
+		}
+		final long[] nodes = recordBatch.getStructs(1, 2);
+		final long[] buffers = recordBatch.getStructs(2, 2);
+		if (nodes.length < fields.size() * 4 || buffers.length < fields.size() * 6) {
+			throw new IllegalStateException("Arrow record batch does not match its schema.");
+		}
+		final Map<String, Column> columns = new LinkedHashMap<>(fields.size());
+		for (int i = 0; i < fields.size(); i++) {
+			final Field field = fields.get(i);
+			if (nodes[i * 4 + 1] != 0 || nodes[i * 4 + 3] != 0) {
+				throw new IllegalStateException("Arrow field '" + field.m_name + "' contains nulls.");
+			}
+			final long numElements = nodes[i * 4 + 2];
+			final long numBytes = numElements * getElementSize(field.m_type);
+			final long offset = buffers[i * 6 + 4];
+			if (buffers[i * 6 + 5] < numBytes || offset < 0 || offset + numBytes > body.capacity()) {
+				throw new IllegalStateException("Arrow field '" + field.m_name + "' exceeds the record batch.");
+			}
+			columns.put(field.m_name, new Column(field.m_name, field.m_type, numElements, field.m_metadata,
+					slice(body, (int) offset, (int) numBytes)));
+		}
+		return columns;
+	}
+
+	// Utilities:
+
+	private static boolean isFloatingPoint(final String type) {
+		return type.startsWith("float");
+	}
+
+	private static int getBitWidth(final String type) {
+		return Integer.parseInt(type.substring(type.indexOf('t') + 1));
+	}
+
+	private static long pad(final long numBytes) {
+		return (numBytes + ALIGNMENT - 1) / ALIGNMENT * ALIGNMENT;
+	}
+
+	private static ByteBuffer slice(final ByteBuffer buffer, final int position, final int length) {
+		if (position < 0 || length < 0 || position + length > buffer.capacity()) {
+			throw new IllegalStateException("Arrow stream is truncated.");
+		}
+		final ByteBuffer duplicate = buffer.duplicate();
+		duplicate.limit(position + length).position(position);
+		return duplicate.slice().order(ByteOrder.LITTLE_ENDIAN);
+	}
+
+	private static final class Field {
+
+		private final String m_name;
+
+		private final String m_type;
+
+		private final Map<String, String> m_metadata;
+
+		private Field(final String name, final String type, final Map<String, String> metadata) {
+			m_name = name;
+			m_type = type;
+			m_metadata = metadata;
+		}
+	}
+
+	// Flatbuffers encoding. Unlike the official builder, objects are written front to back: each table is preceded by
+	// its vtable and followed by the objects it references, which keeps all offsets (unsigned) pointing forward.
+
+	private static final class FlatBufferWriter {
+
+		private ByteBuffer m_buffer = ByteBuffer.allocate(512).order(ByteOrder.LITTLE_ENDIAN);
+
+		private int position() {
+			return m_buffer.position();
+		}
+
+		private void ensureRemaining(final int numBytes) {
+			if (m_buffer.remaining() < numBytes) {
+				final ByteBuffer buffer = ByteBuffer
+						.allocate(Math.max(m_buffer.capacity() * 2, m_buffer.position() + numBytes))
+						.order(ByteOrder.LITTLE_ENDIAN);
+				m_buffer.flip();
+				buffer.put(m_buffer);
+				m_buffer = buffer;
+			}
+		}
+
+		/**
+		 * Pads with zeros until <code>position % alignment == remainder</code>.
+		 */
+		private void pad(final int alignment, final int remainder) {
+			while (position() % alignment != remainder) {
+				putByte(0);
+			}
+		}
+
+		private void putByte(final int value) {
+			ensureRemaining(Byte.BYTES);
+			m_buffer.put((byte) value);
+		}
+
+		private void putShort(final int value) {
+			ensureRemaining(Short.BYTES);
+			m_buffer.putShort((short) value);
+		}
+
+		private void putInt(final int value) {
+			ensureRemaining(Integer.BYTES);
+			m_buffer.putInt(value);
+		}
+
+		private void putLong(final long value) {
+			ensureRemaining(Long.BYTES);
+			m_buffer.putLong(value);
+		}
+
+		private void putBytes(final byte[] value) {
+			ensureRemaining(value.length);
+			m_buffer.put(value);
+		}
+
+		private void setShort(final int position, final int value) {
+			m_buffer.putShort(position, (short) value);
+		}
+
+		private void setInt(final int position, final int value) {
+			m_buffer.putInt(position, value);
+		}
+
+		private byte[] toByteArray() {
+			return Arrays.copyOf(m_buffer.array(), m_buffer.position());
+		}
+	}
+
+	private abstract static class FlatObject {
+
+		/**
+		 * @return the position the object's references need to point to
+		 */
+		abstract int writeTo(FlatBufferWriter writer);
+	}
+
+	private static final class FlatTable extends FlatObject {
+
+		private final List<FlatField> m_fields = new ArrayList<>(6);
+
+		private FlatTable addByte(final int id, final int value) {
+			m_fields.add(new FlatField(id, Byte.BYTES, value, null));
+			return this;
+		}
+
+		private FlatTable addShort(final int id, final int value) {
+			m_fields.add(new FlatField(id, Short.BYTES, value, null));
+			return this;
+		}
+
+		private FlatTable addInt(final int id, final int value) {
+			m_fields.add(new FlatField(id, Integer.BYTES, value, null));
+			return this;
+		}
+
+		private FlatTable addLong(final int id, final long value) {
+			m_fields.add(new FlatField(id, Long.BYTES, value, null));
+			return this;
+		}
+
+		private FlatTable addObject(final int id, final FlatObject value) {
+			m_fields.add(new FlatField(id, Integer.BYTES, 0, value));
+			return this;
+		}
+
+		@Override
+		int writeTo(final FlatBufferWriter writer) {
+			// Larger fields first. The table starts at a position that is 4 modulo 8, so after its 4 byte vtable
+			// offset, every field is naturally aligned without further padding.
+			final List<FlatField> fields = new ArrayList<>(m_fields);
+			fields.sort(Comparator.comparingInt((final FlatField f) -> f.m_size).reversed());
+			final int numSlots = fields.stream().mapToInt(f -> f.m_id).max().orElse(-1) + 1;
+			final int[] slots = new int[numSlots];
+			int tableSize = Integer.BYTES;
+			for (final FlatField field : fields) {
+				slots[field.m_id] = tableSize;
+				tableSize += field.m_size;
+			}
+			writer.pad(Short.BYTES, 0);
+			final int vtable = writer.position();
+			writer.putShort(Short.BYTES * (2 + numSlots));
+			writer.putShort(tableSize);
+			for (final int slot : slots) {
+				writer.putShort(slot);
+			}
+			writer.pad(ALIGNMENT, Integer.BYTES);
+			final int table = writer.position();
+			writer.putInt(table - vtable);
+			for (final FlatField field : fields) {
+				switch (field.m_size) {
+				case Byte.BYTES:
+					writer.putByte((int) field.m_value);
+					break;
+				case Short.BYTES:
+					writer.putShort((int) field.m_value);
+					break;
+				case Integer.BYTES:
+					writer.putInt((int) field.m_value);
+					break;
+				default:
+					writer.putLong(field.m_value);
+				}
+			}
+			for (final FlatField field : fields) {
+				if (field.m_object != null) {
+					final int reference = table + slots[field.m_id];
+					writer.setInt(reference, field.m_object.writeTo(writer) - reference);
+				}
+			}
+			return table;
+		}
+	}
+
+	private static final class FlatField {
+
+		private final int m_id;
+
+		private final int m_size;
+
+		private final long m_value;
+
+		private final FlatObject m_object;
+
+		private FlatField(final int id, final int size, final long value, final FlatObject object) {
+			m_id = id;
+			m_size = size;
+			m_value = value;
+			m_object = object;
+		}
+	}
+
+	private static final class FlatVector extends FlatObject {
+
+		private final List<FlatObject> m_elements;
+
+		private FlatVector(final List<FlatObject> elements) {
+			m_elements = elements;
+		}
+
+		@Override
+		int writeTo(final FlatBufferWriter writer) {
+			writer.pad(Integer.BYTES, 0);
+			final int vector = writer.position();
+			writer.putInt(m_elements.size());
+			for (int i = 0; i < m_elements.size(); i++) {
+				writer.putInt(0);
+			}
+			for (int i = 0; i < m_elements.size(); i++) {
+				final int reference = vector + Integer.BYTES * (i + 1);
+				writer.setInt(reference, m_elements.get(i).writeTo(writer) - reference);
+			}
+			return vector;
+		}
+	}
+
+	/**
+	 * A vector of structs that consist of longs only (FieldNode and Buffer).
+	 */
+	private static final class FlatStructVector extends FlatObject {
+
+		private final long[] m_values;
+
+		private final int m_structSize;
+
+		private FlatStructVector(final long[] values, final int structSize) {
+			m_values = values;
+			m_structSize = structSize;
+		}
+
+		@Override
+		int writeTo(final FlatBufferWriter writer) {
+			writer.pad(ALIGNMENT, Integer.BYTES);
+			final int vector = writer.position();
+			writer.putInt(m_values.length / m_structSize);
+			for (final long value : m_values) {
+				writer.putLong(value);
+			}
+			return vector;
+		}
+	}
+
+	private static final class FlatString extends FlatObject {
+
+		private final byte[] m_value;
+
+		private FlatString(final String value) {
+			m_value = value.getBytes(StandardCharsets.UTF_8);
+		}
+
+		@Override
+		int writeTo(final FlatBufferWriter writer) {
+			writer.pad(Integer.BYTES, 0);
+			final int string = writer.position();
+			writer.putInt(m_value.length);
+			writer.putBytes(m_value);
+			writer.putByte(0);
+			return string;
+		}
+	}
+
+	// Flatbuffers decoding:
+
+	private static final class FlatTableReader {
+
+		private static FlatTableReader root(final ByteBuffer buffer) {
+			return new FlatTableReader(buffer, buffer.getInt(0));
+		}
+
+		private final ByteBuffer m_buffer;
+
+		private final int m_position;
+
+		private FlatTableReader(final ByteBuffer buffer, final int position) {
+			if (position < 0 || position + Integer.BYTES > buffer.capacity()) {
+				throw new IllegalStateException("Arrow metadata is malformed.");
+			}
+			m_buffer = buffer;
+			m_position = position;
+		}
+
+		/**
+		 * @return the absolute position of the given field or zero if the field is not present
+		 */
+		private int field(final int id) {
+			final int vtable = m_position - m_buffer.getInt(m_position);
+			final int vtableSize = Short.toUnsignedInt(m_buffer.getShort(vtable));
+			final int slot = Short.BYTES * (2 + id);
+			if (slot >= vtableSize) {
+				return 0;
+			}
+			final int offset = Short.toUnsignedInt(m_buffer.getShort(vtable + slot));
+			return offset == 0 ? 0 : m_position + offset;
+		}
+
+		private int getUnsignedByte(final int id) {
+			final int field = field(id);
+			return field == 0 ? 0 : Byte.toUnsignedInt(m_buffer.get(field));
+		}
+
+		private short getShort(final int id) {
+			final int field = field(id);
+			return field == 0 ? 0 : m_buffer.getShort(field);
+		}
+
+		private int getInt(final int id) {
+			final int field = field(id);
+			return field == 0 ? 0 : m_buffer.getInt(field);
+		}
+
+		private long getLong(final int id) {
+			final int field = field(id);
+			return field == 0 ? 0 : m_buffer.getLong(field);
+		}
+
+		private int dereference(final int id) {
+			final int field = field(id);
+			return field == 0 ? 0 : field + m_buffer.getInt(field);
+		}
+
+		private FlatTableReader getTable(final int id) {
+			final int table = dereference(id);
+			return table == 0 ? null : new FlatTableReader(m_buffer, table);
+		}
+
+		private String getString(final int id) {
+			final int string = dereference(id);
+			if (string == 0) {
+				return null;
+			}
+			final byte[] value = new byte[m_buffer.getInt(string)];
+			final ByteBuffer duplicate = m_buffer.duplicate();
+			duplicate.position(string + Integer.BYTES);
+			duplicate.get(value);
+			return new String(value, StandardCharsets.UTF_8);
+		}
+
+		private FlatTableReader[] getTables(final int id) {
+			final int vector = dereference(id);
+			if (vector == 0) {
+				return new FlatTableReader[0];
+			}
+			final FlatTableReader[] tables = new FlatTableReader[m_buffer.getInt(vector)];
+			for (int i = 0; i < tables.length; i++) {
+				final int reference = vector + Integer.BYTES * (i + 1);
+				tables[i] = new FlatTableReader(m_buffer, reference + m_buffer.getInt(reference));
+			}
+			return tables;
+		}
+
+		private long[] getStructs(final int id, final int structSize) {
+			final int vector = dereference(id);
+			if (vector == 0) {
+				return new long[0];
+			}
+			final long[] values = new long[m_buffer.getInt(vector) * structSize];
+			for (int i = 0; i < values.length; i++) {
+				values[i] = m_buffer.getLong(vector + Integer.BYTES + Long.BYTES * i);
+			}
+			return values;
+		}
+	}
+}
@@ -0,0 +1,489 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ *
+ */
+package org.knime.dl.python.core;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+import java.nio.ShortBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.OptionalDouble;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.knime.dl.core.DLTensor;
+import org.knime.dl.core.DLTensorId;
+import org.knime.dl.core.data.DLReadableBuffer;
+import org.knime.dl.core.data.DLWritableBuffer;
+import org.knime.dl.core.execution.DLTransportPrecision;
+import org.knime.dl.python.core.data.DLPythonAbstractDirectDataBuffer;
+import org.knime.dl.python.core.data.DLPythonDataBuffer;
+import org.knime.dl.python.core.data.serde.DLPythonDeserializer;
+import org.knime.dl.python.util.DLPythonUtils;
+import org.knime.dl.util.DLUtils;
+
+/**
+ * Transfers all numeric tensors of a batch between Java and Python as a single Arrow IPC stream instead of sending
+ * each tensor over the kernel's socket separately. Each tensor is a fixed size list column of the stream's record
+ * batch (one list per batch entry), so all inputs of a batch take a single round trip and all outputs take another.
+ * Python reads the columns via pyarrow without copying them and wraps them in the same data frames the socket based
+ * transport creates. The stream itself is sent as a single bytes cell.
+ * <P>
+ * Whether pyarrow is available and understands the streams written by {@link DLPythonArrowIpcFormat} (and vice versa)
+ * is negotiated once per kernel by sending a {@link #createProbe() probe} back and forth. If the negotiation fails,
+ * tensors keep being transferred one by one. The transport is enabled via the VM option {@link #ENABLED_VM_OPT} and
+ * is not used if the shared memory transport is enabled as well. Only numeric tensors whose stream fits into 2^31 bytes are supported, all other tensors are
+ * still transferred over the socket.
+ * <P>
+ * Floating point tensors can optionally be transferred at a {@link #setPrecision(DLTransportPrecision) reduced
+ * precision}. Their columns then contain 16 bit values (float16, or bfloat16 stored as uint16) and the original NumPy
+ * type and the encoding as metadata. Both sides keep track of the largest rounding error they introduce.
+ */
+public final class DLPythonArrowTransport {
+
+	/**
+	 * VM option that enables the Arrow transport if set to <code>true</code>.
+	 */
+	public static final String ENABLED_VM_OPT = "knime.dl.python.arrow";
+
+	/**
+	 * The name of the Python variable that holds the input stream.
+	 */
+	public static final String INPUTS_NAME = "dl_arrow_inputs";
+
+	/**
+	 * The name of the Python variable that holds the output stream.
+	 */
+	public static final String OUTPUTS_NAME = "dl_arrow_outputs";
+
+	/**
+	 * The name of the Python variable that holds the probe stream sent to Python during negotiation.
+	 */
+	public static final String PROBE_NAME = "dl_arrow_probe";
+
+	/**
+	 * The name of the Python variable that holds the probe stream sent back by Python during negotiation.
+	 */
+	public static final String PROBE_RESULT_NAME = "dl_arrow_probe_result";
+
+	/**
+	 * Leaves room for the stream's metadata.
+	 */
+	private static final long MAX_BODY_SIZE = Integer.MAX_VALUE - (1L << 20);
+
+	private static final float[] PROBE_FLOATS = { 1.5f, -2f, Float.MAX_VALUE, Float.MIN_VALUE };
+
+	private static final long[] PROBE_LONGS = { 1L, -2L, Long.MAX_VALUE, Long.MIN_VALUE };
+
+	/**
+	 * @return <code>true</code> if the Arrow transport is enabled via {@link #ENABLED_VM_OPT}
+	 */
+	public static boolean isEnabled() {
+		return Boolean.parseBoolean(System.getProperty(ENABLED_VM_OPT, "false"));
+	}
+
+	/**
+	 * @param tensor the tensor
+	 * @return <code>true</code> if the given tensor is numeric and not empty and can therefore be transferred via
+	 *         Arrow
+	 */
+	public static boolean isSupported(final DLTensor<?> tensor) {
+		final DLPythonDataBuffer<?> buffer = (DLPythonDataBuffer<?>) tensor.getBuffer();
+		return DLPythonSharedMemoryTransport.NUMPY_TYPES.containsKey(buffer.getClass())
+				&& buffer.size() > buffer.getNextReadPosition();
+	}
+
+	/**
+	 * @param inputs the input tensors, all of which must be {@link #isSupported(DLTensor) supported}
+	 * @return <code>true</code> if the given input tensors fit into a single stream
+	 */
+	public static boolean fits(final Map<? extends DLTensorId, ? extends DLTensor<? extends DLWritableBuffer>> inputs) {
+		long numBytes = 0;
+		for (final DLTensor<? extends DLWritableBuffer> tensor : inputs.values()) {
+			final DLPythonDataBuffer<?> buffer = (DLPythonDataBuffer<?>) tensor.getBuffer();
+			numBytes += (buffer.size() - buffer.getNextReadPosition())
+					* DLPythonSharedMemoryTransport.getElementSize(buffer.getClass()) + Long.BYTES;
+		}
+		return numBytes <= MAX_BODY_SIZE;
+	}
+
+	/**
+	 * @return the Python code that creates the variable {@link #PROBE_RESULT_NAME} from {@link #PROBE_NAME}
+	 */
+	public static String getProbeCode() {
+		return DLPythonUtils.createSourceCodeBuilder() //
+				.a("import DLPythonArrowTransport") //
+				.n("global ").a(PROBE_RESULT_NAME) //
+				.n(PROBE_RESULT_NAME).a(" = DLPythonArrowTransport.probe(").a(PROBE_NAME).a(")") //
+				.toString();
+	}
+
+	/**
+	 * @return the Python code that makes the inputs contained in {@link #INPUTS_NAME} available in the kernel's
+	 *         workspace in the same form as if they had been transferred over the socket
+	 */
+	public static String getReadInputsCode() {
+		return DLPythonUtils.createSourceCodeBuilder() //
+				.a("import DLPythonArrowTransport") //
+				.n("DLPythonArrowTransport.read_inputs(globals(), ").a(INPUTS_NAME).a(")") //
+				.toString();
+	}
+
+	/**
+	 * @param outputsVariable the name of the Python variable that holds the dictionary of output data frames
+	 * @param precision the precision at which floating point outputs are written
+	 * @return the Python code that writes the numeric outputs into {@link #OUTPUTS_NAME}
+	 */
+	public static String getWriteOutputsCode(final String outputsVariable, final DLTransportPrecision precision) {
+		return DLPythonUtils.createSourceCodeBuilder() //
+				.a("import DLPythonArrowTransport") //
+				.n("globals()[").as(OUTPUTS_NAME).a("] = DLPythonArrowTransport.write_outputs(").a(outputsVariable)
+				.a(", ").a(getEncodingCode(precision)).a(")") //
+				.toString();
+	}
+
+	/**
+	 * @param precision the transport precision
+	 * @return the Python literal that denotes the encoding of floating point tensors at the given precision
+	 */
+	public static String getEncodingCode(final DLTransportPrecision precision) {
+		return precision.isReduced() ? "'" + precision.getLabel() + "'" : "None";
+	}
+
+	private final Map<Class<?>, DLPythonDeserializer<?>> m_deserializers = new HashMap<>();
+
+	private byte[] m_inputStream;
+
+	private DLTransportPrecision m_precision = DLTransportPrecision.FULL;
+
+	/**
+	 * Holds the full precision elements of direct input buffers and of reduced precision output columns while they are
+	 * converted.
+	 */
+	private ByteBuffer m_conversionBuffer;
+
+	private double m_maxError = Double.NEGATIVE_INFINITY;
+
+	/**
+	 * Sets the precision at which floating point inputs are written by {@link #writeInputs(Map)}. The precision of
+	 * the outputs is determined by Python, see {@link #getWriteOutputsCode(String, DLTransportPrecision)}.
+	 *
+	 * @param precision the transport precision
+	 */
+	public void setPrecision(final DLTransportPrecision precision) {
+		m_precision = precision;
+	}
+
+	/**
+	 * @return the transport precision
+	 */
+	public DLTransportPrecision getPrecision() {
+		return m_precision;
+	}
+
+	/**
+	 * @return the largest absolute rounding error of all inputs written and outputs read at a reduced precision so
+	 *         far, empty if none were transferred at a reduced precision
+	 */
+	public OptionalDouble getMaxError() {
+		return m_maxError == Double.NEGATIVE_INFINITY ? OptionalDouble.empty() : OptionalDouble.of(m_maxError);
+	}
+
+	/**
+	 * @return a small stream that Python is expected to send back unchanged via {@link #getProbeCode()}
+	 */
+	public byte[] createProbe() {
+		final List<DLPythonArrowIpcFormat.Column> columns = Arrays.asList( //
+				new DLPythonArrowIpcFormat.Column("floats", "float32", PROBE_FLOATS.length, new HashMap<>(),
+						b -> b.asFloatBuffer().put(PROBE_FLOATS)),
+				new DLPythonArrowIpcFormat.Column("longs", "int64", PROBE_LONGS.length, new HashMap<>(),
+						b -> b.asLongBuffer().put(PROBE_LONGS)));
+		return DLPythonArrowIpcFormat.write(columns, 2, null);
+	}
+
+	/**
+	 * @param result the stream Python sent back in response to {@link #createProbe()}
+	 * @return <code>true</code> if the result matches the probe, i.e. if streams can be exchanged in both directions
+	 */
+	public boolean checkProbe(final byte[] result) {
+		if (result == null || result.length == 0) {
+			return false;
+		}
+		try {
+			final Map<String, DLPythonArrowIpcFormat.Column> columns = DLPythonArrowIpcFormat.read(result);
+			final DLPythonArrowIpcFormat.Column floats = columns.get("floats");
+			final DLPythonArrowIpcFormat.Column longs = columns.get("longs");
+			if (floats == null || !"float32".equals(floats.getType()) || floats.getNumElements() != PROBE_FLOATS.length
+					|| longs == null || !"int64".equals(longs.getType())
+					|| longs.getNumElements() != PROBE_LONGS.length) {
+				return false;
+			}
+			final float[] floatValues = new float[PROBE_FLOATS.length];
+			floats.getData().asFloatBuffer().get(floatValues);
+			final long[] longValues = new long[PROBE_LONGS.length];
+			longs.getData().asLongBuffer().get(longValues);
+			return Arrays.equals(PROBE_FLOATS, floatValues) && Arrays.equals(PROBE_LONGS, longValues);
+		} catch (final RuntimeException e) {
+			// malformed result
+			return false;
+		}
+	}
+
+	/**
+	 * Writes the given input tensors into a single stream. The returned array is reused by subsequent calls if the
+	 * size of the stream does not change.
+	 *
+	 * @param inputs the input tensors, all of which must be {@link #isSupported(DLTensor) supported} and which must
+	 *            {@link #fits(Map) fit} into a single stream
+	 * @return the stream that needs to be made available in Python as {@link #INPUTS_NAME}
+	 */
+	public byte[] writeInputs(final Map<? extends DLTensorId, ? extends DLTensor<? extends DLWritableBuffer>> inputs) {
+		final List<DLPythonArrowIpcFormat.Column> columns = new ArrayList<>(inputs.size());
+		final Set<Long> numRows = new HashSet<>(2);
+		for (final Entry<? extends DLTensorId, ? extends DLTensor<? extends DLWritableBuffer>> input : inputs
+				.entrySet()) {
+			final DLTensor<? extends DLWritableBuffer> tensor = input.getValue();
+			final DLPythonDataBuffer<?> buffer = (DLPythonDataBuffer<?>) tensor.getBuffer();
+			final long start = buffer.getNextReadPosition();
+			final long length = buffer.size() - start;
+			final long[] shape = DLUtils.Shapes.getFixedShape(tensor.getSpec().getShape())
+					.orElseThrow(() -> new IllegalStateException("Execution spec does not contain fixed shape."));
+			final long exampleSize = DLUtils.Shapes.getSize(shape);
+			numRows.add(exampleSize > 0 && length % exampleSize == 0 ? length / exampleSize : -1);
+			final Map<String, String> metadata = new LinkedHashMap<>(4);
+			metadata.put("shape", Arrays.stream(shape).mapToObj(Long::toString).collect(Collectors.joining(",")));
+			metadata.put("buffer_type", DLPythonSharedMemoryTransport.PYTHON_BUFFER_TYPES
+					.getOrDefault(buffer.getClass(), buffer.getClass()).getSimpleName());
+			final String type = DLPythonSharedMemoryTransport.NUMPY_TYPES.get(buffer.getClass());
+			if (m_precision.isReduced() && isFloatingPoint(type)) {
+				metadata.put("dtype", type);
+				metadata.put("encoding", m_precision.getLabel());
+				columns.add(new DLPythonArrowIpcFormat.Column(input.getKey().getIdentifierString(),
+						getEncodedType(m_precision), length, metadata,
+						dest -> encode(buffer, type, start, length, dest.asShortBuffer())));
+				continue;
+			}
+			columns.add(new DLPythonArrowIpcFormat.Column(input.getKey().getIdentifierString(),
+					DLPythonSharedMemoryTransport.NUMPY_TYPES.get(buffer.getClass()), length, metadata, dest -> {
+						if (buffer instanceof DLPythonAbstractDirectDataBuffer) {
+							((DLPythonAbstractDirectDataBuffer<?>) buffer).readBytes(start, dest);
+						} else {
+							put(buffer.getStorageForReading(start, length), (int) start, (int) length, dest);
+						}
+					}));
+		}
+		// One list per batch entry if all tensors agree on the batch size, otherwise a single list per tensor.
+		final long rows = numRows.size() == 1 && !numRows.contains(-1L) ? numRows.iterator().next() : 1;
+		m_inputStream = DLPythonArrowIpcFormat.write(columns, rows, m_inputStream);
+		return m_inputStream;
+	}
+
+	/**
+	 * Reads the given output tensors from the given stream. Outputs that are not contained in the stream or whose
+	 * element type does not match the tensor's are skipped and need to be transferred by other means.
+	 *
+	 * @param stream the stream Python wrote via {@link #getWriteOutputsCode(String, DLTransportPrecision)}, may be empty
+	 * @param outputs the output tensors
+	 * @return the identifiers of the outputs that were read
+	 */
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	public Set<DLTensorId> readOutputs(final byte[] stream,
+			final Map<? extends DLTensorId, ? extends DLTensor<? extends DLReadableBuffer>> outputs) {
+		if (stream == null || stream.length == 0) {
+			return new HashSet<>(0);
+		}
+		final Map<String, DLPythonArrowIpcFormat.Column> columns = DLPythonArrowIpcFormat.read(stream);
+		final Set<DLTensorId> read = new HashSet<>(outputs.size());
+		for (final Entry<? extends DLTensorId, ? extends DLTensor<? extends DLReadableBuffer>> output : outputs
+				.entrySet()) {
+			final DLTensor tensor = output.getValue();
+			final Class<?> bufferType = tensor.getBuffer().getClass();
+			final DLPythonArrowIpcFormat.Column column = columns.get(output.getKey().getIdentifierString());
+			final String type = DLPythonSharedMemoryTransport.NUMPY_TYPES.get(bufferType);
+			if (column == null || type == null) {
+				continue;
+			}
+			final ByteBuffer data;
+			final String encoding = column.getMetadata().get("encoding");
+			if (encoding != null) {
+				if (!type.equals(column.getMetadata().get("dtype"))) {
+					continue;
+				}
+				data = decode(column, DLTransportPrecision.fromLabel(encoding), type);
+			} else if (column.getType().equals(type)) {
+				data = column.getData();
+			} else {
+				continue;
+			}
+			if (!DLPythonDeserializer.deserializeDirect(data, tensor)) {
+				final DLPythonDeserializer deserializer = m_deserializers.computeIfAbsent(bufferType,
+						DLPythonSharedMemoryTransport::createDeserializer);
+				deserializer.deserialize(data, tensor);
+			}
+			read.add(output.getKey());
+		}
+		return read;
+	}
+
+	/**
+	 * Encodes the given elements of a float32 or float64 buffer at the current precision. A plain indexed loop without
+	 * allocations per element, so the JIT can keep it tight.
+	 */
+	private void encode(final DLPythonDataBuffer<?> buffer, final String type, final long start, final long length,
+			final ShortBuffer dest) {
+		final DLTransportPrecision precision = m_precision;
+		final int n = (int) length;
+		double maxError = 0;
+		if ("float32".equals(type)) {
+			final FloatBuffer src = buffer instanceof DLPythonAbstractDirectDataBuffer
+					? readDirect((DLPythonAbstractDirectDataBuffer<?>) buffer, start, n).asFloatBuffer()
+					: FloatBuffer.wrap((float[]) buffer.getStorageForReading(start, length), (int) start, n).slice();
+			for (int i = 0; i < n; i++) {
+				final float value = src.get(i);
+				final short encoded = precision.encode(value);
+				dest.put(i, encoded);
+				final double error = Math.abs(value - precision.decode(encoded));
+				if (error > maxError) {
+					maxError = error;
+				}
+			}
+		} else {
+			final DoubleBuffer src = buffer instanceof DLPythonAbstractDirectDataBuffer
+					? readDirect((DLPythonAbstractDirectDataBuffer<?>) buffer, start, n).asDoubleBuffer()
+					: DoubleBuffer.wrap((double[]) buffer.getStorageForReading(start, length), (int) start, n).slice();
+			for (int i = 0; i < n; i++) {
+				final double value = src.get(i);
+				final short encoded = precision.encode((float) value);
+				dest.put(i, encoded);
+				final double error = Math.abs(value - precision.decode(encoded));
+				if (error > maxError) {
+					maxError = error;
+				}
+			}
+		}
+		m_maxError = Math.max(m_maxError, maxError);
+	}
+
+	/**
+	 * Decodes the given reduced precision column into full precision elements of the given type. The returned buffer
+	 * is only valid until the next conversion.
+	 */
+	private ByteBuffer decode(final DLPythonArrowIpcFormat.Column column, final DLTransportPrecision precision,
+			final String type) {
+		final String error = column.getMetadata().get("transport_error");
+		if (error != null) {
+			m_maxError = Math.max(m_maxError, Double.parseDouble(error));
+		}
+		final ShortBuffer src = column.getData().asShortBuffer();
+		final int n = src.remaining();
+		final ByteBuffer data = getConversionBuffer(n * DLPythonArrowIpcFormat.getElementSize(type));
+		if ("float32".equals(type)) {
+			final FloatBuffer dest = data.asFloatBuffer();
+			for (int i = 0; i < n; i++) {
+				dest.put(i, precision.decode(src.get(i)));
+			}
+		} else {
+			final DoubleBuffer dest = data.asDoubleBuffer();
+			for (int i = 0; i < n; i++) {
+				dest.put(i, precision.decode(src.get(i)));
+			}
+		}
+		return data;
+	}
+
+	private ByteBuffer readDirect(final DLPythonAbstractDirectDataBuffer<?> buffer, final long start,
+			final int length) {
+		final ByteBuffer data = getConversionBuffer(length * buffer.getElementSize());
+		buffer.readBytes(start, data);
+		data.flip();
+		return data;
+	}
+
+	private ByteBuffer getConversionBuffer(final int numBytes) {
+		if (m_conversionBuffer == null || m_conversionBuffer.capacity() < numBytes) {
+			m_conversionBuffer = ByteBuffer.allocate(numBytes).order(ByteOrder.LITTLE_ENDIAN);
+		}
+		m_conversionBuffer.clear().limit(numBytes);
+		return m_conversionBuffer;
+	}
+
+	private static boolean isFloatingPoint(final String type) {
+		return "float32".equals(type) || "float64".equals(type);
+	}
+
+	private static String getEncodedType(final DLTransportPrecision precision) {
+		// NumPy and Arrow do not know bfloat16, its bits are transferred as unsigned integers.
+		return precision == DLTransportPrecision.FLOAT16 ? "float16" : "uint16";
+	}
+
+	private static void put(final Object storage, final int offset, final int length, final ByteBuffer dest) {
+		if (storage instanceof float[]) {
+			dest.asFloatBuffer().put((float[]) storage, offset, length);
+		} else if (storage instanceof double[]) {
+			dest.asDoubleBuffer().put((double[]) storage, offset, length);
+		} else if (storage instanceof int[]) {
+			dest.asIntBuffer().put((int[]) storage, offset, length);
+		} else if (storage instanceof long[]) {
+			dest.asLongBuffer().put((long[]) storage, offset, length);
+		} else if (storage instanceof short[]) {
+			dest.asShortBuffer().put((short[]) storage, offset, length);
+		} else if (storage instanceof byte[]) {
+			dest.put((byte[]) storage, offset, length);
+		} else {
+			throw new IllegalStateException(
+					"Transmitting data to Python failed. Unsupported storage type: " + storage.getClass() + ".");
+		}
+	}
+}
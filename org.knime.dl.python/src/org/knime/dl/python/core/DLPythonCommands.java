@@ -48,6 +48,7 @@
 
 import java.io.IOException;
 import java.util.Map;
+import java.util.OptionalDouble;
 import java.util.Set;
 
 import org.knime.dl.core.DLCancelable;
@@ -55,13 +56,17 @@
 import org.knime.dl.core.DLInvalidEnvironmentException;
 import org.knime.dl.core.DLNetworkInputProvider;
 import org.knime.dl.core.DLNetworkSpec;
+import org.knime.dl.core.DLSessionMetrics;
 import org.knime.dl.core.DLTensor;
 import org.knime.dl.core.DLTensorId;
 import org.knime.dl.core.data.DLReadableBuffer;
 import org.knime.dl.core.data.DLWritableBuffer;
+import org.knime.dl.core.execution.DLTransportPrecision;
 import org.knime.dl.core.training.DLTrainingMonitor;
 import org.knime.dl.core.training.DLTrainingStatus;
 import org.knime.dl.python.core.training.DLPythonTrainingStatus;
+import org.knime.dl.util.DLThrowingLambdas.DLThrowingConsumer;
+import org.knime.dl.util.DLThrowingLambdas.DLThrowingSupplier;
 
 /**
  * @author Marcel Wiedenmann, KNIME GmbH, Konstanz, Germany
@@ -81,6 +86,49 @@ public interface DLPythonCommands extends AutoCloseable {
 
 	void testInstallation(DLCancelable cancelable) throws DLInvalidEnvironmentException, DLCanceledExecutionException;
 
+	/**
+	 * Limits the number of threads the back end may use to execute networks, e.g. TensorFlow's intra- and inter-op
+	 * parallelism. Back ends that do not support this setting ignore it.
+	 *
+	 * @param numThreads the maximum number of threads, <code>0</code> to let the back end decide
+	 * @return <code>true</code> if the setting was changed. Networks that were loaded before are invalid in this case
+	 *         and must be loaded again.
+	 */
+	default boolean setNumThreads(final int numThreads, final DLCancelable cancelable)
+			throws DLInvalidEnvironmentException, IOException, DLCanceledExecutionException {
+		return false;
+	}
+
+	/**
+	 * Sets the precision at which floating point tensors are transferred to and from Python. Reduced precisions only
+	 * apply to tensors that are transferred via {@link DLPythonArrowTransport}.
+	 *
+	 * @param precision the transport precision
+	 * @return <code>false</code> if reduced precisions are not supported, the setting is ignored in this case
+	 */
+	default boolean setTransportPrecision(final DLTransportPrecision precision) {
+		return false;
+	}
+
+	/**
+	 * @return the largest absolute rounding error of all tensor elements that were transferred at a reduced precision
+	 *         so far, empty if none were
+	 */
+	default OptionalDouble getMaxTransportError() {
+		return OptionalDouble.empty();
+	}
+
+	/**
+	 * Sets the metrics into which the time spent transferring inputs to Python, executing the network and transferring
+	 * outputs from Python as well as the number of transferred bytes are recorded. Training records into the metrics of
+	 * its {@link DLTrainingStatus training status} instead.
+	 *
+	 * @param metrics the metrics, usually the ones of the execution status of the session that uses this instance
+	 */
+	default void setMetrics(final DLSessionMetrics metrics) {
+		// no op
+	}
+
 	DLPythonNetworkHandle loadNetwork(String path, boolean loadTrainingConfig, DLCancelable cancelable)
 			throws DLInvalidEnvironmentException, IOException, DLCanceledExecutionException;
 
@@ -113,6 +161,33 @@ void getNetworkOutputs(DLPythonNetworkHandle network,
 			Map<? extends DLTensorId, ? extends DLTensor<? extends DLReadableBuffer>> outputs, DLCancelable cancelable)
 			throws DLInvalidEnvironmentException, IOException, DLCanceledExecutionException;
 
+	/**
+	 * Executes the network on all remaining batches within a single Python task. Each batch takes a single message
+	 * exchange with Python instead of the separate round trips of {@link #setNetworkInputs},
+	 * {@link #executeNetwork} and {@link #getNetworkOutputs}. Only possible if the previous batch was transferred in
+	 * both directions in a single stream (see {@link DLPythonArrowTransport}), so at least one batch must have been
+	 * executed via the individual commands beforehand. Back ends that do not support this return <code>false</code>.
+	 *
+	 * @param network the network handle
+	 * @param requestedOutputs the outputs to compute
+	 * @param inputs the input tensors that are filled by <code>nextBatch</code>
+	 * @param outputs the output tensors that are filled before being passed to <code>outputsConsumer</code>
+	 * @param nextBatch fills the input tensors with the next batch, returns <code>false</code> if there are no more
+	 *            batches
+	 * @param outputsConsumer consumes the output tensors of each batch
+	 * @return <code>false</code> if not supported, nothing was executed in this case
+	 */
+	default boolean executeNetworkBatches(final DLPythonNetworkHandle network,
+			final Set<? extends DLTensorId> requestedOutputs,
+			final Map<? extends DLTensorId, ? extends DLTensor<? extends DLWritableBuffer>> inputs,
+			final Map<? extends DLTensorId, ? extends DLTensor<? extends DLReadableBuffer>> outputs,
+			final DLThrowingSupplier<Boolean, Exception> nextBatch,
+			final DLThrowingConsumer<Map<? extends DLTensorId, ? extends DLTensor<? extends DLReadableBuffer>>, Exception> outputsConsumer,
+			final DLCancelable cancelable)
+			throws DLInvalidEnvironmentException, IOException, DLCanceledExecutionException {
+		return false;
+	}
+
 	/**
 	 * @param the network to train
 	 * @param trainingInputProvider the training data provider
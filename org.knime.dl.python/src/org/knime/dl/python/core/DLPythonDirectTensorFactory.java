@@ -0,0 +1,194 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ *
+ */
+package org.knime.dl.python.core;
+
+import java.util.function.LongFunction;
+
+import org.knime.dl.core.DLDefaultTensor;
+import org.knime.dl.core.DLTensor;
+import org.knime.dl.core.DLTensorFactory;
+import org.knime.dl.core.DLTensorSpec;
+import org.knime.dl.core.data.DLBuffer;
+import org.knime.dl.core.data.DLReadableBuffer;
+import org.knime.dl.core.data.DLReadableDoubleBuffer;
+import org.knime.dl.core.data.DLReadableFloatBuffer;
+import org.knime.dl.core.data.DLReadableIntBuffer;
+import org.knime.dl.core.data.DLReadableLongBuffer;
+import org.knime.dl.core.data.DLWritableBuffer;
+import org.knime.dl.core.data.DLWritableDoubleBuffer;
+import org.knime.dl.core.data.DLWritableFloatBuffer;
+import org.knime.dl.core.data.DLWritableIntBuffer;
+import org.knime.dl.core.data.DLWritableLongBuffer;
+import org.knime.dl.python.core.data.DLPythonDirectDoubleBuffer;
+import org.knime.dl.python.core.data.DLPythonDirectFloatBuffer;
+import org.knime.dl.python.core.data.DLPythonDirectIntBuffer;
+import org.knime.dl.python.core.data.DLPythonDirectLongBuffer;
+import org.knime.dl.util.DLUtils;
+
+/**
+ * Variant of {@link DLPythonDefaultTensorFactory} that allocates the buffers of numeric (float, double, int and long)
+ * tensors in direct (off-heap) memory. Such tensors are not limited to 2^31-1 elements, do not burden the garbage
+ * collector and are transferred to and from Python by copying raw memory. Their memory is released when the tensor is
+ * {@link DLTensor#close() closed}. All other tensors are created by {@link DLPythonDefaultTensorFactory}.
+ * <P>
+ * The factory is used by the Python back ends if enabled via the VM option {@link #ENABLED_VM_OPT}. Note that direct
+ * memory is limited by the VM option <code>-XX:MaxDirectMemorySize</code>, which defaults to the maximum heap size.
+ */
+public final class DLPythonDirectTensorFactory implements DLTensorFactory {
+
+	/**
+	 * VM option that enables off-heap tensors if set to <code>true</code>.
+	 */
+	public static final String ENABLED_VM_OPT = "knime.dl.python.offheap";
+
+	/**
+	 * @return <code>true</code> if off-heap tensors are enabled via {@link #ENABLED_VM_OPT}
+	 */
+	public static boolean isEnabled() {
+		return Boolean.parseBoolean(System.getProperty(ENABLED_VM_OPT, "false"));
+	}
+
+	/**
+	 * @return a new instance of this factory if off-heap tensors are {@link #isEnabled() enabled}, a new instance of
+	 *         {@link DLPythonDefaultTensorFactory} otherwise
+	 */
+	public static DLTensorFactory createIfEnabled() {
+		return isEnabled() ? new DLPythonDirectTensorFactory() : new DLPythonDefaultTensorFactory();
+	}
+
+	private final DLPythonDefaultTensorFactory m_heapFactory = new DLPythonDefaultTensorFactory();
+
+	/**
+	 * Returns the buffer interface that is implemented by the direct buffers created by this factory (and by the heap
+	 * buffers of {@link DLPythonDefaultTensorFactory}), so converters are selected independently of where the tensors
+	 * reside.
+	 */
+	@Override
+	public Class<? extends DLWritableBuffer> getWritableBufferType(final DLTensorSpec spec) {
+		final Class<?> t = spec.getElementType();
+		if (t.equals(double.class)) {
+			return DLWritableDoubleBuffer.class;
+		} else if (t.equals(float.class)) {
+			return DLWritableFloatBuffer.class;
+		} else if (t.equals(int.class)) {
+			return DLWritableIntBuffer.class;
+		} else if (t.equals(long.class)) {
+			return DLWritableLongBuffer.class;
+		} else {
+			return m_heapFactory.getWritableBufferType(spec);
+		}
+	}
+
+	/**
+	 * See {@link #getWritableBufferType(DLTensorSpec)}.
+	 */
+	@Override
+	public Class<? extends DLReadableBuffer> getReadableBufferType(final DLTensorSpec spec) {
+		final Class<?> t = spec.getElementType();
+		if (t.equals(double.class)) {
+			return DLReadableDoubleBuffer.class;
+		} else if (t.equals(float.class)) {
+			return DLReadableFloatBuffer.class;
+		} else if (t.equals(int.class)) {
+			return DLReadableIntBuffer.class;
+		} else if (t.equals(long.class)) {
+			return DLReadableLongBuffer.class;
+		} else {
+			return m_heapFactory.getReadableBufferType(spec);
+		}
+	}
+
+	@Override
+	public DLTensor<? extends DLWritableBuffer> createWritableTensor(final DLTensorSpec spec) {
+		final LongFunction<? extends DLBuffer> bufferCreator = getDirectBufferCreator(spec.getElementType());
+		return bufferCreator != null ? createTensorInternal(spec, bufferCreator)
+				: m_heapFactory.createWritableTensor(spec);
+	}
+
+	@Override
+	public DLTensor<? extends DLReadableBuffer> createReadableTensor(final DLTensorSpec spec) {
+		final LongFunction<? extends DLBuffer> bufferCreator = getDirectBufferCreator(spec.getElementType());
+		return bufferCreator != null ? createTensorInternal(spec, bufferCreator)
+				: m_heapFactory.createReadableTensor(spec);
+	}
+
+	@Override
+	public DLTensorSpec createExecutionTensorSpec(final DLTensorSpec spec, final long batchSize, final long[] shape) {
+		return m_heapFactory.createExecutionTensorSpec(spec, batchSize, shape);
+	}
+
+	private static LongFunction<? extends DLBuffer> getDirectBufferCreator(final Class<?> elementType) {
+		if (elementType.equals(double.class)) {
+			return DLPythonDirectDoubleBuffer::new;
+		} else if (elementType.equals(float.class)) {
+			return DLPythonDirectFloatBuffer::new;
+		} else if (elementType.equals(int.class)) {
+			return DLPythonDirectIntBuffer::new;
+		} else if (elementType.equals(long.class)) {
+			return DLPythonDirectLongBuffer::new;
+		} else {
+			return null;
+		}
+	}
+
+	private static <B extends DLBuffer> DLTensor<B> createTensorInternal(final DLTensorSpec spec,
+			final LongFunction<? extends DLBuffer> bufferCreator) {
+		final long[] shape = DLUtils.Shapes.getFixedShape(spec.getShape())
+				.orElseThrow(() -> new IllegalArgumentException(
+						"Tensor spec '" + spec.getName() + "' does not provide a shape. Tensor cannot be created."));
+		if (!spec.getBatchSize().isPresent()) {
+			throw new IllegalArgumentException(
+					"Tensor spec '" + spec.getName() + "' does not provide a batch size. Tensor cannot be created.");
+		}
+		final long exampleSize = DLUtils.Shapes.getSize(shape);
+		final long size = exampleSize * spec.getBatchSize().getAsLong();
+		// TODO: handle unsafe casts
+		@SuppressWarnings("unchecked")
+		final B buffer = (B) bufferCreator.apply(size);
+		return new DLDefaultTensor<>(spec, buffer, exampleSize);
+	}
+}
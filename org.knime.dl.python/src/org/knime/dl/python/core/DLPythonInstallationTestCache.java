@@ -0,0 +1,335 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ *
+ */
+package org.knime.dl.python.core;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.knime.core.node.KNIMEConstants;
+import org.knime.core.node.NodeLogger;
+import org.knime.dl.core.DLCancelable;
+import org.knime.dl.core.DLCanceledExecutionException;
+import org.knime.dl.core.DLInvalidEnvironmentException;
+import org.knime.dl.core.DLNotCancelable;
+import org.knime.dl.util.DLUtils;
+
+/**
+ * Runs the installation tests of all registered Python network loaders in a single Python process and persists their
+ * results together with a fingerprint of the Python environment. Persisted results are reused across sessions as long
+ * as the fingerprint of the environment does not change. They are refreshed once per session in the background.
+ */
+final class DLPythonInstallationTestCache {
+
+    private static final String RUNNER_SCRIPT = "py/DLPythonInstallationTestRunner.py";
+
+    // markers are printed on Python side - do not change
+    private static final String FINGERPRINT_MARKER = "[DL Python environment fingerprint]";
+
+    private static final String RESULT_MARKER = "[DL Python installation test result]";
+
+    private static final String CACHE_FILE_NAME = "dl-python-installation-tests.properties";
+
+    private static final String FINGERPRINT_KEY = "fingerprint";
+
+    private static final String SUCCESS_KEY_SUFFIX = ".success";
+
+    private static final String MESSAGE_KEY_SUFFIX = ".message";
+
+    private static final NodeLogger LOGGER = NodeLogger.getLogger(DLPythonInstallationTestCache.class);
+
+    /**
+     * Results of this session, keyed by the canonical names of the tested network types.
+     */
+    private static final Map<String, Result> RESULTS = new ConcurrentHashMap<>();
+
+    private static final AtomicBoolean REFRESH_SCHEDULED = new AtomicBoolean();
+
+    /**
+     * Guarded by the class lock.
+     */
+    private static boolean persistedResultsRead = false;
+
+    private DLPythonInstallationTestCache() {
+    }
+
+    /**
+     * @param loader the loader whose network type is tested
+     * @return the number of network types that are tested together with the given loader's network type
+     */
+    static int getNumberOfTestedNetworkTypes(final DLPythonNetworkLoader<?> loader) {
+        return getLoaders(loader).size();
+    }
+
+    /**
+     * Returns the result of this session for the given loader without running any tests.
+     *
+     * @param loader the loader
+     * @return the result or <code>null</code> if none is available yet
+     */
+    static Result getSessionResult(final DLPythonNetworkLoader<?> loader) {
+        return RESULTS.get(getKey(loader));
+    }
+
+    /**
+     * Returns the result of this session for the given loader. If there is none yet, the persisted results are
+     * consulted if they were obtained in the current Python environment. The persisted results are then refreshed in
+     * the background.
+     *
+     * @param loader the loader
+     * @param cancelable to check if the lookup has been canceled
+     * @return the result or <code>null</code> if neither a result of this session nor a valid persisted result is
+     *         available
+     */
+    static Result getResult(final DLPythonNetworkLoader<?> loader, final DLCancelable cancelable) {
+        final Result result = getSessionResult(loader);
+        if (result != null) {
+            return result;
+        }
+        readPersistedResults(loader, cancelable);
+        return getSessionResult(loader);
+    }
+
+    /**
+     * Tests the installations of the given loader and all registered loaders in a single Python process and persists
+     * the results.
+     *
+     * @param loader the loader whose network type is tested first
+     * @param cancelable to check if the test has been canceled
+     * @return the result for the given loader
+     * @throws IOException if communicating with Python failed
+     * @throws DLCanceledExecutionException if the test has been canceled
+     */
+    static synchronized Result testAll(final DLPythonNetworkLoader<?> loader, final DLCancelable cancelable)
+        throws IOException, DLCanceledExecutionException {
+        final Collection<DLPythonNetworkLoader<?>> loaders = getLoaders(loader);
+        final String[] output = runScript("test", loaders, cancelable);
+        final List<String> keys = new ArrayList<>(loaders.size());
+        for (final DLPythonNetworkLoader<?> l : loaders) {
+            keys.add(getKey(l));
+        }
+        final Map<String, Result> results = parseResults(output[0], output[1], keys);
+        RESULTS.putAll(results);
+        persistedResultsRead = true;
+        final String fingerprint = parseFingerprint(output[0]);
+        if (fingerprint != null) {
+            writePersistedResults(fingerprint, results);
+        }
+        return results.get(getKey(loader));
+    }
+
+    private static synchronized void readPersistedResults(final DLPythonNetworkLoader<?> loader,
+        final DLCancelable cancelable) {
+        if (persistedResultsRead) {
+            return;
+        }
+        persistedResultsRead = true;
+        final File file = getCacheFile();
+        if (!file.isFile()) {
+            return;
+        }
+        final Properties properties = new Properties();
+        try (InputStream in = new FileInputStream(file)) {
+            properties.load(in);
+        } catch (final IOException e) {
+            LOGGER.debug("Could not read persisted deep learning Python installation test results.", e);
+            return;
+        }
+        final Collection<DLPythonNetworkLoader<?>> loaders = getLoaders(loader);
+        final Map<String, Result> results = new HashMap<>(loaders.size());
+        for (final DLPythonNetworkLoader<?> l : loaders) {
+            final String key = getKey(l);
+            final String success = properties.getProperty(key + SUCCESS_KEY_SUFFIX);
+            if (success == null) {
+                // a back end was added since the results were persisted
+                return;
+            }
+            results.put(key, new Result(Boolean.parseBoolean(success), properties.getProperty(key + MESSAGE_KEY_SUFFIX)));
+        }
+        final String fingerprint;
+        try {
+            fingerprint = parseFingerprint(runScript("fingerprint", loaders, cancelable)[0]);
+        } catch (final IOException | DLCanceledExecutionException e) {
+            LOGGER.debug("Could not compute the fingerprint of the deep learning Python environment.", e);
+            return;
+        }
+        if (fingerprint == null || !fingerprint.equals(properties.getProperty(FINGERPRINT_KEY))) {
+            return;
+        }
+        RESULTS.putAll(results);
+        scheduleRefresh(loader);
+    }
+
+    private static void writePersistedResults(final String fingerprint, final Map<String, Result> results) {
+        final Properties properties = new Properties();
+        properties.setProperty(FINGERPRINT_KEY, fingerprint);
+        for (final Map.Entry<String, Result> entry : results.entrySet()) {
+            properties.setProperty(entry.getKey() + SUCCESS_KEY_SUFFIX, Boolean.toString(entry.getValue().isSuccess()));
+            if (entry.getValue().getMessage() != null) {
+                properties.setProperty(entry.getKey() + MESSAGE_KEY_SUFFIX, entry.getValue().getMessage());
+            }
+        }
+        try (OutputStream out = new FileOutputStream(getCacheFile())) {
+            properties.store(out, "Deep learning Python installation test results");
+        } catch (final IOException e) {
+            LOGGER.debug("Could not persist deep learning Python installation test results.", e);
+        }
+    }
+
+    private static void scheduleRefresh(final DLPythonNetworkLoader<?> loader) {
+        if (REFRESH_SCHEDULED.compareAndSet(false, true)) {
+            final Thread t = new Thread(() -> {
+                try {
+                    testAll(loader, DLNotCancelable.INSTANCE);
+                } catch (final Exception e) {
+                    LOGGER.debug("Refreshing the deep learning Python installation test results failed.", e);
+                }
+            }, "DL-Installation-Test-Refresh");
+            t.setDaemon(true);
+            t.start();
+        }
+    }
+
+    private static String[] runScript(final String mode, final Collection<DLPythonNetworkLoader<?>> loaders,
+        final DLCancelable cancelable) throws IOException, DLCanceledExecutionException {
+        final File script = DLUtils.Files.getFileFromSameBundle(DLPythonInstallationTestCache.class, RUNNER_SCRIPT);
+        final List<String> args = new ArrayList<>(loaders.size() + 1);
+        args.add(mode);
+        for (final DLPythonNetworkLoader<?> loader : loaders) {
+            args.add(loader.getPythonModuleName() + "=" + getKey(loader));
+        }
+        try (final DLPythonContext context = new DLPythonDefaultContext()) {
+            return context.execute(cancelable, script, args.toArray(new String[args.size()]));
+        }
+    }
+
+    static String parseFingerprint(final String stdout) {
+        final int idx = stdout.indexOf(FINGERPRINT_MARKER);
+        if (idx == -1) {
+            return null;
+        }
+        final int start = idx + FINGERPRINT_MARKER.length();
+        final int end = stdout.indexOf('\n', start);
+        return (end != -1 ? stdout.substring(start, end) : stdout.substring(start)).trim();
+    }
+
+    static Map<String, Result> parseResults(final String stdout, final String stderr, final Collection<String> keys) {
+        final Map<String, String> outputs = new HashMap<>();
+        int idx = stdout.indexOf(RESULT_MARKER);
+        while (idx != -1) {
+            final int lineEnd = stdout.indexOf('\n', idx);
+            if (lineEnd == -1) {
+                break;
+            }
+            final int next = stdout.indexOf(RESULT_MARKER, lineEnd);
+            outputs.put(stdout.substring(idx + RESULT_MARKER.length(), lineEnd).trim(),
+                stdout.substring(lineEnd + 1, next != -1 ? next : stdout.length()).trim());
+            idx = next;
+        }
+        final Map<String, Result> results = new LinkedHashMap<>(keys.size());
+        for (final String key : keys) {
+            // a missing output is reported as a failure for unknown reasons along with the error output
+            try {
+                DLPythonAbstractCommands.checkInstallationTestOutput(outputs.getOrDefault(key, ""), stderr);
+                results.put(key, new Result(true, null));
+            } catch (final DLInvalidEnvironmentException e) {
+                results.put(key, new Result(false, e.getMessage()));
+            }
+        }
+        return results;
+    }
+
+    private static Collection<DLPythonNetworkLoader<?>> getLoaders(final DLPythonNetworkLoader<?> loader) {
+        final Map<String, DLPythonNetworkLoader<?>> loaders = new LinkedHashMap<>();
+        // the requesting loader is tested first, see DLKerasNetworkType._test_installation
+        loaders.put(getKey(loader), loader);
+        for (final DLPythonNetworkLoader<?> l : DLPythonNetworkLoaderRegistry.getInstance().getAllNetworkLoaders()) {
+            loaders.putIfAbsent(getKey(l), l);
+        }
+        return loaders.values();
+    }
+
+    private static String getKey(final DLPythonNetworkLoader<?> loader) {
+        return loader.getNetworkType().getCanonicalName();
+    }
+
+    private static File getCacheFile() {
+        return new File(KNIMEConstants.getKNIMEHomeDir(), CACHE_FILE_NAME);
+    }
+
+    static final class Result {
+
+        private final boolean m_success;
+
+        private final String m_message;
+
+        Result(final boolean success, final String message) {
+            m_success = success;
+            m_message = message;
+        }
+
+        boolean isSuccess() {
+            return m_success;
+        }
+
+        String getMessage() {
+            return m_message;
+        }
+    }
+}
@@ -0,0 +1,370 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ *
+ */
+package org.knime.dl.python.core;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import org.knime.core.data.util.memory.MemoryAlert;
+import org.knime.core.data.util.memory.MemoryAlertListener;
+import org.knime.core.data.util.memory.MemoryAlertSystem;
+import org.knime.core.node.NodeLogger;
+import org.knime.dl.core.DLCancelable;
+import org.knime.dl.core.DLCanceledExecutionException;
+import org.knime.dl.core.DLInvalidEnvironmentException;
+
+/**
+ * Pool of Python kernels that are already set up for a certain deep learning back end. Setting up a kernel (launching
+ * the Python process, importing the gateway, registering all back ends and importing the back end's libraries) takes
+ * several seconds, which dominates the run time of nodes that are executed repeatedly, e.g. within loops.
+ * <P>
+ * Kernels are pooled per {@link DLPythonNetwork network type}, i.e. per back end. A kernel is leased via
+ * {@link #lease(Class, DLCancelable)} and returned to the pool by {@link DLPythonContext#close() closing} the leased
+ * context. The Python workspace of a returned kernel is reset before it can be leased again. Kernels that failed during
+ * their lease, that do not pass a health check or that have been idle for longer than the configured timeout are shut
+ * down.
+ * <P>
+ * The maximum number of idle kernels per back end and the idle timeout can be configured via the VM options
+ * {@link #POOL_SIZE_VM_OPT} and {@link #IDLE_TIMEOUT_VM_OPT}. Setting the pool size to zero disables pooling. Since
+ * not all memory that a back end allocates during a lease is released by resetting the workspace, kernels are retired
+ * after a number of leases that can be configured via the VM option {@link #MAX_LEASES_VM_OPT}.
+ * <P>
+ * Each pooled kernel keeps recently executed networks resident in its workspace (see
+ * {@link DLPythonNetworkHandleCache}). These networks are released if memory gets low.
+ */
+public final class DLPythonKernelPool {
+
+    /**
+     * VM option that specifies the maximum number of idle kernels per back end.
+     */
+    public static final String POOL_SIZE_VM_OPT = "knime.dl.python.kernelpool.size";
+
+    /**
+     * Default maximum number of idle kernels per back end.
+     */
+    public static final int POOL_SIZE_DEFAULT = 2;
+
+    /**
+     * VM option that specifies the time after which idle kernels are shut down.
+     */
+    public static final String IDLE_TIMEOUT_VM_OPT = "knime.dl.python.kernelpool.idletimeout";
+
+    /**
+     * Default time after which idle kernels are shut down.
+     */
+    public static final int IDLE_TIMEOUT_DEFAULT = 300000; // in ms
+
+    /**
+     * VM option that specifies the number of leases after which a kernel is shut down instead of being returned to the
+     * pool. Zero means no limit.
+     */
+    public static final String MAX_LEASES_VM_OPT = "knime.dl.python.kernelpool.maxleases";
+
+    /**
+     * Default number of leases after which a kernel is shut down.
+     */
+    public static final int MAX_LEASES_DEFAULT = 100;
+
+    private static final NodeLogger LOGGER = NodeLogger.getLogger(DLPythonKernelPool.class);
+
+    private static DLPythonKernelPool instance;
+
+    /**
+     * Returns the singleton instance.
+     *
+     * @return the singleton instance
+     */
+    public static synchronized DLPythonKernelPool getInstance() {
+        if (instance == null) {
+            instance = new DLPythonKernelPool(readVMOption(POOL_SIZE_VM_OPT, POOL_SIZE_DEFAULT),
+                readVMOption(IDLE_TIMEOUT_VM_OPT, IDLE_TIMEOUT_DEFAULT),
+                readVMOption(MAX_LEASES_VM_OPT, MAX_LEASES_DEFAULT));
+        }
+        return instance;
+    }
+
+    /**
+     * Shuts down the singleton instance if it was created.
+     */
+    static synchronized void shutdownInstance() {
+        if (instance != null) {
+            instance.shutdown();
+            instance = null;
+        }
+    }
+
+    /**
+     * Marks the given context as not reusable if it was leased from a pool. Callers that observe a failure while using
+     * a leased context - especially failures that happened while interacting with the {@link DLPythonContext#getKernel()
+     * raw kernel} - should call this method before closing the context. Invalidated kernels are shut down instead of
+     * being returned to the pool.
+     *
+     * @param context the context, may be <code>null</code>
+     */
+    public static void invalidate(final DLPythonContext context) {
+        if (context instanceof DLPythonPooledContext) {
+            ((DLPythonPooledContext)context).invalidate();
+        }
+    }
+
+    private static int readVMOption(final String option, final int defaultValue) {
+        int value = -1;
+        try {
+            value = Integer.parseInt(System.getProperty(option, Integer.toString(defaultValue)));
+        } catch (final NumberFormatException ex) {
+            // Ignore, see below.
+        }
+        if (value < 0) {
+            value = defaultValue;
+            LOGGER.warn("The VM option -D" + option + " was not set to a non-negative integer value, and thus defaults to "
+                + value + ".");
+        }
+        return value;
+    }
+
+    private final int m_maxIdleKernels;
+
+    private final long m_idleTimeout;
+
+    private final int m_maxLeases;
+
+    private final Map<Class<?>, Deque<DLPythonPooledContext>> m_idleContexts = new HashMap<>();
+
+    private final Set<DLPythonPooledContext> m_liveContexts = ConcurrentHashMap.newKeySet();
+
+    private final ScheduledExecutorService m_evictor;
+
+    private final Semaphore m_memoryAlertGate = new Semaphore(1);
+
+    private final MemoryAlertListener m_memoryAlertListener = new MemoryAlertListener() {
+        @Override
+        protected boolean memoryAlert(final MemoryAlert alert) {
+            onMemoryAlert();
+            return false;
+        }
+    };
+
+    private boolean m_shutdown = false;
+
+    private DLPythonKernelPool(final int maxIdleKernels, final long idleTimeout, final int maxLeases) {
+        m_maxIdleKernels = maxIdleKernels;
+        m_idleTimeout = idleTimeout;
+        m_maxLeases = maxLeases;
+        m_evictor = Executors.newSingleThreadScheduledExecutor(r -> {
+            final Thread t = new Thread(r, "DL-Python-Kernel-Pool-Evictor");
+            t.setDaemon(true);
+            return t;
+        });
+        final long evictionPeriod = Math.max(1000, m_idleTimeout / 2);
+        m_evictor.scheduleWithFixedDelay(this::evictIdleContexts, evictionPeriod, evictionPeriod,
+            TimeUnit.MILLISECONDS);
+        MemoryAlertSystem.getInstance().addListener(m_memoryAlertListener);
+    }
+
+    /**
+     * Leases a Python context whose kernel is set up for the back end of the given network type. The caller is
+     * responsible for {@link DLPythonContext#close() closing} the returned context which returns its kernel to the
+     * pool.
+     * <P>
+     * If pooling is disabled or not supported by the back end's {@link DLPythonNetworkLoader loader}, a fresh, not yet
+     * set up {@link DLPythonDefaultContext} is returned.
+     *
+     * @param networkType the network type whose back end the kernel is set up for
+     * @param cancelable to check if the operation has been canceled
+     * @return the leased context
+     * @throws DLInvalidEnvironmentException if setting up a new kernel failed
+     * @throws DLCanceledExecutionException if the operation has been canceled
+     */
+    public DLPythonContext lease(final Class<? extends DLPythonNetwork> networkType, final DLCancelable cancelable)
+        throws DLInvalidEnvironmentException, DLCanceledExecutionException {
+        final Optional<DLPythonAbstractNetworkLoader<?>> loader = getPoolableNetworkLoader(networkType);
+        if (m_maxIdleKernels == 0 || !loader.isPresent()) {
+            return new DLPythonDefaultContext();
+        }
+        DLPythonPooledContext context;
+        while ((context = pollIdleContext(networkType)) != null) {
+            if (context.isHealthy(cancelable)) {
+                context.onLease();
+                return context;
+            }
+            LOGGER.debug("Discarding pooled Python kernel for back end '" + networkType.getCanonicalName()
+                + "' as it did not pass the health check.");
+            context.closeKernel();
+        }
+        context = new DLPythonPooledContext(this, networkType, new DLPythonDefaultContext());
+        m_liveContexts.add(context);
+        try {
+            // Runs the environment and back end setup code.
+            loader.get().createCommands(context).getContext(cancelable);
+            context.markSetUp(cancelable);
+        } catch (final DLInvalidEnvironmentException | DLCanceledExecutionException | RuntimeException e) {
+            context.closeKernel();
+            throw e;
+        }
+        context.onLease();
+        return context;
+    }
+
+    /**
+     * Shuts down all idle kernels. Kernels that are currently leased are shut down once they are returned.
+     */
+    public void shutdown() {
+        final List<DLPythonPooledContext> toClose = new ArrayList<>();
+        synchronized (m_idleContexts) {
+            m_shutdown = true;
+            m_idleContexts.values().forEach(toClose::addAll);
+            m_idleContexts.clear();
+        }
+        MemoryAlertSystem.getInstance().removeListener(m_memoryAlertListener);
+        m_evictor.shutdownNow();
+        toClose.forEach(DLPythonPooledContext::closeKernel);
+    }
+
+    /**
+     * Called by a leased context once it is closed.
+     */
+    void release(final DLPythonPooledContext context) {
+        if (!context.isReusable() || (m_maxLeases > 0 && context.getNumLeases() >= m_maxLeases)
+            || !context.resetWorkspace()) {
+            context.closeKernel();
+            return;
+        }
+        synchronized (m_idleContexts) {
+            final Deque<DLPythonPooledContext> idle =
+                m_idleContexts.computeIfAbsent(context.getNetworkType(), t -> new ArrayDeque<>());
+            if (!m_shutdown && idle.size() < m_maxIdleKernels) {
+                // LIFO, the most recently used kernel is leased first
+                idle.push(context);
+                return;
+            }
+        }
+        context.closeKernel();
+    }
+
+    /**
+     * Called by a context once its kernel was shut down.
+     */
+    void onKernelClosed(final DLPythonPooledContext context) {
+        m_liveContexts.remove(context);
+    }
+
+    private void onMemoryAlert() {
+        // NB: semaphore to avoid redundant releases
+        if (m_memoryAlertGate.tryAcquire()) {
+            try {
+                LOGGER.debug("Releasing networks that are resident in pooled Python kernels due to low memory.");
+                m_liveContexts.forEach(c -> c.getNetworkHandleCache().invalidateAll());
+                // Leased kernels release their networks once they are returned to the pool. Idle kernels are reset
+                // asynchronously to keep the memory alert thread responsive.
+                m_evictor.execute(this::resetIdleContexts);
+            } catch (final RejectedExecutionException e) {
+                // Pool was shut down in the meantime, nothing to release.
+            } finally {
+                m_memoryAlertGate.release();
+            }
+        }
+    }
+
+    private void resetIdleContexts() {
+        final List<DLPythonPooledContext> toReset = new ArrayList<>();
+        synchronized (m_idleContexts) {
+            m_idleContexts.values().forEach(toReset::addAll);
+            m_idleContexts.values().forEach(Deque::clear);
+        }
+        // Either re-adds the reset kernels to the pool or shuts them down.
+        toReset.forEach(this::release);
+    }
+
+    private DLPythonPooledContext pollIdleContext(final Class<?> networkType) {
+        synchronized (m_idleContexts) {
+            final Deque<DLPythonPooledContext> idle = m_idleContexts.get(networkType);
+            return idle != null ? idle.poll() : null;
+        }
+    }
+
+    private void evictIdleContexts() {
+        final long now = System.currentTimeMillis();
+        final List<DLPythonPooledContext> toClose = new ArrayList<>();
+        synchronized (m_idleContexts) {
+            for (final Deque<DLPythonPooledContext> idle : m_idleContexts.values()) {
+                for (final Iterator<DLPythonPooledContext> it = idle.iterator(); it.hasNext();) {
+                    final DLPythonPooledContext context = it.next();
+                    if (now - context.getIdleSince() > m_idleTimeout) {
+                        it.remove();
+                        toClose.add(context);
+                    }
+                }
+            }
+        }
+        for (final DLPythonPooledContext context : toClose) {
+            LOGGER.debug("Shutting down pooled Python kernel for back end '"
+                + context.getNetworkType().getCanonicalName() + "' after being idle for more than " + m_idleTimeout
+                + " ms.");
+            context.closeKernel();
+        }
+    }
+
+    private static <N extends DLPythonNetwork> Optional<DLPythonAbstractNetworkLoader<?>>
+        getPoolableNetworkLoader(final Class<N> networkType) {
+        return DLPythonNetworkLoaderRegistry.getInstance().getNetworkLoader(networkType)
+            .filter(l -> l instanceof DLPythonAbstractNetworkLoader)
+            .map(l -> (DLPythonAbstractNetworkLoader<?>)l);
+    }
+}
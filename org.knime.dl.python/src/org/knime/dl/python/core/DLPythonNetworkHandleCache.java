@@ -0,0 +1,270 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ *
+ */
+package org.knime.dl.python.core;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.stream.Collectors;
+
+import org.knime.core.node.NodeLogger;
+import org.knime.core.util.FileUtil;
+import org.knime.dl.core.DLCancelable;
+import org.knime.dl.core.DLCanceledExecutionException;
+import org.knime.dl.core.DLInvalidEnvironmentException;
+import org.knime.dl.core.DLInvalidSourceException;
+import org.knime.dl.core.DLNetworkSpec;
+import org.knime.dl.core.cache.DLMemoryAlertAwareGuavaCache;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.Hashing;
+import com.google.common.io.Files;
+
+/**
+ * Cache of networks that stay resident in the Python workspace of a {@link DLPythonPooledContext pooled kernel} across
+ * leases. Networks are keyed by the URI of their source and a digest of the source's content. A hit skips reading the
+ * network file and - since the same Python network object is reused - the extraction of its spec.
+ * <P>
+ * The cache holds networks that were loaded for execution (i.e. without their training configuration) and networks that
+ * were {@link #register(DLPythonNetwork, DLPythonNetworkHandle, DLPythonContext) registered} right after they were
+ * saved from the kernel, e.g. by a training session. Networks that are evicted from the cache are removed from the
+ * Python workspace when the kernel's workspace is reset. The
+ * maximum number of cached networks per kernel can be configured via the VM option {@link #CACHE_SIZE_VM_OPT}. Setting
+ * it to zero disables caching. All caches are cleared if the {@link DLPythonKernelPool pool} receives a memory alert.
+ */
+public final class DLPythonNetworkHandleCache {
+
+    /**
+     * VM option that specifies the maximum number of networks that stay resident per pooled kernel.
+     */
+    public static final String CACHE_SIZE_VM_OPT = "knime.dl.python.networkcache.size";
+
+    /**
+     * Default maximum number of networks that stay resident per pooled kernel.
+     */
+    public static final int CACHE_SIZE_DEFAULT = 3;
+
+    private static final NodeLogger LOGGER = NodeLogger.getLogger(DLPythonNetworkHandleCache.class);
+
+    private static final int CACHE_SIZE = readCacheSize();
+
+    /**
+     * Loads the given network into the given context for execution. If the context was leased from the
+     * {@link DLPythonKernelPool} and already holds the network, the resident network is reused instead.
+     *
+     * @param loader the loader of the network
+     * @param network the network to load
+     * @param context the context to load the network into
+     * @param cancelable to check if the operation has been canceled
+     * @return the handle of the loaded network
+     * @throws DLInvalidSourceException if the network source is invalid or unavailable
+     * @throws DLInvalidEnvironmentException if the Python network environment is invalid
+     * @throws IOException if failed to load the network
+     * @throws DLCanceledExecutionException if the operation has been canceled
+     * @see DLPythonNetworkLoader#load(DLPythonNetwork, DLPythonContext, boolean, DLCancelable)
+     */
+    public static <N extends DLPythonNetwork> DLPythonNetworkHandle load(final DLPythonNetworkLoader<N> loader,
+        final N network, final DLPythonContext context, final DLCancelable cancelable)
+        throws DLInvalidSourceException, DLInvalidEnvironmentException, IOException, DLCanceledExecutionException {
+        if (!(context instanceof DLPythonPooledContext) || CACHE_SIZE == 0) {
+            return loader.load(network, context, false, cancelable);
+        }
+        final DLPythonNetworkHandleCache cache = ((DLPythonPooledContext)context).getNetworkHandleCache();
+        final Optional<String> key = createKey(network.getSource().getURI());
+        if (!key.isPresent()) {
+            return loader.load(network, context, false, cancelable);
+        }
+        final CachedNetwork cached = cache.m_cache.getIfPresent(key.get());
+        if (cached != null) {
+            return cached.m_handle;
+        }
+        final DLPythonNetworkHandle handle = loader.load(network, context, false, cancelable);
+        cache.m_cache.put(key.get(), new CachedNetwork(handle, network.getSpec()));
+        return handle;
+    }
+
+    /**
+     * Keeps a network that was just saved from the given context resident, such that a downstream execution that leases
+     * the same kernel reuses it instead of loading the saved file. Unlike {@link #load}, the digest of the saved file is
+     * not computed by reading the file. A random digest is memoized for the file's current size and modification time
+     * instead, which is what the execution looks up. Does nothing if the context was not leased from the
+     * {@link DLPythonKernelPool}.
+     *
+     * @param network the network, its source must be the file the network was saved to
+     * @param handle the handle of the network in the context. Must not be removed or modified by the caller afterwards.
+     * @param context the context the network was saved from
+     */
+    public static void register(final DLPythonNetwork network, final DLPythonNetworkHandle handle,
+        final DLPythonContext context) {
+        if (!(context instanceof DLPythonPooledContext) || CACHE_SIZE == 0) {
+            return;
+        }
+        final File file = getFile(network.getSource().getURI());
+        if (file == null) {
+            return;
+        }
+        final String digest = "saved-" + UUID.randomUUID();
+        DLMemoryAlertAwareGuavaCache.CACHE.put(getDigestKey(file), digest);
+        ((DLPythonPooledContext)context).getNetworkHandleCache().m_cache
+            .put(network.getSource().getURI().toString() + "#" + digest, new CachedNetwork(handle, network.getSpec()));
+    }
+
+    /**
+     * Evicts all networks that are resident in the given context, e.g. because they became invalid.
+     *
+     * @param context the context
+     */
+    public static void invalidate(final DLPythonContext context) {
+        if (context instanceof DLPythonPooledContext) {
+            ((DLPythonPooledContext)context).getNetworkHandleCache().invalidateAll();
+        }
+    }
+
+    private static Optional<String> createKey(final URI source) {
+        final File file = getFile(source);
+        if (file == null) {
+            return Optional.empty();
+        }
+        try {
+            final String digest = DLMemoryAlertAwareGuavaCache.CACHE.get(getDigestKey(file),
+                () -> Files.asByteSource(file).hash(Hashing.sha256()).toString());
+            return Optional.of(source.toString() + "#" + digest);
+        } catch (final ExecutionException e) {
+            LOGGER.debug("Computing the digest of network file '" + file + "' failed. The network will not be cached.",
+                e.getCause());
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * @return the local file of the source, <code>null</code> if the source is remote or otherwise unresolvable. Such
+     *         sources are not cached.
+     */
+    private static File getFile(final URI source) {
+        final File file;
+        try {
+            file = FileUtil.getFileFromURL(source.toURL());
+        } catch (final Exception e) {
+            return null;
+        }
+        return file != null && file.isFile() ? file : null;
+    }
+
+    /**
+     * The digest is memoized as long as the file was not modified to avoid re-reading large network files.
+     */
+    private static UUID getDigestKey(final File file) {
+        return UUID.nameUUIDFromBytes(("dl-python-network-digest:" + file.getAbsolutePath() + ":" + file.length() + ":"
+            + file.lastModified()).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static int readCacheSize() {
+        int value = -1;
+        try {
+            value = Integer.parseInt(System.getProperty(CACHE_SIZE_VM_OPT, Integer.toString(CACHE_SIZE_DEFAULT)));
+        } catch (final NumberFormatException ex) {
+            // Ignore, see below.
+        }
+        if (value < 0) {
+            value = CACHE_SIZE_DEFAULT;
+            LOGGER.warn("The VM option -D" + CACHE_SIZE_VM_OPT
+                + " was not set to a non-negative integer value, and thus defaults to " + value + ".");
+        }
+        return value;
+    }
+
+    private final Cache<String, CachedNetwork> m_cache =
+        CacheBuilder.newBuilder().maximumSize(Math.max(CACHE_SIZE, 1)).build();
+
+    DLPythonNetworkHandleCache() {
+    }
+
+    /**
+     * Returns the spec of a resident network that was loaded from the given source if the source's content did not
+     * change in the meantime.
+     *
+     * @param source the URI of the network source
+     * @return the spec of the resident network, empty if there is no such network
+     */
+    public Optional<DLNetworkSpec> getSpec(final URI source) {
+        return createKey(source).map(m_cache::getIfPresent).map(c -> c.m_spec);
+    }
+
+    /**
+     * @return the identifiers of all networks that are currently resident
+     */
+    List<String> getResidentIdentifiers() {
+        return m_cache.asMap().values().stream().map(c -> c.m_handle.getIdentifier()).collect(Collectors.toList());
+    }
+
+    /**
+     * Evicts all networks. They are removed from the Python workspace when the kernel's workspace is reset the next
+     * time.
+     */
+    void invalidateAll() {
+        m_cache.invalidateAll();
+        m_cache.cleanUp();
+    }
+
+    private static final class CachedNetwork {
+
+        private final DLPythonNetworkHandle m_handle;
+
+        private final DLNetworkSpec m_spec;
+
+        private CachedNetwork(final DLPythonNetworkHandle handle, final DLNetworkSpec spec) {
+            m_handle = handle;
+            m_spec = spec;
+        }
+    }
+}
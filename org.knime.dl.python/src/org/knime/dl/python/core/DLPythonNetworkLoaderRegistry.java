@@ -46,9 +46,11 @@
  */
 package org.knime.dl.python.core;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Optional;
@@ -104,15 +106,18 @@ private DLPythonNetworkLoaderRegistry() {
 			return; // spares us creation of threads etc.
 		}
 
-		// test each installation independently
-		for (final DLPythonNetworkLoader<?> loader : m_loaders.values()) {
-			new Thread(() -> {
+		// All installations are tested in a single Python process whose results are persisted. Results of previous
+		// sessions are reused if the Python environment did not change and are refreshed in the background.
+		final List<DLPythonNetworkLoader<?>> loaders = new ArrayList<>(m_loaders.values());
+		new Thread(() -> {
+			for (final DLPythonNetworkLoader<?> loader : loaders) {
 				try {
-                    loader.checkAvailability(true, getInstallationTestTimeout(), DLNotCancelable.INSTANCE);
+                    loader.checkAvailability(false, getInstallationTestTimeout(), DLNotCancelable.INSTANCE);
 				} catch (final DLInstallationTestTimeoutException e) {
 					Thread.currentThread().interrupt();
                     LOGGER.debug("Installation test for deep learning Python back end '"
                         + loader.getNetworkType().getCanonicalName() + "' timed out or was interrupted.");
+                    return;
 				} catch (final DLMissingDependencyException e) {
                     LOGGER.debug("Installation test for deep learning Python back end '"
                         + loader.getNetworkType().getCanonicalName() + "' failed: "
@@ -120,8 +125,8 @@ private DLPythonNetworkLoaderRegistry() {
 				} catch (final DLCanceledExecutionException e) {
                     // Doesn't happen.
                 }
-			}, "DL-Installation-Test-Trigger-" + loader.getNetworkType().getName()).start();
-		}
+			}
+		}, "DL-Installation-Test-Trigger").start();
 	}
 
 	/**
@@ -0,0 +1,285 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ *
+ */
+package org.knime.dl.python.core;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.knime.core.node.NodeLogger;
+import org.knime.dl.core.DLCancelable;
+import org.knime.dl.core.DLCanceledExecutionException;
+import org.knime.dl.core.DLInvalidEnvironmentException;
+import org.knime.dl.core.DLNotCancelable;
+import org.knime.dl.python.util.DLPythonUtils;
+import org.knime.python2.extensions.serializationlibrary.interfaces.TableChunker;
+import org.knime.python2.extensions.serializationlibrary.interfaces.TableCreator;
+import org.knime.python2.extensions.serializationlibrary.interfaces.TableCreatorFactory;
+import org.knime.python2.kernel.PythonKernel;
+
+/**
+ * A {@link DLPythonContext} whose kernel is leased from a {@link DLPythonKernelPool}. The kernel has already been set
+ * up for the back end of a certain network type. {@link #close() Closing} this context returns the kernel to the pool
+ * instead of shutting it down.
+ */
+public final class DLPythonPooledContext implements DLPythonContext {
+
+    private static final NodeLogger LOGGER = NodeLogger.getLogger(DLPythonPooledContext.class);
+
+    private final DLPythonKernelPool m_pool;
+
+    private final Class<? extends DLPythonNetwork> m_networkType;
+
+    private final DLPythonDefaultContext m_delegate;
+
+    private final AtomicBoolean m_leased = new AtomicBoolean();
+
+    private final DLPythonNetworkHandleCache m_networkCache = new DLPythonNetworkHandleCache();
+
+    private volatile boolean m_setUp = false;
+
+    private volatile boolean m_reusable = true;
+
+    private volatile long m_idleSince;
+
+    private volatile int m_numLeases = 0;
+
+    DLPythonPooledContext(final DLPythonKernelPool pool, final Class<? extends DLPythonNetwork> networkType,
+        final DLPythonDefaultContext delegate) {
+        m_pool = pool;
+        m_networkType = networkType;
+        m_delegate = delegate;
+    }
+
+    /**
+     * @return the network type whose back end this context's kernel is set up for
+     */
+    public Class<? extends DLPythonNetwork> getNetworkType() {
+        return m_networkType;
+    }
+
+    /**
+     * @return <code>true</code> if the back end environment of this context's kernel has already been set up
+     */
+    public boolean isSetUp() {
+        return m_setUp;
+    }
+
+    /**
+     * Marks this context as not reusable. Its kernel will be shut down instead of being returned to the pool once this
+     * context is closed.
+     */
+    public void invalidate() {
+        m_reusable = false;
+    }
+
+    @Override
+    public boolean isKernelOpen() {
+        return m_delegate.isKernelOpen();
+    }
+
+    @Override
+    public PythonKernel getKernel() throws DLInvalidEnvironmentException {
+        return m_delegate.getKernel();
+    }
+
+    @Override
+    public String[] execute(final DLCancelable cancelable, final File script, final String... args)
+        throws IOException, DLCanceledExecutionException {
+        return m_delegate.execute(cancelable, script, args);
+    }
+
+    @Override
+    public String[] executeInKernel(final String code, final DLCancelable cancelable)
+        throws DLCanceledExecutionException, DLInvalidEnvironmentException, IOException {
+        try {
+            return m_delegate.executeInKernel(code, cancelable);
+        } catch (final DLCanceledExecutionException | IOException e) {
+            invalidate();
+            throw e;
+        }
+    }
+
+    @Override
+    public String[] executeAsyncInKernel(final String code, final DLCancelable cancelable)
+        throws DLCanceledExecutionException, DLInvalidEnvironmentException, IOException {
+        try {
+            return m_delegate.executeAsyncInKernel(code, cancelable);
+        } catch (final DLCanceledExecutionException | IOException e) {
+            invalidate();
+            throw e;
+        }
+    }
+
+    @Override
+    public void putDataInKernel(final String name, final TableChunker tableChunker, final int rowsPerChunk,
+        final DLCancelable cancelable) throws IOException, DLCanceledExecutionException, DLInvalidEnvironmentException {
+        try {
+            m_delegate.putDataInKernel(name, tableChunker, rowsPerChunk, cancelable);
+        } catch (final DLCanceledExecutionException | IOException e) {
+            invalidate();
+            throw e;
+        }
+    }
+
+    @Override
+    public TableCreator<?> getDataFromKernel(final String name, final TableCreatorFactory tcf,
+        final DLCancelable cancelable) throws IOException, DLCanceledExecutionException, DLInvalidEnvironmentException {
+        try {
+            return m_delegate.getDataFromKernel(name, tcf, cancelable);
+        } catch (final DLCanceledExecutionException | IOException e) {
+            invalidate();
+            throw e;
+        }
+    }
+
+    /**
+     * Returns this context's kernel to the pool. Calling this method more than once has no effect.
+     */
+    @Override
+    public void close() {
+        if (m_leased.compareAndSet(true, false)) {
+            m_idleSince = System.currentTimeMillis();
+            m_pool.release(this);
+        }
+    }
+
+    DLPythonNetworkHandleCache getNetworkHandleCache() {
+        return m_networkCache;
+    }
+
+    boolean isReusable() {
+        return m_reusable && m_setUp && m_delegate.isKernelOpen();
+    }
+
+    long getIdleSince() {
+        return m_idleSince;
+    }
+
+    int getNumLeases() {
+        return m_numLeases;
+    }
+
+    void onLease() {
+        m_leased.set(true);
+        m_numLeases++;
+    }
+
+    void markSetUp(final DLCancelable cancelable)
+        throws DLInvalidEnvironmentException, DLCanceledExecutionException {
+        final String code = DLPythonUtils.createSourceCodeBuilder() //
+            .a("import DLPythonKernelGateway") //
+            .n("DLPythonKernelGateway.mark_workspace_clean()") //
+            .toString();
+        try {
+            final String error = executeInKernel(code, cancelable)[1];
+            if (!error.isEmpty()) {
+                throw new DLInvalidEnvironmentException(
+                    "Deep learning Python back end environment could not be set up.\nCause: " + error);
+            }
+        } catch (final IOException e) {
+            throw new DLInvalidEnvironmentException("An error occurred while communicating with Python "
+                + "(while setting up the Python back end environment)."
+                + (e.getMessage() != null ? "\nCause: " + e.getMessage() : ""), e);
+        }
+        m_setUp = true;
+    }
+
+    /**
+     * Removes everything from the kernel's workspace that was added after the back end was set up, except for the
+     * networks that are held by the {@link #getNetworkHandleCache() network cache}. If there are no such networks, the
+     * session of the back end is cleared as well, which invalidates all networks that were loaded into it.
+     *
+     * @return <code>true</code> if the reset was successful
+     */
+    boolean resetWorkspace() {
+        final List<String> residentIdentifiers = m_networkCache.getResidentIdentifiers();
+        final String code = DLPythonUtils.createSourceCodeBuilder() //
+            .a("import DLPythonKernelGateway") //
+            .n("DLPythonKernelGateway.reset_workspace(") //
+            .a(DLPythonUtils.toPython(residentIdentifiers.toArray(new String[0]))).a(")") //
+            .toString();
+        try {
+            final boolean reset = m_delegate.executeInKernel(code, DLNotCancelable.INSTANCE)[1].isEmpty();
+            if (residentIdentifiers.isEmpty()) {
+                // The back end's session was cleared.
+                m_networkCache.invalidateAll();
+            }
+            return reset;
+        } catch (final Exception e) {
+            LOGGER.debug("Resetting the workspace of a pooled Python kernel failed.", e);
+            return false;
+        }
+    }
+
+    boolean isHealthy(final DLCancelable cancelable) throws DLCanceledExecutionException {
+        if (!m_delegate.isKernelOpen()) {
+            return false;
+        }
+        try {
+            return m_delegate.executeInKernel("import DLPythonKernelGateway", cancelable)[1].isEmpty();
+        } catch (final DLCanceledExecutionException e) {
+            closeKernel();
+            throw e;
+        } catch (final Exception e) {
+            LOGGER.debug("Health check of a pooled Python kernel failed.", e);
+            return false;
+        }
+    }
+
+    void closeKernel() {
+        m_reusable = false;
+        m_networkCache.invalidateAll();
+        m_pool.onKernelClosed(this);
+        try {
+            m_delegate.close();
+        } catch (final Exception e) {
+            LOGGER.debug("An exception occurred while shutting down a pooled Python kernel.", e);
+        }
+    }
+}
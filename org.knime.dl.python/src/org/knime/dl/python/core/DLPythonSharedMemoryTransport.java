@@ -0,0 +1,427 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ *
+ */
+package org.knime.dl.python.core;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.function.Consumer;
+
+import org.knime.core.node.NodeLogger;
+import org.knime.dl.core.DLTensor;
+import org.knime.dl.core.DLTensorId;
+import org.knime.dl.core.data.DLReadableBuffer;
+import org.knime.dl.core.data.DLWritableBuffer;
+import org.knime.dl.python.core.data.DLPythonAbstractDirectDataBuffer;
+import org.knime.dl.python.core.data.DLPythonByteBuffer;
+import org.knime.dl.python.core.data.DLPythonDataBuffer;
+import org.knime.dl.python.core.data.DLPythonDirectDoubleBuffer;
+import org.knime.dl.python.core.data.DLPythonDirectFloatBuffer;
+import org.knime.dl.python.core.data.DLPythonDirectIntBuffer;
+import org.knime.dl.python.core.data.DLPythonDirectLongBuffer;
+import org.knime.dl.python.core.data.DLPythonDoubleBuffer;
+import org.knime.dl.python.core.data.DLPythonFloatBuffer;
+import org.knime.dl.python.core.data.DLPythonIntBuffer;
+import org.knime.dl.python.core.data.DLPythonLongBuffer;
+import org.knime.dl.python.core.data.DLPythonShortBuffer;
+import org.knime.dl.python.core.data.DLPythonUnsignedByteBuffer;
+import org.knime.dl.python.core.data.serde.DLPythonDeserializer;
+import org.knime.dl.python.core.data.serde.DLPythonDeserializerFactory;
+import org.knime.dl.python.util.DLPythonSourceCodeBuilder;
+import org.knime.dl.python.util.DLPythonUtils;
+import org.knime.dl.util.DLUtils;
+import org.knime.python.typeextension.PythonToKnimeExtension;
+import org.knime.python.typeextension.PythonToKnimeExtensions;
+
+/**
+ * Transfers tensors between Java and Python via memory-mapped files that are shared with the Python kernel instead of
+ * serializing them and sending them over the kernel's socket. Java writes the tensor data directly into the mapped
+ * files and Python wraps the mapped memory in NumPy arrays without copying it. Only a small descriptor (path, NumPy
+ * type, number of elements and shape of each tensor) is sent to the kernel. Output tensors take the same route back and
+ * are deserialized directly from the mapped files via {@link DLPythonDeserializer#deserialize(ByteBuffer, DLTensor)}.
+ * Unlike the socket based transport, this transport is not limited to tensors of less than 2^31 bytes.
+ * <P>
+ * Each tensor is assigned its own file that is reused across batches and only replaced if it is too small. The files
+ * are created in the directory specified by the VM option {@link #DIRECTORY_VM_OPT} or, if not set, in
+ * <code>/dev/shm</code> if available (i.e. they never hit the disk) or in the default temporary directory otherwise.
+ * The transport is enabled via the VM option {@link #ENABLED_VM_OPT}. Only numeric tensors are supported, all other
+ * tensors (including bit tensors, which are transferred in packed form) are still transferred over the socket.
+ */
+public final class DLPythonSharedMemoryTransport implements AutoCloseable {
+
+    /**
+     * VM option that enables the shared memory transport if set to <code>true</code>.
+     */
+    public static final String ENABLED_VM_OPT = "knime.dl.python.sharedmemory";
+
+    /**
+     * VM option that specifies the directory in which the shared files are created.
+     */
+    public static final String DIRECTORY_VM_OPT = "knime.dl.python.sharedmemory.dir";
+
+    /**
+     * The name of the Python variable that holds the number of elements of each output that was written to its shared
+     * file.
+     */
+    public static final String OUTPUT_SIZES_NAME = "dl_shared_memory_output_sizes";
+
+    private static final NodeLogger LOGGER = NodeLogger.getLogger(DLPythonSharedMemoryTransport.class);
+
+    /**
+     * The maximum size of a single mapping. Divisible by all element sizes, so no element spans two mappings.
+     */
+    private static final long WINDOW_SIZE = 1L << 30;
+
+    private static final long MIN_SEGMENT_SIZE = 1L << 12;
+
+    /**
+     * The NumPy type names of the supported buffer types. Also used by {@link DLPythonArrowTransport}.
+     */
+    static final Map<Class<?>, String> NUMPY_TYPES = new HashMap<>();
+
+    static {
+        NUMPY_TYPES.put(DLPythonByteBuffer.class, "int8");
+        NUMPY_TYPES.put(DLPythonUnsignedByteBuffer.class, "uint8");
+        NUMPY_TYPES.put(DLPythonShortBuffer.class, "int16");
+        NUMPY_TYPES.put(DLPythonIntBuffer.class, "int32");
+        NUMPY_TYPES.put(DLPythonLongBuffer.class, "int64");
+        NUMPY_TYPES.put(DLPythonFloatBuffer.class, "float32");
+        NUMPY_TYPES.put(DLPythonDoubleBuffer.class, "float64");
+        NUMPY_TYPES.put(DLPythonDirectIntBuffer.class, "int32");
+        NUMPY_TYPES.put(DLPythonDirectLongBuffer.class, "int64");
+        NUMPY_TYPES.put(DLPythonDirectFloatBuffer.class, "float32");
+        NUMPY_TYPES.put(DLPythonDirectDoubleBuffer.class, "float64");
+    }
+
+    /**
+     * Direct buffers are exposed to Python as their heap counterparts.
+     */
+    static final Map<Class<?>, Class<?>> PYTHON_BUFFER_TYPES = new HashMap<>();
+
+    static {
+        PYTHON_BUFFER_TYPES.put(DLPythonDirectIntBuffer.class, DLPythonIntBuffer.class);
+        PYTHON_BUFFER_TYPES.put(DLPythonDirectLongBuffer.class, DLPythonLongBuffer.class);
+        PYTHON_BUFFER_TYPES.put(DLPythonDirectFloatBuffer.class, DLPythonFloatBuffer.class);
+        PYTHON_BUFFER_TYPES.put(DLPythonDirectDoubleBuffer.class, DLPythonDoubleBuffer.class);
+    }
+
+    /**
+     * @return <code>true</code> if the shared memory transport is enabled via {@link #ENABLED_VM_OPT}
+     */
+    public static boolean isEnabled() {
+        return Boolean.parseBoolean(System.getProperty(ENABLED_VM_OPT, "false"));
+    }
+
+    /**
+     * @param tensor the tensor
+     * @return <code>true</code> if the given tensor can be transferred via shared memory
+     */
+    public static boolean isSupported(final DLTensor<?> tensor) {
+        return NUMPY_TYPES.containsKey(tensor.getBuffer().getClass());
+    }
+
+    private static File getDirectory() {
+        final String directory = System.getProperty(DIRECTORY_VM_OPT);
+        if (directory != null && !directory.isEmpty()) {
+            return new File(directory);
+        }
+        final File shm = new File("/dev/shm");
+        if (shm.isDirectory() && shm.canWrite()) {
+            return shm;
+        }
+        return new File(System.getProperty("java.io.tmpdir"));
+    }
+
+    static int getElementSize(final Class<?> bufferType) {
+        if (bufferType == DLPythonByteBuffer.class || bufferType == DLPythonUnsignedByteBuffer.class) {
+            return Byte.BYTES;
+        } else if (bufferType == DLPythonShortBuffer.class) {
+            return Short.BYTES;
+        } else if (bufferType == DLPythonIntBuffer.class || bufferType == DLPythonFloatBuffer.class
+            || bufferType == DLPythonDirectIntBuffer.class || bufferType == DLPythonDirectFloatBuffer.class) {
+            return Integer.BYTES;
+        } else {
+            return Long.BYTES;
+        }
+    }
+
+    private final Map<String, Segment> m_inputSegments = new HashMap<>();
+
+    private final Map<String, Segment> m_outputSegments = new HashMap<>();
+
+    private final Map<Class<?>, DLPythonDeserializer<?>> m_deserializers = new HashMap<>();
+
+    /**
+     * Writes the given input tensors into their shared files and returns the Python code that makes them available in
+     * the kernel's workspace in the same form as if they had been transferred over the socket.
+     *
+     * @param inputs the input tensors, all of which must be {@link #isSupported(DLTensor) supported}
+     * @return the Python code that needs to be executed to read the inputs
+     * @throws IOException if creating or mapping a shared file failed
+     */
+    public String writeInputs(final Map<? extends DLTensorId, ? extends DLTensor<? extends DLWritableBuffer>> inputs)
+        throws IOException {
+        final DLPythonSourceCodeBuilder b = DLPythonUtils.createSourceCodeBuilder() //
+            .a("import DLPythonSharedMemoryTransport");
+        for (final Entry<? extends DLTensorId, ? extends DLTensor<? extends DLWritableBuffer>> input : inputs
+            .entrySet()) {
+            final String identifier = input.getKey().getIdentifierString();
+            final DLTensor<? extends DLWritableBuffer> tensor = input.getValue();
+            final DLPythonDataBuffer<?> buffer = (DLPythonDataBuffer<?>)tensor.getBuffer();
+            final int elementSize = getElementSize(buffer.getClass());
+            final long start = buffer.getNextReadPosition();
+            final long length = buffer.size() - start;
+            final Segment segment = getSegment(m_inputSegments, identifier, length * elementSize);
+            if (buffer instanceof DLPythonAbstractDirectDataBuffer) {
+                segment.write((DLPythonAbstractDirectDataBuffer<?>)buffer, start, length);
+            } else {
+                segment.write(buffer.getStorageForReading(start, length), (int)start, (int)length, elementSize);
+            }
+            final long[] shape = DLUtils.Shapes.getFixedShape(tensor.getSpec().getShape())
+                .orElseThrow(() -> new IllegalStateException("Execution spec does not contain fixed shape."));
+            b.n("globals()[").as(identifier).a("] = DLPythonSharedMemoryTransport.read_input(").as(identifier)
+                .a(", ").asr(segment.m_file.getAbsolutePath()).a(", ").as(NUMPY_TYPES.get(buffer.getClass()))
+                .a(", ").as(PYTHON_BUFFER_TYPES.getOrDefault(buffer.getClass(), buffer.getClass()).getSimpleName())
+                .a(", ").a(length).a(", ").a(shape).a(")");
+        }
+        return b.toString();
+    }
+
+    /**
+     * Prepares the shared files of the given output tensors and returns the Python code that writes the outputs into
+     * them. The code also stores the number of written elements per output in the variable
+     * {@link #OUTPUT_SIZES_NAME} which needs to be passed to {@link #readOutputs(Map, Map)}.
+     *
+     * @param outputs the output tensors, all of which must be {@link #isSupported(DLTensor) supported}
+     * @return the Python code that needs to be executed to write the outputs
+     * @throws IOException if creating or mapping a shared file failed
+     */
+    public String prepareOutputs(
+        final Map<? extends DLTensorId, ? extends DLTensor<? extends DLReadableBuffer>> outputs) throws IOException {
+        final DLPythonSourceCodeBuilder b = DLPythonUtils.createSourceCodeBuilder() //
+            .a("import DLPythonSharedMemoryTransport") //
+            .n("import pandas as pd") //
+            .n("global ").a(OUTPUT_SIZES_NAME) //
+            .n(OUTPUT_SIZES_NAME).a(" = pd.DataFrame({");
+        for (final Entry<? extends DLTensorId, ? extends DLTensor<? extends DLReadableBuffer>> output : outputs
+            .entrySet()) {
+            final String identifier = output.getKey().getIdentifierString();
+            final DLPythonDataBuffer<?> buffer = (DLPythonDataBuffer<?>)output.getValue().getBuffer();
+            final long capacity = (buffer.getCapacity() - buffer.size()) * getElementSize(buffer.getClass());
+            final Segment segment = getSegment(m_outputSegments, identifier, capacity);
+            b.as(identifier).a(": [DLPythonSharedMemoryTransport.write_output(").as(identifier).a(", globals()[")
+                .as(identifier).a("], ").asr(segment.m_file.getAbsolutePath()).a(", ")
+                .as(NUMPY_TYPES.get(buffer.getClass())).a(")], ");
+        }
+        return b.a("})").toString();
+    }
+
+    /**
+     * Reads the given output tensors from their shared files. Must be called after the code returned by
+     * {@link #prepareOutputs(Map)} was executed.
+     *
+     * @param outputs the output tensors
+     * @param sizes the number of elements per output as reported by Python via {@link #OUTPUT_SIZES_NAME}
+     */
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    public void readOutputs(final Map<? extends DLTensorId, ? extends DLTensor<? extends DLReadableBuffer>> outputs,
+        final Map<String, Long> sizes) {
+        for (final Entry<? extends DLTensorId, ? extends DLTensor<? extends DLReadableBuffer>> output : outputs
+            .entrySet()) {
+            final String identifier = output.getKey().getIdentifierString();
+            final DLTensor tensor = output.getValue();
+            final Long size = sizes.get(identifier);
+            if (size == null) {
+                throw new IllegalStateException(
+                    "Python didn't report the size of output '" + identifier + "' written to shared memory.");
+            }
+            final Class<?> bufferType = tensor.getBuffer().getClass();
+            if (tensor.getBuffer() instanceof DLPythonAbstractDirectDataBuffer) {
+                // Direct buffers store their elements in the serialized format, copy them straight from the mapping.
+                readOutput(m_outputSegments.get(identifier), size * getElementSize(bufferType),
+                    slice -> DLPythonDeserializer.deserializeDirect(slice, tensor));
+                continue;
+            }
+            final DLPythonDeserializer deserializer =
+                m_deserializers.computeIfAbsent(bufferType, DLPythonSharedMemoryTransport::createDeserializer);
+            readOutput(m_outputSegments.get(identifier), size * getElementSize(bufferType),
+                slice -> deserializer.deserialize(slice, tensor));
+        }
+    }
+
+    /**
+     * @param bufferType the type of the buffer to deserialize into
+     * @return a new deserializer of the first registered extension whose buffer type matches the given one
+     */
+    static DLPythonDeserializer<?> createDeserializer(final Class<?> bufferType) {
+        final PythonToKnimeExtension extension = PythonToKnimeExtensions.getExtensions().stream()
+            .filter(ext -> ext.getJavaDeserializerFactory() instanceof DLPythonDeserializerFactory
+                && ((DLPythonDeserializerFactory)ext.getJavaDeserializerFactory()).getBufferType()
+                    .isAssignableFrom(bufferType))
+            .findFirst() //
+            .orElseThrow(() -> new IllegalStateException(
+                "Collecting network output from Python failed. No matching deserializer available."));
+        return (DLPythonDeserializer<?>)extension.getJavaDeserializerFactory().createDeserializer();
+    }
+
+    private static void readOutput(final Segment segment, final long numBytes, final Consumer<ByteBuffer> reader) {
+        long remaining = numBytes;
+        for (final MappedByteBuffer window : segment.m_windows) {
+            if (remaining <= 0) {
+                break;
+            }
+            final ByteBuffer slice = window.duplicate();
+            slice.limit((int)Math.min(remaining, slice.capacity()));
+            reader.accept(slice);
+            remaining -= slice.limit();
+        }
+    }
+
+    /**
+     * Deletes all shared files. The Python side releases its mappings once the kernel's workspace is reset or the
+     * kernel is shut down.
+     */
+    @Override
+    public void close() {
+        m_inputSegments.values().forEach(Segment::delete);
+        m_inputSegments.clear();
+        m_outputSegments.values().forEach(Segment::delete);
+        m_outputSegments.clear();
+    }
+
+    private static Segment getSegment(final Map<String, Segment> segments, final String identifier,
+        final long numBytes) throws IOException {
+        Segment segment = segments.get(identifier);
+        if (segment == null || segment.m_capacity < numBytes) {
+            if (segment != null) {
+                segment.delete();
+            }
+            segment = new Segment(getDirectory(), Math.max(numBytes, MIN_SEGMENT_SIZE));
+            segments.put(identifier, segment);
+        }
+        return segment;
+    }
+
+    private static final class Segment {
+
+        private final File m_file;
+
+        private final long m_capacity;
+
+        private final MappedByteBuffer[] m_windows;
+
+        private Segment(final File directory, final long capacity) throws IOException {
+            m_file = File.createTempFile("knime-dl-", ".tensor", directory);
+            m_capacity = capacity;
+            m_windows = new MappedByteBuffer[(int)((capacity + WINDOW_SIZE - 1) / WINDOW_SIZE)];
+            try (final RandomAccessFile file = new RandomAccessFile(m_file, "rw");
+                    final FileChannel channel = file.getChannel()) {
+                file.setLength(capacity);
+                // Mappings stay valid after the channel is closed.
+                for (int i = 0; i < m_windows.length; i++) {
+                    final long position = i * WINDOW_SIZE;
+                    m_windows[i] =
+                        channel.map(MapMode.READ_WRITE, position, Math.min(WINDOW_SIZE, capacity - position));
+                }
+            } catch (final IOException e) {
+                delete();
+                throw e;
+            }
+        }
+
+        private void write(final Object storage, final int offset, final int length, final int elementSize) {
+            final int windowLength = (int)(WINDOW_SIZE / elementSize);
+            for (int i = 0, written = 0; written < length; i++) {
+                final int count = Math.min(windowLength, length - written);
+                final ByteBuffer window = m_windows[i].duplicate().order(ByteOrder.LITTLE_ENDIAN);
+                if (storage instanceof float[]) {
+                    window.asFloatBuffer().put((float[])storage, offset + written, count);
+                } else if (storage instanceof double[]) {
+                    window.asDoubleBuffer().put((double[])storage, offset + written, count);
+                } else if (storage instanceof int[]) {
+                    window.asIntBuffer().put((int[])storage, offset + written, count);
+                } else if (storage instanceof long[]) {
+                    window.asLongBuffer().put((long[])storage, offset + written, count);
+                } else if (storage instanceof short[]) {
+                    window.asShortBuffer().put((short[])storage, offset + written, count);
+                } else if (storage instanceof byte[]) {
+                    window.put((byte[])storage, offset + written, count);
+                } else {
+                    throw new IllegalStateException(
+                        "Transmitting data to Python failed. Unsupported storage type: " + storage.getClass() + ".");
+                }
+                written += count;
+            }
+        }
+
+        private void write(final DLPythonAbstractDirectDataBuffer<?> buffer, final long start, final long length) {
+            final long windowLength = WINDOW_SIZE / buffer.getElementSize();
+            for (int i = 0; i * windowLength < length; i++) {
+                final long count = Math.min(windowLength, length - i * windowLength);
+                final ByteBuffer window = m_windows[i].duplicate();
+                window.limit((int)(count * buffer.getElementSize()));
+                buffer.readBytes(start + i * windowLength, window);
+            }
+        }
+
+        private void delete() {
+            if (!m_file.delete()) {
+                // E.g. on Windows, files cannot be deleted as long as they are mapped.
+                LOGGER.debug("Shared tensor file '" + m_file + "' could not be deleted immediately.");
+                m_file.deleteOnExit();
+            }
+        }
+    }
+}
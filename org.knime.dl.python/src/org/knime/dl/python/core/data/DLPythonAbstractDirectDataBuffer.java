@@ -0,0 +1,101 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ *
+ */
+package org.knime.dl.python.core.data;
+
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+
+import org.knime.dl.core.data.DLAbstractDirectDataBuffer;
+
+/**
+ * Abstract base class for Python buffers that delegate to a {@link DLAbstractDirectDataBuffer direct buffer}. Their
+ * contents can be serialized and deserialized by copying raw memory, without an intermediate primitive array.
+ *
+ * @param <B> the delegate buffer type
+ */
+@SuppressWarnings("serial") // not intended for serialization
+public abstract class DLPythonAbstractDirectDataBuffer<B extends DLAbstractDirectDataBuffer>
+		extends DLPythonAbstractDataBuffer<B, ByteBuffer[]> {
+
+	/**
+	 * Creates a new instance of this buffer.
+	 *
+	 * @param buffer the delegate buffer
+	 */
+	protected DLPythonAbstractDirectDataBuffer(final B buffer) {
+		super(buffer);
+	}
+
+	/**
+	 * @return the size of a single element in bytes
+	 */
+	public int getElementSize() {
+		return m_buffer.getElementSize();
+	}
+
+	/**
+	 * See {@link DLAbstractDirectDataBuffer#readBytes(long, ByteBuffer)}.
+	 *
+	 * @param startPos the index of the first element to copy
+	 * @param dest the destination
+	 * @throws BufferUnderflowException if the buffer's {@link #size() size} would be exceeded
+	 */
+	public void readBytes(final long startPos, final ByteBuffer dest) throws BufferUnderflowException {
+		m_buffer.readBytes(startPos, dest);
+	}
+
+	/**
+	 * See {@link DLAbstractDirectDataBuffer#writeBytes(ByteBuffer)}.
+	 *
+	 * @param src the source
+	 * @throws BufferOverflowException if the buffer's {@link #getCapacity() capacity} would be exceeded
+	 */
+	public void writeBytes(final ByteBuffer src) throws BufferOverflowException {
+		m_buffer.writeBytes(src);
+	}
+}
@@ -52,7 +52,7 @@
 import java.nio.BufferUnderflowException;
 
 import org.knime.core.data.DataType;
-import org.knime.dl.core.data.DLDefaultBitBuffer;
+import org.knime.dl.core.data.DLPackedBitBuffer;
 import org.knime.dl.core.data.DLReadableBitBuffer;
 import org.knime.dl.core.data.DLWritableBitBuffer;
 
@@ -64,7 +64,7 @@
  * @author Christian Dietz, KNIME GmbH, Konstanz, Germany
  */
 @SuppressWarnings("serial") // not intended for serialization
-public class DLPythonBitBuffer extends DLPythonAbstractDataBuffer<DLDefaultBitBuffer, boolean[]>
+public class DLPythonBitBuffer extends DLPythonAbstractDataBuffer<DLPackedBitBuffer, long[]>
     implements DLWritableBitBuffer, DLReadableBitBuffer {
 
     /**
@@ -78,7 +78,7 @@ public class DLPythonBitBuffer extends DLPythonAbstractDataBuffer<DLDefaultBitBu
      * @param capacity the immutable capacity of the buffer
      */
     public DLPythonBitBuffer(final long capacity) {
-        super(new DLDefaultBitBuffer(capacity));
+        super(new DLPackedBitBuffer(capacity));
     }
 
     @Override
@@ -96,6 +96,11 @@ public void readToBitArray(boolean[] dest, int destPos, int length) {
         m_buffer.readToBitArray(dest, destPos, length);
     }
 
+    @Override
+    public void readToPackedArray(final long[] dest, final long length) {
+        m_buffer.readToPackedArray(dest, length);
+    }
+
     @Override
     public byte readNextByte() throws BufferUnderflowException {
         return m_buffer.readNextByte();
@@ -195,4 +200,9 @@ public void put(final boolean value) throws BufferOverflowException {
     public void putAll(final boolean[] values) throws BufferOverflowException {
         m_buffer.putAll(values);
     }
+
+    @Override
+    public void putAll(final long[] words, final long length) throws BufferOverflowException {
+        m_buffer.putAll(words, length);
+    }
 }
@@ -49,10 +49,13 @@
 package org.knime.dl.python.core.data.serde;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 
 import org.knime.core.data.DataCell;
 import org.knime.core.data.filestore.FileStoreFactory;
 import org.knime.dl.core.DLTensor;
+import org.knime.dl.core.data.DLPackedBitBuffer;
 import org.knime.dl.python.core.data.DLPythonBitBuffer;
 import org.knime.python.typeextension.Deserializer;
 import org.knime.python.typeextension.DeserializerFactory;
@@ -92,31 +95,43 @@ public DataCell deserialize(final byte[] bytes, final FileStoreFactory fileStore
                 // for (int i = 0; i < numDimensions; i++) {
                 // shape[i] = buffer.getLong();
                 // }
-                final DLPythonBitBuffer value = new DLPythonBitBuffer(bytes.length);
-                final boolean[] storage = value.getStorageForWriting(0, bytes.length);
-                writeToStorage(bytes, storage, 0, bytes.length);
+                final ByteBuffer buffer = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+                final long numBits = buffer.getLong();
+                final DLPythonBitBuffer value = new DLPythonBitBuffer(numBits);
+                value.putAll(unpack(buffer, numBits), numBits);
                 return value;
             }
 
             @Override
             public void deserialize(final byte[] bytes, final DLTensor<DLPythonBitBuffer> data) {
+                deserialize(ByteBuffer.wrap(bytes), data);
+            }
+
+            @Override
+            public void deserialize(final ByteBuffer bytes, final DLTensor<DLPythonBitBuffer> data) {
                 // TODO: we serialize to a flat buffer for now
                 // final int numDimensions = buffer.getInt();
                 // final long[] shape = new long[numDimensions];
                 // for (int i = 0; i < numDimensions; i++) {
                 // shape[i] = buffer.getLong();
                 // }
-                final DLPythonBitBuffer tensorBuffer = data.getBuffer();
-                final int writeStart = (int)tensorBuffer.size();
-                final boolean[] storage = tensorBuffer.getStorageForWriting(writeStart, bytes.length);
-                writeToStorage(bytes, storage, writeStart, bytes.length);
+                final ByteBuffer buffer = bytes.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+                final long numBits = buffer.getLong();
+                // appends to the tensor's buffer
+                data.getBuffer().putAll(unpack(buffer, numBits), numBits);
             }
 
-            private void writeToStorage(final byte[] bytes, final boolean[] storage, final int start,
-                final int length) {
-                for (int i = start; i < start + length; i++) {
-                    storage[i] = bytes[i] != 0;
+            /**
+             * Packed bytes (most significant bit first) to words (least significant bit first).
+             */
+            private long[] unpack(final ByteBuffer buffer, final long numBits) {
+                final long[] words = new long[DLPackedBitBuffer.getNumWords(numBits)];
+                final int numBytes = (int)((numBits + Byte.SIZE - 1) / Byte.SIZE);
+                for (int i = 0; i < numBytes; i++) {
+                    final long bits = Integer.reverse(buffer.get() & 0xFF) >>> (Integer.SIZE - Byte.SIZE);
+                    words[i / Long.BYTES] |= bits << ((i % Long.BYTES) * Byte.SIZE);
                 }
+                return words;
             }
         };
     }
@@ -49,8 +49,11 @@
 package org.knime.dl.python.core.data.serde;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 
 import org.knime.dl.core.data.DLBuffer;
+import org.knime.dl.core.data.DLPackedBitBuffer;
 import org.knime.dl.python.core.data.DLPythonBitBuffer;
 import org.knime.python.typeextension.Serializer;
 import org.knime.python.typeextension.SerializerFactory;
@@ -82,21 +85,30 @@ public Serializer<? extends DLPythonBitBuffer> createSerializer() {
             // TODO: we serialize to flat buffers for now
             // final int numDimensions = value.getNumDimensions();
             // final long[] shape = value.getShape();
+            // Wire format: the number of bits as little-endian long, followed by the bits packed into bytes (most
+            // significant bit first, see numpy.packbits).
             final long size = value.size() - value.getNextReadPosition();
-            final long numBytes = size;
+            final long numBytes = Long.BYTES + (size + Byte.SIZE - 1) / Byte.SIZE;
             if (numBytes > Integer.MAX_VALUE) {
                 throw new IOException(
                     "Transmitting data to Python failed. Buffer size exceeds the limit of 2^31-1 bytes.");
             }
-            // Create the target array
-            final byte[] target = new byte[(int)numBytes];
-            value.readToByteArray(target, 0, (int)size);
+            final long[] words = new long[DLPackedBitBuffer.getNumWords(size)];
+            if (size > 0) {
+                value.readToPackedArray(words, size);
+            }
+            final ByteBuffer buffer = ByteBuffer.allocate((int)numBytes).order(ByteOrder.LITTLE_ENDIAN);
+            buffer.putLong(size);
+            for (int i = 0; i < numBytes - Long.BYTES; i++) {
+                final int bits = (int)(words[i / Long.BYTES] >>> ((i % Long.BYTES) * Byte.SIZE)) & 0xFF;
+                buffer.put((byte)(Integer.reverse(bits) >>> (Integer.SIZE - Byte.SIZE)));
+            }
             // TODO: we serialize to flat buffers for now
             // buffer.putInt(numDimensions);
             // for (final long dim : shape) {
             // buffer.putLong(dim);
             // }
-            return target;
+            return buffer.array();
         };
     }
 
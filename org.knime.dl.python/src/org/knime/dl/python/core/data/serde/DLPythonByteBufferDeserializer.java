@@ -86,7 +86,12 @@ public DataCell deserialize(final byte[] bytes, final FileStoreFactory fileStore
 
     @Override
     public void deserialize(final byte[] bytes, final DLTensor<B> data) {
-        final ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        deserialize(ByteBuffer.wrap(bytes), data);
+    }
+
+    @Override
+    public void deserialize(final ByteBuffer bytes, final DLTensor<B> data) {
+        final ByteBuffer buffer = bytes.duplicate();
         // TODO: we serialize to a flat buffer for now
         // final int numDimensions = buffer.getInt();
         // final long[] shape = new long[numDimensions];
@@ -95,8 +100,8 @@ public void deserialize(final byte[] bytes, final DLTensor<B> data) {
         // }
         final B tensorBuffer = data.getBuffer();
         final int writeStart = (int)tensorBuffer.size();
-        final byte[] tensorStorage = tensorBuffer.getStorageForWriting(writeStart, buffer.limit());
-        buffer.get(tensorStorage, writeStart, buffer.limit());
+        final byte[] tensorStorage = tensorBuffer.getStorageForWriting(writeStart, buffer.remaining());
+        buffer.get(tensorStorage, writeStart, buffer.remaining());
     }
 
 }
@@ -48,8 +48,12 @@
  */
 package org.knime.dl.python.core.data.serde;
 
+import java.nio.ByteBuffer;
+
 import org.knime.dl.core.DLTensor;
+import org.knime.dl.core.data.DLBuffer;
 import org.knime.dl.core.data.DLWritableBuffer;
+import org.knime.dl.python.core.data.DLPythonAbstractDirectDataBuffer;
 import org.knime.python.typeextension.Deserializer;
 
 /**
@@ -60,4 +64,40 @@
 
 	// TODO FIXME AS SOON AS THE PYTHON BRIDGE CAN HANDLE primitive types :-(
 	void deserialize(byte[] bytes, DLTensor<S> data);
+
+	/**
+	 * Deserializes the bytes between the given buffer's position and limit and appends them to the given tensor. The
+	 * buffer's position, limit and byte order are not changed. This allows to deserialize data that does not reside on
+	 * the heap, e.g. in a memory-mapped file, without copying it into an intermediate array first.
+	 * <P>
+	 * The default implementation copies the bytes into an array and delegates to
+	 * {@link #deserialize(byte[], DLTensor)}.
+	 *
+	 * @param bytes the buffer that contains the serialized data
+	 * @param data the tensor to which the deserialized data is appended
+	 */
+	default void deserialize(final ByteBuffer bytes, final DLTensor<S> data) {
+		final byte[] array = new byte[bytes.remaining()];
+		bytes.duplicate().get(array);
+		deserialize(array, data);
+	}
+
+	/**
+	 * Appends the given bytes to the given tensor if the tensor's buffer is a {@link DLPythonAbstractDirectDataBuffer
+	 * direct buffer}. Direct buffers store their elements in the serialized format, so the bytes are copied as they are.
+	 * The buffer's position, limit and byte order are not changed.
+	 *
+	 * @param bytes the buffer that contains the serialized data
+	 * @param data the tensor to which the deserialized data is appended
+	 * @return <code>true</code> if the bytes were appended, <code>false</code> if the tensor's buffer is not a direct
+	 *         buffer
+	 */
+	static boolean deserializeDirect(final ByteBuffer bytes, final DLTensor<?> data) {
+		final DLBuffer buffer = data.getBuffer();
+		if (buffer instanceof DLPythonAbstractDirectDataBuffer) {
+			((DLPythonAbstractDirectDataBuffer<?>) buffer).writeBytes(bytes);
+			return true;
+		}
+		return false;
+	}
 }
@@ -105,8 +105,15 @@ public DataCell deserialize(final byte[] bytes, final FileStoreFactory fileStore
 
 			@Override
 			public void deserialize(final byte[] bytes, final DLTensor<DLPythonDoubleBuffer> data) {
-				final ByteBuffer buffer = ByteBuffer.wrap(bytes);
-				buffer.order(ByteOrder.LITTLE_ENDIAN);
+				deserialize(ByteBuffer.wrap(bytes), data);
+			}
+
+			@Override
+			public void deserialize(final ByteBuffer bytes, final DLTensor<DLPythonDoubleBuffer> data) {
+				if (DLPythonDeserializer.deserializeDirect(bytes, data)) {
+					return;
+				}
+				final ByteBuffer buffer = bytes.duplicate().order(ByteOrder.LITTLE_ENDIAN);
 				// TODO: we serialize to a flat buffer for now
 				// final int numDimensions = buffer.getInt();
 				// final long[] shape = new long[numDimensions];
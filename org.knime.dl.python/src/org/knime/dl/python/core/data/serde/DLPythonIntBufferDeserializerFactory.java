@@ -104,8 +104,15 @@ public DataCell deserialize(final byte[] bytes, final FileStoreFactory fileStore
 
 			@Override
 			public void deserialize(final byte[] bytes, final DLTensor<DLPythonIntBuffer> data) {
-				final ByteBuffer buffer = ByteBuffer.wrap(bytes);
-				buffer.order(ByteOrder.LITTLE_ENDIAN);
+				deserialize(ByteBuffer.wrap(bytes), data);
+			}
+
+			@Override
+			public void deserialize(final ByteBuffer bytes, final DLTensor<DLPythonIntBuffer> data) {
+				if (DLPythonDeserializer.deserializeDirect(bytes, data)) {
+					return;
+				}
+				final ByteBuffer buffer = bytes.duplicate().order(ByteOrder.LITTLE_ENDIAN);
 				// TODO: we serialize to a flat buffer for now
 				// final int numDimensions = buffer.getInt();
 				// final long[] shape = new long[numDimensions];
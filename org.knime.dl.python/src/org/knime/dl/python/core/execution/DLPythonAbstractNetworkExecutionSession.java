@@ -48,11 +48,24 @@
  */
 package org.knime.dl.python.core.execution;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import org.apache.commons.lang3.ArrayUtils;
+import org.knime.core.util.ThreadUtils;
 import org.knime.dl.core.DLCanceledExecutionException;
 import org.knime.dl.core.DLInvalidEnvironmentException;
 import org.knime.dl.core.DLMissingExtensionException;
@@ -61,15 +74,20 @@
 import org.knime.dl.core.DLTensorFactory;
 import org.knime.dl.core.DLTensorId;
 import org.knime.dl.core.DLTensorSpec;
+import org.knime.dl.core.data.DLReadableBuffer;
 import org.knime.dl.core.data.DLWritableBuffer;
 import org.knime.dl.core.execution.DLAbstractNetworkExecutionSession;
 import org.knime.dl.core.execution.DLExecutionMonitor;
 import org.knime.dl.core.execution.DLExecutionStatus;
 import org.knime.dl.core.execution.DLNetworkOutputConsumer;
-import org.knime.dl.core.training.DLTrainingMonitor;
+import org.knime.dl.core.execution.DLTransportPrecision;
 import org.knime.dl.python.core.DLPythonCommands;
+import org.knime.dl.python.core.DLPythonContext;
+import org.knime.dl.python.core.DLPythonKernelPool;
 import org.knime.dl.python.core.DLPythonNetwork;
 import org.knime.dl.python.core.DLPythonNetworkHandle;
+import org.knime.dl.python.core.DLPythonNetworkHandleCache;
+import org.knime.dl.python.core.DLPythonNetworkLoader;
 import org.knime.dl.python.core.DLPythonNetworkLoaderRegistry;
 
 /**
@@ -80,13 +98,42 @@
 	extends DLAbstractNetworkExecutionSession<N> implements DLPythonNetworkExecutionSession {
 
 	/**
-	 * Is instantiated via {@link #createCommands()} at the beginning of the first call of
-	 * {@link #trainInternal(DLTrainingMonitor)}.
+	 * Number of input and output tensor sets in pipelined mode. Two sets allow to prepare respectively consume one
+	 * batch while another one is being executed.
+	 */
+	private static final int NUM_PIPELINED_TENSOR_SETS = 2;
+
+	private static final long PIPELINE_POLL_INTERVAL = 100; // in ms
+
+	/**
+	 * Is instantiated via {@link #createCommands(DLPythonContext)} at the beginning of the first call of
+	 * {@link #executeInternal(DLExecutionMonitor)}.
 	 */
 	private C m_commands;
 
+	/**
+	 * The context that is leased from the {@link DLPythonKernelPool} and used by {@link #m_commands}.
+	 */
+	private DLPythonContext m_context;
+
 	private DLPythonNetworkHandle m_handle;
 
+	private boolean m_pipelined = false;
+
+	private int m_numThreads = 0;
+
+	private DLTransportPrecision m_transportPrecision = DLTransportPrecision.FULL;
+
+	/**
+	 * Additional input tensor sets besides {@link #m_input} that are only used in pipelined mode.
+	 */
+	private final List<Map<DLTensorId, DLTensor<? extends DLWritableBuffer>>> m_pipelinedInputs = new ArrayList<>();
+
+	/**
+	 * Additional output tensor sets besides {@link #m_output} that are only used in pipelined mode.
+	 */
+	private final List<Map<DLTensorId, DLTensor<? extends DLReadableBuffer>>> m_pipelinedOutputs = new ArrayList<>();
+
 	protected DLPythonAbstractNetworkExecutionSession(final N network, final Set<DLTensorSpec> executionInputSpecs,
 			final Set<DLTensorId> requestedOutputs, final DLNetworkInputPreparer inputPreparer,
 			final DLNetworkOutputConsumer outputConsumer, final DLTensorFactory tensorFactory) {
@@ -95,12 +142,31 @@ protected DLPythonAbstractNetworkExecutionSession(final N network, final Set<DLT
 
 	/**
 	 * The caller is responsible for {@link AutoCloseable#close() closing} the command.
+	 *
+	 * @param context the Python context that is leased from the {@link DLPythonKernelPool}
 	 */
-	protected abstract C createCommands() throws DLInvalidEnvironmentException;
+	protected abstract C createCommands(DLPythonContext context) throws DLInvalidEnvironmentException;
+
+	@Override
+	public void setPipelined(final boolean pipelined) {
+		m_pipelined = pipelined;
+	}
+
+	@Override
+	public void setNumThreads(final int numThreads) {
+		m_numThreads = numThreads;
+	}
+
+	@Override
+	public void setTransportPrecision(final DLTransportPrecision precision) {
+		m_transportPrecision = precision;
+	}
 
 	@Override
 	public void close() throws Exception {
 		super.close();
+		m_pipelinedInputs.forEach(i -> i.values().forEach(DLTensor::close));
+		m_pipelinedOutputs.forEach(o -> o.values().forEach(DLTensor::close));
 		if (m_commands != null) {
 			m_commands.close();
 		}
@@ -108,17 +174,50 @@ public void close() throws Exception {
 
 	@Override
 	protected void executeInternal(final DLExecutionMonitor monitor) throws DLCanceledExecutionException, Exception {
+		try {
+			executeInternalWithCommands(monitor);
+		} catch (final Exception e) {
+			// Do not return a kernel with possibly inconsistent state to the pool.
+			DLPythonKernelPool.invalidate(m_context);
+			throw e;
+		}
+	}
+
+	private void executeInternalWithCommands(final DLExecutionMonitor monitor)
+			throws DLCanceledExecutionException, Exception {
 		if (m_commands == null) {
-			m_commands = createCommands();
-            m_handle = DLPythonNetworkLoaderRegistry.getInstance().getNetworkLoader((Class<N>)m_network.getClass())
+			m_context = DLPythonKernelPool.getInstance().lease(m_network.getClass(), monitor);
+			m_commands = createCommands(m_context);
+            final DLPythonNetworkLoader<N> loader = DLPythonNetworkLoaderRegistry.getInstance()
+                .getNetworkLoader((Class<N>)m_network.getClass())
                 .orElseThrow(
                     () -> new DLMissingExtensionException("Python back end '" + m_network.getClass().getCanonicalName()
-                        + "' could not be found. Are you missing a KNIME Deep Learning extension?"))
-                .load(m_network, m_commands.getContext(monitor), false, monitor);
+                        + "' could not be found. Are you missing a KNIME Deep Learning extension?"));
+            m_commands.setTransportPrecision(m_transportPrecision);
+            if (m_commands.setNumThreads(m_numThreads, monitor)) {
+                // Resident networks were loaded using a different thread configuration.
+                DLPythonNetworkHandleCache.invalidate(m_commands.getContext(monitor));
+            }
+            // Reuses the network if it is still resident in the leased kernel.
+            m_handle = DLPythonNetworkHandleCache.load(loader, m_network, m_commands.getContext(monitor), monitor);
+		}
+		m_commands.setMetrics(monitor.getExecutionStatus().getMetrics());
+		if (m_pipelined) {
+			executePipelined(monitor);
+		} else {
+			executeSequentially(monitor);
 		}
+		m_commands.getMaxTransportError().ifPresent(monitor.getExecutionStatus()::reportTransportError);
+	}
+
+	private void executeSequentially(final DLExecutionMonitor monitor) throws DLCanceledExecutionException, Exception {
 		final DLExecutionStatus status = monitor.getExecutionStatus();
 		long currentInBatchSize = m_expectedBatchSize;
         while (m_inputPreparer.hasNext()) {
+			// Once the output tensors exist, try to execute all remaining batches with a single message exchange each.
+			if (m_output != null && executeRemainingBatches(monitor)) {
+				return;
+			}
 			monitor.checkCanceled();
             m_inputPreparer.prepareNext(m_input);
 			monitor.checkCanceled();
@@ -135,22 +234,7 @@ protected void executeInternal(final DLExecutionMonitor monitor) throws DLCancel
 				input.getBuffer().reset();
 			}
 			if (m_output == null) {
-				m_output = new HashMap<>(m_requestedOutputs.size());
-				final DLTensorSpec[] outputSpecs = ArrayUtils.addAll(m_network.getSpec().getOutputSpecs(),
-						m_network.getSpec().getHiddenOutputSpecs());
-				final Map<DLTensorId, long[]> outputShapes = m_commands.getNetworkOutputShapes(m_handle,
-						m_requestedOutputs, monitor);
-				for (final DLTensorSpec spec : outputSpecs) {
-					if (m_requestedOutputs.contains(spec.getIdentifier())) {
-						final long[] outShape = outputShapes.get(spec.getIdentifier());
-						final long outBatchSize = outShape[0];
-						final long[] outShapeWithoutBatchSize = new long[outShape.length - 1];
-						System.arraycopy(outShape, 1, outShapeWithoutBatchSize, 0, outShapeWithoutBatchSize.length);
-						final DLTensorSpec executionSpec = m_tensorFactory.createExecutionTensorSpec(spec, outBatchSize,
-								outShapeWithoutBatchSize);
-						m_output.put(spec.getIdentifier(), m_tensorFactory.createReadableTensor(executionSpec));
-					}
-				}
+				m_output = createOutputTensors(m_commands.getNetworkOutputShapes(m_handle, m_requestedOutputs, monitor));
 			}
 			m_commands.getNetworkOutputs(m_handle, m_output, monitor);
 			monitor.checkCanceled();
@@ -161,4 +245,228 @@ protected void executeInternal(final DLExecutionMonitor monitor) throws DLCancel
 			status.batchEnded().raise(null);
 		}
 	}
+
+	/**
+	 * @return <code>false</code> if the commands do not support executing the remaining batches at once, see
+	 *         {@link DLPythonCommands#executeNetworkBatches}
+	 */
+	private boolean executeRemainingBatches(final DLExecutionMonitor monitor)
+			throws DLCanceledExecutionException, Exception {
+		final DLExecutionStatus status = monitor.getExecutionStatus();
+		return m_commands.executeNetworkBatches(m_handle, m_requestedOutputs, m_input, m_output, () -> {
+			monitor.checkCanceled();
+			for (final DLTensor<?> input : m_input.values()) {
+				input.getBuffer().reset();
+			}
+			if (!m_inputPreparer.hasNext()) {
+				return false;
+			}
+			m_inputPreparer.prepareNext(m_input);
+			monitor.checkCanceled();
+			return true;
+		}, output -> {
+			m_outputConsumer.accept(m_output);
+			for (final DLTensor<?> o : m_output.values()) {
+				o.getBuffer().reset();
+			}
+			status.batchEnded().raise(null);
+		}, monitor);
+	}
+
+	/**
+	 * Prepares the next input batch on a producer thread and consumes the previous output batch on a consumer thread
+	 * while the current batch is executed in Python. Input and output tensors are double-buffered. The queues between
+	 * the stages are bounded by the number of tensor sets and preserve the order of the batches, so the output consumer
+	 * receives the batches in the order in which they were prepared (see e.g. DLKnimeNetworkExecutionInputPreparer's
+	 * base rows).
+	 */
+	private void executePipelined(final DLExecutionMonitor monitor) throws DLCanceledExecutionException, Exception {
+		final DLExecutionStatus status = monitor.getExecutionStatus();
+		final BlockingQueue<PipelinedInput> freeInputs = new ArrayBlockingQueue<>(NUM_PIPELINED_TENSOR_SETS);
+		// +1: end of input marker
+		final BlockingQueue<Optional<PipelinedInput>> preparedInputs =
+			new ArrayBlockingQueue<>(NUM_PIPELINED_TENSOR_SETS + 1);
+		final BlockingQueue<Map<DLTensorId, DLTensor<? extends DLReadableBuffer>>> freeOutputs =
+			new ArrayBlockingQueue<>(NUM_PIPELINED_TENSOR_SETS);
+		// +1: end of output marker
+		final BlockingQueue<Optional<Map<DLTensorId, DLTensor<? extends DLReadableBuffer>>>> computedOutputs =
+			new ArrayBlockingQueue<>(NUM_PIPELINED_TENSOR_SETS + 1);
+		freeInputs.add(new PipelinedInput(m_input));
+		// The tensors of previous runs of this session are reused.
+		for (int i = m_pipelinedInputs.size() + 1; i < NUM_PIPELINED_TENSOR_SETS; i++) {
+			final Map<DLTensorId, DLTensor<? extends DLWritableBuffer>> input =
+				new HashMap<>(m_executionInputSpecs.size());
+			for (final DLTensorSpec spec : m_executionInputSpecs) {
+				input.put(spec.getIdentifier(), m_tensorFactory.createWritableTensor(spec));
+			}
+			m_pipelinedInputs.add(input);
+		}
+		for (final Map<DLTensorId, DLTensor<? extends DLWritableBuffer>> input : m_pipelinedInputs) {
+			freeInputs.add(new PipelinedInput(input));
+		}
+		if (m_output != null) {
+			freeOutputs.add(m_output);
+			freeOutputs.addAll(m_pipelinedOutputs);
+		}
+		final Callable<Void> producer = () -> {
+			while (m_inputPreparer.hasNext()) {
+				final PipelinedInput input = freeInputs.take();
+				m_inputPreparer.prepareNext(input.m_tensors);
+				monitor.checkCanceled();
+				if (m_inputPreparer.hasNext()) {
+					input.m_batchSize = m_expectedBatchSize;
+				} else {
+					// last batch might be incomplete
+					final DLTensor<? extends DLWritableBuffer> tensor =
+						input.m_tensors.values().stream().findAny().get();
+					input.m_batchSize = tensor.getBuffer().size() / tensor.getExampleSize();
+				}
+				preparedInputs.put(Optional.of(input));
+			}
+			preparedInputs.put(Optional.empty());
+			return null;
+		};
+		final Callable<Void> consumer = () -> {
+			Optional<Map<DLTensorId, DLTensor<? extends DLReadableBuffer>>> output;
+			while ((output = computedOutputs.take()).isPresent()) {
+				m_outputConsumer.accept(output.get());
+				for (final DLTensor<?> tensor : output.get().values()) {
+					tensor.getBuffer().reset();
+				}
+				freeOutputs.put(output.get());
+				status.batchEnded().raise(null);
+			}
+			return null;
+		};
+		final ExecutorService executor = Executors.newFixedThreadPool(2, r -> {
+			final Thread t = new Thread(r, "KNIME-DL-Pipelined-Execution");
+			t.setDaemon(true);
+			return t;
+		});
+		try {
+			final Future<Void> producerFuture = executor.submit(ThreadUtils.callableWithContext(producer));
+			final Future<Void> consumerFuture = executor.submit(ThreadUtils.callableWithContext(consumer));
+			Optional<PipelinedInput> prepared;
+			while ((prepared = take(preparedInputs, producerFuture, monitor)).isPresent()) {
+				final PipelinedInput input = prepared.get();
+				m_commands.setNetworkInputs(m_handle, input.m_tensors, monitor);
+				for (final DLTensor<?> tensor : input.m_tensors.values()) {
+					tensor.getBuffer().reset();
+				}
+				// The input was transferred, so the producer may already refill the tensors. Never blocks.
+				freeInputs.put(input);
+				monitor.checkCanceled();
+				m_commands.executeNetwork(m_handle, m_requestedOutputs, input.m_batchSize, monitor);
+				monitor.checkCanceled();
+				if (m_output == null) {
+					final Map<DLTensorId, long[]> outputShapes =
+						m_commands.getNetworkOutputShapes(m_handle, m_requestedOutputs, monitor);
+					m_output = createOutputTensors(outputShapes);
+					freeOutputs.add(m_output);
+					for (int i = 1; i < NUM_PIPELINED_TENSOR_SETS; i++) {
+						final Map<DLTensorId, DLTensor<? extends DLReadableBuffer>> output =
+							createOutputTensors(outputShapes);
+						m_pipelinedOutputs.add(output);
+						freeOutputs.add(output);
+					}
+				}
+				final Map<DLTensorId, DLTensor<? extends DLReadableBuffer>> output =
+					take(freeOutputs, consumerFuture, monitor);
+				m_commands.getNetworkOutputs(m_handle, output, monitor);
+				monitor.checkCanceled();
+				computedOutputs.put(Optional.of(output));
+			}
+			computedOutputs.put(Optional.empty());
+			waitFor(consumerFuture, monitor);
+			waitFor(producerFuture, monitor);
+		} finally {
+			executor.shutdownNow();
+			try {
+				// Do not let the stages outlive the session, they access its tensors.
+				executor.awaitTermination(1, TimeUnit.MINUTES);
+			} catch (final InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	private Map<DLTensorId, DLTensor<? extends DLReadableBuffer>> createOutputTensors(
+			final Map<DLTensorId, long[]> outputShapes) {
+		final Map<DLTensorId, DLTensor<? extends DLReadableBuffer>> output = new HashMap<>(m_requestedOutputs.size());
+		final DLTensorSpec[] outputSpecs = ArrayUtils.addAll(m_network.getSpec().getOutputSpecs(),
+				m_network.getSpec().getHiddenOutputSpecs());
+		for (final DLTensorSpec spec : outputSpecs) {
+			if (m_requestedOutputs.contains(spec.getIdentifier())) {
+				final long[] outShape = outputShapes.get(spec.getIdentifier());
+				final long outBatchSize = outShape[0];
+				final long[] outShapeWithoutBatchSize = new long[outShape.length - 1];
+				System.arraycopy(outShape, 1, outShapeWithoutBatchSize, 0, outShapeWithoutBatchSize.length);
+				final DLTensorSpec executionSpec = m_tensorFactory.createExecutionTensorSpec(spec, outBatchSize,
+						outShapeWithoutBatchSize);
+				output.put(spec.getIdentifier(), m_tensorFactory.createReadableTensor(executionSpec));
+			}
+		}
+		return output;
+	}
+
+	/**
+	 * Takes the next element from the given queue. Periodically checks for cancellation and whether the pipeline
+	 * stage that fills the queue failed.
+	 */
+	private static <T> T take(final BlockingQueue<T> queue, final Future<?> producingStage,
+			final DLExecutionMonitor monitor) throws Exception {
+		while (true) {
+			final T element = queue.poll(PIPELINE_POLL_INTERVAL, TimeUnit.MILLISECONDS);
+			if (element != null) {
+				return element;
+			}
+			monitor.checkCanceled();
+			if (producingStage.isDone()) {
+				getResult(producingStage);
+				final T last = queue.poll();
+				if (last == null) {
+					throw new IllegalStateException("Pipelined execution stage terminated unexpectedly.");
+				}
+				return last;
+			}
+		}
+	}
+
+	private static void waitFor(final Future<?> stage, final DLExecutionMonitor monitor) throws Exception {
+		while (true) {
+			try {
+				stage.get(PIPELINE_POLL_INTERVAL, TimeUnit.MILLISECONDS);
+				return;
+			} catch (final TimeoutException e) {
+				monitor.checkCanceled();
+			} catch (final ExecutionException e) {
+				getResult(stage);
+			}
+		}
+	}
+
+	private static void getResult(final Future<?> stage) throws Exception {
+		try {
+			stage.get();
+		} catch (final ExecutionException e) {
+			final Throwable cause = e.getCause();
+			if (cause instanceof Exception) {
+				throw (Exception) cause;
+			} else if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw e;
+		}
+	}
+
+	private static final class PipelinedInput {
+
+		private final Map<DLTensorId, DLTensor<? extends DLWritableBuffer>> m_tensors;
+
+		private long m_batchSize;
+
+		private PipelinedInput(final Map<DLTensorId, DLTensor<? extends DLWritableBuffer>> tensors) {
+			m_tensors = tensors;
+		}
+	}
 }
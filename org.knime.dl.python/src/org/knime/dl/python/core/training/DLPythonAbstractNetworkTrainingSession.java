@@ -62,6 +62,8 @@
 import org.knime.dl.core.training.DLTrainingMonitor;
 import org.knime.dl.core.training.DLTrainingStatus;
 import org.knime.dl.python.core.DLPythonCommands;
+import org.knime.dl.python.core.DLPythonContext;
+import org.knime.dl.python.core.DLPythonKernelPool;
 import org.knime.dl.python.core.DLPythonNetwork;
 import org.knime.dl.python.core.DLPythonNetworkHandle;
 import org.knime.dl.python.core.DLPythonNetworkLoaderRegistry;
@@ -83,10 +85,16 @@
 
 	/**
 	 * The Python commands that are used to control the training process on Python side. Is instantiated via
-	 * {@link #createCommands()} at the beginning of the first call of {@link #trainInternal(DLTrainingMonitor)}.
+	 * {@link #createCommands(DLPythonContext)} at the beginning of the first call of
+	 * {@link #trainInternal(DLTrainingMonitor)}.
 	 */
 	protected C m_commands;
 
+	/**
+	 * The context that is leased from the {@link DLPythonKernelPool} and used by {@link #m_commands}.
+	 */
+	private DLPythonContext m_context;
+
 	/**
 	 * The Python handle of the network that is trained. Is instantiated at the beginning of the first call of
 	 * {@link #trainInternal(DLTrainingMonitor)}.
@@ -119,10 +127,11 @@ protected DLPythonAbstractNetworkTrainingSession(final N network, final CFG trai
 	 * {@link DLPythonAbstractNetworkTrainingSession#trainInternal(DLTrainingMonitor)}.<br>
 	 * The caller is responsible for {@link AutoCloseable#close() closing} the command.
 	 *
+	 * @param context the Python context that is leased from the {@link DLPythonKernelPool}
 	 * @return the created Python commands
 	 * @throws DLInvalidEnvironmentException if failed to create valid Python commands
 	 */
-	protected abstract C createCommands() throws DLInvalidEnvironmentException;
+	protected abstract C createCommands(DLPythonContext context) throws DLInvalidEnvironmentException;
 
 	/**
 	 * Sets the given training config for the given network handle.
@@ -152,15 +161,23 @@ public void close() throws Exception {
 	@Override
 	protected void trainInternal(final DLTrainingMonitor<? extends S> monitor)
 			throws DLCanceledExecutionException, Exception {
-		if (m_commands == null) {
-			m_commands = createCommands();
-            m_handle = DLPythonNetworkLoaderRegistry.getInstance().getNetworkLoader((Class<N>)m_network.getClass())
-                .orElseThrow(
-                    () -> new DLMissingExtensionException("Python back end '" + m_network.getClass().getCanonicalName()
-                        + "' could not be found. Are you missing a KNIME Deep Learning extension?"))
-                .load(m_network, m_commands.getContext(monitor), true, monitor);
-			setNetworkTrainingConfig(m_handle, m_trainingConfig, monitor);
+		try {
+			if (m_commands == null) {
+				m_context = DLPythonKernelPool.getInstance().lease(m_network.getClass(), monitor);
+				m_commands = createCommands(m_context);
+				m_handle = DLPythonNetworkLoaderRegistry.getInstance().getNetworkLoader((Class<N>) m_network.getClass())
+						.orElseThrow(() -> new DLMissingExtensionException(
+								"Python back end '" + m_network.getClass().getCanonicalName()
+										+ "' could not be found. Are you missing a KNIME Deep Learning extension?"))
+						.load(m_network, m_commands.getContext(monitor), true, monitor);
+				setNetworkTrainingConfig(m_handle, m_trainingConfig, monitor);
+			}
+			m_commands.trainNetwork(m_handle, m_trainingInputProvider, m_validationInputProvider, monitor);
+		} catch (final Exception e) {
+			// Training interacts with the raw kernel. Do not return a kernel with possibly inconsistent state to the
+			// pool.
+			DLPythonKernelPool.invalidate(m_context);
+			throw e;
 		}
-		m_commands.trainNetwork(m_handle, m_trainingInputProvider, m_validationInputProvider, monitor);
 	}
 }
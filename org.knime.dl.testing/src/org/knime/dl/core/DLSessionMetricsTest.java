@@ -0,0 +1,129 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ *
+ */
+package org.knime.dl.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Map;
+
+import org.junit.Test;
+import org.knime.dl.core.DLSessionMetrics.Phase;
+
+@SuppressWarnings("javadoc")
+public class DLSessionMetricsTest {
+
+	@Test
+	public void testBucketsCoverValues() {
+		for (long value = 0; value < 100000; value++) {
+			final int bucket = DLLatencyHistogram.getBucket(value);
+			assertTrue(value <= DLLatencyHistogram.getUpperBound(bucket));
+			if (bucket > 0) {
+				assertTrue(value > DLLatencyHistogram.getUpperBound(bucket - 1));
+			}
+		}
+		final int last = DLLatencyHistogram.getBucket(Long.MAX_VALUE);
+		assertEquals(Long.MAX_VALUE, DLLatencyHistogram.getUpperBound(last));
+	}
+
+	@Test
+	public void testPercentiles() {
+		final DLLatencyHistogram histogram = new DLLatencyHistogram();
+		assertEquals(0, histogram.getPercentileNanos(50));
+		for (long i = 1; i <= 1000; i++) {
+			histogram.record(i * 1000);
+		}
+		assertEquals(1000, histogram.getCount());
+		assertEquals(500500000, histogram.getTotalNanos());
+		assertEquals(1000000, histogram.getMaxNanos());
+		assertWithinBucket(500000, histogram.getPercentileNanos(50));
+		assertWithinBucket(990000, histogram.getPercentileNanos(99));
+		assertEquals(1000000, histogram.getPercentileNanos(100));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidPercentile() {
+		new DLLatencyHistogram().getPercentileNanos(0);
+	}
+
+	@Test
+	public void testSummary() {
+		final DLSessionMetrics metrics = new DLSessionMetrics();
+		metrics.record(Phase.EXECUTION, 2000000);
+		metrics.record(Phase.EXECUTION, 4000000);
+		metrics.addBytesSent(10);
+		metrics.addBytesReceived(20);
+		metrics.addRows(30);
+		final Map<String, Double> summary = metrics.getSummary();
+		assertEquals(2, summary.get("dl_execution_count"), 0);
+		assertEquals(6, summary.get("dl_execution_total_ms"), 0);
+		assertEquals(4, summary.get("dl_execution_max_ms"), 0);
+		assertFalse(summary.containsKey("dl_row_read_count"));
+		assertEquals(10, summary.get("dl_bytes_sent"), 0);
+		assertEquals(20, summary.get("dl_bytes_received"), 0);
+		assertEquals(30, summary.get("dl_rows"), 0);
+		assertTrue(metrics.toJson().startsWith("{\"dl_execution_count\": 2.000, "));
+	}
+
+	@Test
+	public void testDisabled() {
+		final DLSessionMetrics metrics = DLSessionMetrics.DISABLED;
+		assertFalse(metrics.isEnabled());
+		assertEquals(0, metrics.start());
+		metrics.stop(Phase.EXECUTION, 0);
+		metrics.record(Phase.ROW_READ, 1);
+		metrics.addRows(1);
+		assertEquals(0, metrics.getHistogram(Phase.EXECUTION).getCount());
+		assertEquals(0, metrics.getHistogram(Phase.ROW_READ).getCount());
+		assertEquals(0, metrics.getRows());
+	}
+
+	private static void assertWithinBucket(final long expected, final long actual) {
+		assertTrue(actual >= expected && actual <= expected * 1.125);
+	}
+}
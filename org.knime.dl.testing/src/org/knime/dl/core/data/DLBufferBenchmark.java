@@ -0,0 +1,161 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ *
+ */
+package org.knime.dl.core.data;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.knime.dl.testing.DLMicroBenchmark;
+import org.knime.dl.testing.DLTestUtil;
+
+/**
+ * Measures the elements per second of bulk writing ({@code putAll}) and bulk reading ({@code readTo*Array}) of the
+ * default buffer types. Numeric buffers are additionally read as doubles, which is what most output converters do.
+ *
+ * @see DLMicroBenchmark
+ */
+public final class DLBufferBenchmark {
+
+	private static final int SIZE = 1 << 16;
+
+	@BeforeClass
+	public static void checkEnabled() {
+		DLMicroBenchmark.assumeEnabled();
+	}
+
+	@Test
+	public void benchmarkBitBuffer() throws Exception {
+		final DLDefaultBitBuffer buffer = new DLDefaultBitBuffer(SIZE);
+		final boolean[] values = DLTestUtil.booleanRange(SIZE);
+		final boolean[] dest = new boolean[SIZE];
+		benchmark(buffer, () -> buffer.putAll(values), () -> buffer.readToBitArray(dest, 0, SIZE), dest);
+	}
+
+	@Test
+	public void benchmarkByteBuffer() throws Exception {
+		final DLDefaultByteBuffer buffer = new DLDefaultByteBuffer(SIZE);
+		final byte[] values = DLTestUtil.byteRange(SIZE);
+		final byte[] dest = new byte[SIZE];
+		benchmark(buffer, () -> buffer.putAll(values), () -> buffer.readToByteArray(dest, 0, SIZE), dest);
+	}
+
+	@Test
+	public void benchmarkUnsignedByteBuffer() throws Exception {
+		final DLDefaultUnsignedByteBuffer buffer = new DLDefaultUnsignedByteBuffer(SIZE);
+		final short[] values = new short[SIZE];
+		for (int i = 0; i < SIZE; i++) {
+			values[i] = (short) (i & 0xFF);
+		}
+		final short[] dest = new short[SIZE];
+		benchmark(buffer, () -> buffer.putAll(values), () -> buffer.readToUnsignedByteArray(dest, 0, SIZE), dest);
+	}
+
+	@Test
+	public void benchmarkShortBuffer() throws Exception {
+		final DLDefaultShortBuffer buffer = new DLDefaultShortBuffer(SIZE);
+		final short[] values = DLTestUtil.shortRange(SIZE);
+		final short[] dest = new short[SIZE];
+		benchmark(buffer, () -> buffer.putAll(values), () -> buffer.readToShortArray(dest, 0, SIZE), dest);
+	}
+
+	@Test
+	public void benchmarkIntBuffer() throws Exception {
+		final DLDefaultIntBuffer buffer = new DLDefaultIntBuffer(SIZE);
+		final int[] values = DLTestUtil.intRange(SIZE);
+		final int[] dest = new int[SIZE];
+		benchmark(buffer, () -> buffer.putAll(values), () -> buffer.readToIntArray(dest, 0, SIZE), dest);
+	}
+
+	@Test
+	public void benchmarkLongBuffer() throws Exception {
+		final DLDefaultLongBuffer buffer = new DLDefaultLongBuffer(SIZE);
+		final long[] values = DLTestUtil.longRange(SIZE);
+		final long[] dest = new long[SIZE];
+		benchmark(buffer, () -> buffer.putAll(values), () -> buffer.readToLongArray(dest, 0, SIZE), dest);
+	}
+
+	@Test
+	public void benchmarkFloatBuffer() throws Exception {
+		final DLDefaultFloatBuffer buffer = new DLDefaultFloatBuffer(SIZE);
+		final float[] values = DLTestUtil.floatRange(SIZE);
+		final float[] dest = new float[SIZE];
+		benchmark(buffer, () -> buffer.putAll(values), () -> buffer.readToFloatArray(dest, 0, SIZE), dest);
+	}
+
+	@Test
+	public void benchmarkDoubleBuffer() throws Exception {
+		final DLDefaultDoubleBuffer buffer = new DLDefaultDoubleBuffer(SIZE);
+		final double[] values = DLTestUtil.doubleRange(SIZE);
+		final double[] dest = new double[SIZE];
+		benchmark(buffer, () -> buffer.putAll(values), () -> buffer.readToDoubleArray(dest, 0, SIZE), dest);
+	}
+
+	private static void benchmark(final DLReadableBuffer buffer, final Runnable putAll, final Runnable readToArray,
+			final Object dest) throws Exception {
+		final String name = buffer.getClass().getSimpleName();
+		DLMicroBenchmark.run(name + " putAll", SIZE, () -> {
+			buffer.reset();
+			putAll.run();
+			return buffer;
+		});
+		assertEquals(SIZE, buffer.size());
+		DLMicroBenchmark.run(name + " readToArray", SIZE, () -> {
+			buffer.resetRead();
+			readToArray.run();
+			return dest;
+		});
+		if (buffer instanceof DLReadableDoubleBuffer && !(buffer instanceof DLDefaultDoubleBuffer)) {
+			final double[] doubles = new double[SIZE];
+			DLMicroBenchmark.run(name + " readToDoubleArray", SIZE, () -> {
+				buffer.resetRead();
+				((DLReadableDoubleBuffer) buffer).readToDoubleArray(doubles, 0, SIZE);
+				return doubles;
+			});
+		}
+	}
+}
@@ -75,10 +75,10 @@ public void testPutBoolean() throws Exception {
         try (DLDefaultBitBuffer buffer = new DLDefaultBitBuffer(10)) {
             assertEquals(buffer.m_nextWrite, 0);
             buffer.put(true);
-            assertEquals(true, buffer.m_storage[0]);
+            assertEquals(1L, buffer.m_storage[0] & 1L);
             assertEquals(1, buffer.m_nextWrite);
             buffer.put(false);
-            assertEquals(false, buffer.m_storage[1]);
+            assertEquals(0L, buffer.m_storage[0] & 2L);
         }
     }
 
@@ -95,7 +95,7 @@ public void testPutAllBoolean() throws Exception {
         try (DLDefaultBitBuffer buffer = new DLDefaultBitBuffer(10)) {
             final boolean[] expected = alternatingBooleanArray(10);
             buffer.putAll(expected);
-            assertArrayEquals(expected, buffer.m_storage);
+            assertArrayEquals(expected, buffer.toBitArray());
         }
     }
 
@@ -575,7 +575,7 @@ public void testZeroPad() throws Exception {
             buffer.reset();
             buffer.zeroPad(10);
             final boolean[] expected = new boolean[10];
-            assertArrayEquals(expected, buffer.m_storage);
+            assertArrayEquals(expected, buffer.toBitArray());
         }
     }
 
@@ -597,17 +597,24 @@ public void testZeroPadOverflow() throws Exception {
     public void testSetStorage() throws Exception {
         try (DLDefaultBitBuffer buffer = new DLDefaultBitBuffer(10)) {
             final boolean[] expected = booleanRange(10);
-            buffer.setStorage(expected, 10);
+            final long[] storage = new long[1];
+            for (int i = 0; i < expected.length; i++) {
+                if (expected[i]) {
+                    storage[0] |= 1L << i;
+                }
+            }
+            buffer.setStorage(storage, 10);
             assertEquals(0, buffer.m_nextRead);
-            assertArrayEquals(expected, buffer.m_storage);
+            assertArrayEquals(storage, buffer.m_storage);
+            assertArrayEquals(expected, buffer.toBitArray());
         }
     }
 
     @Test(expected = IllegalArgumentException.class)
     public void testSetStorageWrongCapacity() throws Exception {
         try (DLDefaultBitBuffer buffer = new DLDefaultBitBuffer(10)) {
-            final boolean[] storage = booleanRange(11);
-            buffer.setStorage(storage, 10);
+            // 10 bits fit into a single word
+            buffer.setStorage(new long[2], 10);
         }
     }
 }
@@ -0,0 +1,206 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ *
+ */
+package org.knime.dl.core.data;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.knime.dl.testing.DLTestUtil.DOUBLE_EPSILON;
+import static org.knime.dl.testing.DLTestUtil.FLOAT_EPSILON;
+import static org.knime.dl.testing.DLTestUtil.floatRange;
+import static org.knime.dl.testing.DLTestUtil.intRange;
+import static org.knime.dl.testing.DLTestUtil.shortRange;
+import static org.knime.dl.testing.DLTestUtil.toDouble;
+import static org.knime.dl.testing.DLTestUtil.toFloat;
+
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+/**
+ * Tests {@link DLAbstractDirectDataBuffer} and its implementations. Most tests use a small segment size to make sure
+ * that all operations work across segment boundaries.
+ */
+public class DLDirectDataBufferTest {
+
+	/**
+	 * Four floats per segment.
+	 */
+	private static final int SEGMENT_SIZE = 16;
+
+	@Test
+	public void testSegments() throws Exception {
+		try (DLDirectFloatBuffer buffer = new DLDirectFloatBuffer(10, SEGMENT_SIZE)) {
+			assertEquals(3, buffer.m_storage.length);
+			assertEquals(16, buffer.m_storage[0].capacity());
+			assertEquals(8, buffer.m_storage[2].capacity());
+			assertEquals(10, buffer.getCapacity());
+			assertEquals(0, buffer.size());
+		}
+	}
+
+	@Test
+	public void testPutAllFloatAcrossSegments() throws Exception {
+		try (DLDirectFloatBuffer buffer = new DLDirectFloatBuffer(10, SEGMENT_SIZE)) {
+			final float[] expected = floatRange(10);
+			buffer.put(expected[0]);
+			buffer.putAll(Arrays.copyOfRange(expected, 1, 10));
+			assertEquals(10, buffer.size());
+			assertArrayEquals(expected, buffer.toFloatArray(), FLOAT_EPSILON);
+			for (int i = 0; i < expected.length; i++) {
+				assertEquals(expected[i], buffer.readNextFloat(), FLOAT_EPSILON);
+			}
+		}
+	}
+
+	@Test
+	public void testPutAllShortAcrossSegments() throws Exception {
+		try (DLDirectFloatBuffer buffer = new DLDirectFloatBuffer(10, SEGMENT_SIZE)) {
+			final short[] expected = shortRange(10);
+			buffer.putAll(expected);
+			assertArrayEquals(toFloat(expected), buffer.toFloatArray(), FLOAT_EPSILON);
+			assertArrayEquals(toDouble(expected), buffer.toDoubleArray(), DOUBLE_EPSILON);
+		}
+	}
+
+	@Test(expected = BufferOverflowException.class)
+	public void testPutAllFloatOverflow() throws Exception {
+		try (DLDirectFloatBuffer buffer = new DLDirectFloatBuffer(9, SEGMENT_SIZE)) {
+			buffer.putAll(floatRange(10));
+		}
+	}
+
+	@Test
+	public void testReadToFloatArrayAcrossSegments() throws Exception {
+		try (DLDirectFloatBuffer buffer = new DLDirectFloatBuffer(10, SEGMENT_SIZE)) {
+			final float[] expected = floatRange(10);
+			buffer.putAll(expected);
+			final float[] filled = new float[10];
+			Arrays.fill(filled, -1);
+			expected[0] = -1;
+			expected[9] = -1;
+			buffer.readNextFloat();
+			buffer.readToFloatArray(filled, 1, 8);
+			assertArrayEquals(expected, filled, FLOAT_EPSILON);
+			assertEquals(9, buffer.getNextReadPosition());
+		}
+	}
+
+	@Test(expected = BufferUnderflowException.class)
+	public void testReadToFloatArrayUnderflow() throws Exception {
+		try (DLDirectFloatBuffer buffer = new DLDirectFloatBuffer(10, SEGMENT_SIZE)) {
+			buffer.putAll(floatRange(5));
+			buffer.readToFloatArray(new float[10], 0, 6);
+		}
+	}
+
+	@Test
+	public void testIntBuffer() throws Exception {
+		try (DLDirectIntBuffer buffer = new DLDirectIntBuffer(10, SEGMENT_SIZE)) {
+			final int[] expected = intRange(10);
+			buffer.putAll(expected);
+			assertArrayEquals(expected, buffer.toIntArray());
+			final long[] filled = new long[10];
+			buffer.readToLongArray(filled, 0, 10);
+			assertArrayEquals(Arrays.stream(expected).asLongStream().toArray(), filled);
+		}
+	}
+
+	@Test
+	public void testZeroPadAcrossSegments() throws Exception {
+		try (DLDirectDoubleBuffer buffer = new DLDirectDoubleBuffer(10, SEGMENT_SIZE)) {
+			buffer.putAll(floatRange(10));
+			buffer.reset();
+			buffer.put(1.0);
+			buffer.zeroPad(9);
+			final double[] expected = new double[10];
+			expected[0] = 1.0;
+			assertArrayEquals(expected, buffer.toDoubleArray(), DOUBLE_EPSILON);
+		}
+	}
+
+	@Test
+	public void testReadAndWriteBytes() throws Exception {
+		try (DLDirectLongBuffer source = new DLDirectLongBuffer(10, SEGMENT_SIZE);
+				DLDirectLongBuffer target = new DLDirectLongBuffer(10, SEGMENT_SIZE)) {
+			final long[] values = new long[] { 1L, -2L, Long.MAX_VALUE, Long.MIN_VALUE, 5L, 6L, 7L, 8L, 9L, 10L };
+			source.putAll(values);
+			final ByteBuffer bytes = ByteBuffer.allocate(8 * Long.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+			source.readBytes(2, bytes);
+			assertEquals(bytes.capacity(), bytes.position());
+			bytes.flip();
+			// little-endian wire format
+			assertEquals(Long.MAX_VALUE, bytes.getLong(0));
+			target.writeBytes(bytes);
+			assertEquals(0, bytes.position());
+			assertEquals(8, target.size());
+			assertArrayEquals(Arrays.copyOfRange(values, 2, 10), Arrays.copyOf(target.toLongArray(), 8));
+		}
+	}
+
+	@Test(expected = BufferUnderflowException.class)
+	public void testReadBytesUnderflow() throws Exception {
+		try (DLDirectLongBuffer buffer = new DLDirectLongBuffer(10, SEGMENT_SIZE)) {
+			buffer.putAll(new long[5]);
+			buffer.readBytes(0, ByteBuffer.allocate(6 * Long.BYTES));
+		}
+	}
+
+	@Test
+	public void testClose() throws Exception {
+		final DLDirectFloatBuffer buffer = new DLDirectFloatBuffer(10);
+		buffer.putAll(floatRange(10));
+		buffer.close();
+		assertNull(buffer.m_storage);
+		// closing twice is allowed
+		buffer.close();
+	}
+}
@@ -0,0 +1,165 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ *
+ */
+package org.knime.dl.core.data;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.knime.dl.testing.DLTestUtil.booleanRange;
+import static org.knime.dl.testing.DLTestUtil.toByte;
+
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.util.Arrays;
+import java.util.BitSet;
+
+import org.junit.Test;
+
+@SuppressWarnings("javadoc")
+public class DLPackedBitBufferTest {
+
+    @Test
+    public void testPutBooleanAcrossWords() throws Exception {
+        final boolean[] values = booleanRange(150);
+        try (DLPackedBitBuffer buffer = new DLPackedBitBuffer(150)) {
+            assertEquals(3, buffer.m_storage.length);
+            for (final boolean value : values) {
+                buffer.put(value);
+            }
+            assertEquals(150, buffer.size());
+            for (final boolean value : values) {
+                assertEquals(value, buffer.readNextBit());
+            }
+        }
+    }
+
+    @Test
+    public void testPutAllBooleanUnaligned() throws Exception {
+        final boolean[] values = booleanRange(200);
+        try (DLPackedBitBuffer buffer = new DLPackedBitBuffer(203)) {
+            buffer.put(true);
+            buffer.put(false);
+            buffer.put(true);
+            buffer.putAll(values);
+            assertEquals(203, buffer.size());
+            final boolean[] read = new boolean[203];
+            buffer.readToBitArray(read, 0, 203);
+            assertEquals(true, read[0]);
+            assertEquals(false, read[1]);
+            assertEquals(true, read[2]);
+            assertArrayEquals(values, Arrays.copyOfRange(read, 3, 203));
+        }
+    }
+
+    @Test
+    public void testPutAllWordsMatchesBitSetLayout() throws Exception {
+        final BitSet bits = new BitSet(130);
+        bits.set(0);
+        bits.set(63);
+        bits.set(64);
+        bits.set(129);
+        try (DLPackedBitBuffer aligned = new DLPackedBitBuffer(130);
+                DLPackedBitBuffer unaligned = new DLPackedBitBuffer(135)) {
+            aligned.putAll(bits.toLongArray(), 130);
+            unaligned.zeroPad(5);
+            unaligned.putAll(bits.toLongArray(), 130);
+            unaligned.readToBitArray(new boolean[5], 0, 5);
+            for (int i = 0; i < 130; i++) {
+                assertEquals(bits.get(i), aligned.readNextBit());
+                assertEquals(bits.get(i), unaligned.readNextBit());
+            }
+        }
+    }
+
+    @Test
+    public void testReadToPackedArray() throws Exception {
+        final boolean[] values = booleanRange(140);
+        final BitSet expected = new BitSet(140);
+        for (int i = 0; i < values.length; i++) {
+            expected.set(i, values[i]);
+        }
+        try (DLPackedBitBuffer buffer = new DLPackedBitBuffer(150)) {
+            buffer.putAll(values);
+            buffer.putAll(new boolean[] { true, true, true, true, true, true, true, true, true, true });
+            final long[] words = new long[3];
+            buffer.readToPackedArray(words, 140);
+            assertArrayEquals(expected.toLongArray(), Arrays.copyOf(words, expected.toLongArray().length));
+            // unaligned read of the remaining ten bits
+            final long[] rest = new long[1];
+            buffer.readToPackedArray(rest, 10);
+            assertEquals(0x3FFL, rest[0]);
+        }
+    }
+
+    @Test
+    public void testRewriteClearsBits() throws Exception {
+        try (DLPackedBitBuffer buffer = new DLPackedBitBuffer(70)) {
+            final boolean[] ones = new boolean[70];
+            Arrays.fill(ones, true);
+            buffer.putAll(ones);
+            buffer.resetWrite();
+            buffer.resetRead();
+            buffer.putAll(new boolean[70]);
+            assertArrayEquals(new byte[70], toByte(buffer.toBitArray()));
+        }
+    }
+
+    @Test(expected = BufferOverflowException.class)
+    public void testPutAllWordsOverflow() throws Exception {
+        try (DLPackedBitBuffer buffer = new DLPackedBitBuffer(64)) {
+            buffer.put(true);
+            buffer.putAll(new long[] { -1L }, 64);
+        }
+    }
+
+    @Test(expected = BufferUnderflowException.class)
+    public void testReadToPackedArrayUnderflow() throws Exception {
+        try (DLPackedBitBuffer buffer = new DLPackedBitBuffer(64)) {
+            buffer.put(true);
+            buffer.readToPackedArray(new long[1], 2);
+        }
+    }
+}
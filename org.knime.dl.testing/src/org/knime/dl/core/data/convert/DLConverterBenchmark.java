@@ -0,0 +1,187 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ *
+ */
+package org.knime.dl.core.data.convert;
+
+import static org.junit.Assert.assertFalse;
+
+import java.lang.reflect.Array;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.OptionalLong;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.knime.core.data.DataCell;
+import org.knime.core.data.collection.CollectionCellFactory;
+import org.knime.core.data.def.BooleanCell;
+import org.knime.core.data.def.DoubleCell;
+import org.knime.core.data.def.IntCell;
+import org.knime.core.data.def.LongCell;
+import org.knime.core.data.def.StringCell;
+import org.knime.dl.core.DLTensor;
+import org.knime.dl.core.data.DLReadableBuffer;
+import org.knime.dl.core.data.DLWritableBitBuffer;
+import org.knime.dl.core.data.DLWritableBuffer;
+import org.knime.dl.core.data.DLWritableByteBuffer;
+import org.knime.dl.core.data.DLWritableDoubleBuffer;
+import org.knime.dl.core.data.DLWritableFloatBuffer;
+import org.knime.dl.core.data.DLWritableIntBuffer;
+import org.knime.dl.core.data.DLWritableLongBuffer;
+import org.knime.dl.core.data.DLWritableShortBuffer;
+import org.knime.dl.core.data.DLWritableStringBuffer;
+import org.knime.dl.core.data.DLWritableUnsignedByteBuffer;
+import org.knime.dl.testing.DLMicroBenchmark;
+import org.knime.dl.testing.DLTestUtil;
+
+/**
+ * Measures the rows per second of all registered converter factories: row-to-tensor conversion for each combination
+ * of source data type and destination buffer type, and tensor-to-cell conversion for each tensor element type.
+ *
+ * @see DLMicroBenchmark
+ */
+public final class DLConverterBenchmark {
+
+	private static final int BATCH_SIZE = 256;
+
+	/**
+	 * The number of elements of each collection cell respectively of each example of the output tensors.
+	 */
+	private static final int NUM_ELEMENTS = 16;
+
+	private static final List<DataCell> SOURCE_CELLS = Arrays.asList(new DoubleCell(0.5), new IntCell(3),
+			new LongCell(3), BooleanCell.TRUE, new StringCell("abc"));
+
+	private static final List<Class<? extends DLWritableBuffer>> DEST_BUFFER_TYPES = Arrays.asList(
+			DLWritableDoubleBuffer.class, DLWritableFloatBuffer.class, DLWritableLongBuffer.class,
+			DLWritableIntBuffer.class, DLWritableShortBuffer.class, DLWritableByteBuffer.class,
+			DLWritableUnsignedByteBuffer.class, DLWritableBitBuffer.class, DLWritableStringBuffer.class);
+
+	private static final List<Class<?>> OUTPUT_ELEMENT_TYPES = Arrays.asList(double.class, float.class, long.class,
+			int.class, short.class, byte.class, boolean.class, String.class);
+
+	@BeforeClass
+	public static void checkEnabled() {
+		DLMicroBenchmark.assumeEnabled();
+	}
+
+	@Test
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	public void benchmarkInputConverters() throws Exception {
+		final DLDataValueToTensorConverterRegistry registry = DLDataValueToTensorConverterRegistry.getInstance();
+		int numBenchmarks = 0;
+		for (final DataCell cell : SOURCE_CELLS) {
+			final DataCell collectionCell = CollectionCellFactory
+					.createListCell(Collections.nCopies(NUM_ELEMENTS, cell));
+			for (final DataCell source : Arrays.asList(cell, collectionCell)) {
+				final List<DataCell> row = Collections.singletonList(source);
+				final long exampleSize = source == cell ? 1 : NUM_ELEMENTS;
+				for (final Class<? extends DLWritableBuffer> bufferType : DEST_BUFFER_TYPES) {
+					for (final DLDataValueToTensorConverterFactory factory : registry
+							.getConverterFactories(source.getType(), bufferType)) {
+						if (factory instanceof DLIntCollectionValueToOneHotFloatTensorConverterFactory) {
+							// requires a tensor shape that depends on the values, see registry test
+							continue;
+						}
+						final DLDataValueToTensorConverter converter = factory.createConverter();
+						final DLTensor<?> tensor = DLTestUtil.createTensorFromBufferType(bufferType, BATCH_SIZE,
+								exampleSize);
+						DLMicroBenchmark.run(factory.getName() + " (" + source.getType() + " -> "
+								+ bufferType.getSimpleName() + ")", BATCH_SIZE, () -> {
+									tensor.getBuffer().reset();
+									for (int i = 0; i < BATCH_SIZE; i++) {
+										converter.convert(row, tensor);
+									}
+									return tensor;
+								});
+						numBenchmarks++;
+					}
+				}
+			}
+		}
+		assertFalse(numBenchmarks == 0);
+	}
+
+	@Test
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	public void benchmarkOutputConverters() throws Exception {
+		final DLTensorToDataCellConverterRegistry registry = DLTensorToDataCellConverterRegistry.getInstance();
+		int numBenchmarks = 0;
+		for (final Class<?> elementType : OUTPUT_ELEMENT_TYPES) {
+			final DLTensor tensor = DLTestUtil.createTensor(elementType, BATCH_SIZE, NUM_ELEMENTS);
+			final DLWritableBuffer buffer = (DLWritableBuffer) tensor.getBuffer();
+			if (buffer instanceof DLWritableStringBuffer) {
+				final String[] values = new String[BATCH_SIZE * NUM_ELEMENTS];
+				Arrays.fill(values, "abc");
+				((DLWritableStringBuffer) buffer).putAll(values);
+			} else {
+				buffer.zeroPad(BATCH_SIZE * tensor.getExampleSize());
+			}
+			final Class<? extends DLReadableBuffer> bufferType = DLTestUtil.TENSOR_FACTORY
+					.getReadableBufferType(tensor.getSpec());
+			for (final DLTensorToDataCellConverterFactory factory : registry.getFactoriesForSourceType(bufferType,
+					tensor.getSpec())) {
+				final OptionalLong destCount = factory.getDestCount(tensor.getSpec());
+				if (!destCount.isPresent()) {
+					continue;
+				}
+				final DLTensorToDataCellConverter converter = factory.createConverter();
+				final DataCell[] cells = (DataCell[]) Array.newInstance(factory.getDestType().getCellClass(),
+						BATCH_SIZE * (int) destCount.getAsLong());
+				DLMicroBenchmark.run(
+						factory.getName() + " (" + elementType.getSimpleName() + " -> " + factory.getDestType() + ")",
+						BATCH_SIZE, () -> {
+							((DLReadableBuffer) tensor.getBuffer()).resetRead();
+							converter.convert(tensor, cells, null);
+							return cells;
+						});
+				numBenchmarks++;
+			}
+		}
+		assertFalse(numBenchmarks == 0);
+	}
+}
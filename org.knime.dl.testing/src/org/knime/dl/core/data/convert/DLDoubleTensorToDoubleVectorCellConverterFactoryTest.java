@@ -0,0 +1,100 @@
+package org.knime.dl.core.data.convert;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.knime.dl.testing.DLTestUtil.DOUBLE_EPSILON;
+import static org.knime.dl.testing.DLTestUtil.createTensor;
+
+import org.junit.Test;
+import org.knime.core.data.DataCell;
+import org.knime.core.data.vector.doublevector.DoubleVectorCellFactory;
+import org.knime.core.data.vector.doublevector.DoubleVectorValue;
+import org.knime.dl.core.DLDefaultFixedTensorShape;
+import org.knime.dl.core.DLDefaultTensorId;
+import org.knime.dl.core.DLDefaultTensorSpec;
+import org.knime.dl.core.DLDimensionOrder;
+import org.knime.dl.core.DLTensor;
+import org.knime.dl.core.data.DLReadableDoubleBuffer;
+import org.knime.dl.core.data.DLWritableDoubleBuffer;
+import org.knime.dl.core.data.DLWritableFloatBuffer;
+
+public class DLDoubleTensorToDoubleVectorCellConverterFactoryTest {
+
+	@Test
+	public void testConvert() {
+		final DLDoubleTensorToDoubleVectorCellConverterFactory factory =
+			new DLDoubleTensorToDoubleVectorCellConverterFactory();
+		final DLTensorToDataCellConverter<DLReadableDoubleBuffer, DataCell> converter = factory.createConverter();
+		final DLTensor<DLReadableDoubleBuffer> input = (DLTensor<DLReadableDoubleBuffer>) createTensor(Double.class, 2,
+				3);
+		final DLWritableDoubleBuffer buffer = (DLWritableDoubleBuffer) input.getBuffer();
+		// data for testing
+		for (int i = 0; i < 6; i++) {
+			buffer.put(i * 0.5d);
+		}
+
+		final DataCell[] output = new DataCell[2];
+
+		converter.convert(input, output, null);
+
+		for (int i = 0; i < 2; i++) {
+			assertTrue(output[i] instanceof DoubleVectorValue);
+			final DoubleVectorValue vector = (DoubleVectorValue) output[i];
+			assertEquals(3, vector.getLength());
+			for (int j = 0; j < 3; j++) {
+				assertEquals((i * 3 + j) * 0.5d, vector.getValue(j), DOUBLE_EPSILON);
+			}
+		}
+	}
+
+	@Test
+	public void testConvertFloatTensor() {
+		final DLDoubleTensorToDoubleVectorCellConverterFactory factory =
+			new DLDoubleTensorToDoubleVectorCellConverterFactory();
+		final DLTensorToDataCellConverter<DLReadableDoubleBuffer, DataCell> converter = factory.createConverter();
+		final DLTensor<DLReadableDoubleBuffer> input = (DLTensor<DLReadableDoubleBuffer>) createTensor(Float.class, 1,
+				2, 2);
+		final DLWritableFloatBuffer buffer = (DLWritableFloatBuffer) input.getBuffer();
+		buffer.put(1f);
+		buffer.put(-2f);
+		buffer.put(0f / 0f);
+		buffer.put(1f / 0f);
+
+		final DataCell[] output = new DataCell[1];
+
+		converter.convert(input, output, null);
+
+		final DoubleVectorValue vector = (DoubleVectorValue) output[0];
+		assertEquals(4, vector.getLength());
+		assertEquals(1d, vector.getValue(0), DOUBLE_EPSILON);
+		assertEquals(-2d, vector.getValue(1), DOUBLE_EPSILON);
+		assertTrue(Double.isNaN(vector.getValue(2)));
+		assertEquals(1d / 0d, vector.getValue(3), DOUBLE_EPSILON);
+	}
+
+	@Test
+	public void testGetDestCount() {
+		final DLDoubleTensorToDoubleVectorCellConverterFactory factory =
+			new DLDoubleTensorToDoubleVectorCellConverterFactory();
+		final long[] shape = { 3, 4 };
+		final DLDefaultTensorSpec spec = new DLDefaultTensorSpec(new DLDefaultTensorId("1"), "Tspec", 1,
+				new DLDefaultFixedTensorShape(shape), Double.class, DLDimensionOrder.TCDHW);
+
+		assertTrue(factory.getDestCount(spec).isPresent());
+		assertEquals(1l, factory.getDestCount(spec).getAsLong());
+	}
+
+	@Test
+	public void testGetBufferType() {
+		final DLDoubleTensorToDoubleVectorCellConverterFactory factory =
+			new DLDoubleTensorToDoubleVectorCellConverterFactory();
+		assertEquals(DLReadableDoubleBuffer.class, factory.getBufferType());
+	}
+
+	@Test
+	public void testGetDestType() {
+		final DLDoubleTensorToDoubleVectorCellConverterFactory factory =
+			new DLDoubleTensorToDoubleVectorCellConverterFactory();
+		assertEquals(DoubleVectorCellFactory.TYPE, factory.getDestType());
+	}
+}
@@ -0,0 +1,188 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ *
+ */
+package org.knime.dl.core.execution;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.knime.core.data.DataCell;
+import org.knime.core.data.DataColumnSpec;
+import org.knime.core.data.DataColumnSpecCreator;
+import org.knime.core.data.DataRow;
+import org.knime.core.data.DataTableSpec;
+import org.knime.core.data.RowKey;
+import org.knime.core.data.def.DefaultRow;
+import org.knime.core.data.def.DoubleCell;
+import org.knime.core.node.streamable.RowOutput;
+import org.knime.dl.core.DLDefaultFixedTensorShape;
+import org.knime.dl.core.DLDefaultTensorId;
+import org.knime.dl.core.DLDefaultTensorSpec;
+import org.knime.dl.core.DLDimensionOrder;
+import org.knime.dl.core.DLTensorId;
+import org.knime.dl.core.DLTensorSpec;
+import org.knime.dl.core.data.convert.DLDataValueToTensorConverterFactory;
+import org.knime.dl.core.data.convert.DLDoubleTensorToDoubleCellConverterFactory;
+import org.knime.dl.core.data.convert.DLDoubleValueToFloatTensorConverterFactory;
+import org.knime.dl.core.data.convert.DLTensorToDataCellConverterFactory;
+import org.knime.dl.testing.DLMicroBenchmark;
+import org.knime.dl.testing.DLTestExecutionMonitor;
+import org.knime.dl.testing.DLTestListRowIterator;
+import org.knime.dl.testing.backend.DLTestingBackendExecutionContext;
+import org.knime.dl.testing.backend.DLTestingBackendNetwork;
+import org.knime.dl.testing.backend.DLTestingBackendNetworkSpec;
+
+/**
+ * Measures the rows per second of complete execution sessions of the testing back end across batch sizes. This covers
+ * the Java side of the executor node: {@link DLKnimeNetworkExecutionInputPreparer} with number-to-float conversion,
+ * the session's tensor handling and {@link DLKnimeNetworkOutputConsumer} with double-to-cell conversion.
+ *
+ * @see DLMicroBenchmark
+ */
+public final class DLExecutionSessionBenchmark {
+
+	private static final int NUM_FEATURES = 64;
+
+	private static final int NUM_ROWS = 4096;
+
+	private static final int[] BATCH_SIZES = { 1, 16, 128, 1000 };
+
+	private static final DLTensorId INPUT_ID = new DLDefaultTensorId("input");
+
+	private static final DLTensorId OUTPUT_ID = new DLDefaultTensorId("output");
+
+	@BeforeClass
+	public static void checkEnabled() {
+		DLMicroBenchmark.assumeEnabled();
+	}
+
+	@Test
+	public void benchmark() throws Exception {
+		final DLTestingBackendExecutionContext ctx = new DLTestingBackendExecutionContext();
+		final DLTensorSpec inputSpec = new DLDefaultTensorSpec(INPUT_ID, "input",
+				new DLDefaultFixedTensorShape(new long[] { NUM_FEATURES }), float.class, DLDimensionOrder.TDHWC);
+		final DLTensorSpec outputSpec = new DLDefaultTensorSpec(OUTPUT_ID, "output",
+				new DLDefaultFixedTensorShape(new long[] { NUM_FEATURES }), double.class, DLDimensionOrder.TDHWC);
+		final DLTestingBackendNetwork network = new DLTestingBackendNetwork(new DLTestingBackendNetworkSpec(
+				new DLTensorSpec[] { inputSpec }, new DLTensorSpec[0], new DLTensorSpec[] { outputSpec }));
+		final DataTableSpec tableSpec = createTableSpec();
+		final List<DataRow> rows = createRows(new Random(42));
+		final int[] columns = new int[NUM_FEATURES];
+		for (int i = 0; i < NUM_FEATURES; i++) {
+			columns[i] = i;
+		}
+		final Map<DLTensorId, int[]> columnsForTensorId = Collections.singletonMap(INPUT_ID, columns);
+		final LinkedHashMap<DLTensorId, DLDataValueToTensorConverterFactory<?, ?>> inputConverters =
+				new LinkedHashMap<>();
+		inputConverters.put(INPUT_ID, new DLDoubleValueToFloatTensorConverterFactory());
+		final LinkedHashMap<DLTensorId, DLTensorToDataCellConverterFactory<?, ?>> outputConverters =
+				new LinkedHashMap<>();
+		outputConverters.put(OUTPUT_ID, new DLDoubleTensorToDoubleCellConverterFactory());
+		for (final int batchSize : BATCH_SIZES) {
+			final Set<DLTensorSpec> executionInputSpecs = Collections.singleton(
+					ctx.getTensorFactory().createExecutionTensorSpec(inputSpec, batchSize, new long[] { NUM_FEATURES }));
+			final DLCountingRowOutput output = new DLCountingRowOutput();
+			DLMicroBenchmark.run("Testing back end session (batch size " + batchSize + ")", NUM_ROWS, () -> {
+				try (final DLKnimeNetworkExecutionInputPreparer inputPreparer = new DLKnimeNetworkExecutionInputPreparer(
+						new DLTestListRowIterator(tableSpec, rows, columnsForTensorId), batchSize, false,
+						inputConverters);
+						final DLKnimeNetworkOutputConsumer outputConsumer = new DLKnimeNetworkOutputConsumer(output,
+								inputPreparer.getBaseRows()::remove, false, outputConverters, null);
+						final DLNetworkExecutionSession session = ctx.createExecutionSession(network,
+								executionInputSpecs, Collections.singleton(OUTPUT_ID), inputPreparer,
+								outputConsumer)) {
+					session.run(new DLTestExecutionMonitor());
+				}
+				return output;
+			});
+			assertEquals(0, output.m_numRows % NUM_ROWS);
+		}
+	}
+
+	private static DataTableSpec createTableSpec() {
+		final DataColumnSpec[] columnSpecs = new DataColumnSpec[NUM_FEATURES];
+		for (int i = 0; i < NUM_FEATURES; i++) {
+			columnSpecs[i] = new DataColumnSpecCreator("f" + i, DoubleCell.TYPE).createSpec();
+		}
+		return new DataTableSpec(columnSpecs);
+	}
+
+	private static List<DataRow> createRows(final Random random) {
+		final List<DataRow> rows = new ArrayList<>(NUM_ROWS);
+		for (int r = 0; r < NUM_ROWS; r++) {
+			final DataCell[] cells = new DataCell[NUM_FEATURES];
+			for (int c = 0; c < NUM_FEATURES; c++) {
+				cells[c] = new DoubleCell(random.nextDouble());
+			}
+			rows.add(new DefaultRow(RowKey.createRowKey((long) r), cells));
+		}
+		return rows;
+	}
+
+	private static final class DLCountingRowOutput extends RowOutput {
+
+		private long m_numRows = 0;
+
+		@Override
+		public void push(final DataRow row) {
+			m_numRows++;
+		}
+
+		@Override
+		public void close() {
+			// no op, the output is reused across sessions
+		}
+	}
+}
@@ -0,0 +1,127 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ *
+ */
+package org.knime.dl.core.execution;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Checks the 16 bit encodings of {@link DLTransportPrecision} against known bit patterns, including rounding ties,
+ * overflow, subnormals and special values.
+ */
+public class DLTransportPrecisionTest {
+
+	@Test
+	public void testFloat16Encode() {
+		final DLTransportPrecision p = DLTransportPrecision.FLOAT16;
+		assertEquals((short) 0x3C00, p.encode(1f));
+		assertEquals((short) 0xC000, p.encode(-2f));
+		assertEquals((short) 0x0000, p.encode(0f));
+		assertEquals((short) 0x8000, p.encode(-0f));
+		assertEquals((short) 0x7BFF, p.encode(65504f));
+		// the tie between 65504 and 65536 rounds to even, i.e. overflows
+		assertEquals((short) 0x7C00, p.encode(65520f));
+		assertEquals((short) 0x7BFF, p.encode(65519.99f));
+		assertEquals((short) 0x7C00, p.encode(Float.POSITIVE_INFINITY));
+		assertEquals((short) 0xFC00, p.encode(-1e10f));
+		// ties to even: 1 + 2^-11 is exactly between 1 and 1 + 2^-10
+		assertEquals((short) 0x3C00, p.encode(1f + 0x1p-11f));
+		assertEquals((short) 0x3C02, p.encode(1f + 3 * 0x1p-11f));
+		// smallest subnormal, values below half of it flush to zero
+		assertEquals((short) 0x0001, p.encode(0x1p-24f));
+		assertEquals((short) 0x0000, p.encode(0x1p-25f));
+		assertEquals((short) 0x0001, p.encode(0x1.01p-25f));
+		// largest subnormal rounds up to the smallest normal
+		assertEquals((short) 0x0400, p.encode(0x1.fffp-15f));
+		assertTrue(Float.isNaN(p.decode(p.encode(Float.NaN))));
+	}
+
+	@Test
+	public void testFloat16Decode() {
+		final DLTransportPrecision p = DLTransportPrecision.FLOAT16;
+		assertEquals(1f, p.decode((short) 0x3C00), 0f);
+		assertEquals(-2f, p.decode((short) 0xC000), 0f);
+		assertEquals(65504f, p.decode((short) 0x7BFF), 0f);
+		assertEquals(0x1p-24f, p.decode((short) 0x0001), 0f);
+		assertEquals(-0x1p-14f, p.decode((short) 0x8400), 0f);
+		assertEquals(Float.NEGATIVE_INFINITY, p.decode((short) 0xFC00), 0f);
+		for (int bits = 0; bits < 0x7C00; bits++) {
+			assertEquals((short) bits, p.encode(p.decode((short) bits)));
+		}
+	}
+
+	@Test
+	public void testBfloat16() {
+		final DLTransportPrecision p = DLTransportPrecision.BFLOAT16;
+		assertEquals((short) 0x3F80, p.encode(1f));
+		assertEquals((short) 0xC049, p.encode(-3.14159f));
+		// ties to even
+		assertEquals((short) 0x3F80, p.encode(1f + 0x1p-8f));
+		assertEquals((short) 0x3F82, p.encode(1f + 3 * 0x1p-8f));
+		assertEquals((short) 0x7F80, p.encode(Float.MAX_VALUE));
+		assertEquals(3f, p.decode(p.encode(3f)), 0f);
+		assertEquals(-3.140625f, p.decode(p.encode(-3.14159f)), 0f);
+		assertTrue(Float.isNaN(p.decode(p.encode(Float.NaN))));
+		assertTrue(Float.isNaN(p.decode(p.encode(Float.intBitsToFloat(0x7F800001)))));
+	}
+
+	@Test
+	public void testLabels() {
+		for (final DLTransportPrecision precision : DLTransportPrecision.values()) {
+			assertEquals(precision, DLTransportPrecision.fromLabel(precision.getLabel()));
+		}
+		assertTrue(DLTransportPrecision.FLOAT16.isReduced());
+		assertTrue(!DLTransportPrecision.FULL.isReduced());
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void testFullPrecisionIsNotEncoded() {
+		DLTransportPrecision.FULL.encode(1f);
+	}
+}
@@ -0,0 +1,255 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ *
+ */
+package org.knime.dl.testing;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.regex.Pattern;
+
+import org.junit.Assume;
+import org.knime.core.node.NodeLogger;
+import org.knime.dl.util.DLThrowingLambdas.DLThrowingSupplier;
+
+/**
+ * Minimal harness for the <code>*Benchmark</code> test classes. Each benchmark is warmed up and then measured for a
+ * number of fixed-time iterations, comparable to JMH's throughput mode. Besides the throughput, the number of bytes
+ * that are allocated per operation by the calling thread is reported, comparable to JMH's GC profiler. Results are
+ * logged at info level.
+ * <P>
+ * Benchmarks are skipped by the regular test runs. They are only run if the system property {@link #ENABLED_PROPERTY}
+ * is set to <code>true</code>, see {@link #assumeEnabled()}. The following system properties can be used to adapt a
+ * run:
+ * <ul>
+ * <li><code>knime.dl.benchmark.filter</code>: regular expression, only benchmarks whose names contain a match are
+ * run</li>
+ * <li><code>knime.dl.benchmark.warmups</code>: number of warm up iterations, default 3</li>
+ * <li><code>knime.dl.benchmark.iterations</code>: number of measured iterations, default 5</li>
+ * <li><code>knime.dl.benchmark.millis</code>: duration of an iteration in milliseconds, default 200</li>
+ * </ul>
+ */
+public final class DLMicroBenchmark {
+
+	/**
+	 * System property that enables the benchmarks if set to <code>true</code>.
+	 */
+	public static final String ENABLED_PROPERTY = "knime.dl.benchmark";
+
+	private static final NodeLogger LOGGER = NodeLogger.getLogger(DLMicroBenchmark.class);
+
+	private static final Pattern FILTER = Pattern.compile(System.getProperty("knime.dl.benchmark.filter", ""));
+
+	private static final int NUM_WARMUPS = Integer.getInteger("knime.dl.benchmark.warmups", 3);
+
+	private static final int NUM_ITERATIONS = Integer.getInteger("knime.dl.benchmark.iterations", 5);
+
+	private static final long ITERATION_NANOS = Long.getLong("knime.dl.benchmark.millis", 200) * 1000000;
+
+	/**
+	 * Consumes the results of the benchmarked operations such that they cannot be eliminated by the JIT.
+	 */
+	private static volatile int sink;
+
+	private DLMicroBenchmark() {
+		// utility class
+	}
+
+	/**
+	 * Skips the calling test (or all tests of the calling class if called in a method annotated with
+	 * <code>@BeforeClass</code>) unless the benchmarks are enabled via {@link #ENABLED_PROPERTY}.
+	 */
+	public static void assumeEnabled() {
+		Assume.assumeTrue("Benchmarks are only run if -D" + ENABLED_PROPERTY + "=true is set.",
+				Boolean.getBoolean(ENABLED_PROPERTY));
+	}
+
+	/**
+	 * Logs a result line of a benchmark.
+	 *
+	 * @param message the result line
+	 */
+	public static void log(final String message) {
+		LOGGER.info(message);
+	}
+
+	/**
+	 * Runs a benchmark and logs its result.
+	 *
+	 * @param name the name of the benchmark, should include its parameters
+	 * @param operationsPerCall the number of operations (e.g. rows or elements) that are performed by one call of the
+	 *            benchmarked code
+	 * @param benchmark the benchmarked code, its result is consumed
+	 * @return the result or <code>null</code> if the benchmark was excluded by the filter
+	 * @throws Exception if the benchmarked code throws an exception
+	 */
+	public static Result run(final String name, final long operationsPerCall,
+			final DLThrowingSupplier<?, ? extends Exception> benchmark) throws Exception {
+		if (!FILTER.matcher(name).find()) {
+			return null;
+		}
+		for (int i = 0; i < NUM_WARMUPS; i++) {
+			iterate(benchmark);
+		}
+		final boolean measureAllocations = getAllocatedBytes() >= 0;
+		double sumOpsPerSecond = 0;
+		double sumSquaredOpsPerSecond = 0;
+		long calls = 0;
+		long nanos = 0;
+		long allocatedBytes = 0;
+		for (int i = 0; i < NUM_ITERATIONS; i++) {
+			final long allocatedBefore = getAllocatedBytes();
+			final long start = System.nanoTime();
+			final long iterationCalls = iterate(benchmark);
+			final long iterationNanos = System.nanoTime() - start;
+			allocatedBytes += getAllocatedBytes() - allocatedBefore;
+			final double opsPerSecond = iterationCalls * operationsPerCall / (iterationNanos / 1e9);
+			sumOpsPerSecond += opsPerSecond;
+			sumSquaredOpsPerSecond += opsPerSecond * opsPerSecond;
+			calls += iterationCalls;
+			nanos += iterationNanos;
+		}
+		final double meanOpsPerSecond = sumOpsPerSecond / NUM_ITERATIONS;
+		final double stdDevOpsPerSecond = Math
+				.sqrt(Math.max(sumSquaredOpsPerSecond / NUM_ITERATIONS - meanOpsPerSecond * meanOpsPerSecond, 0));
+		final Result result;
+		if (measureAllocations) {
+			result = new Result(name, meanOpsPerSecond, stdDevOpsPerSecond,
+					allocatedBytes / (double) (calls * operationsPerCall), allocatedBytes / (nanos / 1e9));
+		} else {
+			result = new Result(name, meanOpsPerSecond, stdDevOpsPerSecond, Double.NaN, Double.NaN);
+		}
+		log(result.toString());
+		return result;
+	}
+
+	private static long iterate(final DLThrowingSupplier<?, ? extends Exception> benchmark) throws Exception {
+		final long end = System.nanoTime() + ITERATION_NANOS;
+		long calls = 0;
+		do {
+			final Object value = benchmark.get();
+			sink += value == null ? 0 : System.identityHashCode(value);
+			calls++;
+		} while (System.nanoTime() < end);
+		return calls;
+	}
+
+	/**
+	 * @return the number of bytes allocated by the calling thread so far or -1 if this is not supported by the JVM
+	 */
+	private static long getAllocatedBytes() {
+		final ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		if (bean instanceof com.sun.management.ThreadMXBean) {
+			final com.sun.management.ThreadMXBean sunBean = (com.sun.management.ThreadMXBean) bean;
+			if (sunBean.isThreadAllocatedMemorySupported() && sunBean.isThreadAllocatedMemoryEnabled()) {
+				return sunBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * The result of a benchmark. Allocation figures are {@link Double#NaN} if the JVM does not support measuring them.
+	 */
+	public static final class Result {
+
+		private final String m_name;
+
+		private final double m_opsPerSecond;
+
+		private final double m_opsPerSecondStdDev;
+
+		private final double m_bytesPerOp;
+
+		private final double m_allocationRate;
+
+		private Result(final String name, final double opsPerSecond, final double opsPerSecondStdDev,
+				final double bytesPerOp, final double allocationRate) {
+			m_name = name;
+			m_opsPerSecond = opsPerSecond;
+			m_opsPerSecondStdDev = opsPerSecondStdDev;
+			m_bytesPerOp = bytesPerOp;
+			m_allocationRate = allocationRate;
+		}
+
+		public String getName() {
+			return m_name;
+		}
+
+		/**
+		 * @return the mean number of operations per second
+		 */
+		public double getOpsPerSecond() {
+			return m_opsPerSecond;
+		}
+
+		/**
+		 * @return the standard deviation of the number of operations per second across the measured iterations
+		 */
+		public double getOpsPerSecondStdDev() {
+			return m_opsPerSecondStdDev;
+		}
+
+		/**
+		 * @return the number of bytes allocated per operation
+		 */
+		public double getBytesPerOp() {
+			return m_bytesPerOp;
+		}
+
+		/**
+		 * @return the number of bytes allocated per second
+		 */
+		public double getAllocationRate() {
+			return m_allocationRate;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%-72s %14.1f +- %10.1f ops/s %12.1f B/op %10.1f MB/s", m_name, m_opsPerSecond,
+					m_opsPerSecondStdDev, m_bytesPerOp, m_allocationRate / (1 << 20));
+		}
+	}
+}
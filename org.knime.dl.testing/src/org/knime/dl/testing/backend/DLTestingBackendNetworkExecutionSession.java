@@ -87,9 +87,11 @@ protected void executeInternal(final DLExecutionMonitor monitor) throws DLCancel
             for (final Entry<DLTensorId, DLTensor<? extends DLWritableBuffer>> in : m_input.entrySet()) {
                 // TODO: we can't be sure that casting will work here
                 final DLWrappingDataBuffer<float[]> buffer = (DLWrappingDataBuffer<float[]>)in.getValue().getBuffer();
-                final float[] inArr = buffer.getStorageForReading(0, buffer.size());
-                final double[] outArr = new double[inArr.length];
-                for (int j = 0; j < inArr.length; j++) {
+                // last batch might be incomplete
+                final int size = (int)buffer.size();
+                final float[] inArr = buffer.getStorageForReading(0, size);
+                final double[] outArr = new double[size];
+                for (int j = 0; j < size; j++) {
                     outArr[j] = inArr[j] * 5.0;
                 }
                 if (m_output == null) {
@@ -98,17 +100,21 @@ protected void executeInternal(final DLExecutionMonitor monitor) throws DLCancel
                         m_network.getSpec().getHiddenOutputSpecs());
                     for (final DLTensorSpec spec : outputSpecs) {
                         if (m_requestedOutputs.contains(spec.getIdentifier())) {
-                            final long batchSize = 1;
                             final long[] shape =
                                     DLUtils.Shapes.getFixedShape(spec.getShape()).orElseThrow(RuntimeException::new);
                             final DLTensorSpec executionSpec =
-                                    m_tensorFactory.createExecutionTensorSpec(spec, batchSize, shape);
+                                    m_tensorFactory.createExecutionTensorSpec(spec, m_expectedBatchSize, shape);
                             m_output.put(spec.getIdentifier(), m_tensorFactory.createReadableTensor(executionSpec));
                         }
                     }
                 }
                 final DLTensorId outId = m_output.keySet().stream().findFirst().get();
                 ((DLWritableDoubleBuffer)m_output.get(outId).getBuffer()).putAll(outArr);
+                buffer.reset();
+            }
+            m_outputConsumer.accept(m_output);
+            for (final DLTensor<?> out : m_output.values()) {
+                out.getBuffer().reset();
             }
         }
     }
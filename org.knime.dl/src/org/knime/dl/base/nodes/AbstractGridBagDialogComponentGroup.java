@@ -530,6 +530,24 @@ protected void addToggleStringEditRowComponent(final SettingsModelBoolean toggle
 		addDoubleColumnRow(booleanComponent.getComponentPanel(), textFieldComp);
 	}
 
+	/**
+	 * Adds a row containing a checkbox and a string edit field. The checkbox toggles the enable status of the given
+	 * config entry.
+	 *
+	 * @param entry the config entry whose enable status is toggled
+	 * @param label the checkbox label
+	 * @param stringSettings the settings of the string edit field
+	 */
+	protected void addToggleStringEditRowComponent(final ConfigEntry<?> entry, final String label,
+			final SettingsModelString stringSettings) {
+		final SettingsModelBoolean toggleSettings = new SettingsModelBoolean(entry.getEntryKey() + "_toggle_settings",
+				entry.getEnabled());
+		entry.addLoadListener(e -> toggleSettings.setBooleanValue(e.getEnabled()));
+		entry.addEnableChangeListener(e -> toggleSettings.setBooleanValue(e.getEnabled()));
+		toggleSettings.addChangeListener(l -> entry.setEnabled(toggleSettings.getBooleanValue()));
+		addToggleStringEditRowComponent(toggleSettings, label, stringSettings);
+	}
+
 	/**
 	 * Adds a row containing a string edit field.
 	 *
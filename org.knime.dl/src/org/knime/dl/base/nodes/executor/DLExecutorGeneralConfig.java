@@ -57,10 +57,12 @@
 import org.knime.dl.base.settings.AbstractConfig;
 import org.knime.dl.base.settings.AbstractConfigEntry;
 import org.knime.dl.base.settings.ConfigEntry;
+import org.knime.dl.base.settings.DefaultConfigEntry;
 import org.knime.dl.base.settings.DLGeneralConfig;
 import org.knime.dl.core.DLNetwork;
 import org.knime.dl.core.execution.DLExecutionContext;
 import org.knime.dl.core.execution.DLExecutionContextRegistry;
+import org.knime.dl.core.execution.DLTransportPrecision;
 
 /**
  * Note: all those config classes will certainly be generalized and extended in the future as they're probably viable
@@ -81,6 +83,20 @@ class DLExecutorGeneralConfig extends AbstractConfig implements DLGeneralConfig<
 
 	private static final String CFG_KEY_KEEP_INPUT_COLS = "keep_input_columns";
 
+	private static final String CFG_KEY_PIPELINED = "pipelined_execution";
+
+	private static final String CFG_KEY_NUM_WORKERS = "parallel_workers";
+
+	private static final String CFG_KEY_THREADS_PER_WORKER = "threads_per_worker";
+
+	private static final String CFG_KEY_BUCKET_BOUNDARIES = "length_bucket_boundaries";
+
+	private static final String CFG_KEY_TRANSPORT_PRECISION = "transport_precision";
+
+	private static final String CFG_KEY_METRICS_FLOW_VARIABLES = "timing_flow_variables";
+
+	private static final String DEFAULT_BUCKET_BOUNDARIES = "16, 32, 64, 128, 256";
+
 
 	@SuppressWarnings("rawtypes") // java limitation
     DLExecutorGeneralConfig(final String defaultBackendName, final String defaultBackendId,
@@ -118,6 +134,63 @@ public void loadSettingsFrom(NodeSettingsRO settings) throws InvalidSettingsExce
 		put(SettingsModelConfigEntries.createIntegerBoundedConfigEntry(CFG_KEY_BATCH_SIZE, defaultBatchSize,
 		    1, Integer.MAX_VALUE));
 		put(SettingsModelConfigEntries.createBooleanConfigEntry(CFG_KEY_KEEP_INPUT_COLS, false));
+		put(new DefaultConfigEntry<Boolean>(CFG_KEY_PIPELINED, Boolean.class, true) {
+
+			@Override
+			protected boolean handleFailureToLoadConfigEntry(final NodeSettingsRO settings, final Exception cause) {
+				// backward compatibility (3.7): set to false as we previously executed sequentially
+				m_value = false;
+				return true;
+			}
+		});
+		put(new DefaultConfigEntry<Integer>(CFG_KEY_NUM_WORKERS, Integer.class, 1) {
+
+			@Override
+			protected boolean handleFailureToLoadConfigEntry(final NodeSettingsRO settings, final Exception cause) {
+				// backward compatibility (3.7): set to default as we previously used a single worker
+				m_value = 1;
+				return true;
+			}
+		});
+		put(new DefaultConfigEntry<Integer>(CFG_KEY_THREADS_PER_WORKER, Integer.class, 0) {
+
+			@Override
+			protected boolean handleFailureToLoadConfigEntry(final NodeSettingsRO settings, final Exception cause) {
+				// backward compatibility (3.7): set to default, i.e. let the back end decide
+				m_value = 0;
+				return true;
+			}
+		});
+		put(new DefaultConfigEntry<String>(CFG_KEY_BUCKET_BOUNDARIES, String.class, DEFAULT_BUCKET_BOUNDARIES,
+			false) {
+
+			@Override
+			protected boolean handleFailureToLoadConfigEntry(final NodeSettingsRO settings, final Exception cause) {
+				// backward compatibility (3.7): disabled as we previously did not bucket rows
+				m_value = DEFAULT_BUCKET_BOUNDARIES;
+				m_enabled = false;
+				return true;
+			}
+		});
+		put(new DefaultConfigEntry<String>(CFG_KEY_TRANSPORT_PRECISION, String.class,
+			DLTransportPrecision.FULL.getLabel()) {
+
+			@Override
+			protected boolean handleFailureToLoadConfigEntry(final NodeSettingsRO settings, final Exception cause) {
+				// backward compatibility (3.7): tensors were previously transferred at full precision
+				m_value = DLTransportPrecision.FULL.getLabel();
+				return true;
+			}
+		});
+		put(new DefaultConfigEntry<Boolean>(CFG_KEY_METRICS_FLOW_VARIABLES, Boolean.class, false) {
+
+			@Override
+			protected boolean handleFailureToLoadConfigEntry(final NodeSettingsRO settings, final Exception cause) {
+				// backward compatibility (3.7): no flow variables were previously created
+				m_value = false;
+				return true;
+			}
+		});
 	}
 
 	ConfigEntry<Integer> getBatchSizeEntry() {
@@ -134,6 +207,47 @@ public ConfigEntry<Boolean> getKeepInputColumnsEntry() {
         return get(CFG_KEY_KEEP_INPUT_COLS, Boolean.class);
     }
 
+    ConfigEntry<Boolean> getPipelinedEntry() {
+        return get(CFG_KEY_PIPELINED, Boolean.class);
+    }
+
+    /**
+     * @return the number of Python kernels (or other back end processes) that execute batches in parallel
+     */
+    ConfigEntry<Integer> getNumWorkersEntry() {
+        return get(CFG_KEY_NUM_WORKERS, Integer.class);
+    }
+
+    /**
+     * @return the number of threads each worker may use to execute the network, <code>0</code> if the back end
+     *         decides
+     */
+    ConfigEntry<Integer> getThreadsPerWorkerEntry() {
+        return get(CFG_KEY_THREADS_PER_WORKER, Integer.class);
+    }
+
+    /**
+     * @return the comma-separated boundaries of the length buckets, enabled if rows are grouped into length buckets
+     */
+    ConfigEntry<String> getBucketBoundariesEntry() {
+        return get(CFG_KEY_BUCKET_BOUNDARIES, String.class);
+    }
+
+
+    /**
+     * @return the {@link DLTransportPrecision#getLabel() label} of the precision at which floating point tensors are
+     *         transferred to and from the back end
+     */
+    ConfigEntry<String> getTransportPrecisionEntry() {
+        return get(CFG_KEY_TRANSPORT_PRECISION, String.class);
+    }
+
+    /**
+     * @return whether the timing metrics of the execution are output as flow variables
+     */
+    ConfigEntry<Boolean> getMetricsFlowVariablesEntry() {
+        return get(CFG_KEY_METRICS_FLOW_VARIABLES, Boolean.class);
+    }
 
     static Collection<DLExecutionContext<?>> getAvailableExecutionContexts(Class<? extends DLNetwork> networkType) {
         return DLExecutionContextRegistry.getInstance().getExecutionContextsForNetworkType(networkType);
@@ -46,6 +46,7 @@
  */
 package org.knime.dl.base.nodes.executor;
 
+import java.util.Arrays;
 import java.util.Comparator;
 import java.util.List;
 import java.util.stream.Collectors;
@@ -65,6 +66,7 @@
 import org.knime.dl.core.DLTensorSpec;
 import org.knime.dl.core.execution.DLExecutionContext;
 import org.knime.dl.core.execution.DLExecutionContextRegistry;
+import org.knime.dl.core.execution.DLTransportPrecision;
 
 
 /**
@@ -94,6 +96,19 @@ class DLExecutorGeneralPanel extends AbstractGridBagDialogComponentGroup {
 		    m_cfg.getBatchSizeEntry(), 1, Integer.MAX_VALUE), "Input batch size", 100);
 		addCheckboxRow(ConfigUtil.toSettingsModelBoolean(m_cfg.getKeepInputColumnsEntry()),
 		    "Keep input columns in output table", true);
+		addCheckboxRow(ConfigUtil.toSettingsModelBoolean(m_cfg.getPipelinedEntry()),
+		    "Prepare next and convert previous batch during execution", true);
+		addNumberSpinnerRowComponent(ConfigUtil.toSettingsModelIntegerBounded(
+		    m_cfg.getNumWorkersEntry(), 1, 64), "Number of parallel workers", 1);
+		addNumberSpinnerRowComponent(ConfigUtil.toSettingsModelIntegerBounded(
+		    m_cfg.getThreadsPerWorkerEntry(), 0, 1024), "Threads per worker (0 = automatic)", 1);
+		addToggleStringEditRowComponent(m_cfg.getBucketBoundariesEntry(), "Group rows into length buckets",
+		    ConfigUtil.toSettingsModelString(m_cfg.getBucketBoundariesEntry()));
+		addComboBoxRow(ConfigUtil.toSettingsModelString(m_cfg.getTransportPrecisionEntry()), "Transport precision",
+		    Arrays.stream(DLTransportPrecision.values()).map(DLTransportPrecision::getLabel)
+		        .collect(Collectors.toList()));
+		addCheckboxRow(ConfigUtil.toSettingsModelBoolean(m_cfg.getMetricsFlowVariablesEntry()),
+		    "Output timing metrics as flow variables", true);
 	}
 	
 
@@ -58,7 +58,9 @@
 import java.util.List;
 import java.util.Map.Entry;
 import java.util.Optional;
+import java.util.OptionalDouble;
 import java.util.OptionalLong;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 import org.knime.core.data.DataColumnSpec;
@@ -101,16 +103,20 @@
 import org.knime.dl.core.DLExecutionSpecCreator;
 import org.knime.dl.core.DLInstallationTestTimeout;
 import org.knime.dl.core.DLInstallationTestTimeoutException;
+import org.knime.dl.core.DLLengthBucketing;
 import org.knime.dl.core.DLMissingDependencyException;
 import org.knime.dl.core.DLNetwork;
 import org.knime.dl.core.DLNetworkSpec;
 import org.knime.dl.core.DLNotCancelable;
 import org.knime.dl.core.DLRowInputRowIterator;
+import org.knime.dl.core.DLRowIterator;
+import org.knime.dl.core.DLSessionMetrics;
 import org.knime.dl.core.DLTensorId;
 import org.knime.dl.core.DLTensorSpec;
 import org.knime.dl.core.data.DLReadableBuffer;
 import org.knime.dl.core.data.convert.DLDataValueToTensorConverterFactory;
 import org.knime.dl.core.data.convert.DLTensorToDataCellConverterFactory;
+import org.knime.dl.core.execution.DLBucketedNetworkExecution;
 import org.knime.dl.core.execution.DLDefaultExecutionStatus;
 import org.knime.dl.core.execution.DLExecutionContext;
 import org.knime.dl.core.execution.DLExecutionStatus;
@@ -118,6 +124,8 @@
 import org.knime.dl.core.execution.DLKnimeNetworkExecutionInputPreparer;
 import org.knime.dl.core.execution.DLKnimeNetworkOutputConsumer;
 import org.knime.dl.core.execution.DLNetworkExecutionSession;
+import org.knime.dl.core.execution.DLParallelNetworkExecution;
+import org.knime.dl.core.execution.DLTransportPrecision;
 import org.knime.dl.util.DLUtils;
 
 import com.google.common.base.Strings;
@@ -143,6 +151,11 @@ final class DLExecutorNodeModel extends NodeModel {
 
 	private static final NodeLogger LOGGER = NodeLogger.getLogger(DLExecutorNodeModel.class);
 
+	/**
+	 * The number of batches whose rows are bucketed at a time if length bucketing is enabled.
+	 */
+	private static final int BUCKETING_WINDOW_NUM_BATCHES = 64;
+
 	static DLExecutorGeneralConfig createGeneralModelConfig() {
 		return new DLExecutorGeneralConfig("<none>", null, 100);
 	}
@@ -393,6 +406,13 @@ private void configureGeneral(final Class<? extends DLNetwork> networkType)
             throw new InvalidSettingsException(
                 "Selected back end is not compatible to the input deep learning network. Please reconfigure the node.");
         }
+        if (m_generalCfg.getBucketBoundariesEntry().getEnabled()) {
+            try {
+                DLLengthBucketing.parseBoundaries(m_generalCfg.getBucketBoundariesEntry().getValue());
+            } catch (final IllegalArgumentException e) {
+                throw new InvalidSettingsException("Invalid length bucket boundaries: " + e.getMessage(), e);
+            }
+        }
 	}
 
     private void configureInputs(final DLNetworkSpec networkSpec, final DataTableSpec inDataSpec)
@@ -545,17 +565,35 @@ private <N extends DLNetwork> void executeInternal(final PortObject portObject,
 		final LinkedHashMap<DLTensorId, DLTensorToDataCellConverterFactory<?, ?>> outputConverterForTensorId =
             createOutputConverterMap();
 
-		try (final DLRowInputRowIterator rowIterator = new DLRowInputRowIterator(rowInput, columnsForTensorId);
-				final DLKnimeNetworkExecutionInputPreparer inputPreparer = new DLKnimeNetworkExecutionInputPreparer(
+		final int numWorkers = m_generalCfg.getNumWorkersEntry().getValue();
+		try (final DLRowInputRowIterator rowIterator = new DLRowInputRowIterator(rowInput, columnsForTensorId)) {
+			final DLLengthBucketing bucketing = createLengthBucketing();
+			if (bucketing != null) {
+				executeBucketed(ctx, network, rowIterator, inDataSpec, batchSize, isPredefinedBatchSize,
+					keepInputColumns, columnsForTensorId, inputConverterForTensorId, outputConverterForTensorId,
+					bucketing, rowOutput, exec);
+			} else if (numWorkers > 1) {
+				executeInParallel(ctx, network, rowIterator, inDataSpec, batchSize, isPredefinedBatchSize,
+					keepInputColumns, columnsForTensorId, inputConverterForTensorId, outputConverterForTensorId,
+					numWorkers, rowOutput, exec);
+			} else {
+				try (final DLKnimeNetworkExecutionInputPreparer inputPreparer = new DLKnimeNetworkExecutionInputPreparer(
 						rowIterator, batchSize, isPredefinedBatchSize, inputConverterForTensorId);
-				final DLKnimeNetworkOutputConsumer outputConsumer = new DLKnimeNetworkOutputConsumer(rowOutput,
-						inputPreparer.getBaseRows()::remove, keepInputColumns, outputConverterForTensorId, exec);
-				final DLNetworkExecutionSession session = ctx.createExecutionSession(network,
-						DLExecutionSpecCreator.createExecutionSpecs(rowIterator.peek(), ctx.getTensorFactory(),
-								batchSize, columnsForTensorId, m_inputConverters),
-						outputConverterForTensorId.keySet(), inputPreparer, outputConsumer)) {
-            final DLKnimeExecutionMonitor monitor = createExecutionMonitor(exec, inputPreparer.getNumBatches());
-			session.run(monitor);
+						final DLKnimeNetworkOutputConsumer outputConsumer = new DLKnimeNetworkOutputConsumer(rowOutput,
+								inputPreparer.getBaseRows()::remove, keepInputColumns, outputConverterForTensorId, exec);
+						final DLNetworkExecutionSession session = ctx.createExecutionSession(network,
+								DLExecutionSpecCreator.createExecutionSpecs(rowIterator.peek(), ctx.getTensorFactory(),
+										batchSize, columnsForTensorId, m_inputConverters),
+								outputConverterForTensorId.keySet(), inputPreparer, outputConsumer)) {
+					final DLKnimeExecutionMonitor monitor = createExecutionMonitor(exec, inputPreparer.getNumBatches());
+					inputPreparer.setMetrics(monitor.getExecutionStatus().getMetrics());
+					outputConsumer.setMetrics(monitor.getExecutionStatus().getMetrics());
+					configureSession(session);
+					session.run(monitor);
+					warnAboutTransportError(monitor.getExecutionStatus());
+					reportMetrics(monitor.getExecutionStatus().getMetrics());
+				}
+			}
 		} catch (final CanceledExecutionException | DLCanceledExecutionException e) {
 			throw e;
 		} catch (final Exception e) {
@@ -563,6 +601,153 @@ private <N extends DLNetwork> void executeInternal(final PortObject portObject,
 		}
 	}
 
+	/**
+	 * Distributes the batches among multiple sessions, each of which typically runs in its own back end process and
+	 * holds its own copy of the network. The output rows retain the order of the input rows.
+	 */
+	private <N extends DLNetwork> void executeInParallel(final DLExecutionContext<N> ctx, final N network,
+		final DLRowInputRowIterator rowIterator, final DataTableSpec inDataSpec, final int batchSize,
+		final boolean isPredefinedBatchSize, final boolean keepInputColumns,
+		final LinkedHashMap<DLTensorId, int[]> columnsForTensorId,
+		final LinkedHashMap<DLTensorId, DLDataValueToTensorConverterFactory<?, ?>> inputConverterForTensorId,
+		final LinkedHashMap<DLTensorId, DLTensorToDataCellConverterFactory<?, ?>> outputConverterForTensorId,
+		final int numWorkers, final RowOutput rowOutput, final ExecutionContext exec) throws Exception {
+		final DLParallelNetworkExecution parallelExecution = new DLParallelNetworkExecution(rowIterator, inDataSpec,
+			columnsForTensorId, batchSize, isPredefinedBatchSize, inputConverterForTensorId, numWorkers);
+		final Set<DLTensorSpec> executionInputSpecs = DLExecutionSpecCreator.createExecutionSpecs(rowIterator.peek(),
+			ctx.getTensorFactory(), batchSize, columnsForTensorId, m_inputConverters);
+		final OptionalLong numBatches = numBatches(rowIterator, batchSize);
+		final List<DLNetworkExecutionSession> sessions = new ArrayList<>(numWorkers);
+		try (final DLKnimeNetworkOutputConsumer outputConsumer = new DLKnimeNetworkOutputConsumer(rowOutput,
+			parallelExecution.getBaseRows()::remove, keepInputColumns, outputConverterForTensorId, exec)) {
+			for (final DLParallelNetworkExecution.Worker worker : parallelExecution.getWorkers()) {
+				final DLNetworkExecutionSession session = ctx.createExecutionSession(network, executionInputSpecs,
+					outputConverterForTensorId.keySet(), worker.getInputPreparer(), worker.getOutputConsumer());
+				sessions.add(session);
+				configureSession(session);
+			}
+			final DLKnimeExecutionMonitor monitor = createExecutionMonitor(exec, numBatches);
+			outputConsumer.setMetrics(monitor.getExecutionStatus().getMetrics());
+			parallelExecution.run(sessions, outputConsumer, monitor);
+			warnAboutTransportError(monitor.getExecutionStatus());
+			reportMetrics(monitor.getExecutionStatus().getMetrics());
+		} finally {
+			for (final DLNetworkExecutionSession session : sessions) {
+				try {
+					session.close();
+				} catch (final Exception e) {
+					LOGGER.debug("Failed to close execution session.", e);
+				}
+			}
+			for (final DLParallelNetworkExecution.Worker worker : parallelExecution.getWorkers()) {
+				worker.getInputPreparer().close();
+			}
+		}
+	}
+
+	/**
+	 * Executes each length bucket in its own session, see {@link DLBucketedNetworkExecution}. The output rows retain
+	 * the order of the input rows.
+	 */
+	private <N extends DLNetwork> void executeBucketed(final DLExecutionContext<N> ctx, final N network,
+		final DLRowInputRowIterator rowIterator, final DataTableSpec inDataSpec, final int batchSize,
+		final boolean isPredefinedBatchSize, final boolean keepInputColumns,
+		final LinkedHashMap<DLTensorId, int[]> columnsForTensorId,
+		final LinkedHashMap<DLTensorId, DLDataValueToTensorConverterFactory<?, ?>> inputConverterForTensorId,
+		final LinkedHashMap<DLTensorId, DLTensorToDataCellConverterFactory<?, ?>> outputConverterForTensorId,
+		final DLLengthBucketing bucketing, final RowOutput rowOutput, final ExecutionContext exec) throws Exception {
+		final DLBucketedNetworkExecution bucketedExecution = new DLBucketedNetworkExecution(rowIterator, inDataSpec,
+			columnsForTensorId, batchSize, isPredefinedBatchSize, inputConverterForTensorId, bucketing,
+			ctx.getTensorFactory(), batchSize * BUCKETING_WINDOW_NUM_BATCHES);
+		final DLKnimeExecutionMonitor monitor = createExecutionMonitor(exec, OptionalLong.empty());
+		bucketedExecution.run((executionInputSpecs, inputPreparer, outputConsumer) -> {
+			final DLNetworkExecutionSession session = ctx.createExecutionSession(network, executionInputSpecs,
+				outputConverterForTensorId.keySet(), inputPreparer, outputConsumer);
+			configureSession(session);
+			return session;
+		}, rowOutput, keepInputColumns, outputConverterForTensorId, exec,
+			monitor);
+		warnAboutTransportError(monitor.getExecutionStatus());
+		reportMetrics(monitor.getExecutionStatus().getMetrics());
+		rowOutput.close();
+	}
+
+	/**
+	 * @return the length bucketing if enabled, <code>null</code> otherwise or if the network has no variable-length
+	 *         inputs
+	 */
+	private DLLengthBucketing createLengthBucketing() {
+		if (!m_generalCfg.getBucketBoundariesEntry().getEnabled()) {
+			return null;
+		}
+		final DLLengthBucketing bucketing = new DLLengthBucketing(
+			DLLengthBucketing.parseBoundaries(m_generalCfg.getBucketBoundariesEntry().getValue()), m_inputConverters);
+		if (!bucketing.hasVariableLengthTensors()) {
+			setWarningMessage("Length bucketing is enabled but the network has no inputs of variable length. "
+				+ "Rows are executed without bucketing.");
+			return null;
+		}
+		return bucketing;
+	}
+
+	private void configureSession(final DLNetworkExecutionSession session) {
+		session.setPipelined(m_generalCfg.getPipelinedEntry().getValue());
+		session.setNumThreads(m_generalCfg.getThreadsPerWorkerEntry().getValue());
+		session.setTransportPrecision(getTransportPrecision());
+	}
+
+	private DLTransportPrecision getTransportPrecision() {
+		return DLTransportPrecision.fromLabel(m_generalCfg.getTransportPrecisionEntry().getValue());
+	}
+
+	/**
+	 * Tells the user how much a reduced transport precision affected the tensors, i.e. how far the results may deviate
+	 * from an execution at full precision.
+	 */
+	private void warnAboutTransportError(final DLExecutionStatus status) {
+		final DLTransportPrecision precision = getTransportPrecision();
+		if (!precision.isReduced()) {
+			return;
+		}
+		final OptionalDouble error = status.getMaxTransportError();
+		if (!error.isPresent()) {
+			setWarningMessage("No tensors were transferred at " + precision.getLabel()
+				+ " precision. This requires floating point tensors and a back end that supports the Arrow transport,"
+				+ " which must be enabled via -Dknime.dl.python.arrow=true.");
+		} else if (Double.isInfinite(error.getAsDouble())) {
+			setWarningMessage("Tensors were transferred at " + precision.getLabel()
+				+ " precision. Some values exceeded its range and were transferred as infinity.");
+		} else {
+			setWarningMessage(String.format(
+				"Tensors were transferred at %s precision. The largest absolute rounding error was %.3g.",
+				precision.getLabel(), error.getAsDouble()));
+		}
+	}
+
+	/**
+	 * Outputs the metrics of the execution as flow variables if enabled and logs them if requested via
+	 * {@link DLSessionMetrics#LOG_VM_OPT}.
+	 */
+	private void reportMetrics(final DLSessionMetrics metrics) {
+		if (m_generalCfg.getMetricsFlowVariablesEntry().getValue()) {
+			for (final Entry<String, Double> entry : metrics.getSummary().entrySet()) {
+				pushFlowVariableDouble(entry.getKey(), entry.getValue());
+			}
+		}
+		if (DLSessionMetrics.isLoggingEnabled()) {
+			LOGGER.info("Execution metrics: " + metrics.toJson());
+		}
+	}
+
+	private static OptionalLong numBatches(final DLRowIterator rowIterator, final int batchSize) {
+		try {
+			return OptionalLong.of((long) Math.ceil(rowIterator.size() / (double) batchSize));
+		} catch (final UnsupportedOperationException e) {
+			// streaming
+			return OptionalLong.empty();
+		}
+	}
+
     private LinkedHashMap<DLTensorId, DLTensorToDataCellConverterFactory<?, ?>> createOutputConverterMap() {
         final LinkedHashMap<DLTensorId, DLTensorToDataCellConverterFactory<?, ?>> outputConverterForTensorId = new LinkedHashMap<>(
 				m_outputConverters.size());
@@ -54,7 +54,9 @@
 import java.util.Map;
 import java.util.Map.Entry;
 
+import org.knime.core.data.DataRow;
 import org.knime.core.data.DataValue;
+import org.knime.dl.core.DLSessionMetrics.Phase;
 import org.knime.dl.core.data.DLWritableBuffer;
 import org.knime.dl.core.data.convert.DLDataValueToTensorConverter;
 import org.knime.dl.core.data.convert.DLDataValueToTensorConverterFactory;
@@ -71,6 +73,19 @@ public abstract class DLAbstractKnimeNetworkInputPreparer implements DLNetworkIn
 
 	protected final Map<DLTensorId, DLDataValueToTensorConverter<?, ?>> m_converters;
 
+	private boolean m_padExamples = false;
+
+	private DLSessionMetrics m_metrics = DLSessionMetrics.DISABLED;
+
+	/**
+	 * The time spent reading respectively converting rows since the last {@link #recordBatchMetrics()}.
+	 */
+	private long m_rowReadNanos;
+
+	private long m_conversionNanos;
+
+	private long m_numRows;
+
 	/**
 	 * @param iterator provides the input data rows that are used by this instance to prepare (fill) the network tensors
 	 *            fed to {@link #prepare(Map, long)}.
@@ -93,6 +108,58 @@ public void close() throws Exception {
 		m_iterator.close();
 	}
 
+	/**
+	 * Sets whether examples that are smaller than the example size of their tensor are zero-padded at their end. This
+	 * is required if the tensors are sized for the longest of several variable-length examples, see
+	 * {@link DLLengthBucketing}. Disabled by default.
+	 *
+	 * @param padExamples true if examples should be zero-padded
+	 */
+	public void setPadExamples(final boolean padExamples) {
+		m_padExamples = padExamples;
+	}
+
+	/**
+	 * Sets the metrics into which the time spent reading and converting rows is recorded. Disabled by default.
+	 *
+	 * @param metrics the metrics, usually the ones of the status of the session this instance prepares the input of
+	 */
+	public void setMetrics(final DLSessionMetrics metrics) {
+		m_metrics = checkNotNull(metrics);
+	}
+
+	/**
+	 * Reads the next row from {@link #m_iterator}. Subclasses should read rows via this method rather than from the
+	 * iterator directly such that reading is accounted for in the {@link #setMetrics(DLSessionMetrics) metrics}.
+	 *
+	 * @return the next row
+	 */
+	protected final DataRow nextRow() {
+		if (!m_metrics.isEnabled()) {
+			return m_iterator.next();
+		}
+		final long start = System.nanoTime();
+		final DataRow row = m_iterator.next();
+		m_rowReadNanos += System.nanoTime() - start;
+		m_numRows++;
+		return row;
+	}
+
+	/**
+	 * Records the time spent reading and converting rows since the last call as one batch. Subclasses should call this
+	 * method once they prepared a batch.
+	 */
+	protected final void recordBatchMetrics() {
+		if (m_metrics.isEnabled()) {
+			m_metrics.record(Phase.ROW_READ, m_rowReadNanos);
+			m_metrics.record(Phase.INPUT_CONVERSION, m_conversionNanos);
+			m_metrics.addRows(m_numRows);
+			m_rowReadNanos = 0;
+			m_conversionNanos = 0;
+			m_numRows = 0;
+		}
+	}
+
 	/**
 	 * @param dataValues the data values which to write in the tensors
 	 * @param tensors the tensors in which to write the data values
@@ -102,16 +169,27 @@ public void close() throws Exception {
 	protected final void writeDataValuesInTensors(final Map<DLTensorId, List<DataValue>> dataValues,
 			final Map<DLTensorId, DLTensor<? extends DLWritableBuffer>> tensors)
 			throws DLBufferOverflowExceptionForTensor {
+		final long start = m_metrics.start();
 		for (final Entry<DLTensorId, DLTensor<? extends DLWritableBuffer>> entry : tensors.entrySet()) {
 			final DLTensorId identifier = entry.getKey();
 			final DLTensor<? extends DLWritableBuffer> tensor = entry.getValue();
 			final DLDataValueToTensorConverter converter = m_converters.get(identifier);
 			try {
+				final long sizeBefore = tensor.getBuffer().size();
 				converter.convert(dataValues.get(identifier), tensor);
+				if (m_padExamples) {
+					final long padding = tensor.getExampleSize() - (tensor.getBuffer().size() - sizeBefore);
+					if (padding > 0) {
+						tensor.getBuffer().zeroPad(padding);
+					}
+				}
 			} catch (final BufferOverflowException ex) {
 				throw new DLBufferOverflowExceptionForTensor(ex, tensor);
 			}
 		}
+		if (m_metrics.isEnabled()) {
+			m_conversionNanos += System.nanoTime() - start;
+		}
 	}
 
 	/**
@@ -82,6 +82,31 @@ public static Set<DLTensorSpec> createExecutionSpecs(final DataRow firstRow, fin
 		return executionInputSpecs;
 	}
 
+	/**
+	 * Same as {@link #createExecutionSpecs(DataRow, DLTensorFactory, long, Map, Map)} but the first dimension of the
+	 * execution shape of each tensor in <code>sequenceLengths</code> is set to the given length instead of the length
+	 * of the given row. See {@link DLLengthBucketing}.
+	 */
+	public static Set<DLTensorSpec> createExecutionSpecs(final DataRow row, final DLTensorFactory tensorFactory,
+			final long batchSize, final Map<DLTensorId, int[]> columnsForTensorId,
+			final Map<DLTensorSpec, DLDataValueToTensorConverterFactory<?, ?>> inputConverterFactories,
+			final Map<DLTensorId, Long> sequenceLengths) throws DLMissingExtensionException {
+		final LinkedHashSet<DLTensorSpec> executionInputSpecs = new LinkedHashSet<>(inputConverterFactories.size());
+		final DLExecutionSpecCreator specCreator = new DLExecutionSpecCreator(tensorFactory, batchSize, row,
+				columnsForTensorId::get);
+		for (final Entry<DLTensorSpec, DLDataValueToTensorConverterFactory<?, ?>> entry : inputConverterFactories
+				.entrySet()) {
+			final DLTensorSpec configureSpec = entry.getKey();
+			final long[] executionShape = specCreator.createExecutionShape(configureSpec, entry.getValue());
+			final Long sequenceLength = sequenceLengths.get(configureSpec.getIdentifier());
+			if (sequenceLength != null) {
+				executionShape[0] = sequenceLength;
+			}
+			executionInputSpecs.add(tensorFactory.createExecutionTensorSpec(configureSpec, batchSize, executionShape));
+		}
+		return executionInputSpecs;
+	}
+
 	private DLExecutionSpecCreator(final DLTensorFactory tensorFactory, final long batchSize, final DataRow row,
 			final FilterIndicesProvider filterIndicesProvider) {
 		m_tensorFactory = tensorFactory;
@@ -92,10 +117,15 @@ private DLExecutionSpecCreator(final DLTensorFactory tensorFactory, final long b
 
 	public DLTensorSpec createExecutionTensorSpec(final DLTensorSpec configureSpec,
 			final DLDataValueToTensorConverterFactory<?, ?> converterFactory) throws DLMissingExtensionException {
+		final long[] executionShape = createExecutionShape(configureSpec, converterFactory);
+		return m_tensorFactory.createExecutionTensorSpec(configureSpec, m_batchSize, executionShape);
+	}
+
+	private long[] createExecutionShape(final DLTensorSpec configureSpec,
+			final DLDataValueToTensorConverterFactory<?, ?> converterFactory) throws DLMissingExtensionException {
 		final long[] dataShape = converterFactory.getDataShape(getValuesForIndices(m_row,
 				m_filterIndicesProvider.getFilterIndicesForTensor(configureSpec.getIdentifier())), configureSpec);
-		final long[] executionShape = DLUtils.Shapes.calculateExecutionShape(configureSpec.getShape(), dataShape);
-		return m_tensorFactory.createExecutionTensorSpec(configureSpec, m_batchSize, executionShape);
+		return DLUtils.Shapes.calculateExecutionShape(configureSpec.getShape(), dataShape);
 	}
 
 	private List<? extends DataValue> getValuesForIndices(final DataRow row, final int[] indices) {
@@ -0,0 +1,155 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ *
+ */
+package org.knime.dl.core;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histogram of durations in nanoseconds. Each power of two is split into {@value #SUB_BUCKETS} buckets of equal width,
+ * so percentiles are reported with a relative error of at most 12.5% at a fixed memory footprint, similar to an
+ * HdrHistogram. Recording a duration takes a few atomic additions and does not allocate. The histogram may be
+ * recorded into and read concurrently.
+ */
+public final class DLLatencyHistogram {
+
+	private static final int SUB_BUCKET_BITS = 3;
+
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+	private static final int NUM_BUCKETS = (Long.SIZE - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+	private final AtomicLongArray m_counts = new AtomicLongArray(NUM_BUCKETS);
+
+	private final LongAdder m_count = new LongAdder();
+
+	private final LongAdder m_total = new LongAdder();
+
+	private final LongAccumulator m_max = new LongAccumulator(Math::max, 0);
+
+	/**
+	 * @param nanos the duration, negative durations are recorded as zero
+	 */
+	public void record(final long nanos) {
+		final long value = Math.max(nanos, 0);
+		m_counts.incrementAndGet(getBucket(value));
+		m_count.increment();
+		m_total.add(value);
+		m_max.accumulate(value);
+	}
+
+	/**
+	 * @return the number of recorded durations
+	 */
+	public long getCount() {
+		return m_count.sum();
+	}
+
+	/**
+	 * @return the sum of all recorded durations
+	 */
+	public long getTotalNanos() {
+		return m_total.sum();
+	}
+
+	/**
+	 * @return the longest recorded duration, zero if nothing was recorded
+	 */
+	public long getMaxNanos() {
+		return m_max.get();
+	}
+
+	/**
+	 * @param percentile the percentile, greater than 0 and at most 100
+	 * @return an upper bound of the duration at the given percentile that exceeds it by at most 12.5%, zero if nothing
+	 *         was recorded
+	 */
+	public long getPercentileNanos(final double percentile) {
+		checkArgument(percentile > 0 && percentile <= 100, "Percentile must be in (0, 100] but was %s.", percentile);
+		final long[] counts = new long[NUM_BUCKETS];
+		long count = 0;
+		for (int i = 0; i < NUM_BUCKETS; i++) {
+			counts[i] = m_counts.get(i);
+			count += counts[i];
+		}
+		if (count == 0) {
+			return 0;
+		}
+		final long rank = (long) Math.ceil(percentile / 100 * count);
+		final long max = getMaxNanos();
+		long seen = 0;
+		for (int i = 0; i < NUM_BUCKETS; i++) {
+			seen += counts[i];
+			if (seen >= rank) {
+				return Math.min(getUpperBound(i), max);
+			}
+		}
+		return max;
+	}
+
+	static int getBucket(final long value) {
+		if (value < SUB_BUCKETS) {
+			return (int) value;
+		}
+		final int exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(value);
+		// the SUB_BUCKET_BITS + 1 most significant bits, i.e. in [SUB_BUCKETS, 2 * SUB_BUCKETS)
+		final int mantissa = (int) (value >>> (exponent - SUB_BUCKET_BITS));
+		return (exponent - SUB_BUCKET_BITS) * SUB_BUCKETS + mantissa;
+	}
+
+	static long getUpperBound(final int bucket) {
+		if (bucket < SUB_BUCKETS) {
+			return bucket;
+		}
+		final int shift = bucket / SUB_BUCKETS - 1;
+		final long mantissa = bucket % SUB_BUCKETS + SUB_BUCKETS;
+		return ((mantissa + 1) << shift) - 1;
+	}
+}
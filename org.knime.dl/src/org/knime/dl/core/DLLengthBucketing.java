@@ -0,0 +1,320 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ *
+ */
+package org.knime.dl.core;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import org.knime.core.data.DataRow;
+import org.knime.core.data.DataValue;
+import org.knime.dl.core.data.convert.DLDataValueToTensorConverterFactory;
+import org.knime.dl.util.DLUtils;
+
+/**
+ * Groups rows into buckets of similar length with respect to their variable-length tensors (e.g. sequences). Each
+ * bucket can then be executed using tensors that are only padded to the longest example of the bucket instead of the
+ * longest example of the whole table.
+ * <P>
+ * A tensor has variable length if its shape is partial and its first dimension is its only unknown dimension, e.g.
+ * <code>[?, features]</code>. The length of a row is the maximum length of its variable-length tensors. A row is
+ * assigned to the first bucket whose boundary is greater than or equal to its length. Rows that are longer than the
+ * last boundary are assigned to an additional bucket. Tensors that do not have variable length are not affected.
+ */
+public final class DLLengthBucketing {
+
+	/**
+	 * Parses a comma-separated list of bucket boundaries.
+	 *
+	 * @param boundaries the boundaries, e.g. <code>"16, 32, 64"</code>
+	 * @return the parsed boundaries
+	 * @throws IllegalArgumentException if the list is empty or if the boundaries are not positive and strictly
+	 *             increasing
+	 */
+	public static long[] parseBoundaries(final String boundaries) {
+		final long[] parsed = Arrays.stream(checkNotNull(boundaries).split(",")).map(String::trim)
+				.filter(b -> !b.isEmpty()).mapToLong(b -> {
+					try {
+						return Long.parseLong(b);
+					} catch (final NumberFormatException e) {
+						throw new IllegalArgumentException("Bucket boundary '" + b + "' is not an integer.", e);
+					}
+				}).toArray();
+		checkArgument(parsed.length > 0, "At least one bucket boundary must be specified.");
+		for (int i = 0; i < parsed.length; i++) {
+			checkArgument(parsed[i] > 0, "Bucket boundaries must be positive.");
+			checkArgument(i == 0 || parsed[i] > parsed[i - 1], "Bucket boundaries must be strictly increasing.");
+		}
+		return parsed;
+	}
+
+	/**
+	 * @param shape the shape to check
+	 * @return true if the shape is partial and its first dimension is its only unknown dimension
+	 */
+	public static boolean isVariableLength(final DLTensorShape shape) {
+		if (!DLUtils.Shapes.isPartial(shape)) {
+			return false;
+		}
+		final DLPartialTensorShape partialShape = (DLPartialTensorShape) shape;
+		return partialShape.getNumUnknownDimensions() == 1 && !partialShape.getDimension(0).isPresent();
+	}
+
+	private final long[] m_boundaries;
+
+	private final Map<DLTensorSpec, DLDataValueToTensorConverterFactory<?, ?>> m_converters;
+
+	private final Map<DLTensorSpec, DLDataValueToTensorConverterFactory<?, ?>> m_variableLengthConverters;
+
+	private final DataRow[] m_firstRows;
+
+	private final long[] m_numRows;
+
+	private final List<Map<DLTensorId, Long>> m_maxLengths;
+
+	/**
+	 * @param boundaries the bucket boundaries, see {@link #parseBoundaries(String)}
+	 * @param converters the converters of all tensors, keyed by the (not yet fully defined) specs of the tensors
+	 */
+	public DLLengthBucketing(final long[] boundaries,
+			final Map<DLTensorSpec, DLDataValueToTensorConverterFactory<?, ?>> converters) {
+		checkArgument(checkNotNull(boundaries).length > 0, "At least one bucket boundary must be specified.");
+		m_boundaries = boundaries.clone();
+		m_converters = checkNotNull(converters);
+		m_variableLengthConverters = new HashMap<>(converters.size());
+		for (final Entry<DLTensorSpec, DLDataValueToTensorConverterFactory<?, ?>> entry : converters.entrySet()) {
+			if (isVariableLength(entry.getKey().getShape())) {
+				m_variableLengthConverters.put(entry.getKey(), entry.getValue());
+			}
+		}
+		final int numBuckets = boundaries.length + 1;
+		m_firstRows = new DataRow[numBuckets];
+		m_numRows = new long[numBuckets];
+		m_maxLengths = new ArrayList<>(numBuckets);
+		for (int i = 0; i < numBuckets; i++) {
+			m_maxLengths.add(new HashMap<>(m_variableLengthConverters.size()));
+		}
+	}
+
+	/**
+	 * @return true if at least one of the tensors has variable length, otherwise all rows end up in the same bucket
+	 */
+	public boolean hasVariableLengthTensors() {
+		return !m_variableLengthConverters.isEmpty();
+	}
+
+	/**
+	 * @return the number of buckets, including empty ones
+	 */
+	public int getNumBuckets() {
+		return m_numRows.length;
+	}
+
+	/**
+	 * Assigns the given row to its bucket and updates the bucket's statistics.
+	 *
+	 * @param row the row
+	 * @param values the values of the row, grouped by tensor (see {@link DLRowIterator#groupByTensor(DataRow)})
+	 * @return the index of the bucket
+	 */
+	public int assign(final DataRow row, final Map<DLTensorId, List<DataValue>> values) {
+		final Map<DLTensorId, Long> lengths = getLengths(values);
+		final int bucket = getBucket(lengths);
+		if (m_numRows[bucket] == 0) {
+			m_firstRows[bucket] = row;
+		}
+		m_numRows[bucket]++;
+		final Map<DLTensorId, Long> maxLengths = m_maxLengths.get(bucket);
+		for (final Entry<DLTensorId, Long> length : lengths.entrySet()) {
+			maxLengths.merge(length.getKey(), length.getValue(), Math::max);
+		}
+		return bucket;
+	}
+
+	/**
+	 * Resets the statistics of all buckets and assigns all rows of the given iterator. The iterator is reset
+	 * afterwards.
+	 *
+	 * @param iterator the iterator, must be in a proper initial state (i.e. reset)
+	 */
+	public void assignAll(final DLRowIterator iterator) {
+		clear();
+		while (iterator.hasNext()) {
+			final DataRow row = iterator.next();
+			assign(row, iterator.groupByTensor(row));
+		}
+		iterator.reset();
+	}
+
+	/**
+	 * Returns the bucket of the given row without updating the bucket's statistics.
+	 *
+	 * @param values the values of the row, grouped by tensor (see {@link DLRowIterator#groupByTensor(DataRow)})
+	 * @return the index of the bucket
+	 */
+	public int getBucket(final Map<DLTensorId, List<DataValue>> values) {
+		return getBucket(getLengths(values));
+	}
+
+	/**
+	 * @param bucket the index of the bucket
+	 * @return the number of rows that were assigned to the bucket
+	 */
+	public long getNumRows(final int bucket) {
+		return m_numRows[bucket];
+	}
+
+	/**
+	 * @param batchSize the batch size
+	 * @return the total number of batches if each bucket is split into batches of the given size
+	 */
+	public long getNumBatches(final long batchSize) {
+		long numBatches = 0;
+		for (final long numRows : m_numRows) {
+			numBatches += (numRows + batchSize - 1) / batchSize;
+		}
+		return numBatches;
+	}
+
+	/**
+	 * Creates the execution specs of a bucket. The variable-length tensors are sized for the longest example of the
+	 * bucket, all other tensors are specified as usual.
+	 *
+	 * @param bucket the index of the bucket, must not be empty
+	 * @param tensorFactory the tensor factory
+	 * @param batchSize the batch size
+	 * @param columnsForTensorId the column indices of each tensor
+	 * @return the execution specs
+	 * @throws DLMissingExtensionException see
+	 *             {@link DLExecutionSpecCreator#createExecutionSpecs(DataRow, DLTensorFactory, long, Map, Map)}
+	 */
+	public Set<DLTensorSpec> createExecutionSpecs(final int bucket, final DLTensorFactory tensorFactory,
+			final long batchSize, final Map<DLTensorId, int[]> columnsForTensorId) throws DLMissingExtensionException {
+		checkArgument(m_numRows[bucket] > 0, "Bucket %s is empty.", bucket);
+		return DLExecutionSpecCreator.createExecutionSpecs(m_firstRows[bucket], tensorFactory, batchSize,
+				columnsForTensorId, m_converters, m_maxLengths.get(bucket));
+	}
+
+	/**
+	 * Returns the length up to which rows are assigned to the given bucket. This is the boundary of the bucket, or the
+	 * length of the longest row that was assigned to the last bucket, which has no boundary.
+	 *
+	 * @param bucket the index of the bucket, must not be empty if it is the last bucket
+	 * @return the maximum length of the rows of the bucket
+	 */
+	public long getMaxLength(final int bucket) {
+		if (bucket < m_boundaries.length) {
+			return m_boundaries[bucket];
+		}
+		checkArgument(m_numRows[bucket] > 0, "Bucket %s is empty.", bucket);
+		return m_maxLengths.get(bucket).values().stream().mapToLong(Long::longValue).max().orElse(0);
+	}
+
+	/**
+	 * Creates execution specs of a bucket whose variable-length tensors are sized for the given length. Unlike
+	 * {@link #createExecutionSpecs(int, DLTensorFactory, long, Map)}, the specs do not depend on the longest example
+	 * of the bucket, so they remain valid for all rows whose length does not exceed the given length (see
+	 * {@link #getMaxLength(int)}).
+	 *
+	 * @param bucket the index of the bucket, must not be empty
+	 * @param length the length of the variable-length tensors
+	 * @param tensorFactory the tensor factory
+	 * @param batchSize the batch size
+	 * @param columnsForTensorId the column indices of each tensor
+	 * @return the execution specs
+	 * @throws DLMissingExtensionException see
+	 *             {@link DLExecutionSpecCreator#createExecutionSpecs(DataRow, DLTensorFactory, long, Map, Map)}
+	 */
+	public Set<DLTensorSpec> createExecutionSpecs(final int bucket, final long length,
+			final DLTensorFactory tensorFactory, final long batchSize, final Map<DLTensorId, int[]> columnsForTensorId)
+			throws DLMissingExtensionException {
+		checkArgument(m_numRows[bucket] > 0, "Bucket %s is empty.", bucket);
+		final Map<DLTensorId, Long> lengths = new HashMap<>(m_variableLengthConverters.size());
+		for (final DLTensorSpec spec : m_variableLengthConverters.keySet()) {
+			lengths.put(spec.getIdentifier(), length);
+		}
+		return DLExecutionSpecCreator.createExecutionSpecs(m_firstRows[bucket], tensorFactory, batchSize,
+				columnsForTensorId, m_converters, lengths);
+	}
+
+	/**
+	 * Resets the statistics of all buckets.
+	 */
+	public void clear() {
+		Arrays.fill(m_firstRows, null);
+		Arrays.fill(m_numRows, 0);
+		m_maxLengths.forEach(Map::clear);
+	}
+
+	private Map<DLTensorId, Long> getLengths(final Map<DLTensorId, List<DataValue>> values) {
+		final Map<DLTensorId, Long> lengths = new HashMap<>(m_variableLengthConverters.size());
+		for (final Entry<DLTensorSpec, DLDataValueToTensorConverterFactory<?, ?>> entry : m_variableLengthConverters
+				.entrySet()) {
+			final DLTensorSpec spec = entry.getKey();
+			final long[] dataShape = entry.getValue().getDataShape(values.get(spec.getIdentifier()), spec);
+			lengths.put(spec.getIdentifier(), DLUtils.Shapes.calculateExecutionShape(spec.getShape(), dataShape)[0]);
+		}
+		return lengths;
+	}
+
+	private int getBucket(final Map<DLTensorId, Long> lengths) {
+		final long length = lengths.values().stream().mapToLong(Long::longValue).max().orElse(0);
+		for (int i = 0; i < m_boundaries.length; i++) {
+			if (length <= m_boundaries[i]) {
+				return i;
+			}
+		}
+		return m_boundaries.length;
+	}
+}
@@ -0,0 +1,304 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ *
+ */
+package org.knime.dl.core;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.knime.dl.core.execution.DLExecutionStatus;
+import org.knime.dl.core.training.DLTrainingStatus;
+
+/**
+ * Collects where the time of a network execution or training session goes: one {@link DLLatencyHistogram histogram}
+ * per {@link Phase phase} with the time the phase took per batch, the number of bytes transferred to and from the back
+ * end and the number of processed rows. Sessions and the components they drive record into the instance of their
+ * {@link DLExecutionStatus#getMetrics() execution} or {@link DLTrainingStatus#getMetrics() training} status.
+ * <P>
+ * Recording is cheap enough to stay enabled at all times: a phase costs two calls of {@link System#nanoTime()} and a
+ * few atomic additions per batch, per row only the calls of {@link System#nanoTime()}. The {@link #DISABLED} instance
+ * does not even read the clock. Instances may be recorded into and read concurrently.
+ */
+public final class DLSessionMetrics {
+
+	/**
+	 * The VM option that enables logging the metrics of each session as a single line of JSON, see {@link #toJson()}.
+	 */
+	public static final String LOG_VM_OPT = "knime.dl.metrics.log";
+
+	/**
+	 * Ignores everything that is recorded. Used by statuses that do not collect metrics.
+	 */
+	public static final DLSessionMetrics DISABLED = new DLSessionMetrics(false);
+
+	/**
+	 * @return true if the metrics of each session should be logged, see {@link #LOG_VM_OPT}
+	 */
+	public static boolean isLoggingEnabled() {
+		return Boolean.getBoolean(LOG_VM_OPT);
+	}
+
+	private final boolean m_enabled;
+
+	private final DLLatencyHistogram[] m_histograms;
+
+	private final LongAdder m_bytesSent = new LongAdder();
+
+	private final LongAdder m_bytesReceived = new LongAdder();
+
+	private final LongAdder m_rows = new LongAdder();
+
+	private final long m_startNanos = System.nanoTime();
+
+	/**
+	 * Creates metrics that record everything.
+	 */
+	public DLSessionMetrics() {
+		this(true);
+	}
+
+	private DLSessionMetrics(final boolean enabled) {
+		m_enabled = enabled;
+		m_histograms = new DLLatencyHistogram[Phase.values().length];
+		for (int i = 0; i < m_histograms.length; i++) {
+			m_histograms[i] = new DLLatencyHistogram();
+		}
+	}
+
+	/**
+	 * @return false if this instance ignores everything that is recorded
+	 */
+	public boolean isEnabled() {
+		return m_enabled;
+	}
+
+	/**
+	 * @return the start time to pass to {@link #stop(Phase, long)}
+	 */
+	public long start() {
+		return m_enabled ? System.nanoTime() : 0;
+	}
+
+	/**
+	 * Records the time since the given start time.
+	 *
+	 * @param phase the phase
+	 * @param start the start time as returned by {@link #start()}
+	 */
+	public void stop(final Phase phase, final long start) {
+		if (m_enabled) {
+			m_histograms[phase.ordinal()].record(System.nanoTime() - start);
+		}
+	}
+
+	/**
+	 * @param phase the phase
+	 * @param nanos the time the phase took for one batch
+	 */
+	public void record(final Phase phase, final long nanos) {
+		if (m_enabled) {
+			m_histograms[phase.ordinal()].record(nanos);
+		}
+	}
+
+	/**
+	 * @param bytes the number of bytes that were transferred to the back end
+	 */
+	public void addBytesSent(final long bytes) {
+		if (m_enabled) {
+			m_bytesSent.add(bytes);
+		}
+	}
+
+	/**
+	 * @param bytes the number of bytes that were transferred from the back end
+	 */
+	public void addBytesReceived(final long bytes) {
+		if (m_enabled) {
+			m_bytesReceived.add(bytes);
+		}
+	}
+
+	/**
+	 * @param rows the number of rows that were read
+	 */
+	public void addRows(final long rows) {
+		if (m_enabled) {
+			m_rows.add(rows);
+		}
+	}
+
+	public DLLatencyHistogram getHistogram(final Phase phase) {
+		return m_histograms[checkNotNull(phase).ordinal()];
+	}
+
+	public long getBytesSent() {
+		return m_bytesSent.sum();
+	}
+
+	public long getBytesReceived() {
+		return m_bytesReceived.sum();
+	}
+
+	public long getRows() {
+		return m_rows.sum();
+	}
+
+	/**
+	 * @return the number of rows per second since this instance was created
+	 */
+	public double getRowsPerSecond() {
+		final double seconds = (System.nanoTime() - m_startNanos) / 1e9;
+		return seconds > 0 ? getRows() / seconds : 0;
+	}
+
+	/**
+	 * Summarizes the metrics, e.g. to expose them as flow variables. Each phase that was recorded contributes its
+	 * number of batches and its total, median, 90th and 99th percentile and maximum time in milliseconds, e.g.
+	 * <code>dl_execution_p99_ms</code>. The transferred bytes, the number of rows and the rows per second are always
+	 * contained.
+	 *
+	 * @return the summary, in a fixed order
+	 */
+	public Map<String, Double> getSummary() {
+		final Map<String, Double> summary = new LinkedHashMap<>();
+		for (final Phase phase : Phase.values()) {
+			final DLLatencyHistogram histogram = getHistogram(phase);
+			final long count = histogram.getCount();
+			if (count > 0) {
+				final String prefix = "dl_" + phase.getKey();
+				summary.put(prefix + "_count", (double) count);
+				summary.put(prefix + "_total_ms", toMillis(histogram.getTotalNanos()));
+				summary.put(prefix + "_p50_ms", toMillis(histogram.getPercentileNanos(50)));
+				summary.put(prefix + "_p90_ms", toMillis(histogram.getPercentileNanos(90)));
+				summary.put(prefix + "_p99_ms", toMillis(histogram.getPercentileNanos(99)));
+				summary.put(prefix + "_max_ms", toMillis(histogram.getMaxNanos()));
+			}
+		}
+		summary.put("dl_bytes_sent", (double) getBytesSent());
+		summary.put("dl_bytes_received", (double) getBytesReceived());
+		summary.put("dl_rows", (double) getRows());
+		summary.put("dl_rows_per_second", getRowsPerSecond());
+		return summary;
+	}
+
+	/**
+	 * @return the {@link #getSummary() summary} as a single line JSON object
+	 */
+	public String toJson() {
+		final StringBuilder json = new StringBuilder("{");
+		for (final Map.Entry<String, Double> entry : getSummary().entrySet()) {
+			if (json.length() > 1) {
+				json.append(", ");
+			}
+			json.append('"').append(entry.getKey()).append("\": ")
+					.append(String.format(Locale.ROOT, "%.3f", entry.getValue()));
+		}
+		return json.append('}').toString();
+	}
+
+	private static double toMillis(final long nanos) {
+		return nanos / 1e6;
+	}
+
+	/**
+	 * The phases of processing a batch, in the order in which a batch passes through them.
+	 */
+	public enum Phase {
+
+		/**
+		 * Reading the input rows from the table.
+		 */
+		ROW_READ("row_read"),
+
+		/**
+		 * Converting the input rows into tensors.
+		 */
+		INPUT_CONVERSION("input_conversion"),
+
+		/**
+		 * Serializing the input tensors and transferring them to the back end.
+		 */
+		SERIALIZATION("serialization"),
+
+		/**
+		 * Executing the network (or a training step) in the back end.
+		 */
+		EXECUTION("execution"),
+
+		/**
+		 * Transferring the output tensors from the back end and deserializing them.
+		 */
+		DESERIALIZATION("deserialization"),
+
+		/**
+		 * Converting the output tensors into table cells.
+		 */
+		OUTPUT_CONVERSION("output_conversion"),
+
+		/**
+		 * Pushing the output rows to the output table.
+		 */
+		ROW_PUSH("row_push");
+
+		private final String m_key;
+
+		Phase(final String key) {
+			m_key = key;
+		}
+
+		/**
+		 * @return the key of the phase in the {@link DLSessionMetrics#getSummary() summary}
+		 */
+		public String getKey() {
+			return m_key;
+		}
+	}
+}
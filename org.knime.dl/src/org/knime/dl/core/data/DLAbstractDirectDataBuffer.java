@@ -0,0 +1,408 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ *
+ */
+package org.knime.dl.core.data;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+
+import java.lang.reflect.Method;
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Abstract implementation of buffers whose storage resides in direct (off-heap) memory instead of a Java array. The
+ * storage is split into {@link #SEGMENT_SIZE segments}, so unlike {@link DLAbstractWrappingDataBuffer array-backed
+ * buffers}, these buffers are not limited to 2^31-1 elements and do not put pressure on the garbage collector. All
+ * positions are of type <code>long</code>.
+ * <P>
+ * Elements are stored in little-endian byte order, which is the format in which tensors are transferred to and from
+ * Python. This allows to {@link #readBytes(long, ByteBuffer) read} and {@link #writeBytes(ByteBuffer) write} the raw
+ * contents of the buffer without converting them element by element.
+ * <P>
+ * The memory is released when the buffer is {@link #close() closed}, e.g. via {@link org.knime.dl.core.DLTensor#close()}.
+ * The buffer must not be used afterwards.
+ */
+public abstract class DLAbstractDirectDataBuffer implements DLWrappingDataBuffer<ByteBuffer[]> {
+
+	/**
+	 * The maximum number of bytes of a single segment. Divisible by all element sizes, so no element spans two
+	 * segments.
+	 */
+	public static final int SEGMENT_SIZE = 1 << 30;
+
+	private static final byte[] ZEROS = new byte[1 << 13];
+
+	private static final Method CLEANER;
+
+	private static final Method CLEAN;
+
+	static {
+		Method cleaner = null;
+		Method clean = null;
+		try {
+			// Direct buffers are freed by their cleaner. Invoking it explicitly releases the memory immediately instead
+			// of waiting for the buffer to be garbage collected.
+			cleaner = ByteBuffer.allocateDirect(0).getClass().getMethod("cleaner");
+			cleaner.setAccessible(true);
+			clean = cleaner.getReturnType().getMethod("clean");
+			clean.setAccessible(true);
+		} catch (final Exception e) {
+			// not available on this VM, memory is released by the garbage collector
+			cleaner = null;
+			clean = null;
+		}
+		CLEANER = cleaner;
+		CLEAN = clean;
+	}
+
+	/**
+	 * @param expression a boolean expression
+	 * @throws BufferOverflowException if {@code expression} is false
+	 */
+	protected static void checkOverflow(final boolean expression) throws BufferOverflowException {
+		if (!expression) {
+			throw new BufferOverflowException();
+		}
+	}
+
+	/**
+	 * @param expression a boolean expression
+	 * @throws BufferUnderflowException if {@code expression} is false
+	 */
+	protected static void checkUnderflow(final boolean expression) throws BufferUnderflowException {
+		if (!expression) {
+			throw new BufferUnderflowException();
+		}
+	}
+
+	/**
+	 * Returns a little-endian view of the given segment whose position is set to the given byte offset.
+	 *
+	 * @param segment the segment
+	 * @param byteOffset the byte offset
+	 * @return the view
+	 */
+	protected static ByteBuffer view(final ByteBuffer segment, final int byteOffset) {
+		final ByteBuffer view = segment.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+		view.position(byteOffset);
+		return view;
+	}
+
+	private static ByteBuffer[] allocate(final long numBytes, final int segmentSize) {
+		final ByteBuffer[] segments = new ByteBuffer[(int) ((numBytes + segmentSize - 1) / segmentSize)];
+		try {
+			for (int i = 0; i < segments.length; i++) {
+				segments[i] = ByteBuffer.allocateDirect((int) Math.min(segmentSize, numBytes - (long) i * segmentSize))
+						.order(ByteOrder.LITTLE_ENDIAN);
+			}
+		} catch (final OutOfMemoryError e) {
+			release(segments);
+			throw e;
+		}
+		return segments;
+	}
+
+	private static void release(final ByteBuffer[] segments) {
+		for (int i = 0; i < segments.length; i++) {
+			if (segments[i] != null && CLEANER != null) {
+				try {
+					final Object cleaner = CLEANER.invoke(segments[i]);
+					if (cleaner != null) {
+						CLEAN.invoke(cleaner);
+					}
+				} catch (final Exception e) {
+					// ignore, memory is released by the garbage collector
+				}
+			}
+			segments[i] = null;
+		}
+	}
+
+	/**
+	 * The immutable capacity of the buffer.
+	 */
+	protected final long m_capacity;
+
+	/**
+	 * The size of a single element in bytes.
+	 */
+	protected final int m_elementSize;
+
+	/**
+	 * The internal storage.
+	 */
+	protected ByteBuffer[] m_storage;
+
+	/**
+	 * The next write position. Equals {@link #size()}.
+	 */
+	protected long m_nextWrite = 0;
+
+	/**
+	 * The next read position.
+	 */
+	protected long m_nextRead = 0;
+
+	private final int m_segmentShift;
+
+	private final long m_segmentMask;
+
+	/**
+	 * Creates a new instance of this buffer and allocates its storage.
+	 *
+	 * @param capacity the immutable capacity of the buffer
+	 * @param elementSize the size of a single element in bytes, must be a power of two
+	 */
+	protected DLAbstractDirectDataBuffer(final long capacity, final int elementSize) {
+		this(capacity, elementSize, SEGMENT_SIZE);
+	}
+
+	/**
+	 * Creates a new instance of this buffer and allocates its storage using a custom segment size. Intended for
+	 * testing.
+	 *
+	 * @param capacity the immutable capacity of the buffer
+	 * @param elementSize the size of a single element in bytes, must be a power of two
+	 * @param segmentSize the maximum number of bytes of a single segment, must be a power of two that is not smaller
+	 *            than the element size
+	 */
+	protected DLAbstractDirectDataBuffer(final long capacity, final int elementSize, final int segmentSize) {
+		checkArgument(capacity >= 0, "Invalid input capacity. Capacity must not be negative.");
+		checkArgument(Integer.bitCount(elementSize) == 1 && elementSize <= Long.BYTES, "Invalid element size.");
+		checkArgument(Integer.bitCount(segmentSize) == 1 && segmentSize >= elementSize, "Invalid segment size.");
+		m_capacity = capacity;
+		m_elementSize = elementSize;
+		m_segmentShift = Integer.numberOfTrailingZeros(segmentSize / elementSize);
+		m_segmentMask = (segmentSize / elementSize) - 1;
+		m_storage = allocate(capacity * elementSize, segmentSize);
+	}
+
+	/**
+	 * @param index the index of an element
+	 * @return the segment that holds the element
+	 */
+	protected final ByteBuffer segment(final long index) {
+		return m_storage[(int) (index >>> m_segmentShift)];
+	}
+
+	/**
+	 * @param index the index of an element
+	 * @return the byte offset of the element within its {@link #segment(long) segment}
+	 */
+	protected final int offset(final long index) {
+		return (int) (index & m_segmentMask) * m_elementSize;
+	}
+
+	/**
+	 * Splits the given range of elements at segment boundaries and passes each part to the given consumer.
+	 *
+	 * @param start the index of the first element
+	 * @param length the number of elements
+	 * @param consumer the consumer
+	 */
+	protected final void forEachSpan(final long start, final long length, final DLSpanConsumer consumer) {
+		for (long done = 0; done < length;) {
+			final long index = start + done;
+			final int count = (int) Math.min(length - done, (m_segmentMask + 1) - (index & m_segmentMask));
+			consumer.accept(view(segment(index), offset(index)), (int) done, count);
+			done += count;
+		}
+	}
+
+	/**
+	 * @return the capacity of the buffer as array length
+	 * @throws IllegalStateException if the buffer is too large to be copied into an array
+	 */
+	protected final int getCapacityAsArrayLength() {
+		checkState(m_capacity <= Integer.MAX_VALUE,
+				"Buffer capacity exceeds the maximum array size. Buffer cannot be copied into an array.");
+		return (int) m_capacity;
+	}
+
+	/**
+	 * @return the size of a single element in bytes
+	 */
+	public int getElementSize() {
+		return m_elementSize;
+	}
+
+	/**
+	 * Copies the raw (little-endian) contents of this buffer, starting at the given element, into the given byte
+	 * buffer. As many elements as fit into the remaining bytes of the byte buffer are copied. The byte buffer's
+	 * position is advanced accordingly. The read position of this buffer is not changed.
+	 *
+	 * @param startPos the index of the first element to copy
+	 * @param dest the destination, its remaining bytes must be a multiple of the element size
+	 * @throws BufferUnderflowException if the buffer's {@link #size() size} would be exceeded
+	 */
+	public void readBytes(final long startPos, final ByteBuffer dest) throws BufferUnderflowException {
+		checkArgument(dest.remaining() % m_elementSize == 0,
+				"Destination size is not a multiple of the element size.");
+		final long length = dest.remaining() / m_elementSize;
+		checkUnderflow(startPos >= 0 && startPos + length <= m_nextWrite);
+		forEachSpan(startPos, length, (segment, arrayOffset, count) -> {
+			segment.limit(segment.position() + count * m_elementSize);
+			dest.put(segment);
+		});
+	}
+
+	/**
+	 * Appends the raw (little-endian) contents of the given byte buffer, i.e. the bytes between its position and
+	 * limit, to this buffer. The byte buffer's position, limit and byte order are not changed.
+	 *
+	 * @param src the source, its remaining bytes must be a multiple of the element size
+	 * @throws BufferOverflowException if the buffer's {@link #getCapacity() capacity} would be exceeded
+	 */
+	public void writeBytes(final ByteBuffer src) throws BufferOverflowException {
+		checkArgument(src.remaining() % m_elementSize == 0, "Source size is not a multiple of the element size.");
+		final long length = src.remaining() / m_elementSize;
+		checkOverflow(m_nextWrite + length <= m_capacity);
+		final ByteBuffer s = src.duplicate();
+		forEachSpan(m_nextWrite, length, (segment, arrayOffset, count) -> {
+			s.limit(s.position() + count * m_elementSize);
+			segment.put(s);
+		});
+		m_nextWrite += length;
+	}
+
+	@Override
+	public long size() {
+		return m_nextWrite;
+	}
+
+	@Override
+	public long getCapacity() {
+		return m_capacity;
+	}
+
+	@Override
+	public long getNextReadPosition() {
+		return m_nextRead;
+	}
+
+	@Override
+	public ByteBuffer[] getStorageForReading(final long startPos, final long length) throws BufferUnderflowException {
+		checkUnderflow(startPos + length <= m_nextWrite);
+		return m_storage;
+	}
+
+	@Override
+	public ByteBuffer[] getStorageForWriting(final long startPos, final long length) throws BufferOverflowException {
+		checkOverflow(startPos + length <= m_capacity);
+		m_nextWrite = startPos + length;
+		return m_storage;
+	}
+
+	@Override
+	public void setStorage(final ByteBuffer[] storage, final long storageSize) throws IllegalArgumentException {
+		checkArgument(storage.length == m_storage.length, "Input storage capacity does not match buffer capacity.");
+		for (int i = 0; i < storage.length; i++) {
+			checkArgument(storage[i].isDirect() && storage[i].capacity() == m_storage[i].capacity(),
+					"Input storage capacity does not match buffer capacity.");
+			storage[i].order(ByteOrder.LITTLE_ENDIAN);
+		}
+		release(m_storage);
+		m_storage = storage;
+		m_nextWrite = storageSize;
+		resetRead();
+	}
+
+	@Override
+	public void zeroPad(final long length) throws IllegalArgumentException, BufferOverflowException {
+		checkArgument(length > 0);
+		checkOverflow(m_nextWrite + length <= m_capacity);
+		forEachSpan(m_nextWrite, length, (segment, arrayOffset, count) -> {
+			for (int remaining = count * m_elementSize; remaining > 0; remaining -= ZEROS.length) {
+				segment.put(ZEROS, 0, Math.min(ZEROS.length, remaining));
+			}
+		});
+		m_nextWrite += length;
+	}
+
+	@Override
+	public void resetRead() {
+		m_nextRead = 0;
+	}
+
+	@Override
+	public void resetWrite() {
+		m_nextWrite = 0;
+	}
+
+	/**
+	 * Releases the memory of this buffer.
+	 */
+	@Override
+	public void close() {
+		if (m_storage != null) {
+			release(m_storage);
+			m_storage = null;
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "Direct buffer with capacity: " + m_capacity;
+	}
+
+	/**
+	 * Consumes a part of a range of elements that lies within a single segment, see
+	 * {@link DLAbstractDirectDataBuffer#forEachSpan(long, long, DLSpanConsumer)}.
+	 */
+	@FunctionalInterface
+	protected interface DLSpanConsumer {
+
+		/**
+		 * @param segment a little-endian view of the segment whose position is set to the first element of the part
+		 * @param arrayOffset the offset of the part relative to the start of the range
+		 * @param count the number of elements of the part
+		 */
+		void accept(ByteBuffer segment, int arrayOffset, int count);
+	}
+}
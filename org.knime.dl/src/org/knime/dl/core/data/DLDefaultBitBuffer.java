@@ -46,21 +46,16 @@
  */
 package org.knime.dl.core.data;
 
-import static com.google.common.base.Preconditions.checkArgument;
-
-import java.nio.BufferOverflowException;
-import java.nio.BufferUnderflowException;
-
 /**
- * Bit type implementation of {@link DLWrappingDataBuffer}.
+ * Bit type implementation of {@link DLWrappingDataBuffer}. Bits are stored packed into words, see
+ * {@link DLPackedBitBuffer}.
  *
  * @author Marcel Wiedenmann, KNIME GmbH, Konstanz, Germany
  * @author Christian Dietz, KNIME GmbH, Konstanz, Germany
  * @author Adrian Nembach, KNIME GmbH, Konstanz, Germany
  * @author Benjamin Wilhelm, KNIME GmbH, Konstanz, Germany
  */
-public class DLDefaultBitBuffer extends DLAbstractFlatWrappingDataBuffer<boolean[]>
-    implements DLWritableBitBuffer, DLReadableBitBuffer {
+public class DLDefaultBitBuffer extends DLPackedBitBuffer {
 
     /**
      * Creates a new instance of this buffer.
@@ -70,215 +65,4 @@ public class DLDefaultBitBuffer extends DLAbstractFlatWrappingDataBuffer<boolean
     public DLDefaultBitBuffer(final long capacity) {
         super(capacity);
     }
-
-    @Override
-    public void setStorage(final boolean[] storage, final long storageSize) throws IllegalArgumentException {
-        checkArgument(storage.length == m_capacity, "Input storage capacity does not match buffer capacity.");
-        m_storage = storage;
-        m_nextWrite = (int)storageSize;
-        resetRead();
-    }
-
-    @Override
-    public void zeroPad(long length) throws IllegalArgumentException, BufferOverflowException {
-        checkArgument(length > 0);
-        checkOverflow(m_nextWrite + length <= m_capacity);
-        for (int i = 0; i < length; i++) {
-            m_storage[m_nextWrite++] = false;
-        }
-    }
-
-    @Override
-    public boolean readNextBit() throws BufferUnderflowException {
-        checkUnderflow(m_nextRead < m_nextWrite);
-        return m_storage[m_nextRead++];
-    }
-
-    @Override
-    public boolean[] toBitArray() {
-        return m_storage.clone();
-    }
-
-    @Override
-    public void readToBitArray(boolean[] dest, int destPos, int length) {
-        checkArgument(destPos >= 0);
-        checkArgument(length > 0);
-        checkUnderflow(m_nextRead + length <= m_nextWrite);
-        System.arraycopy(m_storage, m_nextRead, dest, destPos, length);
-        m_nextRead += length;
-    }
-
-    @Override
-    public byte readNextByte() throws BufferUnderflowException {
-        checkUnderflow(m_nextRead < m_nextWrite);
-        return (byte)(m_storage[m_nextRead++] ? 1 : 0);
-    }
-
-    @Override
-    public byte[] toByteArray() {
-        final byte[] tmp = new byte[m_storage.length];
-        for (int i = 0; i < m_storage.length; i++) {
-            tmp[i] = (byte)(m_storage[i] ? 1 : 0);
-        }
-        return tmp;
-    }
-
-    @Override
-    public void readToByteArray(byte[] dest, int destPos, int length) {
-        checkArgument(destPos >= 0);
-        checkArgument(length > 0);
-        checkUnderflow(m_nextRead + length <= m_nextWrite);
-        for (int i = 0; i < length; i++) {
-            dest[destPos + i] = (byte)(m_storage[m_nextRead + i] ? 1 : 0);
-        }
-        m_nextRead += length;
-    }
-
-    @Override
-    public short readNextShort() throws BufferUnderflowException {
-        checkUnderflow(m_nextRead < m_nextWrite);
-        return (short)(m_storage[m_nextRead++] ? 1 : 0);
-    }
-
-    @Override
-    public short[] toShortArray() {
-        final short[] tmp = new short[m_storage.length];
-        for (int i = 0; i < m_storage.length; i++) {
-            tmp[i] = (short)(m_storage[i] ? 1 : 0);
-        }
-        return tmp;
-    }
-
-    @Override
-    public void readToShortArray(short[] dest, int destPos, int length) {
-        checkArgument(destPos >= 0);
-        checkArgument(length > 0);
-        checkUnderflow(m_nextRead + length <= m_nextWrite);
-        for (int i = 0; i < length; i++) {
-            dest[destPos + i] = (short)(m_storage[m_nextRead + i] ? 1 : 0);
-        }
-        m_nextRead += length;
-    }
-
-    @Override
-    public int readNextInt() throws BufferUnderflowException {
-        checkUnderflow(m_nextRead < m_nextWrite);
-        return m_storage[m_nextRead++] ? 1 : 0;
-    }
-
-    @Override
-    public int[] toIntArray() {
-        final int[] tmp = new int[m_storage.length];
-        for (int i = 0; i < m_storage.length; i++) {
-            tmp[i] = m_storage[i] ? 1 : 0;
-        }
-        return tmp;
-    }
-
-    @Override
-    public void readToIntArray(int[] dest, int destPos, int length) {
-        checkArgument(destPos >= 0);
-        checkArgument(length > 0);
-        checkUnderflow(m_nextRead + length <= m_nextWrite);
-        for (int i = 0; i < length; i++) {
-            dest[destPos + i] = m_storage[m_nextRead + i] ? 1 : 0;
-        }
-        m_nextRead += length;
-    }
-
-    @Override
-    public long readNextLong() throws BufferUnderflowException {
-        checkUnderflow(m_nextRead < m_nextWrite);
-        return m_storage[m_nextRead++] ? 1L : 0L;
-    }
-
-    @Override
-    public long[] toLongArray() {
-        final long[] tmp = new long[m_storage.length];
-        for (int i = 0; i < m_storage.length; i++) {
-            tmp[i] = m_storage[i] ? 1L : 0L;
-        }
-        return tmp;
-    }
-
-    @Override
-    public void readToLongArray(long[] dest, int destPos, int length) {
-        checkArgument(destPos >= 0);
-        checkArgument(length > 0);
-        checkUnderflow(m_nextRead + length <= m_nextWrite);
-        for (int i = 0; i < length; i++) {
-            dest[destPos + i] = m_storage[m_nextRead + i] ? 1L : 0L;
-        }
-        m_nextRead += length;
-    }
-
-    @Override
-    public float readNextFloat() throws BufferUnderflowException {
-        checkUnderflow(m_nextRead < m_nextWrite);
-        return m_storage[m_nextRead++] ? 1f : 0f;
-    }
-
-    @Override
-    public float[] toFloatArray() {
-        final float[] tmp = new float[m_storage.length];
-        for (int i = 0; i < m_storage.length; i++) {
-            tmp[i] = m_storage[i] ? 1f : 0f;
-        }
-        return tmp;
-    }
-
-    @Override
-    public void readToFloatArray(float[] dest, int destPos, int length) {
-        checkArgument(destPos >= 0);
-        checkArgument(length > 0);
-        checkUnderflow(m_nextRead + length <= m_nextWrite);
-        for (int i = 0; i < length; i++) {
-            dest[destPos + i] = m_storage[m_nextRead + i] ? 1f : 0f;
-        }
-        m_nextRead += length;
-    }
-
-    @Override
-    public double readNextDouble() throws BufferUnderflowException {
-        checkUnderflow(m_nextRead < m_nextWrite);
-        return m_storage[m_nextRead++] ? 1. : 0.;
-    }
-
-    @Override
-    public double[] toDoubleArray() {
-        final double[] tmp = new double[m_storage.length];
-        for (int i = 0; i < m_storage.length; i++) {
-            tmp[i] = m_storage[i] ? 1. : 0.;
-        }
-        return tmp;
-    }
-
-    @Override
-    public void readToDoubleArray(double[] dest, int destPos, int length) {
-        checkArgument(destPos >= 0);
-        checkArgument(length > 0);
-        checkUnderflow(m_nextRead + length <= m_nextWrite);
-        for (int i = 0; i < length; i++) {
-            dest[destPos + i] = m_storage[m_nextRead + i] ? 1. : 0.;
-        }
-        m_nextRead += length;
-    }
-
-    @Override
-    public void put(boolean value) throws BufferOverflowException {
-        checkOverflow(m_nextWrite < m_capacity);
-        m_storage[m_nextWrite++] = value;
-    }
-
-    @Override
-    public void putAll(boolean[] values) throws BufferOverflowException {
-        checkOverflow(m_nextWrite + values.length <= m_capacity);
-        System.arraycopy(values, 0, m_storage, m_nextWrite, values.length);
-        m_nextWrite += values.length;
-    }
-
-    @Override
-    protected boolean[] createStorage() {
-        return new boolean[m_capacity];
-    }
 }
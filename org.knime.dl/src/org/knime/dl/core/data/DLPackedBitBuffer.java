@@ -0,0 +1,397 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ *
+ */
+package org.knime.dl.core.data;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+
+/**
+ * Bit type implementation of {@link DLWrappingDataBuffer} that packs 64 bits into each element of its storage. Bit
+ * <i>i</i> is held by word <i>i / 64</i> at bit position <i>i % 64</i> (least significant bit first), which is the
+ * layout of {@link java.util.BitSet#toLongArray()} and KNIME's dense bit vectors. Bulk operations process a whole
+ * word at a time.
+ */
+public class DLPackedBitBuffer extends DLAbstractFlatWrappingDataBuffer<long[]>
+    implements DLWritableBitBuffer, DLReadableBitBuffer {
+
+    private static final int WORD_SIZE = Long.SIZE;
+
+    /**
+     * @param numBits the number of bits
+     * @return the number of words that are needed to hold the given number of bits
+     */
+    public static int getNumWords(final long numBits) {
+        return (int)((numBits + WORD_SIZE - 1) / WORD_SIZE);
+    }
+
+    /**
+     * Creates a new instance of this buffer.
+     *
+     * @param capacity the immutable capacity of the buffer in bits
+     */
+    public DLPackedBitBuffer(final long capacity) {
+        super(capacity);
+    }
+
+    @Override
+    public void setStorage(final long[] storage, final long storageSize) throws IllegalArgumentException {
+        checkArgument(storage.length == getNumWords(m_capacity), "Input storage capacity does not match buffer capacity.");
+        m_storage = storage;
+        m_nextWrite = (int)storageSize;
+        resetRead();
+    }
+
+    @Override
+    public void zeroPad(final long length) throws IllegalArgumentException, BufferOverflowException {
+        checkArgument(length > 0);
+        checkOverflow(m_nextWrite + length <= m_capacity);
+        for (long remaining = length; remaining > 0;) {
+            final int n = (int)Math.min(WORD_SIZE, remaining);
+            writeBits(m_nextWrite, 0L, n);
+            m_nextWrite += n;
+            remaining -= n;
+        }
+    }
+
+    @Override
+    public boolean readNextBit() throws BufferUnderflowException {
+        checkUnderflow(m_nextRead < m_nextWrite);
+        return getBit(m_nextRead++);
+    }
+
+    @Override
+    public boolean[] toBitArray() {
+        final boolean[] tmp = new boolean[m_capacity];
+        for (int i = 0; i < m_capacity; i++) {
+            tmp[i] = getBit(i);
+        }
+        return tmp;
+    }
+
+    @Override
+    public void readToBitArray(final boolean[] dest, final int destPos, final int length) {
+        checkArgument(destPos >= 0);
+        checkArgument(length > 0);
+        checkUnderflow(m_nextRead + length <= m_nextWrite);
+        for (int i = 0; i < length;) {
+            final int n = Math.min(WORD_SIZE, length - i);
+            long bits = readBits(m_nextRead + i, n);
+            for (int j = 0; j < n; j++) {
+                dest[destPos + i + j] = (bits & 1L) != 0;
+                bits >>>= 1;
+            }
+            i += n;
+        }
+        m_nextRead += length;
+    }
+
+    @Override
+    public void readToPackedArray(final long[] dest, final long length) {
+        checkArgument(length > 0);
+        checkUnderflow(m_nextRead + length <= m_nextWrite);
+        final int l = (int)length;
+        if ((m_nextRead & (WORD_SIZE - 1)) == 0) {
+            // aligned, copy whole words
+            System.arraycopy(m_storage, m_nextRead / WORD_SIZE, dest, 0, getNumWords(l));
+            final int rest = l & (WORD_SIZE - 1);
+            if (rest != 0) {
+                dest[l / WORD_SIZE] &= (1L << rest) - 1;
+            }
+        } else {
+            for (int i = 0; i < l; i += WORD_SIZE) {
+                dest[i / WORD_SIZE] = readBits(m_nextRead + i, Math.min(WORD_SIZE, l - i));
+            }
+        }
+        m_nextRead += l;
+    }
+
+    @Override
+    public byte readNextByte() throws BufferUnderflowException {
+        checkUnderflow(m_nextRead < m_nextWrite);
+        return (byte)(getBit(m_nextRead++) ? 1 : 0);
+    }
+
+    @Override
+    public byte[] toByteArray() {
+        final byte[] tmp = new byte[m_capacity];
+        for (int i = 0; i < m_capacity; i++) {
+            tmp[i] = (byte)(getBit(i) ? 1 : 0);
+        }
+        return tmp;
+    }
+
+    @Override
+    public void readToByteArray(final byte[] dest, final int destPos, final int length) {
+        checkArgument(destPos >= 0);
+        checkArgument(length > 0);
+        checkUnderflow(m_nextRead + length <= m_nextWrite);
+        for (int i = 0; i < length; i++) {
+            dest[destPos + i] = (byte)(getBit(m_nextRead + i) ? 1 : 0);
+        }
+        m_nextRead += length;
+    }
+
+    @Override
+    public short readNextShort() throws BufferUnderflowException {
+        checkUnderflow(m_nextRead < m_nextWrite);
+        return (short)(getBit(m_nextRead++) ? 1 : 0);
+    }
+
+    @Override
+    public short[] toShortArray() {
+        final short[] tmp = new short[m_capacity];
+        for (int i = 0; i < m_capacity; i++) {
+            tmp[i] = (short)(getBit(i) ? 1 : 0);
+        }
+        return tmp;
+    }
+
+    @Override
+    public void readToShortArray(final short[] dest, final int destPos, final int length) {
+        checkArgument(destPos >= 0);
+        checkArgument(length > 0);
+        checkUnderflow(m_nextRead + length <= m_nextWrite);
+        for (int i = 0; i < length; i++) {
+            dest[destPos + i] = (short)(getBit(m_nextRead + i) ? 1 : 0);
+        }
+        m_nextRead += length;
+    }
+
+    @Override
+    public int readNextInt() throws BufferUnderflowException {
+        checkUnderflow(m_nextRead < m_nextWrite);
+        return getBit(m_nextRead++) ? 1 : 0;
+    }
+
+    @Override
+    public int[] toIntArray() {
+        final int[] tmp = new int[m_capacity];
+        for (int i = 0; i < m_capacity; i++) {
+            tmp[i] = getBit(i) ? 1 : 0;
+        }
+        return tmp;
+    }
+
+    @Override
+    public void readToIntArray(final int[] dest, final int destPos, final int length) {
+        checkArgument(destPos >= 0);
+        checkArgument(length > 0);
+        checkUnderflow(m_nextRead + length <= m_nextWrite);
+        for (int i = 0; i < length; i++) {
+            dest[destPos + i] = getBit(m_nextRead + i) ? 1 : 0;
+        }
+        m_nextRead += length;
+    }
+
+    @Override
+    public long readNextLong() throws BufferUnderflowException {
+        checkUnderflow(m_nextRead < m_nextWrite);
+        return getBit(m_nextRead++) ? 1L : 0L;
+    }
+
+    @Override
+    public long[] toLongArray() {
+        final long[] tmp = new long[m_capacity];
+        for (int i = 0; i < m_capacity; i++) {
+            tmp[i] = getBit(i) ? 1L : 0L;
+        }
+        return tmp;
+    }
+
+    @Override
+    public void readToLongArray(final long[] dest, final int destPos, final int length) {
+        checkArgument(destPos >= 0);
+        checkArgument(length > 0);
+        checkUnderflow(m_nextRead + length <= m_nextWrite);
+        for (int i = 0; i < length; i++) {
+            dest[destPos + i] = getBit(m_nextRead + i) ? 1L : 0L;
+        }
+        m_nextRead += length;
+    }
+
+    @Override
+    public float readNextFloat() throws BufferUnderflowException {
+        checkUnderflow(m_nextRead < m_nextWrite);
+        return getBit(m_nextRead++) ? 1f : 0f;
+    }
+
+    @Override
+    public float[] toFloatArray() {
+        final float[] tmp = new float[m_capacity];
+        for (int i = 0; i < m_capacity; i++) {
+            tmp[i] = getBit(i) ? 1f : 0f;
+        }
+        return tmp;
+    }
+
+    @Override
+    public void readToFloatArray(final float[] dest, final int destPos, final int length) {
+        checkArgument(destPos >= 0);
+        checkArgument(length > 0);
+        checkUnderflow(m_nextRead + length <= m_nextWrite);
+        for (int i = 0; i < length; i++) {
+            dest[destPos + i] = getBit(m_nextRead + i) ? 1f : 0f;
+        }
+        m_nextRead += length;
+    }
+
+    @Override
+    public double readNextDouble() throws BufferUnderflowException {
+        checkUnderflow(m_nextRead < m_nextWrite);
+        return getBit(m_nextRead++) ? 1. : 0.;
+    }
+
+    @Override
+    public double[] toDoubleArray() {
+        final double[] tmp = new double[m_capacity];
+        for (int i = 0; i < m_capacity; i++) {
+            tmp[i] = getBit(i) ? 1. : 0.;
+        }
+        return tmp;
+    }
+
+    @Override
+    public void readToDoubleArray(final double[] dest, final int destPos, final int length) {
+        checkArgument(destPos >= 0);
+        checkArgument(length > 0);
+        checkUnderflow(m_nextRead + length <= m_nextWrite);
+        for (int i = 0; i < length; i++) {
+            dest[destPos + i] = getBit(m_nextRead + i) ? 1. : 0.;
+        }
+        m_nextRead += length;
+    }
+
+    @Override
+    public void put(final boolean value) throws BufferOverflowException {
+        checkOverflow(m_nextWrite < m_capacity);
+        final long mask = 1L << m_nextWrite; // shift distance is taken modulo 64
+        if (value) {
+            m_storage[m_nextWrite / WORD_SIZE] |= mask;
+        } else {
+            m_storage[m_nextWrite / WORD_SIZE] &= ~mask;
+        }
+        m_nextWrite++;
+    }
+
+    @Override
+    public void putAll(final boolean[] values) throws BufferOverflowException {
+        checkOverflow(m_nextWrite + values.length <= m_capacity);
+        for (int i = 0; i < values.length;) {
+            final int n = Math.min(WORD_SIZE, values.length - i);
+            long bits = 0L;
+            for (int j = 0; j < n; j++) {
+                if (values[i + j]) {
+                    bits |= 1L << j;
+                }
+            }
+            writeBits(m_nextWrite, bits, n);
+            m_nextWrite += n;
+            i += n;
+        }
+    }
+
+    @Override
+    public void putAll(final long[] words, final long length) throws BufferOverflowException {
+        checkArgument(length >= 0 && getNumWords(length) <= words.length);
+        checkOverflow(m_nextWrite + length <= m_capacity);
+        final int l = (int)length;
+        if ((m_nextWrite & (WORD_SIZE - 1)) == 0) {
+            // aligned, copy whole words
+            System.arraycopy(words, 0, m_storage, m_nextWrite / WORD_SIZE, l / WORD_SIZE);
+            final int rest = l & (WORD_SIZE - 1);
+            if (rest != 0) {
+                writeBits(m_nextWrite + l - rest, words[l / WORD_SIZE], rest);
+            }
+        } else {
+            for (int i = 0; i < l; i += WORD_SIZE) {
+                writeBits(m_nextWrite + i, words[i / WORD_SIZE], Math.min(WORD_SIZE, l - i));
+            }
+        }
+        m_nextWrite += l;
+    }
+
+    @Override
+    protected long[] createStorage() {
+        return new long[getNumWords(m_capacity)];
+    }
+
+    private boolean getBit(final int index) {
+        return (m_storage[index / WORD_SIZE] & (1L << index)) != 0;
+    }
+
+    /**
+     * Reads <b>n</b> (at most 64) bits starting at bit <b>pos</b>. The first bit is the least significant bit of the
+     * returned word, all bits above <b>n</b> are zero.
+     */
+    private long readBits(final int pos, final int n) {
+        final int word = pos / WORD_SIZE;
+        final int offset = pos & (WORD_SIZE - 1);
+        long bits = m_storage[word] >>> offset;
+        if (offset != 0 && offset + n > WORD_SIZE) {
+            bits |= m_storage[word + 1] << (WORD_SIZE - offset);
+        }
+        return n == WORD_SIZE ? bits : bits & ((1L << n) - 1);
+    }
+
+    /**
+     * Writes the <b>n</b> (at most 64) least significant bits of <b>bits</b> starting at bit <b>pos</b>. Bits above
+     * <b>n</b> are ignored.
+     */
+    private void writeBits(final int pos, final long bits, final int n) {
+        final long mask = n == WORD_SIZE ? -1L : (1L << n) - 1;
+        final long value = bits & mask;
+        final int word = pos / WORD_SIZE;
+        final int offset = pos & (WORD_SIZE - 1);
+        m_storage[word] = (m_storage[word] & ~(mask << offset)) | (value << offset);
+        if (offset != 0 && offset + n > WORD_SIZE) {
+            final int shift = WORD_SIZE - offset;
+            m_storage[word + 1] = (m_storage[word + 1] & ~(mask >>> shift)) | (value >>> shift);
+        }
+    }
+}
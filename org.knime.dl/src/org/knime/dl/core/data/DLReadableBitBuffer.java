@@ -47,6 +47,7 @@
 package org.knime.dl.core.data;
 
 import java.nio.BufferUnderflowException;
+import java.util.Arrays;
 
 /**
  * A {@link DLReadableBuffer readable} bit buffer.
@@ -82,4 +83,22 @@ public interface DLReadableBitBuffer extends DLReadableByteBuffer {
      * @throws BufferUnderflowException if the buffer's {@link #size() size} is exceeded.
      */
     void readToBitArray(boolean[] dest, int destPos, int length);
+
+    /**
+     * Reads <b>length</b> values from the buffer into the <b>dest</b> array starting from the next value in the buffer.
+     * The values are packed into words, see {@link DLWritableBitBuffer#putAll(long[], long)} for the layout. Unused
+     * bits of the last word are set to zero.
+     *
+     * @param dest destination array, must hold at least <code>ceil(length / 64)</code> words
+     * @param length number of elements to read from the buffer
+     * @throws BufferUnderflowException if the buffer's {@link #size() size} is exceeded.
+     */
+    default void readToPackedArray(final long[] dest, final long length) {
+        Arrays.fill(dest, 0, (int) ((length + Long.SIZE - 1) / Long.SIZE), 0L);
+        for (long i = 0; i < length; i++) {
+            if (readNextBit()) {
+                dest[(int) (i / Long.SIZE)] |= 1L << i;
+            }
+        }
+    }
 }
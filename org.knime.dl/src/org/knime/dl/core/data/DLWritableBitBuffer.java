@@ -25,4 +25,18 @@ public interface DLWritableBitBuffer extends DLWritableBuffer {
 	 * @throws BufferOverflowException if the buffer's {@link #getCapacity() capacity} is exceeded.
 	 */
 	void putAll(boolean[] values) throws BufferOverflowException;
+
+	/**
+	 * Copies bits that are packed into words into the buffer. Bit <i>i</i> is held by word <i>i / 64</i> at bit
+	 * position <i>i % 64</i> (least significant bit first), see {@link java.util.BitSet#toLongArray()}.
+	 *
+	 * @param words the packed bits
+	 * @param length the number of bits to copy
+	 * @throws BufferOverflowException if the buffer's {@link #getCapacity() capacity} is exceeded.
+	 */
+	default void putAll(final long[] words, final long length) throws BufferOverflowException {
+		for (long i = 0; i < length; i++) {
+			put((words[(int) (i / Long.SIZE)] & (1L << i)) != 0);
+		}
+	}
 }
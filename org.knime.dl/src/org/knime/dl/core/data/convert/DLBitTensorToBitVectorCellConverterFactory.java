@@ -55,6 +55,7 @@
 import org.knime.core.data.vector.bitvector.DenseBitVectorCell;
 import org.knime.core.data.vector.bitvector.DenseBitVectorCellFactory;
 import org.knime.dl.core.DLTensorSpec;
+import org.knime.dl.core.data.DLPackedBitBuffer;
 import org.knime.dl.core.data.DLReadableBitBuffer;
 import org.knime.dl.util.DLUtils;
 
@@ -93,10 +94,9 @@ public DLTensorToDataCellConverter<DLReadableBitBuffer, DenseBitVectorCell> crea
             final long exampleSize = DLUtils.Shapes.getFixedSize(input.getSpec().getShape()).getAsLong();
             final DLReadableBitBuffer buf = input.getBuffer();
             for (int i = 0; i < bufferSize / exampleSize; i++) {
-                final DenseBitVector vector = new DenseBitVector(exampleSize);
-                for (long j = 0; j < exampleSize; j++) {
-                    vector.set(j, buf.readNextBit());
-                }
+                final long[] words = new long[DLPackedBitBuffer.getNumWords(exampleSize)];
+                buf.readToPackedArray(words, exampleSize);
+                final DenseBitVector vector = new DenseBitVector(words, exampleSize);
                 out[i] = (new DenseBitVectorCellFactory(vector)).createDataCell();
             }
         };
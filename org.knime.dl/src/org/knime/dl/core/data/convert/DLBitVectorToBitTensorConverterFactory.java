@@ -48,6 +48,7 @@
  */
 package org.knime.dl.core.data.convert;
 
+import java.util.Arrays;
 import java.util.List;
 import java.util.OptionalLong;
 
@@ -56,6 +57,7 @@
 import org.knime.core.data.vector.bitvector.BitVectorValue;
 import org.knime.dl.core.DLTensor;
 import org.knime.dl.core.DLTensorSpec;
+import org.knime.dl.core.data.DLPackedBitBuffer;
 import org.knime.dl.core.data.DLWritableBitBuffer;
 
 /**
@@ -90,12 +92,24 @@ public OptionalLong getDestCount(final List<DataColumnSpec> spec) {
 	public DLDataValueToTensorConverter<BitVectorValue, DLWritableBitBuffer> createConverter() {
 		return new DLAbstractTensorDataValueToTensorConverter<BitVectorValue, DLWritableBitBuffer>() {
 
+			private long[] m_words = new long[0];
+
 			@Override
 			public void convertInternal(final BitVectorValue input, final DLTensor<DLWritableBitBuffer> output) {
-				final DLWritableBitBuffer buffer = output.getBuffer();
-				for (int i = 0; i < input.length(); i++) {
-					buffer.put(input.get(i));
+				final long length = input.length();
+				final int numWords = DLPackedBitBuffer.getNumWords(length);
+				if (m_words.length < numWords) {
+					m_words = new long[numWords];
+				} else {
+					Arrays.fill(m_words, 0, numWords, 0L);
+				}
+				// pack the set bits into words that are reused across inputs and copy them in bulk
+				long i = length > 0 ? input.nextSetBit(0) : -1;
+				while (i >= 0) {
+					m_words[(int) (i / Long.SIZE)] |= 1L << i;
+					i = i + 1 < length ? input.nextSetBit(i + 1) : -1;
 				}
+				output.getBuffer().putAll(m_words, length);
 			}
 		};
 	}
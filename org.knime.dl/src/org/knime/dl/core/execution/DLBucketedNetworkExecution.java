@@ -0,0 +1,381 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ *
+ */
+package org.knime.dl.core.execution;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import org.knime.core.data.DataRow;
+import org.knime.core.data.DataTableSpec;
+import org.knime.core.node.ExecutionContext;
+import org.knime.core.node.streamable.RowOutput;
+import org.knime.dl.core.DLAbstractRowIterator;
+import org.knime.dl.core.DLCanceledExecutionException;
+import org.knime.dl.core.DLLengthBucketing;
+import org.knime.dl.core.DLNetworkInputPreparer;
+import org.knime.dl.core.DLRowIterator;
+import org.knime.dl.core.DLSessionMetrics;
+import org.knime.dl.core.DLTensorFactory;
+import org.knime.dl.core.DLTensorId;
+import org.knime.dl.core.DLTensorSpec;
+import org.knime.dl.core.data.convert.DLDataValueToTensorConverterFactory;
+import org.knime.dl.core.data.convert.DLTensorToDataCellConverterFactory;
+
+/**
+ * Executes a network on rows whose variable-length inputs are grouped into buckets of similar length (see
+ * {@link DLLengthBucketing}). Each bucket is executed by its own session whose input tensors are only padded to the
+ * boundary of the bucket.
+ * <P>
+ * The rows are read and bucketed window by window. The output rows of a window are pushed in the order of the input
+ * rows before the next window is read, so the window size bounds the number of rows that are held in memory. The
+ * session of a bucket is created once the bucket receives its first rows and is reused for all later windows. Only the
+ * session of the last bucket, which has no boundary, is recreated if a window contains a row that is longer than all
+ * rows the session was sized for.
+ */
+public final class DLBucketedNetworkExecution {
+
+	private final DLRowIterator m_iterator;
+
+	private final DataTableSpec m_tableSpec;
+
+	private final Map<DLTensorId, int[]> m_columns;
+
+	private final int m_batchSize;
+
+	private final boolean m_isPredefinedBatchSize;
+
+	private final Map<DLTensorId, DLDataValueToTensorConverterFactory<?, ?>> m_converters;
+
+	private final DLLengthBucketing m_bucketing;
+
+	private final DLTensorFactory m_tensorFactory;
+
+	private final int m_windowSize;
+
+	/**
+	 * @param iterator provides the input data rows
+	 * @param tableSpec the spec of the table the iterator runs over
+	 * @param columns the column indices of each network input
+	 * @param batchSize the batch size of the tensors
+	 * @param isPredefinedBatchSize see {@link DLKnimeNetworkExecutionInputPreparer}
+	 * @param converters the converters that are used to write the data rows into the tensors
+	 * @param bucketing assigns the rows to buckets, its statistics are reset for each window
+	 * @param tensorFactory the tensor factory that is used to create the execution specs of the buckets
+	 * @param windowSize the number of rows that are bucketed at a time, must be positive
+	 */
+	public DLBucketedNetworkExecution(final DLRowIterator iterator, final DataTableSpec tableSpec,
+			final Map<DLTensorId, int[]> columns, final int batchSize, final boolean isPredefinedBatchSize,
+			final Map<DLTensorId, DLDataValueToTensorConverterFactory<?, ?>> converters,
+			final DLLengthBucketing bucketing, final DLTensorFactory tensorFactory, final int windowSize) {
+		checkArgument(windowSize > 0, "Window size must be positive.");
+		m_iterator = checkNotNull(iterator);
+		m_tableSpec = checkNotNull(tableSpec);
+		m_columns = checkNotNull(columns);
+		m_batchSize = batchSize;
+		m_isPredefinedBatchSize = isPredefinedBatchSize;
+		m_converters = checkNotNull(converters);
+		m_bucketing = checkNotNull(bucketing);
+		m_tensorFactory = checkNotNull(tensorFactory);
+		m_windowSize = windowSize;
+	}
+
+	/**
+	 * Executes all rows and blocks until their output was pushed to the given row output. The row output is not
+	 * closed.
+	 *
+	 * @param sessionFactory creates the sessions of the buckets
+	 * @param output receives the output rows in the order of the input rows
+	 * @param keepInputColumns see {@link DLKnimeNetworkOutputConsumer}
+	 * @param outputConverters see {@link DLKnimeNetworkOutputConsumer}
+	 * @param exec see {@link DLKnimeNetworkOutputConsumer}
+	 * @param monitor the monitor that is passed to the sessions
+	 * @throws DLCanceledExecutionException if execution was canceled
+	 * @throws Exception if execution failed
+	 */
+	public void run(final SessionFactory sessionFactory, final RowOutput output, final boolean keepInputColumns,
+			final LinkedHashMap<DLTensorId, DLTensorToDataCellConverterFactory<?, ?>> outputConverters,
+			final ExecutionContext exec, final DLExecutionMonitor monitor)
+			throws DLCanceledExecutionException, Exception {
+		final List<DataRow> window = new ArrayList<>(m_windowSize);
+		final int[] buckets = new int[m_windowSize];
+		final DLBucketExecution[] bucketExecutions = new DLBucketExecution[m_bucketing.getNumBuckets()];
+		try {
+			while (m_iterator.hasNext()) {
+				monitor.checkCanceled();
+				window.clear();
+				m_bucketing.clear();
+				while (window.size() < m_windowSize && m_iterator.hasNext()) {
+					final DataRow row = m_iterator.next();
+					buckets[window.size()] = m_bucketing.assign(row, m_iterator.groupByTensor(row));
+					window.add(row);
+				}
+				final DataRow[] outputRows = new DataRow[window.size()];
+				for (int bucket = 0; bucket < bucketExecutions.length; bucket++) {
+					if (m_bucketing.getNumRows(bucket) > 0) {
+						if (bucketExecutions[bucket] == null) {
+							bucketExecutions[bucket] = new DLBucketExecution(bucket,
+									monitor.getExecutionStatus().getMetrics());
+						}
+						bucketExecutions[bucket].execute(window, buckets, outputRows, sessionFactory,
+								keepInputColumns, outputConverters, exec, monitor);
+					}
+				}
+				for (final DataRow row : outputRows) {
+					output.push(row);
+				}
+			}
+		} finally {
+			for (final DLBucketExecution bucketExecution : bucketExecutions) {
+				if (bucketExecution != null) {
+					bucketExecution.close();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Creates the session that executes the rows of a bucket.
+	 */
+	@FunctionalInterface
+	public interface SessionFactory {
+
+		/**
+		 * @param executionInputSpecs the execution specs of the bucket
+		 * @param inputPreparer the input preparer of the bucket
+		 * @param outputConsumer the output consumer of the bucket
+		 * @return the session, is reused for later windows and closed by the caller
+		 * @throws Exception if creating the session failed
+		 */
+		DLNetworkExecutionSession createSession(Set<DLTensorSpec> executionInputSpecs,
+				DLNetworkInputPreparer inputPreparer, DLNetworkOutputConsumer outputConsumer) throws Exception;
+	}
+
+	/**
+	 * Executes the rows of a single bucket, window by window.
+	 */
+	private final class DLBucketExecution implements AutoCloseable {
+
+		private final int m_bucket;
+
+		private final DLSessionMetrics m_metrics;
+
+		private final DLBucketRowIterator m_rows;
+
+		private final int[] m_positions;
+
+		private final DLWindowRowOutput m_output;
+
+		private final DLKnimeNetworkExecutionInputPreparer m_inputPreparer;
+
+		/**
+		 * Depends on the output shapes of the session, so it is recreated along with the session.
+		 */
+		private DLKnimeNetworkOutputConsumer m_outputConsumer;
+
+		private DLNetworkExecutionSession m_session;
+
+		/**
+		 * The length of the variable-length tensors of {@link #m_session}.
+		 */
+		private long m_length;
+
+		private DLBucketExecution(final int bucket, final DLSessionMetrics metrics) {
+			m_bucket = bucket;
+			m_metrics = metrics;
+			m_rows = new DLBucketRowIterator(m_tableSpec, m_columns, m_windowSize);
+			m_positions = new int[m_windowSize];
+			m_output = new DLWindowRowOutput(m_positions);
+			m_inputPreparer = new DLKnimeNetworkExecutionInputPreparer(m_rows, m_batchSize, m_isPredefinedBatchSize,
+					m_converters);
+			m_inputPreparer.setPadExamples(true);
+			m_inputPreparer.setMetrics(metrics);
+		}
+
+		private void execute(final List<DataRow> window, final int[] buckets, final DataRow[] outputRows,
+				final SessionFactory sessionFactory, final boolean keepInputColumns,
+				final LinkedHashMap<DLTensorId, DLTensorToDataCellConverterFactory<?, ?>> outputConverters,
+				final ExecutionContext exec, final DLExecutionMonitor monitor)
+				throws DLCanceledExecutionException, Exception {
+			m_rows.m_rows.clear();
+			m_rows.reset();
+			for (int i = 0; i < window.size(); i++) {
+				if (buckets[i] == m_bucket) {
+					m_positions[m_rows.m_rows.size()] = i;
+					m_rows.m_rows.add(window.get(i));
+				}
+			}
+			m_output.setWindow(outputRows);
+			final long length = m_bucketing.getMaxLength(m_bucket);
+			if (m_session == null || length > m_length) {
+				closeSession();
+				m_outputConsumer = new DLKnimeNetworkOutputConsumer(m_output, m_inputPreparer.getBaseRows()::remove,
+						keepInputColumns, outputConverters, exec);
+				m_outputConsumer.setMetrics(m_metrics);
+				final Set<DLTensorSpec> executionInputSpecs = m_bucketing.createExecutionSpecs(m_bucket, length,
+						m_tensorFactory, m_batchSize, m_columns);
+				m_session = sessionFactory.createSession(executionInputSpecs, m_inputPreparer, m_outputConsumer);
+				m_length = length;
+			}
+			m_session.run(monitor);
+		}
+
+		private void closeSession() throws Exception {
+			try {
+				if (m_session != null) {
+					m_session.close();
+				}
+			} finally {
+				m_session = null;
+				if (m_outputConsumer != null) {
+					m_outputConsumer.close();
+					m_outputConsumer = null;
+				}
+			}
+		}
+
+		@Override
+		public void close() throws Exception {
+			try {
+				closeSession();
+			} finally {
+				m_inputPreparer.close();
+			}
+		}
+	}
+
+	/**
+	 * Iterates over the rows of a bucket of the current window.
+	 */
+	private static final class DLBucketRowIterator extends DLAbstractRowIterator {
+
+		private final List<DataRow> m_rows;
+
+		private int m_next = 0;
+
+		private DLBucketRowIterator(final DataTableSpec tableSpec, final Map<DLTensorId, int[]> columns,
+				final int numRows) {
+			super(tableSpec, columns);
+			m_rows = new ArrayList<>(numRows);
+		}
+
+		@Override
+		public long size() {
+			return m_rows.size();
+		}
+
+		@Override
+		public boolean hasNext() {
+			return m_next < m_rows.size();
+		}
+
+		@Override
+		public DataRow peek() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			return m_rows.get(m_next);
+		}
+
+		@Override
+		public DataRow next() {
+			final DataRow row = peek();
+			m_next++;
+			return row;
+		}
+
+		@Override
+		public void reset() {
+			m_next = 0;
+		}
+
+		@Override
+		public void close() {
+			m_rows.clear();
+		}
+	}
+
+	/**
+	 * Puts the output rows of a bucket at the positions of their input rows within the current window.
+	 */
+	private static final class DLWindowRowOutput extends RowOutput {
+
+		private final int[] m_positions;
+
+		private DataRow[] m_rows;
+
+		private int m_next = 0;
+
+		private DLWindowRowOutput(final int[] positions) {
+			m_positions = positions;
+		}
+
+		/**
+		 * @param rows receives the output rows of the next window, the positions must have been updated accordingly
+		 */
+		private void setWindow(final DataRow[] rows) {
+			m_rows = rows;
+			m_next = 0;
+		}
+
+		@Override
+		public void push(final DataRow row) {
+			m_rows[m_positions[m_next++]] = row;
+		}
+
+		@Override
+		public void close() {
+			// no op, the rows of the window are pushed to the actual output by the bucketed execution
+		}
+	}
+}
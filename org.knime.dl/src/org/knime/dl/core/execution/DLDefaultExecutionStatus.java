@@ -46,10 +46,13 @@
  */
 package org.knime.dl.core.execution;
 
+import java.util.OptionalDouble;
 import java.util.OptionalLong;
+import java.util.concurrent.atomic.DoubleAccumulator;
 
 import org.knime.dl.core.DLDefaultEvent;
 import org.knime.dl.core.DLEvent;
+import org.knime.dl.core.DLSessionMetrics;
 
 /**
  * @author Marcel Wiedenmann, KNIME GmbH, Konstanz, Germany
@@ -63,6 +66,13 @@ public class DLDefaultExecutionStatus implements DLExecutionStatus {
 
 	private final DLEvent<Void> m_batchEnded = new DLDefaultEvent<>();
 
+	/**
+	 * Negative infinity until the first error is reported.
+	 */
+	private final DoubleAccumulator m_maxTransportError = new DoubleAccumulator(Math::max, Double.NEGATIVE_INFINITY);
+
+	private final DLSessionMetrics m_metrics = new DLSessionMetrics();
+
     public DLDefaultExecutionStatus(final long numBatches) {
         m_numBatches = OptionalLong.of(numBatches);
 		subscribeToBatchEnded();
@@ -83,6 +93,22 @@ public long getCurrentBatch() {
 		return m_currentBatch;
 	}
 
+	@Override
+	public OptionalDouble getMaxTransportError() {
+		final double error = m_maxTransportError.get();
+		return error == Double.NEGATIVE_INFINITY ? OptionalDouble.empty() : OptionalDouble.of(error);
+	}
+
+	@Override
+	public void reportTransportError(final double error) {
+		m_maxTransportError.accumulate(error);
+	}
+
+	@Override
+	public DLSessionMetrics getMetrics() {
+		return m_metrics;
+	}
+
 	@Override
 	public DLEvent<Void> batchEnded() {
 		return m_batchEnded;
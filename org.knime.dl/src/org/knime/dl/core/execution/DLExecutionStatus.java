@@ -46,9 +46,11 @@
  */
 package org.knime.dl.core.execution;
 
+import java.util.OptionalDouble;
 import java.util.OptionalLong;
 
 import org.knime.dl.core.DLEvent;
+import org.knime.dl.core.DLSessionMetrics;
 
 /**
  * @author Marcel Wiedenmann, KNIME GmbH, Konstanz, Germany
@@ -68,6 +70,32 @@ public interface DLExecutionStatus {
 	 */
     long getCurrentBatch();
 
+	/**
+	 * @return the largest absolute rounding error of all tensor elements that were transferred at a reduced
+	 *         {@link DLTransportPrecision precision}, empty if no tensors were transferred at a reduced precision
+	 */
+	default OptionalDouble getMaxTransportError() {
+		return OptionalDouble.empty();
+	}
+
+	/**
+	 * Records the largest absolute rounding error of tensor elements that were transferred at a reduced
+	 * {@link DLTransportPrecision precision}. May be called concurrently.
+	 *
+	 * @param error the error
+	 */
+	default void reportTransportError(final double error) {
+		// no op
+	}
+
+	/**
+	 * @return the metrics into which the session records the time of its phases, the transferred bytes and the
+	 *         processed rows, {@link DLSessionMetrics#DISABLED} if this status does not collect metrics
+	 */
+	default DLSessionMetrics getMetrics() {
+		return DLSessionMetrics.DISABLED;
+	}
+
 	// events:
 
 	DLEvent<Void> batchEnded();
@@ -46,11 +46,11 @@
  */
 package org.knime.dl.core.execution;
 
-import java.util.ArrayDeque;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.OptionalLong;
 import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 import org.knime.core.data.DataRow;
 import org.knime.dl.core.DLAbstractKnimeNetworkInputPreparer;
@@ -71,6 +71,9 @@ public final class DLKnimeNetworkExecutionInputPreparer extends DLAbstractKnimeN
 
 	private final boolean m_isPredefinedBatchSize;
 
+	/**
+	 * Thread-safe as the rows are added and removed by different threads in pipelined execution.
+	 */
 	private final Queue<DataRow> m_baseRows;
 
 	/**
@@ -89,7 +92,7 @@ public DLKnimeNetworkExecutionInputPreparer(final DLRowIterator iterator, final
 			final Map<DLTensorId, DLDataValueToTensorConverterFactory<?, ?>> converters) {
 		super(iterator, batchSize, converters);
 		m_isPredefinedBatchSize = isPredefinedBatchSize;
-		m_baseRows = new ArrayDeque<>(batchSize);
+		m_baseRows = new ConcurrentLinkedQueue<>();
 	}
 
     public OptionalLong getNumBatches() {
@@ -101,6 +104,13 @@ public OptionalLong getNumBatches() {
 	    }
 	}
 
+	/**
+	 * Returns the rows that were used to prepare the tensors, in the order in which they were consumed from the
+	 * iterator. Rows are added by {@link #prepareNext(Map)} and are expected to be removed by the consumer of the
+	 * network output. The queue can safely be accessed from different threads.
+	 *
+	 * @return the base rows
+	 */
 	public Queue<DataRow> getBaseRows() {
 		return m_baseRows;
 	}
@@ -119,7 +129,7 @@ public void prepareNext(final Map<DLTensorId, DLTensor<? extends DLWritableBuffe
 				// last batch will be incomplete, handled below
 				break;
 			}
-			final DataRow row = m_iterator.next();
+			final DataRow row = nextRow();
 			m_baseRows.add(row);
 			try {
 				writeDataValuesInTensors(m_iterator.groupByTensor(row), input);
@@ -138,6 +148,7 @@ public void prepareNext(final Map<DLTensorId, DLTensor<? extends DLWritableBuffe
 						e);
 			}
 		}
+		recordBatchMetrics();
 		// check if tensors were filled correctly
 		for (final Entry<DLTensorId, DLTensor<? extends DLWritableBuffer>> entry : input.entrySet()) {
 			final DLTensor<? extends DLWritableBuffer> tensor = entry.getValue();
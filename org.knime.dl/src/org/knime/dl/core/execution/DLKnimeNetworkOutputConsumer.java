@@ -46,8 +46,11 @@
  */
 package org.knime.dl.core.execution;
 
+import static com.google.common.base.Preconditions.checkNotNull;
+
 import java.lang.reflect.Array;
 import java.nio.BufferUnderflowException;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -56,12 +59,13 @@
 
 import org.knime.core.data.DataCell;
 import org.knime.core.data.DataRow;
-import org.knime.core.data.append.AppendedColumnRow;
-import org.knime.core.data.def.DefaultRow;
+import org.knime.core.data.RowKey;
 import org.knime.core.data.filestore.FileStoreCell;
 import org.knime.core.node.ExecutionContext;
 import org.knime.core.node.streamable.RowOutput;
 import org.knime.dl.core.DLInvalidNetworkOutputException;
+import org.knime.dl.core.DLSessionMetrics;
+import org.knime.dl.core.DLSessionMetrics.Phase;
 import org.knime.dl.core.DLTensor;
 import org.knime.dl.core.DLTensorId;
 import org.knime.dl.core.DLTensorSpec;
@@ -89,9 +93,12 @@ public final class DLKnimeNetworkOutputConsumer implements DLNetworkOutputConsum
     private final LinkedHashMap<DLTensorId, DLKnimeOutputConsumerHelperStruct> m_helpers;
 
     /**
+     * The number of cells that are created per row by each helper, in the iteration order of {@link #m_helpers}.
      * <code>null</code> before the first call of {@link #accept(Map)}.
      */
-    private DataCell[] m_temp;
+    private int[] m_numOutputElements;
+
+	private DLSessionMetrics m_metrics = DLSessionMetrics.DISABLED;
 
     /**
      * @param append if true, the output cells created by this instance will be appended to their respective base rows.
@@ -117,20 +124,36 @@ public DLKnimeNetworkOutputConsumer(final RowOutput output, final Supplier<DataR
 		}
 	}
 
+	/**
+	 * Sets the metrics into which the time spent converting the network output and pushing the output rows is
+	 * recorded. Disabled by default.
+	 *
+	 * @param metrics the metrics, usually the ones of the status of the session whose output this instance consumes
+	 */
+	public void setMetrics(final DLSessionMetrics metrics) {
+		m_metrics = checkNotNull(metrics);
+	}
+
 	@Override
 	public void accept(final Map<DLTensorId, DLTensor<? extends DLReadableBuffer>> tensors) {
-		if (m_temp == null) {
+		if (m_numOutputElements == null) {
 			// initialize output structs the first time we know how the network output looks like
 			initialize(tensors);
 		}
+		final long conversionStart = m_metrics.start();
+		// The output rows reference the cells of the batch instead of copying them, so each batch gets new arrays.
+		final DataCell[][] batchCells = new DataCell[m_helpers.size()][];
+		int h = 0;
 		for (final Entry<DLTensorId, DLKnimeOutputConsumerHelperStruct> entry : m_helpers.entrySet()) {
 			final DLTensorId identifier = entry.getKey();
 			final DLKnimeOutputConsumerHelperStruct helper = entry.getValue();
 			final DLTensor<? extends DLReadableBuffer> tensor = tensors.get(identifier);
+			batchCells[h] = (DataCell[]) Array.newInstance(helper.m_factory.getDestType().getCellClass(),
+					helper.m_batchCapacity);
 			try {
 				// converter source type and tensor element type must match
 				final DLTensorToDataCellConverter converter = helper.m_converter;
-				converter.convert(tensor, helper.m_temp, m_exec);
+				converter.convert(tensor, batchCells[h++], m_exec);
 			} catch (final BufferUnderflowException ex) {
 				throw new DLInvalidNetworkOutputException("Unexpected network output. Size of network output '"
 						+ tensor.getSpec().getName() + "' did not match its specification.");
@@ -138,21 +161,12 @@ public void accept(final Map<DLTensorId, DLTensor<? extends DLReadableBuffer>> t
 				throw new RuntimeException(e);
 			}
 		}
+		m_metrics.stop(Phase.OUTPUT_CONVERSION, conversionStart);
+		final long pushStart = m_metrics.start();
 		// batch might be incomplete
 		final DLTensor<? extends DLReadableBuffer> tensor = tensors.values().iterator().next();
 		final long batchSize = tensor.getBuffer().size() / tensor.getExampleSize();
 		for (int r = 0; r < batchSize; r++) {
-			int c = 0;
-	        for (final Entry<DLTensorId, DLKnimeOutputConsumerHelperStruct> entry : m_helpers.entrySet()) {
-	            final DLKnimeOutputConsumerHelperStruct helper = entry.getValue();
-				final DataCell[] temp = helper.m_temp;
-				// casting is fine here as we are already performing exact multiplication in the initialize method
-				final int o = (int) (r * helper.m_numOutputElements);
-				for (int i = 0; i < helper.m_numOutputElements; i++) {
-					m_temp[c + i] = temp[o + i];
-				}
-				c += helper.m_numOutputElements;
-			}
 			DataRow baseRow;
 			try {
 				baseRow = m_baseRows.get();
@@ -161,16 +175,14 @@ public void accept(final Map<DLTensorId, DLTensor<? extends DLReadableBuffer>> t
 				break;
 			}
 			try {
-				if (m_append) {
-					m_output.push(new AppendedColumnRow(baseRow, m_temp.clone()));
-				} else {
-					m_output.push(new DefaultRow(baseRow.getKey(), m_temp));
-				}
+				m_output.push(new DLOutputRow(baseRow.getKey(), m_append ? baseRow : null, batchCells,
+						m_numOutputElements, r));
 			} catch (final InterruptedException ex) {
 				Thread.currentThread().interrupt();
 				return;
 			}
 		}
+		m_metrics.stop(Phase.ROW_PUSH, pushStart);
 	}
 
 	@Override
@@ -186,6 +198,8 @@ private void initialize(final Map<DLTensorId, DLTensor<? extends DLReadableBuffe
 					"Batch size (" + batchSize + ") is larger than 2^31-1. This is currently not supported.");
 		}
 		long totalNumOutputElements = 0;
+		final int[] numOutputElements = new int[m_helpers.size()];
+		int h = 0;
         for (final Entry<DLTensorId, DLKnimeOutputConsumerHelperStruct> entry : m_helpers.entrySet()) {
             final DLKnimeOutputConsumerHelperStruct helper = entry.getValue();
             final DLTensorSpec tensorSpec = tensors.get(entry.getKey()).getSpec();
@@ -197,19 +211,19 @@ private void initialize(final Map<DLTensorId, DLTensor<? extends DLReadableBuffe
                         + "' is larger than 2^31-1. This is currently not supported.");
             }
 			try {
-				helper.m_temp = (DataCell[]) Array.newInstance(helper.m_factory.getDestType().getCellClass(),
-						Math.multiplyExact((int) batchSize, (int) helper.m_numOutputElements));
+				helper.m_batchCapacity = Math.multiplyExact((int) batchSize, (int) helper.m_numOutputElements);
 			} catch (final ArithmeticException e) {
                 throw new IllegalArgumentException("Number of output elements of output '" + tensorSpec.getName()
                     + "' times batch size is larger than 2^31-1. This is currently not supported.", e);
 			}
 			totalNumOutputElements += helper.m_numOutputElements;
+			numOutputElements[h++] = (int) helper.m_numOutputElements;
 		}
 		if (totalNumOutputElements > Integer.MAX_VALUE) {
 			throw new IllegalArgumentException("Number of output elements (" + totalNumOutputElements
 					+ ") is larger than 2^31-1. This is currently not supported.");
 		}
-		m_temp = new DataCell[(int) totalNumOutputElements];
+		m_numOutputElements = numOutputElements;
 	}
 
 	private static final class DLKnimeOutputConsumerHelperStruct {
@@ -220,6 +234,97 @@ private static final class DLKnimeOutputConsumerHelperStruct {
 
 		private long m_numOutputElements;
 
-		private DataCell[] m_temp;
+		private int m_batchCapacity;
+	}
+
+	/**
+	 * An output row whose cells are the cells of its base row (if any) followed by the cells that were converted from
+	 * the row's examples of the network outputs. The converted cells are read from the arrays of the row's batch, so no
+	 * array is allocated and no cells are copied per row.
+	 */
+	private static final class DLOutputRow implements DataRow {
+
+		private final RowKey m_key;
+
+		private final DataRow m_baseRow;
+
+		private final DataCell[][] m_batchCells;
+
+		private final int[] m_numOutputElements;
+
+		private final int m_rowInBatch;
+
+		private final int m_numBaseCells;
+
+		private final int m_numCells;
+
+		/**
+		 * @param baseRow the row whose cells precede the output cells, <code>null</code> if there are none
+		 * @param batchCells the cells of the batch per output
+		 * @param numOutputElements the number of cells of a row per output
+		 * @param rowInBatch the index of this row within the batch
+		 */
+		private DLOutputRow(final RowKey key, final DataRow baseRow, final DataCell[][] batchCells,
+				final int[] numOutputElements, final int rowInBatch) {
+			m_key = key;
+			m_baseRow = baseRow;
+			m_batchCells = batchCells;
+			m_numOutputElements = numOutputElements;
+			m_rowInBatch = rowInBatch;
+			m_numBaseCells = baseRow != null ? baseRow.getNumCells() : 0;
+			int numCells = m_numBaseCells;
+			for (final int n : numOutputElements) {
+				numCells += n;
+			}
+			m_numCells = numCells;
+		}
+
+		@Override
+		public int getNumCells() {
+			return m_numCells;
+		}
+
+		@Override
+		public RowKey getKey() {
+			return m_key;
+		}
+
+		@Override
+		public DataCell getCell(final int index) {
+			if (index < 0 || index >= m_numCells) {
+				throw new IndexOutOfBoundsException(
+						"Cell index " + index + " is out of bounds for a row with " + m_numCells + " cells.");
+			}
+			if (index < m_numBaseCells) {
+				return m_baseRow.getCell(index);
+			}
+			int i = index - m_numBaseCells;
+			int h = 0;
+			while (i >= m_numOutputElements[h]) {
+				i -= m_numOutputElements[h++];
+			}
+			return m_batchCells[h][m_rowInBatch * m_numOutputElements[h] + i];
+		}
+
+		@Override
+		public Iterator<DataCell> iterator() {
+			return new Iterator<DataCell>() {
+
+				private int m_index = 0;
+
+				@Override
+				public boolean hasNext() {
+					return m_index < m_numCells;
+				}
+
+				@Override
+				public DataCell next() {
+					if (!hasNext()) {
+						throw new NoSuchElementException();
+					}
+					return getCell(m_index++);
+				}
+			};
+		}
 	}
 }
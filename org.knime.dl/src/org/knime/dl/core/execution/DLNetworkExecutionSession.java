@@ -60,4 +60,43 @@
 public interface DLNetworkExecutionSession extends DLNetworkSession {
 
 	void run(DLExecutionMonitor monitor) throws DLCanceledExecutionException, Exception;
+
+	/**
+	 * Enables or disables pipelined execution. In pipelined mode, the next input batch is prepared and the previous
+	 * output batch is consumed while the current batch is being executed. The session's input preparer and output
+	 * consumer are then called from different threads, each from a single one. Sessions that do not support pipelined
+	 * execution ignore this setting.
+	 * <P>
+	 * Must be called before {@link #run(DLExecutionMonitor)}.
+	 *
+	 * @param pipelined <code>true</code> to enable pipelined execution
+	 */
+	default void setPipelined(final boolean pipelined) {
+		// no op
+	}
+
+	/**
+	 * Limits the number of threads the back end may use to execute the network. Sessions that do not support this
+	 * setting ignore it.
+	 * <P>
+	 * Must be called before {@link #run(DLExecutionMonitor)}.
+	 *
+	 * @param numThreads the maximum number of threads, <code>0</code> to let the back end decide
+	 */
+	default void setNumThreads(final int numThreads) {
+		// no op
+	}
+
+	/**
+	 * Sets the precision at which floating point tensors are transferred to and from the back end. The rounding
+	 * errors this introduces are reported via {@link DLExecutionStatus#reportTransportError(double)}. Sessions that
+	 * do not support reduced precisions ignore this setting.
+	 * <P>
+	 * Must be called before {@link #run(DLExecutionMonitor)}.
+	 *
+	 * @param precision the transport precision
+	 */
+	default void setTransportPrecision(final DLTransportPrecision precision) {
+		// no op
+	}
 }
@@ -0,0 +1,520 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ *
+ */
+package org.knime.dl.core.execution;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.OptionalDouble;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.knime.core.data.DataRow;
+import org.knime.core.data.DataTableSpec;
+import org.knime.core.util.ThreadUtils;
+import org.knime.dl.core.DLAbstractRowIterator;
+import org.knime.dl.core.DLCanceledExecutionException;
+import org.knime.dl.core.DLInvalidNetworkInputException;
+import org.knime.dl.core.DLInvalidNetworkOutputException;
+import org.knime.dl.core.DLNetworkInputPreparer;
+import org.knime.dl.core.DLRowIterator;
+import org.knime.dl.core.DLSessionMetrics;
+import org.knime.dl.core.DLSessionMonitor;
+import org.knime.dl.core.DLTensor;
+import org.knime.dl.core.DLTensorId;
+import org.knime.dl.core.data.DLReadableBuffer;
+import org.knime.dl.core.data.DLWritableBuffer;
+import org.knime.dl.core.data.convert.DLDataValueToTensorConverterFactory;
+
+/**
+ * Executes a network in multiple {@link DLNetworkExecutionSession sessions} in parallel, e.g. to distribute the
+ * execution among several back end processes that each hold their own copy of the network.
+ * <P>
+ * Each session is fed by the input preparer and output consumer of one {@link Worker worker}. The workers claim
+ * batches of input rows from a shared row iterator. The outputs of the batches are handed to a shared output consumer
+ * one at a time and in the order in which the batches were claimed, i.e. in the order of the input rows. The
+ * {@link #getBaseRows() base rows} are therefore valid for the shared output consumer just like the ones of a
+ * {@link DLKnimeNetworkExecutionInputPreparer}.
+ */
+public final class DLParallelNetworkExecution {
+
+	private static final long WAIT_INTERVAL = 100; // in ms
+
+	private static final AtomicInteger THREAD_COUNTER = new AtomicInteger();
+
+	private final DLRowIterator m_iterator;
+
+	private final DataTableSpec m_tableSpec;
+
+	private final Map<DLTensorId, int[]> m_columns;
+
+	private final int m_batchSize;
+
+	private final boolean m_isPredefinedBatchSize;
+
+	private final Map<DLTensorId, DLDataValueToTensorConverterFactory<?, ?>> m_converters;
+
+	private final List<Worker> m_workers;
+
+	/**
+	 * The rows of all claimed batches whose output was not yet consumed, in the order of the batches.
+	 */
+	private final Queue<DataRow> m_baseRows = new ConcurrentLinkedQueue<>();
+
+	/**
+	 * Guards {@link #m_outputConsumer}, {@link #m_status} and {@link #m_numConsumedBatches}.
+	 */
+	private final Object m_outputLock = new Object();
+
+	private DLNetworkOutputConsumer m_outputConsumer;
+
+	private DLExecutionStatus m_status;
+
+	private long m_numConsumedBatches = 0;
+
+	/**
+	 * Guarded by <code>this</code>.
+	 */
+	private long m_numClaimedBatches = 0;
+
+	private volatile boolean m_aborted = false;
+
+	/**
+	 * @param iterator provides the input data rows that are shared by all workers
+	 * @param tableSpec the spec of the table the iterator runs over
+	 * @param columns the column indices of each network input
+	 * @param batchSize the batch size of the tensors that will be prepared by the workers
+	 * @param isPredefinedBatchSize see {@link DLKnimeNetworkExecutionInputPreparer}
+	 * @param converters the converters that are used to write the data rows into the tensors
+	 * @param numWorkers the number of workers, must be positive
+	 */
+	public DLParallelNetworkExecution(final DLRowIterator iterator, final DataTableSpec tableSpec,
+			final Map<DLTensorId, int[]> columns, final int batchSize, final boolean isPredefinedBatchSize,
+			final Map<DLTensorId, DLDataValueToTensorConverterFactory<?, ?>> converters, final int numWorkers) {
+		checkArgument(numWorkers > 0, "Number of workers must be positive.");
+		m_iterator = checkNotNull(iterator);
+		m_tableSpec = checkNotNull(tableSpec);
+		m_columns = checkNotNull(columns);
+		m_batchSize = batchSize;
+		m_isPredefinedBatchSize = isPredefinedBatchSize;
+		m_converters = checkNotNull(converters);
+		final List<Worker> workers = new ArrayList<>(numWorkers);
+		for (int i = 0; i < numWorkers; i++) {
+			workers.add(new Worker());
+		}
+		m_workers = Collections.unmodifiableList(workers);
+	}
+
+	/**
+	 * @return the workers, one per session that is passed to {@link #run(List, DLNetworkOutputConsumer,
+	 *         DLExecutionMonitor)}
+	 */
+	public List<Worker> getWorkers() {
+		return m_workers;
+	}
+
+	/**
+	 * Returns the rows that were used to prepare the tensors, in the order of the input rows. They are expected to be
+	 * removed by the shared output consumer. The queue can safely be accessed from different threads.
+	 *
+	 * @return the base rows
+	 */
+	public Queue<DataRow> getBaseRows() {
+		return m_baseRows;
+	}
+
+	/**
+	 * Runs the given sessions in parallel and blocks until all of them are done. If one session fails or execution is
+	 * canceled, all other sessions are aborted.
+	 *
+	 * @param sessions the sessions, the i-th session must have been created using the input preparer and output
+	 *            consumer of the i-th {@link #getWorkers() worker}
+	 * @param outputConsumer the shared output consumer
+	 * @param monitor the monitor of the execution. Its execution status is notified about each consumed batch.
+	 * @throws DLCanceledExecutionException if execution was canceled
+	 * @throws Exception the failure of the first session that failed
+	 */
+	public void run(final List<? extends DLNetworkExecutionSession> sessions,
+			final DLNetworkOutputConsumer outputConsumer, final DLExecutionMonitor monitor)
+			throws DLCanceledExecutionException, Exception {
+		checkArgument(sessions.size() == m_workers.size(), "Number of sessions must match number of workers.");
+		synchronized (m_outputLock) {
+			m_outputConsumer = checkNotNull(outputConsumer);
+			m_status = monitor.getExecutionStatus();
+		}
+		for (final Worker worker : m_workers) {
+			worker.m_inputPreparer.m_delegate.setMetrics(m_status.getMetrics());
+		}
+		final ExecutorService executor = Executors.newFixedThreadPool(sessions.size(), r -> {
+			final Thread t = new Thread(r, "KNIME-DL-Parallel-Execution-" + THREAD_COUNTER.incrementAndGet());
+			t.setDaemon(true);
+			return t;
+		});
+		try {
+			final List<Future<Void>> futures = new ArrayList<>(sessions.size());
+			for (final DLNetworkExecutionSession session : sessions) {
+				final DLWorkerExecutionMonitor workerMonitor = new DLWorkerExecutionMonitor(monitor);
+				futures.add(executor.submit(ThreadUtils.callableWithContext(() -> {
+					session.run(workerMonitor);
+					return null;
+				})));
+			}
+			boolean done = false;
+			while (!done) {
+				done = true;
+				for (final Future<Void> future : futures) {
+					if (future.isDone()) {
+						getResult(future);
+					} else {
+						done = false;
+					}
+				}
+				if (!done) {
+					monitor.checkCanceled();
+					Thread.sleep(WAIT_INTERVAL);
+				}
+			}
+		} catch (final Exception e) {
+			m_aborted = true;
+			throw e;
+		} finally {
+			executor.shutdownNow();
+			try {
+				// Do not let the workers outlive this method, their sessions are closed by the caller.
+				executor.awaitTermination(1, TimeUnit.MINUTES);
+			} catch (final InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	private static void getResult(final Future<?> future) throws Exception {
+		try {
+			future.get();
+		} catch (final ExecutionException e) {
+			final Throwable cause = e.getCause();
+			if (cause instanceof Exception) {
+				throw (Exception) cause;
+			} else if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw e;
+		}
+	}
+
+	/**
+	 * Moves the rows of the next batch into the given collection.
+	 *
+	 * @return the index of the claimed batch, <code>-1</code> if there are no more rows
+	 */
+	private synchronized long claim(final Collection<DataRow> rows) {
+		if (m_aborted || !m_iterator.hasNext()) {
+			return -1;
+		}
+		for (int i = 0; i < m_batchSize && m_iterator.hasNext(); i++) {
+			final DataRow row = m_iterator.next();
+			rows.add(row);
+			m_baseRows.add(row);
+		}
+		return m_numClaimedBatches++;
+	}
+
+	private void accept(final long batch, final Map<DLTensorId, DLTensor<? extends DLReadableBuffer>> output)
+			throws DLCanceledExecutionException, DLInvalidNetworkOutputException {
+		synchronized (m_outputLock) {
+			while (batch != m_numConsumedBatches) {
+				if (m_aborted) {
+					throw new DLCanceledExecutionException("Parallel execution was aborted.");
+				}
+				try {
+					m_outputLock.wait(WAIT_INTERVAL);
+				} catch (final InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new DLCanceledExecutionException("Parallel execution was interrupted.");
+				}
+			}
+			m_outputConsumer.accept(output);
+			m_numConsumedBatches++;
+			m_outputLock.notifyAll();
+			m_status.batchEnded().raise(null);
+		}
+	}
+
+	/**
+	 * Provides the input preparer and output consumer of one of the sessions of a parallel execution.
+	 */
+	public final class Worker {
+
+		/**
+		 * The indices of the batches that were claimed by the input preparer but whose output was not yet consumed.
+		 * Accessed by different threads in pipelined execution.
+		 */
+		private final Queue<Long> m_claimedBatches = new ConcurrentLinkedQueue<>();
+
+		private final DLWorkerInputPreparer m_inputPreparer = new DLWorkerInputPreparer(m_claimedBatches);
+
+		private final DLWorkerOutputConsumer m_outputConsumer = new DLWorkerOutputConsumer(m_claimedBatches);
+
+		private Worker() {
+		}
+
+		/**
+		 * @return the input preparer of this worker's session
+		 */
+		public DLNetworkInputPreparer getInputPreparer() {
+			return m_inputPreparer;
+		}
+
+		/**
+		 * @return the output consumer of this worker's session
+		 */
+		public DLNetworkOutputConsumer getOutputConsumer() {
+			return m_outputConsumer;
+		}
+	}
+
+	private final class DLWorkerInputPreparer implements DLNetworkInputPreparer {
+
+		private final Queue<Long> m_claimedBatches;
+
+		private final DLBatchRowIterator m_rows;
+
+		private final DLKnimeNetworkExecutionInputPreparer m_delegate;
+
+		private DLWorkerInputPreparer(final Queue<Long> claimedBatches) {
+			m_claimedBatches = claimedBatches;
+			m_rows = new DLBatchRowIterator(m_tableSpec, m_columns);
+			m_delegate = new DLKnimeNetworkExecutionInputPreparer(m_rows, m_batchSize, m_isPredefinedBatchSize,
+					m_converters);
+		}
+
+		@Override
+		public boolean hasNext() {
+			if (m_rows.hasNext()) {
+				return true;
+			}
+			final long batch = claim(m_rows.m_rows);
+			if (batch == -1) {
+				return false;
+			}
+			m_claimedBatches.add(batch);
+			return true;
+		}
+
+		@Override
+		public void prepareNext(final Map<DLTensorId, DLTensor<? extends DLWritableBuffer>> input)
+				throws DLCanceledExecutionException, DLInvalidNetworkInputException {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			m_delegate.prepareNext(input);
+			// base rows are tracked globally
+			m_delegate.getBaseRows().clear();
+		}
+
+		@Override
+		public void close() throws Exception {
+			m_delegate.close();
+		}
+	}
+
+	private final class DLWorkerOutputConsumer implements DLNetworkOutputConsumer {
+
+		private final Queue<Long> m_claimedBatches;
+
+		private DLWorkerOutputConsumer(final Queue<Long> claimedBatches) {
+			m_claimedBatches = claimedBatches;
+		}
+
+		@Override
+		public void accept(final Map<DLTensorId, DLTensor<? extends DLReadableBuffer>> output)
+				throws DLCanceledExecutionException, DLInvalidNetworkOutputException {
+			final Long batch = m_claimedBatches.poll();
+			if (batch == null) {
+				throw new IllegalStateException("Received network output without prior input.");
+			}
+			DLParallelNetworkExecution.this.accept(batch, output);
+		}
+
+		@Override
+		public void close() throws Exception {
+			// no op, the shared output consumer is closed by its owner
+		}
+	}
+
+	/**
+	 * Iterates over the rows of the batch that was claimed last by a worker.
+	 */
+	private static final class DLBatchRowIterator extends DLAbstractRowIterator {
+
+		private final Deque<DataRow> m_rows = new ArrayDeque<>();
+
+		private DLBatchRowIterator(final DataTableSpec tableSpec, final Map<DLTensorId, int[]> columns) {
+			super(tableSpec, columns);
+		}
+
+		@Override
+		public long size() {
+			throw new UnsupportedOperationException("Iterator has no size information about its underlying data.");
+		}
+
+		@Override
+		public boolean hasNext() {
+			return !m_rows.isEmpty();
+		}
+
+		@Override
+		public DataRow peek() {
+			return m_rows.element();
+		}
+
+		@Override
+		public DataRow next() {
+			return m_rows.remove();
+		}
+
+		@Override
+		public void reset() {
+			throw new UnsupportedOperationException("Cannot reset an iterator over a single batch.");
+		}
+
+		@Override
+		public void close() {
+			m_rows.clear();
+		}
+	}
+
+	/**
+	 * Forwards to the monitor of the parallel execution but hides its execution status from the session as batches are
+	 * reported in order by {@link DLParallelNetworkExecution#accept(long, Map)}. The metrics of the hidden status are
+	 * those of the parallel execution's status, so all workers record into the same metrics. Also reports cancellation
+	 * if the parallel execution was aborted.
+	 */
+	private final class DLWorkerExecutionMonitor implements DLExecutionMonitor {
+
+		private final DLExecutionMonitor m_delegate;
+
+		private final DLExecutionStatus m_workerStatus = new DLDefaultExecutionStatus() {
+
+			@Override
+			public DLSessionMetrics getMetrics() {
+				return m_delegate.getExecutionStatus().getMetrics();
+			}
+		};
+
+		private DLWorkerExecutionMonitor(final DLExecutionMonitor delegate) {
+			m_delegate = delegate;
+		}
+
+		@Override
+		public DLExecutionStatus getExecutionStatus() {
+			return m_workerStatus;
+		}
+
+		@Override
+		public void checkCanceled() throws DLCanceledExecutionException {
+			m_delegate.checkCanceled();
+			if (m_aborted) {
+				throw new DLCanceledExecutionException("Parallel execution was aborted.");
+			}
+		}
+
+		@Override
+		public OptionalDouble getProgress() {
+			return m_delegate.getProgress();
+		}
+
+		@Override
+		public void setProgress(final double progress) {
+			m_delegate.setProgress(progress);
+		}
+
+		@Override
+		public void setProgress(final double progress, final String message) {
+			m_delegate.setProgress(progress, message);
+		}
+
+		@Override
+		public String getMessage() {
+			return m_delegate.getMessage();
+		}
+
+		@Override
+		public void setMessage(final String message) {
+			m_delegate.setMessage(message);
+		}
+
+		@Override
+		public void cancel() {
+			m_delegate.cancel();
+		}
+
+		@Override
+		public void reset() {
+			m_delegate.reset();
+		}
+
+		@Override
+		public DLSessionMonitor createSubMonitor(final double fraction) {
+			return m_delegate.createSubMonitor(fraction);
+		}
+	}
+}
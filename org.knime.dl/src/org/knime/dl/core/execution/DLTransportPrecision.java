@@ -0,0 +1,187 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ *
+ */
+package org.knime.dl.core.execution;
+
+/**
+ * The floating point precision at which tensors are transferred between KNIME and a deep learning back end that runs
+ * in a separate process. Reduced precisions halve (float32) respectively quarter (float64) the number of transferred
+ * bytes at the cost of rounding errors. They do not affect the precision at which the network itself is executed.
+ */
+public enum DLTransportPrecision {
+
+	/**
+	 * Tensors are transferred at the precision of their element type.
+	 */
+	FULL("Full"),
+
+	/**
+	 * IEEE 754 half precision: 10 bit mantissa, 5 bit exponent. More precise than {@link #BFLOAT16} but values beyond
+	 * +-65504 overflow to infinity.
+	 */
+	FLOAT16("float16"),
+
+	/**
+	 * The upper half of an IEEE 754 single precision number: 7 bit mantissa, 8 bit exponent. Less precise than
+	 * {@link #FLOAT16} but covers the full range of float32.
+	 */
+	BFLOAT16("bfloat16");
+
+	private final String m_label;
+
+	DLTransportPrecision(final String label) {
+		m_label = label;
+	}
+
+	/**
+	 * @return the label of this precision as displayed in node dialogs and stored in node settings
+	 */
+	public String getLabel() {
+		return m_label;
+	}
+
+	/**
+	 * @return <code>true</code> if floating point tensors are transferred at 16 bit
+	 */
+	public boolean isReduced() {
+		return this != FULL;
+	}
+
+	/**
+	 * Rounds the given value to the nearest value of this precision (ties to even).
+	 *
+	 * @param value the value
+	 * @return the bits of the rounded value
+	 * @throws UnsupportedOperationException if this precision is {@link #FULL}
+	 */
+	public short encode(final float value) {
+		final int bits = Float.floatToRawIntBits(value);
+		switch (this) {
+		case FLOAT16:
+			return floatToHalf(bits);
+		case BFLOAT16:
+			if ((bits & 0x7FFFFFFF) > 0x7F800000) {
+				// NaN, keep it quiet
+				return (short) (bits >>> 16 | 0x0040);
+			}
+			return (short) ((bits + 0x7FFF + (bits >>> 16 & 1)) >>> 16);
+		default:
+			throw new UnsupportedOperationException("Full precision values are not encoded.");
+		}
+	}
+
+	/**
+	 * @param bits the bits of a value of this precision as returned by {@link #encode(float)}
+	 * @return the value
+	 * @throws UnsupportedOperationException if this precision is {@link #FULL}
+	 */
+	public float decode(final short bits) {
+		switch (this) {
+		case FLOAT16:
+			return halfToFloat(bits);
+		case BFLOAT16:
+			return Float.intBitsToFloat(bits << 16);
+		default:
+			throw new UnsupportedOperationException("Full precision values are not encoded.");
+		}
+	}
+
+	/**
+	 * @param label the label of a precision, see {@link #getLabel()}
+	 * @return the precision
+	 * @throws IllegalArgumentException if there is no precision with the given label
+	 */
+	public static DLTransportPrecision fromLabel(final String label) {
+		for (final DLTransportPrecision precision : values()) {
+			if (precision.m_label.equals(label)) {
+				return precision;
+			}
+		}
+		throw new IllegalArgumentException("Unknown transport precision: '" + label + "'.");
+	}
+
+	private static short floatToHalf(final int bits) {
+		final int sign = bits >>> 16 & 0x8000;
+		final int abs = bits & 0x7FFFFFFF;
+		if (abs >= 0x7F800000) {
+			// infinity or NaN
+			return (short) (sign | 0x7C00 | (abs > 0x7F800000 ? 0x0200 : 0));
+		}
+		if (abs >= 0x477FF000) {
+			// rounds to a magnitude beyond 65504
+			return (short) (sign | 0x7C00);
+		}
+		if (abs < 0x38800000) {
+			// subnormal half or zero: shift the mantissa (including its implicit bit) into place
+			final int exponent = abs >>> 23;
+			if (exponent < 102) {
+				return (short) sign;
+			}
+			final int mantissa = abs & 0x007FFFFF | 0x00800000;
+			final int shift = 126 - exponent;
+			final int rounded = mantissa + (1 << shift - 1) - 1 + (mantissa >>> shift & 1);
+			return (short) (sign | rounded >>> shift);
+		}
+		// normal: rebias the exponent and round away the lower 13 mantissa bits, carries propagate into the exponent
+		final int rebiased = abs - 0x38000000;
+		return (short) (sign | rebiased + 0x0FFF + (rebiased >>> 13 & 1) >>> 13);
+	}
+
+	private static float halfToFloat(final short bits) {
+		final int sign = (bits & 0x8000) << 16;
+		final int exponent = bits >>> 10 & 0x1F;
+		final int mantissa = bits & 0x03FF;
+		if (exponent == 0x1F) {
+			return Float.intBitsToFloat(sign | 0x7F800000 | mantissa << 13);
+		}
+		if (exponent == 0) {
+			// zero or subnormal, i.e. mantissa * 2^-24
+			final float value = mantissa * 0x1p-24f;
+			return sign == 0 ? value : -value;
+		}
+		return Float.intBitsToFloat(sign | exponent + 112 << 23 | mantissa << 13);
+	}
+}
@@ -59,6 +59,7 @@
 import org.knime.dl.core.DLFixedTensorShape;
 import org.knime.dl.core.DLInvalidNetworkInputException;
 import org.knime.dl.core.DLNetwork;
+import org.knime.dl.core.DLNetworkBucketedInputPreparer;
 import org.knime.dl.core.DLNetworkFixedSizeInputPreparer;
 import org.knime.dl.core.DLNetworkInputProvider;
 import org.knime.dl.core.DLTensor;
@@ -155,6 +156,20 @@ private static boolean doExecInputsSpecsMatchConfig(final DLTrainingConfig train
 	 */
 	protected Map<DLTensorId, DLTensor<? extends DLWritableBuffer>> m_validationInput;
 
+	/**
+	 * The training input/target tensors of each bucket if the training data preparer is a
+	 * {@link DLNetworkBucketedInputPreparer}. Populated lazily.
+	 */
+	private final Map<Integer, Map<DLTensorId, DLTensor<? extends DLWritableBuffer>>> m_bucketedTrainingInputs =
+		new HashMap<>();
+
+	/**
+	 * The validation input/target tensors of each bucket if the validation data preparer is a
+	 * {@link DLNetworkBucketedInputPreparer}. Populated lazily.
+	 */
+	private final Map<Integer, Map<DLTensorId, DLTensor<? extends DLWritableBuffer>>> m_bucketedValidationInputs =
+		new HashMap<>();
+
 	/**
 	 * @param network the network to train
 	 * @param trainingConfig the training configuration that specifies how the network will be trained
@@ -190,6 +205,10 @@ public long getNumBatches() {
 			@Override
 			public Map<DLTensorId, DLTensor<? extends DLWritableBuffer>> get(final long batchIndex)
 					throws DLCanceledExecutionException, DLInvalidNetworkInputException {
+				if (trainingInputPreparer instanceof DLNetworkBucketedInputPreparer) {
+					return prepareBucketed((DLNetworkBucketedInputPreparer) trainingInputPreparer, batchIndex,
+							m_bucketedTrainingInputs);
+				}
 				trainingInputPreparer.prepare(m_trainingInput, batchIndex);
 				return m_trainingInput;
 			}
@@ -210,6 +229,10 @@ public long getNumBatches() {
 			@Override
 			public Map<DLTensorId, DLTensor<? extends DLWritableBuffer>> get(final long batchIndex)
 					throws DLCanceledExecutionException, DLInvalidNetworkInputException {
+				if (validationInputPreparer instanceof DLNetworkBucketedInputPreparer) {
+					return prepareBucketed((DLNetworkBucketedInputPreparer) validationInputPreparer, batchIndex,
+							m_bucketedValidationInputs);
+				}
 				validationInputPreparer.prepare(m_validationInput, batchIndex);
 				return m_validationInput;
 			}
@@ -282,5 +305,28 @@ public void close() throws Exception {
 		if (m_validationInput != null) {
 			m_validationInput.values().forEach(DLTensor::close);
 		}
+		m_bucketedTrainingInputs.values().forEach(i -> i.values().forEach(DLTensor::close));
+		m_bucketedValidationInputs.values().forEach(i -> i.values().forEach(DLTensor::close));
+	}
+
+	/**
+	 * Prepares the given batch in the tensors of its bucket. The tensors of a bucket are created on first use.
+	 */
+	private Map<DLTensorId, DLTensor<? extends DLWritableBuffer>> prepareBucketed(
+			final DLNetworkBucketedInputPreparer preparer, final long batchIndex,
+			final Map<Integer, Map<DLTensorId, DLTensor<? extends DLWritableBuffer>>> bucketedInputs)
+			throws DLCanceledExecutionException, DLInvalidNetworkInputException {
+		final int bucket = preparer.getBucket(batchIndex);
+		Map<DLTensorId, DLTensor<? extends DLWritableBuffer>> input = bucketedInputs.get(bucket);
+		if (input == null) {
+			final Set<DLTensorSpec> specs = preparer.getExecutionSpecs(bucket);
+			input = new HashMap<>(specs.size());
+			for (final DLTensorSpec spec : specs) {
+				input.put(spec.getIdentifier(), m_tensorFactory.createWritableTensor(spec));
+			}
+			bucketedInputs.put(bucket, input);
+		}
+		preparer.prepare(input, batchIndex);
+		return input;
 	}
 }
@@ -56,6 +56,7 @@
 
 import org.knime.dl.core.DLDefaultEvent;
 import org.knime.dl.core.DLEvent;
+import org.knime.dl.core.DLSessionMetrics;
 
 /**
  * @author Marcel Wiedenmann, KNIME GmbH, Konstanz, Germany
@@ -93,6 +94,8 @@ public abstract class DLAbstractTrainingStatus implements DLTrainingStatus {
 
 	private final DLEvent<Map<String, DLReportedMetric>> m_validationEnded = new DLDefaultEvent<>();
 
+	private final DLSessionMetrics m_metrics = new DLSessionMetrics();
+
 	/**
 	 * @param numEpochs must be greater than zero
 	 * @param numBatchesPerEpoch must be greater than zero
@@ -168,6 +171,11 @@ public int getCurrentBatchInEpoch() {
 
 	// callbacks:
 
+	@Override
+	public DLSessionMetrics getMetrics() {
+		return m_metrics;
+	}
+
 	@Override
 	public DLEvent<Void> trainingStarted() {
 		return m_trainingStarted;
@@ -0,0 +1,227 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ *
+ */
+package org.knime.dl.core.training;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import org.knime.core.data.DataRow;
+import org.knime.dl.core.DLCanceledExecutionException;
+import org.knime.dl.core.DLInvalidNetworkInputException;
+import org.knime.dl.core.DLLengthBucketing;
+import org.knime.dl.core.DLMissingExtensionException;
+import org.knime.dl.core.DLNetworkBucketedInputPreparer;
+import org.knime.dl.core.DLRowIterator;
+import org.knime.dl.core.DLTensor;
+import org.knime.dl.core.DLTensorFactory;
+import org.knime.dl.core.DLTensorId;
+import org.knime.dl.core.DLTensorSpec;
+import org.knime.dl.core.data.DLWritableBuffer;
+import org.knime.dl.core.data.convert.DLDataValueToTensorConverterFactory;
+
+/**
+ * Prepares training or validation batches whose rows are grouped into length buckets, see {@link DLLengthBucketing}.
+ * Each batch consists of rows of a single bucket, the examples are zero-padded to the longest example of the bucket.
+ * <P>
+ * Each epoch (i.e. a request of the batch with index <code>0</code>) starts at the beginning of the data. Rows are
+ * distributed to their buckets in the order of the iterator and a batch is complete as soon as its bucket holds enough
+ * rows. The incomplete batches that remain at the end of the data are filled up by repeating rows of the respective
+ * bucket.
+ */
+public final class DLKnimeNetworkBucketedInputPreparer extends DLAbstractKnimeNetworkFixedSizeInputPreparer
+	implements DLNetworkBucketedInputPreparer {
+
+	private final DLLengthBucketing m_bucketing;
+
+	private final Map<Integer, Set<DLTensorSpec>> m_executionSpecs;
+
+	private final long m_numBatches;
+
+	private final List<List<DataRow>> m_pendingRows;
+
+	private final List<DataRow> m_batch;
+
+	private long m_batchIndex = -1;
+
+	private int m_bucket = -1;
+
+	/**
+	 * @param iterator provides the input data rows that are used by this instance to prepare (fill) the network tensors
+	 *            fed to {@link #prepare(Map, long)}. The iterator must know its size and must be resettable. It must be
+	 *            in a proper initial state (i.e. reset).
+	 * @param batchSize the batch size of the tensors that will be prepared by this instance
+	 * @param converters the converters that are used to write the data rows into the tensors. The given tensor ids
+	 *            determine the set of tensors supported by {@link #prepare(Map, long)}.
+	 * @param bucketing the length bucketing, all rows of the iterator must already be assigned to it (see
+	 *            {@link DLLengthBucketing#assignAll(DLRowIterator)})
+	 * @param tensorFactory the tensor factory that is used to create the execution specs of the buckets
+	 * @param columns the column indices of each tensor
+	 * @throws DLMissingExtensionException if creating the execution specs of a bucket failed
+	 */
+	public DLKnimeNetworkBucketedInputPreparer(final DLRowIterator iterator, final int batchSize,
+			final Map<DLTensorId, DLDataValueToTensorConverterFactory<?, ?>> converters,
+			final DLLengthBucketing bucketing, final DLTensorFactory tensorFactory,
+			final Map<DLTensorId, int[]> columns) throws DLMissingExtensionException {
+		super(iterator, batchSize, converters);
+		checkArgument(iterator.size() > 0, "Bucketed input data must not be empty.");
+		m_bucketing = checkNotNull(bucketing);
+		m_executionSpecs = new HashMap<>(m_bucketing.getNumBuckets());
+		m_pendingRows = new ArrayList<>(m_bucketing.getNumBuckets());
+		for (int bucket = 0; bucket < m_bucketing.getNumBuckets(); bucket++) {
+			if (m_bucketing.getNumRows(bucket) > 0) {
+				m_executionSpecs.put(bucket,
+						m_bucketing.createExecutionSpecs(bucket, tensorFactory, batchSize, columns));
+			}
+			m_pendingRows.add(new ArrayList<>(batchSize));
+		}
+		m_numBatches = m_bucketing.getNumBatches(batchSize);
+		m_batch = new ArrayList<>(batchSize);
+		setPadExamples(true);
+	}
+
+	@Override
+	public long getNumBatches() {
+		return m_numBatches;
+	}
+
+	@Override
+	public int getBucket(final long batchIndex) throws DLCanceledExecutionException {
+		if (batchIndex != m_batchIndex) {
+			if (batchIndex == 0) {
+				m_iterator.reset();
+				m_pendingRows.forEach(List::clear);
+			}
+			m_bucket = collectNextBatch();
+			m_batchIndex = batchIndex;
+		}
+		return m_bucket;
+	}
+
+	@Override
+	public Set<DLTensorSpec> getExecutionSpecs(final int bucket) {
+		final Set<DLTensorSpec> specs = m_executionSpecs.get(bucket);
+		checkArgument(specs != null, "Bucket %s is empty.", bucket);
+		return specs;
+	}
+
+	@Override
+	public Set<DLTensorSpec> getAnyExecutionSpecs() {
+		// there is at least one bucket as the data is not empty
+		return m_executionSpecs.values().iterator().next();
+	}
+
+	@Override
+	public void prepare(final Map<DLTensorId, DLTensor<? extends DLWritableBuffer>> input, final long batchIndex)
+			throws DLCanceledExecutionException, DLInvalidNetworkInputException {
+		getBucket(batchIndex);
+		for (final DataRow row : m_batch) {
+			try {
+				writeDataValuesInTensors(m_iterator.groupByTensor(row), input);
+			} catch (final DLBufferOverflowExceptionForTensor ex) {
+				throw new DLInvalidNetworkInputException("Row '" + row.getKey() + "' exceeds the expected size of "
+						+ "network input/target '" + ex.getTensor().getSpec().getName() + "' of its length bucket. "
+						+ "Please check the column selection for this input/target and validate the node's data.", ex);
+			}
+		}
+		recordBatchMetrics();
+		// check if tensors were filled correctly
+		for (final Entry<DLTensorId, DLTensor<? extends DLWritableBuffer>> entry : input.entrySet()) {
+			final DLTensor<? extends DLWritableBuffer> tensor = entry.getValue();
+			if (tensor.getBuffer().size() != tensor.getExampleSize() * m_batchSize) {
+				throw new DLInvalidNetworkInputException("Node data size for network input/target '"
+						+ tensor.getSpec().getName() + "' does not match the expected size of its length bucket. "
+						+ "Please check the column selection for this input/target and validate the node's data.");
+			}
+		}
+	}
+
+	/**
+	 * Moves the rows of the next complete batch into {@link #m_batch}.
+	 *
+	 * @return the bucket of the batch
+	 */
+	private int collectNextBatch() {
+		m_batch.clear();
+		while (m_iterator.hasNext()) {
+			final DataRow row = nextRow();
+			final int bucket = m_bucketing.getBucket(m_iterator.groupByTensor(row));
+			final List<DataRow> rows = m_pendingRows.get(bucket);
+			rows.add(row);
+			if (rows.size() == m_batchSize) {
+				m_batch.addAll(rows);
+				rows.clear();
+				return bucket;
+			}
+		}
+		// end of data, fill up the remaining incomplete batches with rows of the same bucket
+		for (int bucket = 0; bucket < m_pendingRows.size(); bucket++) {
+			final List<DataRow> rows = m_pendingRows.get(bucket);
+			if (!rows.isEmpty()) {
+				for (int i = 0; i < m_batchSize; i++) {
+					m_batch.add(rows.get(i % rows.size()));
+				}
+				rows.clear();
+				return bucket;
+			}
+		}
+		throw new IllegalStateException("Requested more batches than available (" + m_numBatches + ").");
+	}
+
+	@Override
+	public void close() throws Exception {
+		super.close();
+		m_batch.clear();
+		m_pendingRows.forEach(List::clear);
+	}
+}
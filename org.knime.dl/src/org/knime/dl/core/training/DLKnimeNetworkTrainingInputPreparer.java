@@ -104,7 +104,7 @@ public void prepare(final Map<DLTensorId, DLTensor<? extends DLWritableBuffer>>
 				// continue at the beginning of the table to fill up incomplete batch
 				m_iterator.reset();
 			}
-			final DataRow row = m_iterator.next();
+			final DataRow row = nextRow();
 			try {
 				writeDataValuesInTensors(m_iterator.groupByTensor(row), input);
 			} catch (final DLBufferOverflowExceptionForTensor ex) {
@@ -122,6 +122,7 @@ public void prepare(final Map<DLTensorId, DLTensor<? extends DLWritableBuffer>>
 						ex);
 			}
 		}
+		recordBatchMetrics();
 		// check if tensors were filled correctly
 		for (final Entry<DLTensorId, DLTensor<? extends DLWritableBuffer>> entry : input.entrySet()) {
 			final DLTensor<? extends DLWritableBuffer> tensor = entry.getValue();
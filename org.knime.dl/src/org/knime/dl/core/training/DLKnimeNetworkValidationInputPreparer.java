@@ -106,7 +106,7 @@ public void prepare(final Map<DLTensorId, DLTensor<? extends DLWritableBuffer>>
 				m_iterator.reset();
 				reset = true;
 			}
-			final DataRow row = m_iterator.next();
+			final DataRow row = nextRow();
 			try {
 				writeDataValuesInTensors(m_iterator.groupByTensor(row), input);
 			} catch (final DLBufferOverflowExceptionForTensor ex) {
@@ -129,6 +129,7 @@ public void prepare(final Map<DLTensorId, DLTensor<? extends DLWritableBuffer>>
 			// batches.
 			m_iterator.reset();
 		}
+		recordBatchMetrics();
 		// check if tensors were filled correctly
 		for (final Entry<DLTensorId, DLTensor<? extends DLWritableBuffer>> entry : input.entrySet()) {
 			final DLTensor<? extends DLWritableBuffer> tensor = entry.getValue();
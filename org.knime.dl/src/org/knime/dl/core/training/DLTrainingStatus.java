@@ -54,6 +54,7 @@
 import java.util.Map;
 
 import org.knime.dl.core.DLEvent;
+import org.knime.dl.core.DLSessionMetrics;
 
 /**
  * @author Marcel Wiedenmann, KNIME GmbH, Konstanz, Germany
@@ -91,6 +92,16 @@ public enum Status {
 	 */
 	int getCurrentBatchInEpoch();
 
+	/**
+	 * The metrics are not persisted.
+	 *
+	 * @return the metrics into which the session records the time of its phases, the transferred bytes and the
+	 *         processed rows, {@link DLSessionMetrics#DISABLED} if this status does not collect metrics
+	 */
+	default DLSessionMetrics getMetrics() {
+		return DLSessionMetrics.DISABLED;
+	}
+
 	// events:
 
 	DLEvent<Void> trainingStarted();